@@ -1,138 +1,902 @@
 package ataxx;
 
 import static ataxx.PieceColor.*;
-import static java.lang.Math.min;
 import static java.lang.Math.max;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Collections;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /** A Player that computes its own moves.
  *  @author Tianyi Fang
  */
 class AI extends Player {
 
-    /** Maximum minimax search depth before going to static evaluation. */
-    private static final int MAX_DEPTH = 5;
+    /** Largest change in the material difference that one move can
+     *  make: an extension that captures eight pieces. */
+    static final int MAX_GAIN = 2 * 8 + 1;
     /** A position magnitude indicating a win (for red if positive, blue
-     *  if negative). */
-    private static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+     *  if negative).  Wins found closer to the root score higher. */
+    static final int WINNING_VALUE = 1000000;
     /** A magnitude greater than a normal value. */
-    private static final int INFTY = Integer.MAX_VALUE;
+    private static final int INFTY = WINNING_VALUE + 1000;
+    /** Half-width of the initial aspiration window around the previous
+     *  iteration's score. */
+    private static final int ASPIRATION_WINDOW = 3;
+    /** Maximum number of plies searched from the root. */
+    static final int MAX_PLY = 64;
+    /** The value of a win proven by a ProofSearch, whose distance from
+     *  the root is unknown: less than that of any win found by
+     *  searching. */
+    static final int PROVEN_VALUE = WINNING_VALUE - MAX_PLY;
+    /** Number of positions visited between checks of the clock. */
+    private static final int CLOCK_INTERVAL = 1024;
+    /** Number of root moves searched together by the parallel search,
+     *  after the first. */
+    static final int SPLIT_BATCH = 8;
 
     /** A new AI for GAME that will play MYCOLOR. */
     AI(Game game, PieceColor myColor) {
         super(game, myColor);
     }
 
+    /** A new AI not attached to any game, which may only be used
+     *  through findMove(Board, Settings). */
+    AI() {
+        super(null, null);
+    }
+
+    /** A new helper of OWNER's parallel search, whose searches stop when
+     *  OWNER's are stopped. */
+    private AI(AI owner) {
+        super(null, null);
+        _owner = owner;
+    }
+
     @Override
     Move myMove() {
         if (!board().canMove(myColor())) {
-            System.out.println(_myColor.toString() + " passes.");
+            _game.reportMove("%s passes.", _myColor);
             return Move.pass();
         }
         Move move = findMove();
         String postion = (String.valueOf(move.col0())
              + String.valueOf(move.row0()) + '-' + String.valueOf(move.col1())
                                                 + String.valueOf(move.row1()));
-        System.out.println(_myColor.toString() + " moves " + postion + ".");
+        _game.reportMove("%s moves %s.", _myColor, postion);
         return move;
     }
 
     /** Return a move for me from the current position, assuming there
-     *  is a move. */
+     *  is a move, as found by my game's engine while my game goes on
+     *  reading commands (see Game.think).  If the game clock is
+     *  set, searches as deep as the deadlines it gives allow, rather than
+     *  to the "depth" setting. */
     private Move findMove() {
-        Board b = new Board(board());
-        if (myColor() == RED) {
-            findMove(b, MAX_DEPTH, true, 1, -INFTY, INFTY, false);
-        } else {
-            findMove(b, MAX_DEPTH, true, -1, -INFTY, INFTY, false);
+        Engine.Limits limits =
+            new Engine.Limits().settings(game().settings()).seed(_seed);
+        GameClock clock = game().clock();
+        if (clock.isSet()) {
+            int empty = board().numPieces(EMPTY);
+            limits.depth(MAX_PLY - 1);
+            limits.millis(clock.softMillis(myColor(), empty),
+                          clock.hardMillis(myColor(), empty));
+        }
+        Engine.Search search =
+            game().engine().submit(board(), limits, game().cache());
+        return game().think(search, search::stop).bestMove();
+    }
+
+    /** Return a move for the side to move on BOARD, which must have a
+     *  legal move, using SETTINGS.  Searches by iterative deepening up
+     *  to the "depth" setting, each iteration starting with an aspiration
+     *  window around the score of the previous one, and stopping early
+     *  if the limits set by setLimits are reached or stop() is called.
+     *  The first iteration is always completed, and the result of an
+     *  iteration that is cut short is discarded.  Each time an iteration
+     *  changes the best move, the soft time limit is extended by half
+     *  its original value, up to the hard limit.  Calls the listener set
+     *  by setListener after each completed iteration.  If the "threads"
+     *  setting is positive, each iteration is a splitSearch.
+     *
+     *  If there is a cache (see setCache) holding the result of a search
+     *  from this position at least as deep as the "depth" setting, that
+     *  result is returned instead of searching (and reported to the
+     *  listener as a completed iteration); if it holds a shallower
+     *  result, its move is searched first.  The result of a search is
+     *  added to the cache.  A cached result may have come from a search
+     *  with another seed (or none), so with a cache, a seeded search is
+     *  reproducible only given the same cache contents.
+     *
+     *  If there are no more empty squares than the "proof-empty"
+     *  setting, first tries to prove the outcome by a ProofSearch
+     *  visiting at most "proof-nodes" positions, which stop() also cuts
+     *  short.  A proven outcome is
+     *  returned at once, as if found by a search to the maximum depth,
+     *  with a score of PROVEN_VALUE for a win. */
+    Move findMove(Board board, Settings settings) {
+        return findMove(new Position(board), settings);
+    }
+
+    /** Return a move for the side to move on POSITION as for
+     *  findMove(Board, Settings), using SETTINGS.  POSITION may be
+     *  changed. */
+    Move findMove(Position b, Settings settings) {
+        readSettings(settings);
+        _regionCount = new Regions(b).size();
+        int sense = b.whoseMove() == RED ? 1 : -1;
+        _random = _seed == null ? new Random() : new Random(_seed);
+        _nodes = 0;
+        _start = System.nanoTime();
+        _aborted = _limited = _proven = false;
+        _pvLength[0] = 0;
+        _pv.clear();
+        _lastFoundMove = null;
+        long hash = b.hash();
+        PositionCache.Entry cached = _cache == null ? null : _cache.get(hash);
+        if (cached != null
+            && b.allLegalMoves(b.whoseMove()).contains(cached.move())) {
+            _pv.add(cached.move());
+            if (cached.depth() >= _maxDepth) {
+                _depth = cached.depth();
+                _score = cached.score();
+                _proven = Math.abs(_score) == PROVEN_VALUE
+                    || (_depth == MAX_PLY - 1 && _score == 0);
+                _lastFoundMove = cached.move();
+                if (_listener != null) {
+                    _listener.accept(this);
+                }
+                return _lastFoundMove;
+            }
+        }
+        if (b.numPieces(EMPTY) <= _proofEmpty) {
+            if (_proofSearch == null) {
+                _proofSearch = new ProofSearch(ProofSearch.DEFAULT_ENTRIES);
+            }
+            ProofSearch.Result proven =
+                _proofSearch.prove(b, _proofNodes, this::stopped);
+            _nodes += _proofSearch.nodes();
+            if (proven != null) {
+                _depth = MAX_PLY - 1;
+                _score = sense * proven.value() * PROVEN_VALUE;
+                _proven = true;
+                _lastFoundMove = proven.move();
+                _pv.clear();
+                _pv.add(_lastFoundMove);
+                if (_listener != null) {
+                    _listener.accept(this);
+                }
+                if (_cache != null) {
+                    _cache.put(hash, _depth, _score, _lastFoundMove);
+                }
+                return _lastFoundMove;
+            }
+        }
+        long soft = _softLimit;
+        int score = 0;
+        for (int depth = 1; depth <= _maxDepth; depth += 1) {
+            if (depth > 1 && soft > 0 && elapsedMillis() >= soft) {
+                break;
+            }
+            if (_threads > 0) {
+                score = splitSearch(b, depth, settings);
+                _limited = true;
+            } else if (depth == 1) {
+                score = findMove(b, depth, 0, sense, -INFTY, INFTY);
+                _limited = true;
+            } else {
+                int delta = ASPIRATION_WINDOW;
+                int alpha = max(-INFTY, score - delta),
+                    beta = Math.min(INFTY, score + delta);
+                while (!_aborted) {
+                    score = findMove(b, depth, 0, sense, alpha, beta);
+                    if (score <= alpha && alpha > -INFTY) {
+                        delta *= 4;
+                        alpha = max(-INFTY, score - delta);
+                    } else if (score >= beta && beta < INFTY) {
+                        delta *= 4;
+                        beta = Math.min(INFTY, score + delta);
+                    } else {
+                        break;
+                    }
+                }
+            }
+            if (_aborted) {
+                break;
+            }
+            _depth = depth;
+            _score = sense * score;
+            _pv.clear();
+            for (int k = 0; k < _pvLength[0]; k += 1) {
+                _pv.add(_pvTable[0][k]);
+            }
+            if (_lastFoundMove != null && _pv.get(0) != _lastFoundMove
+                && soft > 0) {
+                soft = Math.min(soft + _softLimit / 2,
+                                _hardLimit > 0 ? _hardLimit : Long.MAX_VALUE);
+            }
+            _lastFoundMove = _pv.get(0);
+            if (_listener != null) {
+                _listener.accept(this);
+            }
+        }
+        if (_cache != null) {
+            _cache.put(hash, _depth, _score, _lastFoundMove);
         }
         return _lastFoundMove;
     }
 
+    /** Look up and record the results of subsequent searches in CACHE
+     *  (none if null). */
+    void setCache(PositionCache cache) {
+        _cache = cache;
+    }
+
+    /** Return the value of POSITION for the side to move, as found by a
+     *  search DEPTH plies deep using SETTINGS, recording its principal
+     *  variation in _pvTable[0].  The root moves are searched separately
+     *  (by moveValue) by the number of threads given by the "threads"
+     *  setting: first the best move of the previous iteration, alone,
+     *  and then the others in batches of SPLIT_BATCH.  Each move of a
+     *  batch is first searched with a null window at the best value found
+     *  before the batch, and searched again with that value as alpha
+     *  only if it proves better.  The results of a batch are merged in
+     *  move order.  After the first iteration, the search is cut short
+     *  when stop() is called, when the hard time limit from setLimits
+     *  passes, or when the lesser of the "nodes" setting and the node
+     *  limit from setLimits is reached: each move's search is given the
+     *  time and nodes left before its batch, and the batch is abandoned
+     *  if any of them runs out.  Each move's search is seeded from my
+     *  seed, its depth, and its place in the order.  So the work done
+     *  and the move chosen depend on the seed, but not on the number of
+     *  threads or their timing.  (The time limits can still make the
+     *  depth reached vary.) */
+    private int splitSearch(Position position, int depth,
+                            Settings settings) {
+        List<Move> moves = Analyzer.rootMoves(position);
+        if (!_pv.isEmpty() && moves.remove(_pv.get(0))) {
+            moves.add(0, _pv.get(0));
+        }
+        int n = moves.size();
+        int[] values = new int[n];
+        long[] nodes = new long[n];
+        List<List<Move>> lines = new ArrayList<>(n);
+        for (int k = 0; k < n; k += 1) {
+            lines.add(null);
+        }
+        if (_helpers == null) {
+            _helpers = new AI[SPLIT_BATCH];
+            for (int k = 0; k < SPLIT_BATCH; k += 1) {
+                _helpers[k] = new AI(this);
+            }
+        }
+        boolean[] cut = new boolean[n];
+        long limit = _nodeLimit > 0 && _splitNodes > 0
+            ? Math.min(_nodeLimit, _splitNodes)
+            : Math.max(_nodeLimit, _splitNodes);
+        int alpha = -INFTY, best = 0;
+        for (int lo = 0; lo < n; lo = lo == 0 ? 1 : lo + SPLIT_BATCH) {
+            int hi = lo == 0 ? 1 : Math.min(n, lo + SPLIT_BATCH);
+            long nodesLeft = limit > 0 ? max(1, limit - _nodes) : 0,
+                millisLeft = _hardLimit > 0
+                    ? max(1, _hardLimit - elapsedMillis()) : 0;
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int k = lo; k < hi; k += 1) {
+                int at = k, bound = alpha;
+                AI helper = _helpers[k - lo];
+                tasks.add(() -> {
+                    helper.setSeed(_seed == null ? null
+                                   : _seed + 1000003L * depth + at);
+                    helper.setLimits(nodesLeft, 0, millisLeft);
+                    Position p = new Position(position);
+                    if (at == 0) {
+                        values[at] = helper.moveValue(p, moves.get(at), depth,
+                                                      bound, settings);
+                        nodes[at] = helper.nodes();
+                    } else {
+                        values[at] = helper.moveValue(p, moves.get(at), depth,
+                                                      bound, bound + 1,
+                                                      settings);
+                        nodes[at] = helper.nodes();
+                        if (values[at] > bound && !helper._aborted) {
+                            values[at] = helper.moveValue(p, moves.get(at),
+                                                          depth, bound,
+                                                          settings);
+                            nodes[at] += helper.nodes();
+                        }
+                    }
+                    cut[at] = helper._aborted;
+                    lines.set(at, new ArrayList<>(helper.principalVariation()));
+                    return null;
+                });
+            }
+            runAll(tasks);
+            boolean batchCut = false;
+            for (int k = lo; k < hi; k += 1) {
+                _nodes += nodes[k];
+                batchCut |= cut[k];
+                if (values[k] > alpha) {
+                    alpha = values[k];
+                    best = k;
+                }
+            }
+            if (_limited && (batchCut || _stopped
+                             || (limit > 0 && _nodes >= limit)
+                             || (_hardLimit > 0
+                                 && elapsedMillis() >= _hardLimit))) {
+                _aborted = true;
+                return 0;
+            }
+        }
+        List<Move> line = lines.get(best);
+        for (int k = 0; k < line.size(); k += 1) {
+            _pvTable[0][k] = line.get(k);
+        }
+        _pvLength[0] = line.size();
+        return alpha;
+    }
+
+    /** Run TASKS, in parallel if I have more than one thread. */
+    private void runAll(List<Callable<Void>> tasks) {
+        try {
+            if (_threads == 1 || tasks.size() == 1) {
+                for (Callable<Void> task : tasks) {
+                    task.call();
+                }
+                return;
+            }
+            if (_splitPool == null || _splitPoolSize != _threads) {
+                if (_splitPool != null) {
+                    _splitPool.shutdown();
+                }
+                _splitPoolSize = _threads;
+                _splitPool = Executors.newFixedThreadPool(_threads, r -> {
+                    Thread t = new Thread(r, "split search");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            for (Future<Void> result : _splitPool.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        } catch (Exception excp) {
+            throw new IllegalStateException(excp);
+        }
+    }
+
+    /** Limit subsequent searches to about NODES positions (no limit if
+     *  0).  No new iteration is started after SOFT milliseconds, and the
+     *  search stops after HARD milliseconds (no limits if 0). */
+    void setLimits(long nodes, long soft, long hard) {
+        _nodeLimit = nodes;
+        _softLimit = soft;
+        _hardLimit = hard;
+    }
+
+    /** Cause the current search, if any, to finish as soon as possible,
+     *  returning the best move of its last completed iteration.  May be
+     *  called from any thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Allow searches to run again after stop(). */
+    void resume() {
+        _stopped = false;
+    }
+
+    /** Call LISTENER with this AI after each completed iteration of a
+     *  search (none if null). */
+    void setListener(Consumer<AI> listener) {
+        _listener = listener;
+    }
+
+    /** Return true iff stop() has been called on me or my owner, and
+     *  not yet undone. */
+    private boolean stopped() {
+        return _stopped || (_owner != null && _owner._stopped);
+    }
+
+    /** Return the milliseconds since the start of the last search. */
+    long elapsedMillis() {
+        return (System.nanoTime() - _start) / 1000000;
+    }
+
+    /** Return true iff the current search must stop, recording that it
+     *  has.  Called once per node. */
+    private boolean aborted() {
+        if (!_aborted && _limited) {
+            _aborted = stopped()
+                || (_nodeLimit > 0 && _nodes >= _nodeLimit)
+                || (_hardLimit > 0 && _nodes % CLOCK_INTERVAL == 0
+                    && elapsedMillis() >= _hardLimit);
+        }
+        return _aborted;
+    }
+
+    /** Copy the search parameters from SETTINGS. */
+    private void readSettings(Settings settings) {
+        _maxDepth = Math.min(MAX_PLY - 1, settings.get("depth"));
+        _lmr = settings.get("lmr") != 0;
+        _lmrDepth = settings.get("lmr-depth");
+        _lmrMoves = settings.get("lmr-moves");
+        _lmrReduction = settings.get("lmr-reduction");
+        _lmrGain = settings.get("lmr-gain");
+        _futilityDepth = settings.get("futility-depth");
+        _futilityMargin = settings.get("futility-margin");
+        _razorDepth = settings.get("razor-depth");
+        _razorMargin = settings.get("razor-margin");
+        _probCut = settings.get("probcut") != 0;
+        _probCutT = settings.get("probcut-t") / 100.0;
+        _threads = settings.get("threads");
+        _splitNodes = settings.get("nodes");
+        _proofEmpty = settings.get("proof-empty");
+        _proofNodes = settings.get("proof-nodes");
+    }
+
+    /** Return the value of POSITION from the point of view of the side to
+     *  move, as found by a full-window search DEPTH plies deep using
+     *  SETTINGS and TABLE for ProbCut.  Used to collect search
+     *  statistics. */
+    int searchScore(Position position, int depth, Settings settings,
+                    ProbCut table) {
+        readSettings(settings);
+        _regionCount = new Regions(position).size();
+        _limited = _aborted = false;
+        _probCutTable = table;
+        _random = _seed == null ? new Random() : new Random(_seed);
+        _pv.clear();
+        int sense = position.whoseMove() == RED ? 1 : -1;
+        return findMove(new Position(position), depth, 0, sense,
+                        -INFTY, INFTY);
+    }
+
+    /** Return the value of MV, a move of the side to move on POSITION,
+     *  from that side's point of view, as found by a search DEPTH plies
+     *  deep from POSITION using SETTINGS, if that value is greater than
+     *  ALPHA, and otherwise some value no greater than ALPHA.  The reply
+     *  is searched by iterative deepening.  Afterwards,
+     *  principalVariation() is the line found, starting with MV, and
+     *  nodes() is the number of positions visited.  Ignores the limits
+     *  set by setLimits, except in a helper of a parallel search past
+     *  its first iteration, which stops at those limits or when its
+     *  owner is stopped (and then returns a meaningless value).
+     *  POSITION is left unchanged.  Used to score root moves one at a
+     *  time. */
+    int moveValue(Position position, Move mv, int depth, int alpha,
+                  Settings settings) {
+        return moveValue(position, mv, depth, alpha, INFTY, settings);
+    }
+
+    /** Return the value of MV on POSITION as for moveValue(POSITION,
+     *  MV, DEPTH, ALPHA, SETTINGS), except that if the value is at least
+     *  BETA, returns some value no less than BETA. */
+    int moveValue(Position position, Move mv, int depth, int alpha,
+                  int beta, Settings settings) {
+        readSettings(settings);
+        _regionCount = new Regions(position).size();
+        _random = _seed == null ? new Random() : new Random(_seed);
+        _nodes = 0;
+        _start = System.nanoTime();
+        _limited = _owner != null && _owner._limited;
+        _aborted = false;
+        _pv.clear();
+        _pv.add(mv);
+        int sense = position.whoseMove() == RED ? 1 : -1;
+        int score = 0;
+        position.makeMove(mv);
+        for (int d = 0; d < depth; d += 1) {
+            score = -findMove(position, d, 1, -sense, -beta, -alpha);
+            _pv.clear();
+            _pv.add(mv);
+            for (int k = 1; k < _pvLength[1]; k += 1) {
+                _pv.add(_pvTable[1][k]);
+            }
+        }
+        position.undo();
+        _depth = depth;
+        _score = sense * score;
+        return score;
+    }
+
     @Override
     void setSeed(Long seed) {
         _seed = seed;
     }
 
+    /** Return the principal variation found by the last search, starting
+     *  with the move chosen. */
+    List<Move> principalVariation() {
+        return Collections.unmodifiableList(_pv);
+    }
+
+    /** Return the score of the last search (positive favors red). */
+    int lastScore() {
+        return _score;
+    }
+
+    /** Return the depth completed by the last search. */
+    int lastDepth() {
+        return _depth;
+    }
+
+    /** Return true iff the last search's score is an outcome proven by
+     *  a ProofSearch (a win or loss if it is PROVEN_VALUE or its
+     *  negation, and otherwise a draw), rather than a searched
+     *  value. */
+    boolean lastProven() {
+        return _proven;
+    }
+
+    /** Return the number of positions visited by the last search. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return a one-line description of the result of the last search:
+     *  its depth, score, node count, and principal variation. */
+    String searchInfo() {
+        StringBuilder info = new StringBuilder();
+        info.append(String.format("depth %d score %d nodes %d pv",
+                                  _depth, _score, _nodes));
+        for (Move mv : _pv) {
+            info.append(' ').append(mv);
+        }
+        return info.toString();
+    }
+
     /** Used to communicate best moves found by findMove, when asked for. */
     private Move _lastFoundMove;
 
-    /** Find a move from position BOARD and return its value, recording
-     *  the move found in _lastFoundMove iff SAVEMOVE. The move
-     *  should have maximal value or have value >= BETA if SENSE==1,
-     *  and minimal value or value <= ALPHA if SENSE==-1. Searches up to
-     *  DEPTH levels before using a static estimate. If SIMPLE, only use
-     *  static value as a rough estimation.
-     */
-    private int findMove(Board board, int depth, boolean saveMove, int sense,
-                         int alpha, int beta, boolean simple) {
-        if (simple) {
-            if (board.gameOver() && board.leading() == RED) {
-                return INFTY;
-            }
-            if (board.gameOver() && board.leading() == BLUE) {
-                return -INFTY;
+    /** Find a move from position BOARD, PLY plies from the root, and
+     *  return its value from the point of view of the side to move
+     *  (red if SENSE==1, blue if SENSE==-1), recording the principal
+     *  variation from this position in _pvTable[PLY].  The value is
+     *  exact if it lies strictly between ALPHA and BETA; otherwise it
+     *  is a bound on the true value.  Searches up to DEPTH levels
+     *  before using a static estimate.  The first move is searched with
+     *  the full window and the others with a null window, re-searching
+     *  those that turn out to be better.
+     *
+     *  Near the leaves, moves (or whole nodes) that cannot raise the
+     *  score to ALPHA even if every move of ours gains the most
+     *  material possible are pruned (futility pruning), and late,
+     *  low-gain moves are first searched to a reduced depth, and
+     *  re-searched at full depth only if they fail high (late move
+     *  reductions).  At non-PV nodes, ProbCut predicts from shallow
+     *  searches whether this search would fail high or low, and if so,
+     *  returns the corresponding bound without searching.
+     *
+     *  Below the root, a position whose outcome is decided by its
+     *  independent regions (see Regions) is scored as a finished game.
+     *  Since the blocks never change, a board forming one region can be
+     *  decided only once a side has no pieces, and the regions are found
+     *  only on boards with more than one or with such a side.  Futility
+     *  pruning and ProbCut, whose margins are on the scale of material
+     *  rather than of wins, are skipped where the regions might decide
+     *  the game within DEPTH plies. */
+    private int findMove(Position board, int depth, int ply, int sense,
+                         int alpha, int beta) {
+        _nodes += 1;
+        _pvLength[ply] = ply;
+        if (aborted()) {
+            return 0;
+        }
+        if (board.gameOver()) {
+            return outcome(sense * (board.redPieces() - board.bluePieces()),
+                           ply);
+        }
+        Regions regions = null;
+        if (_regionCount > 1 || board.redPieces() == 0
+            || board.bluePieces() == 0) {
+            regions = new Regions(board);
+            if (ply > 0 && regions.decided()) {
+                return outcome(sense * regions.finalDifference(), ply);
             }
-        } else {
-            if (depth == 0 || board.gameOver()) {
-                return findMove(board, depth, false, sense, alpha, beta, true);
+        }
+        if (depth == 0 || ply == MAX_PLY - 1) {
+            return sense * staticScore(board);
+        }
+        boolean pvNode = beta - alpha > 1;
+        boolean futile = depth <= _futilityDepth && !pvNode
+            && !nearEnd(board, depth, regions);
+        int stand = 0, laterGain = 0;
+        if (futile || (depth <= _razorDepth && !pvNode)) {
+            stand = sense * staticScore(board);
+        }
+        if (depth <= _razorDepth && !pvNode
+            && stand + _razorMargin <= alpha) {
+            int razored = findMove(board, depth - 1, ply, sense,
+                                   alpha, alpha + 1);
+            if (razored <= alpha) {
+                return razored;
             }
         }
-        int bestSoFar = (sense == 1) ? -INFTY : INFTY;
-        List<Integer> positions = (sense == 1) ? board.allPositions(RED)
-                                               : board.allPositions(BLUE);
-        if (_seed != null) {
-            Collections.shuffle(positions, new Random(_seed));
+        if (futile) {
+            laterGain = MAX_GAIN * ((depth + 1) / 2 - 1) + _futilityMargin;
+            int bound = stand + maxGain(board) + laterGain;
+            if (bound <= alpha) {
+                return bound;
+            }
+        }
+        if (_probCut && !pvNode && Math.abs(beta) < WINNING_VALUE / 2
+            && !mayDecide(regions, depth)) {
+            int phase = ProbCut.phase(board);
+            for (ProbCut.Check check : _probCutTable.checks(depth, phase)) {
+                int bound = check.upper(beta, _probCutT);
+                if (bound < INFTY && findMove(board, check.shallow, ply, sense,
+                                              bound - 1, bound) >= bound) {
+                    return beta;
+                }
+                bound = check.lower(alpha, _probCutT);
+                if (bound > -INFTY && findMove(board, check.shallow, ply,
+                                               sense, bound, bound + 1)
+                    <= bound) {
+                    return alpha;
+                }
+            }
+        }
+        List<Move> moves = board.allLegalMoves(board.whoseMove());
+        if (moves.isEmpty()) {
+            moves.add(Move.pass());
         } else {
-            Collections.shuffle(positions);
-        }
-        for (Integer sq : positions) {
-            List<Integer> neighbors = board.squareIndices(sq, 2);
-            for (Integer nb : neighbors) {
-                if (board().checkMovable(sq, nb)) {
-                    char[] src = board.toChar(sq), dest = board.toChar(nb);
-                    Move mv = Move.move(src[0], src[1], dest[0], dest[1]);
-                    board.makeMove(mv);
-                    int scoreNext = simple ? staticScore(board)
-                                           : findMove(board, depth - 1, false,
-                                                   -sense, alpha, beta, false);
-                    if (sense == 1) {
-                        if (scoreNext >= bestSoFar || board.gameOver()) {
-                            if (saveMove) {
-                                _lastFoundMove = mv;
-                            }
-                            bestSoFar = scoreNext;
-                            alpha = max(alpha, scoreNext);
-                            if (beta <= alpha) {
-                                return bestSoFar;
-                            }
-                        }
-                    } else if (sense == -1) {
-                        if (scoreNext <= bestSoFar || board.gameOver()) {
-                            if (saveMove) {
-                                _lastFoundMove = mv;
-                            }
-                            bestSoFar = scoreNext;
-                            beta = min(beta, scoreNext);
-                            if (beta <= alpha) {
-                                return bestSoFar;
-                            }
-                        }
+            order(board, moves, ply);
+        }
+        int bestSoFar = -INFTY;
+        int searched = 0;
+        for (Move mv : moves) {
+            int gain = mv.isPass() ? 0 : gain(board, mv);
+            if (futile && searched > 0 && stand + gain + laterGain <= alpha) {
+                bestSoFar = max(bestSoFar, stand + gain + laterGain);
+                continue;
+            }
+            board.makeMove(mv);
+            int scoreNext;
+            if (searched == 0) {
+                scoreNext = -findMove(board, depth - 1, ply + 1, -sense,
+                                      -beta, -alpha);
+            } else {
+                int reduction = 0;
+                if (_lmr && depth >= _lmrDepth && searched >= _lmrMoves
+                    && gain <= _lmrGain) {
+                    reduction = Math.min(_lmrReduction, depth - 1);
+                }
+                scoreNext = -findMove(board, depth - 1 - reduction, ply + 1,
+                                      -sense, -alpha - 1, -alpha);
+                if (reduction > 0 && scoreNext > alpha) {
+                    scoreNext = -findMove(board, depth - 1, ply + 1, -sense,
+                                          -alpha - 1, -alpha);
+                }
+                if (scoreNext > alpha && scoreNext < beta) {
+                    scoreNext = -findMove(board, depth - 1, ply + 1, -sense,
+                                          -beta, -alpha);
+                }
+            }
+            board.undo();
+            searched += 1;
+            if (scoreNext > bestSoFar) {
+                bestSoFar = scoreNext;
+                if (scoreNext > alpha) {
+                    alpha = scoreNext;
+                    _pvTable[ply][ply] = mv;
+                    System.arraycopy(_pvTable[ply + 1], ply + 1,
+                                     _pvTable[ply], ply + 1,
+                                     _pvLength[ply + 1] - ply - 1);
+                    _pvLength[ply] = _pvLength[ply + 1];
+                    if (alpha >= beta) {
+                        break;
                     }
-                    board.undo();
+                } else if (ply == 0 && _pvLength[0] == 0) {
+                    _pvTable[0][0] = mv;
+                    _pvLength[0] = 1;
                 }
             }
         }
         return bestSoFar;
     }
 
+    /** Return the value of a finished game, PLY plies from the root,
+     *  for a side that has DIFF more pieces than its opponent. */
+    private static int outcome(int diff, int ply) {
+        return diff > 0 ? WINNING_VALUE - ply
+            : diff < 0 ? -WINNING_VALUE + ply : 0;
+    }
+
+    /** Order MOVES, made from position BOARD PLY plies from the root,
+     *  for searching: the move from the previous principal variation
+     *  first, then by decreasing material gain, with ties in random
+     *  order.  Sorts on keys combining each move's gain and index, so
+     *  that the gains are computed once per move. */
+    private void order(Position board, List<Move> moves, int ply) {
+        Collections.shuffle(moves, _random);
+        int n = moves.size();
+        long[] keys = new long[n];
+        for (int k = 0; k < n; k += 1) {
+            keys[k] = ((long) (MAX_GAIN - gain(board, moves.get(k))) << 32) | k;
+        }
+        Arrays.sort(keys);
+        Move[] shuffled = moves.toArray(new Move[n]);
+        for (int k = 0; k < n; k += 1) {
+            moves.set(k, shuffled[(int) keys[k]]);
+        }
+        if (ply < _pv.size()) {
+            int k = moves.indexOf(_pv.get(ply));
+            if (k > 0) {
+                moves.add(0, moves.remove(k));
+            }
+        }
+    }
+
+    /** Return the change in the material difference, from the mover's
+     *  point of view, made by non-pass MV on BOARD: two for each capture,
+     *  plus one for an extension. */
+    static int gain(Position board, Move mv) {
+        PieceColor other = board.whoseMove().opposite();
+        int result = mv.isExtend() ? 1 : 0;
+        for (int off : Evaluator.NEAR) {
+            if (board.get(mv.toIndex() + off) == other) {
+                result += 2;
+            }
+        }
+        return result;
+    }
+
+    /** Return the largest gain (as for gain) of any move of the side to
+     *  move on BOARD, or 0 if it has none. */
+    static int maxGain(Position board) {
+        PieceColor me = board.whoseMove(), other = me.opposite();
+        int result = 0;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int sq = Board.index(c, r);
+                if (board.get(sq) != EMPTY) {
+                    continue;
+                }
+                int extend = -1, captures = 0;
+                for (int off : Evaluator.NEAR) {
+                    PieceColor p = board.get(sq + off);
+                    if (p == me) {
+                        extend = 1;
+                    } else if (p == other) {
+                        captures += 2;
+                    }
+                }
+                for (int off : Evaluator.FAR) {
+                    if (extend < 0 && board.get(sq + off) == me) {
+                        extend = 0;
+                    }
+                }
+                if (extend >= 0) {
+                    result = max(result, extend + captures);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return true iff the game on BOARD, whose regions are REGIONS
+     *  (null if not found), might end within DEPTH plies, so that the
+     *  bounds used for futility pruning may not hold: the board is
+     *  nearly full, either side is close to being wiped out, the jump
+     *  limit is near, or the regions might decide the game. */
+    private static boolean nearEnd(Position board, int depth,
+                                   Regions regions) {
+        return board.numJumps() + depth >= Board.JUMP_LIMIT
+            || board.numPieces(EMPTY) <= depth
+            || board.redPieces() <= 8 * depth
+            || board.bluePieces() <= 8 * depth
+            || mayDecide(regions, depth);
+    }
+
+    /** Return true iff REGIONS (none if null) might decide the game
+     *  within DEPTH plies.  Each move changes only one region, so each
+     *  contested region takes at least one. */
+    private static boolean mayDecide(Regions regions, int depth) {
+        return regions != null && regions.contested() <= depth;
+    }
+
     /** Return a heuristic value for BOARD. */
-    private int staticScore(Board board) {
-        return board.redPieces() - board.bluePieces();
+    private int staticScore(Position board) {
+        return _evaluator.score(board);
     }
 
+    /** Computes static scores. */
+    private final Evaluator _evaluator = Evaluator.create();
+
+    /** Principal variations: _pvTable[p][p .. _pvLength[p]-1] is the best
+     *  line found from the position p plies from the root. */
+    private final Move[][] _pvTable = new Move[MAX_PLY][MAX_PLY];
+    /** End indices of the lines in _pvTable. */
+    private final int[] _pvLength = new int[MAX_PLY];
+    /** Principal variation of the last completed iteration. */
+    private final List<Move> _pv = new ArrayList<>();
+    /** Score of the last completed iteration (positive favors red). */
+    private int _score;
+    /** Depth of the last completed iteration. */
+    private int _depth;
+    /** True iff _score was proven by a ProofSearch. */
+    private boolean _proven;
+    /** Number of positions visited by the current search. */
+    private long _nodes;
+    /** Search depth of the last iteration. */
+    private int _maxDepth;
+    /** True iff late move reductions are enabled. */
+    private boolean _lmr;
+    /** Minimum remaining depth for late move reductions. */
+    private int _lmrDepth;
+    /** Number of moves searched at full depth before reducing. */
+    private int _lmrMoves;
+    /** Plies by which late moves are reduced. */
+    private int _lmrReduction;
+    /** Largest gain of a move that may be reduced. */
+    private int _lmrGain;
+    /** Largest remaining depth at which futility pruning applies. */
+    private int _futilityDepth;
+    /** Safety margin for futility pruning. */
+    private int _futilityMargin;
+    /** Largest remaining depth at which razoring applies. */
+    private int _razorDepth;
+    /** Margin below alpha for razoring. */
+    private int _razorMargin;
+    /** True iff ProbCut is enabled. */
+    private boolean _probCut;
+    /** ProbCut confidence threshold, in standard deviations. */
+    private double _probCutT;
+    /** ProbCut models. */
+    private ProbCut _probCutTable = ProbCut.standard();
+    /** Number of threads of the parallel search (0 for the sequential
+     *  search). */
+    private int _threads;
+    /** Node limit of the parallel search (0 if none). */
+    private long _splitNodes;
+    /** Searchers of root moves for the parallel search (null until
+     *  needed). */
+    private AI[] _helpers;
+    /** Runs the parallel search's tasks (null until needed). */
+    private ExecutorService _splitPool;
+    /** Number of threads in _splitPool. */
+    private int _splitPoolSize;
+    /** Largest number of empty squares at which findMove tries to prove
+     *  the outcome, and the number of positions it may visit doing so. */
+    private int _proofEmpty;
+    private long _proofNodes;
+    /** Proves outcomes (null until needed). */
+    private ProofSearch _proofSearch;
+    /** Number of regions of the current search's position (see
+     *  Regions), which its moves do not change. */
+    private int _regionCount;
+    /** Source of move-ordering randomness for the current search. */
+    private Random _random;
+
+    /** Node limit of searches (0 if none). */
+    private long _nodeLimit;
+    /** Soft and hard time limits of searches in milliseconds (0 if
+     *  none). */
+    private long _softLimit, _hardLimit;
+    /** Value of System.nanoTime() at the start of the last search. */
+    private long _start;
+    /** True iff limits apply to the current iteration. */
+    private boolean _limited;
+    /** True iff the current search has been cut short. */
+    private boolean _aborted;
+    /** True iff stop() has been called. */
+    private volatile boolean _stopped;
+    /** The AI whose parallel search I help (null if none). */
+    private AI _owner;
+    /** Results of earlier searches (null if none). */
+    private PositionCache _cache;
+    /** Called after each completed iteration (null if none). */
+    private Consumer<AI> _listener;
+
     /** AI seed. */
     private Long _seed;
 }
@@ -0,0 +1,205 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.PieceColor.*;
+
+/** Finds the best few moves from a position, with their exact values and
+ *  principal variations, for analysis and for building opening books.
+ *  Each root move is searched separately (by AI.moveValue), and the
+ *  root moves are divided among the threads of a fork/join pool, which
+ *  balances the load by work stealing.  All the searches share one
+ *  bound: once K moves have exact values, the other moves need only be
+ *  shown to be no better than the Kth best of them, and so are searched
+ *  with that value as alpha.
+ *  @author Tianyi Fang
+ */
+class Analyzer {
+
+    /** One of the moves found by an analysis. */
+    static class Line {
+        /** A line starting with PV[0], with value SCORE (positive favors
+         *  red). */
+        Line(int score, List<Move> pv) {
+            _score = score;
+            _pv = Collections.unmodifiableList(new ArrayList<>(pv));
+        }
+
+        /** Return the move. */
+        Move move() {
+            return _pv.get(0);
+        }
+
+        /** Return the value of the move (positive favors red). */
+        int score() {
+            return _score;
+        }
+
+        /** Return the principal variation, starting with the move. */
+        List<Move> pv() {
+            return _pv;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+            result.append(String.format("%s score %d pv", move(), _score));
+            for (Move mv : _pv) {
+                result.append(' ').append(mv);
+            }
+            return result.toString();
+        }
+
+        /** Value of the move. */
+        private final int _score;
+        /** Principal variation. */
+        private final List<Move> _pv;
+    }
+
+    /** An analyzer whose searches run in POOL. */
+    Analyzer(ForkJoinPool pool) {
+        _pool = pool;
+    }
+
+    /** Return the K best moves of the side to move on BOARD, best first,
+     *  as found by searches DEPTH plies deep using SETTINGS, or all its
+     *  moves if it has no more than K.  Moves whose values tie with the
+     *  Kth best may be left out.  Returns an empty list if the side to
+     *  move has no moves. */
+    List<Line> analyze(Board board, Settings settings, int k, int depth) {
+        Position root = new Position(board);
+        List<Move> moves = rootMoves(root);
+        Best best = new Best(k);
+        _nodes.set(0);
+        if (!moves.isEmpty()) {
+            _pool.invoke(new RootMoves(root, moves, 0, moves.size(),
+                                       settings, depth, best));
+        }
+        return best.lines(root.whoseMove() == RED ? 1 : -1);
+    }
+
+    /** Return the moves of the side to move on ROOT, in the order in
+     *  which they should be searched: by decreasing material gain. */
+    static List<Move> rootMoves(Position root) {
+        List<Move> moves = root.allLegalMoves(root.whoseMove());
+        moves.sort(Comparator.comparingInt(mv -> -AI.gain(root, mv)));
+        return moves;
+    }
+
+    /** Return the number of positions visited by the last analysis. */
+    long nodes() {
+        return _nodes.get();
+    }
+
+    /** A bound less than any value. */
+    private static final int NO_BOUND = -AI.WINNING_VALUE - 1;
+
+    /** The best K root moves found so far, with their values for the
+     *  side to move.  Safe for use by several threads. */
+    static class Best {
+        /** An empty list holding at most K moves. */
+        Best(int k) {
+            _k = k;
+        }
+
+        /** Return the value that a move must exceed to be among the best,
+         *  or NO_BOUND if there are fewer than K of them. */
+        synchronized int bound() {
+            return _values.size() < _k ? NO_BOUND : _values.get(_k - 1);
+        }
+
+        /** Record that line PV has value VALUE, if that exceeds
+         *  bound(). */
+        synchronized void offer(int value, List<Move> pv) {
+            if (value <= bound()) {
+                return;
+            }
+            int i = 0;
+            while (i < _values.size() && _values.get(i) >= value) {
+                i += 1;
+            }
+            _values.add(i, value);
+            _lines.add(i, new ArrayList<>(pv));
+            if (_values.size() > _k) {
+                _values.remove(_k);
+                _lines.remove(_k);
+            }
+        }
+
+        /** Return my lines, with values multiplied by SENSE. */
+        synchronized List<Line> lines(int sense) {
+            List<Line> result = new ArrayList<>();
+            for (int i = 0; i < _values.size(); i += 1) {
+                result.add(new Line(sense * _values.get(i), _lines.get(i)));
+            }
+            return result;
+        }
+
+        /** Number of moves wanted. */
+        private final int _k;
+        /** Values of the best moves, in decreasing order. */
+        private final List<Integer> _values = new ArrayList<>();
+        /** Their principal variations. */
+        private final List<List<Move>> _lines = new ArrayList<>();
+    }
+
+    /** Searches a range of root moves, splitting it in two for the pool
+     *  until there is one move to search. */
+    private class RootMoves extends RecursiveAction {
+        /** Search MOVES[LO .. HI-1] from ROOT, DEPTH plies deep using
+         *  SETTINGS, offering the results to BEST. */
+        RootMoves(Position root, List<Move> moves, int lo, int hi,
+                  Settings settings, int depth, Best best) {
+            _root = root;
+            _moves = moves;
+            _lo = lo;
+            _hi = hi;
+            _settings = settings;
+            _depth = depth;
+            _best = best;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo > 1) {
+                int mid = (_lo + _hi) / 2;
+                invokeAll(new RootMoves(_root, _moves, _lo, mid, _settings,
+                                        _depth, _best),
+                          new RootMoves(_root, _moves, mid, _hi, _settings,
+                                        _depth, _best));
+                return;
+            }
+            AI ai = _searchers.get();
+            int value = ai.moveValue(new Position(_root), _moves.get(_lo),
+                                     _depth, _best.bound(), _settings);
+            _nodes.addAndGet(ai.nodes());
+            _best.offer(value, ai.principalVariation());
+        }
+
+        /** The position analyzed. */
+        private final Position _root;
+        /** Its moves. */
+        private final List<Move> _moves;
+        /** The range of _moves to search. */
+        private final int _lo, _hi;
+        /** Search parameters. */
+        private final Settings _settings;
+        /** Search depth. */
+        private final int _depth;
+        /** Collects the results. */
+        private final Best _best;
+    }
+
+    /** Runs the searches. */
+    private final ForkJoinPool _pool;
+    /** The searcher of each thread, kept between analyses. */
+    private final ThreadLocal<AI> _searchers = ThreadLocal.withInitial(AI::new);
+    /** Number of positions visited by the current analysis. */
+    private final AtomicLong _nodes = new AtomicLong();
+}
@@ -0,0 +1,67 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/** Tests of multi-line analysis.
+ *  @author Tianyi Fang
+ */
+public class AnalyzerTest {
+
+    /** Return settings for searches DEPTH plies deep with no forward
+     *  pruning, so that their values are exact. */
+    private Settings exact() {
+        Settings settings = new Settings();
+        settings.set("lmr", "0");
+        settings.set("futility-depth", "0");
+        settings.set("razor-depth", "0");
+        settings.set("probcut", "0");
+        return settings;
+    }
+
+    /** Return the values of all moves from BOARD by searches DEPTH plies
+     *  deep using SETTINGS, one at a time, best first, for the side to
+     *  move. */
+    private List<Integer> allValues(Board board, Settings settings,
+                                    int depth) {
+        Position root = new Position(board);
+        AI ai = new AI();
+        List<Integer> result = new ArrayList<>();
+        for (Move mv : root.allLegalMoves(root.whoseMove())) {
+            result.add(ai.moveValue(root, mv, depth,
+                                    -AI.WINNING_VALUE - 1, settings));
+        }
+        result.sort(Collections.reverseOrder());
+        return result;
+    }
+
+    @Test public void testBestMoves() {
+        Board board = new Board();
+        board.setPosition("x2o3/1xo4/2x4/7/3o3/7/o5x o 0");
+        Settings settings = exact();
+        List<Integer> values = allValues(board, settings, 3);
+        Analyzer analyzer = new Analyzer(new ForkJoinPool(4));
+        List<Analyzer.Line> lines = analyzer.analyze(board, settings, 4, 3);
+        assertEquals(4, lines.size());
+        for (int i = 0; i < lines.size(); i += 1) {
+            assertEquals(values.get(i).intValue(), -lines.get(i).score());
+            assertEquals(lines.get(i).move(), lines.get(i).pv().get(0));
+        }
+        assertTrue(analyzer.nodes() > 0);
+    }
+
+    @Test public void testFewMoves() {
+        Board board = new Board();
+        board.setPosition("x6/ooo4/7/7/7/7/7 x 0");
+        Analyzer analyzer = new Analyzer(new ForkJoinPool(2));
+        List<Analyzer.Line> lines = analyzer.analyze(board, exact(), 10, 2);
+        assertEquals(allValues(board, exact(), 2).size(), lines.size());
+        board.setPosition("xoo4/ooo4/ooo4/7/7/7/7 x 0");
+        assertTrue(analyzer.analyze(board, exact(), 3, 2).isEmpty());
+    }
+}
@@ -2,16 +2,14 @@ package ataxx;
 
 import ucb.gui2.Pad;
 
-import java.awt.Color;
 import java.awt.Graphics2D;
-import java.awt.BasicStroke;
 import java.util.Observer;
 import java.util.Observable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.Timer;
 
 import java.awt.event.MouseEvent;
 
-import static ataxx.PieceColor.*;
-
 /** Widget for displaying an Ataxx board.
  *  @author Tianyi Fang
  */
@@ -24,41 +22,28 @@ class AtaxxBoardWidget extends Pad implements Observer {
     /** Radius of circle representing a piece. */
     static final int PIECE_RADIUS = 15;
 
-    /** Color of red pieces. */
-    private static final Color RED_COLOR = Color.RED;
-    /** Color of blue pieces. */
-    private static final Color BLUE_COLOR = Color.BLUE;
-    /** Color of blank squares. */
-    private static final Color BLANK_COLOR = Color.WHITE;
-
-    /** Stroke for lines. */
-    private static final BasicStroke LINE_STROKE = new BasicStroke(1.0f);
-
-
-
-    /** Model being displayed. */
-    private static Board _model;
+    /** Minimum time between repaints (ms): one frame at 60 Hz. */
+    static final int FRAME_MILLIS = 16;
 
     /** A new widget displaying MODEL. */
     AtaxxBoardWidget(Board model) {
-        _model = model;
+        _snapshot = model.snapshot();
+        _renderer = new BoardRenderer(SQDIM);
+        _frame = new Timer(FRAME_MILLIS, e -> repaint());
+        _frame.setRepeats(false);
         setMouseHandler("click", this::readMove);
-        _model.addObserver(this);
+        model.addObserver(this);
         _dim = SQDIM * SIDE;
         setPreferredSize(_dim, _dim);
     }
 
+    /** Draw the latest snapshot.  Only squares that changed since the
+     *  last paint are redrawn into the renderer's image, which is then
+     *  copied to G. */
     @Override
-    public synchronized void paintComponent(Graphics2D g) {
-        g.setColor(BLANK_COLOR);
-        g.fillRect(0, 0, _dim, _dim);
-
-
-    }
-
-    /** Draw a block centered at (CX, CY) on G. */
-    void drawBlock(Graphics2D g, int cx, int cy) {
-
+    public void paintComponent(Graphics2D g) {
+        _repaintPending.set(false);
+        g.drawImage(_renderer.render(_snapshot), 0, 0, null);
     }
 
     /** Notify observers of mouse's current position from click event WHERE. */
@@ -76,13 +61,30 @@ class AtaxxBoardWidget extends Pad implements Observer {
         }
     }
 
+    /** Display the snapshot ARG published by MODEL.  Repaints are
+     *  coalesced: at most one is requested per frame, and it shows the
+     *  latest snapshot. */
     @Override
-    public synchronized void update(Observable model, Object arg) {
-        repaint();
+    public void update(Observable model, Object arg) {
+        if (arg instanceof BoardSnapshot) {
+            _snapshot = (BoardSnapshot) arg;
+            if (_repaintPending.compareAndSet(false, true)) {
+                _frame.restart();
+            }
+        }
     }
 
     /** Dimension of current drawing surface in pixels. */
     private int _dim;
+    /** The position to display.  Written by the game thread and read
+     *  by the event thread, so never a live Board. */
+    private volatile BoardSnapshot _snapshot;
+    /** Draws snapshots into an off-screen image. */
+    private final BoardRenderer _renderer;
+    /** Fires the repaint for the current frame. */
+    private final Timer _frame;
+    /** True iff a repaint has been requested but not yet done. */
+    private final AtomicBoolean _repaintPending = new AtomicBoolean();
 
 
 
@@ -44,6 +44,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
      *  same commands as the text format for Ataxx. */
     AtaxxGUI(String title, Board model, Writer outCommands) {
         super(title, true);
+        addMenuButton("Game->Move now", this::moveNow);
         addMenuButton("Game->Quit", this::quit);
         addMenuButton("Options->Seed...", this::setSeed);
         _model = model;
@@ -59,6 +60,12 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         _model.addObserver(this);
     }
 
+    /** Execute the "Move now" button function: have an automated player
+     *  that is thinking move at once. */
+    private synchronized void moveNow(String unused) {
+        _out.printf("stop%n");
+    }
+
     /** Execute the "Quit" button function. */
     private synchronized void quit(String unused) {
         _out.printf("quit%n");
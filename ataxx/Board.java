@@ -49,15 +49,17 @@ class Board extends Observable {
     Board() {
         _board = new PieceColor[EXTENDED_SIDE * EXTENDED_SIDE];
         clear();
+        _snapshot = new BoardSnapshot(this);
     }
 
-    /** A copy of B. */
+    /** A copy of B, whose snapshot is B's. */
     @SuppressWarnings("unchecked")
     Board(Board b) {
         _board = b._board.clone();
         _whoseMove = b._whoseMove;
         _jumpCount = b._jumpCount;
         _undoStack = (Stack<Board>) b._undoStack.clone();
+        _snapshot = b._snapshot;
     }
 
     /** Return the linearized index of square COL ROW. */
@@ -114,7 +116,6 @@ class Board extends Observable {
         _board[index('a', '1')] = BLUE;
         _board[index('g', '7')] = BLUE;
         setChanged();
-        notifyObservers();
     }
 
     /** Return true iff the game is over: i.e., if neither side has
@@ -216,7 +217,7 @@ class Board extends Observable {
                 int sq = index((char) i, (char) j);
                 List<Integer> neighbors = squareIndices(sq, 2);
                 for (Integer nb : neighbors) {
-                    if (checkMovable(sq, nb)) {
+                    if (_board[sq] == who && _board[nb] == EMPTY) {
                         return true;
                     }
                 }
@@ -225,6 +226,24 @@ class Board extends Observable {
         return false;
     }
 
+    /** If I have changed since the last call, take a new snapshot and
+     *  notify my observers, passing them the snapshot.  Changes are not
+     *  published as they are made, so that a command or move that
+     *  changes me several times causes only one notification.  Only the
+     *  thread that modifies me may call this. */
+    void publish() {
+        if (hasChanged()) {
+            _snapshot = new BoardSnapshot(this);
+            notifyObservers(_snapshot);
+        }
+    }
+
+    /** Return an immutable copy of my position as of the last call of
+     *  publish (or my creation).  Safe to call from any thread. */
+    BoardSnapshot snapshot() {
+        return _snapshot;
+    }
+
     /** Return the color of the player who has the next move.  The
      *  value is arbitrary if gameOver(). */
     PieceColor whoseMove() {
@@ -288,7 +307,6 @@ class Board extends Observable {
             }
             _whoseMove = _whoseMove.opposite();
             setChanged();
-            notifyObservers();
         } else {
             throw error("That move is illegal.");
         }
@@ -301,7 +319,6 @@ class Board extends Observable {
         assert !canMove(_whoseMove);
         _whoseMove = _whoseMove.opposite();
         setChanged();
-        notifyObservers();
     }
 
     /** Undo the last move. */
@@ -315,7 +332,6 @@ class Board extends Observable {
             System.out.println("Aborted. Attempt to pop empty stack.");
         }
         setChanged();
-        notifyObservers();
     }
 
     /** Return true iff it is legal to place a block at C R. */
@@ -353,7 +369,6 @@ class Board extends Observable {
         _board[index2] = BLOCKED;
         _board[index3] = BLOCKED;
         setChanged();
-        notifyObservers();
     }
 
     /** Place a block at CR. */
@@ -361,7 +376,76 @@ class Board extends Observable {
         setBlock(cr.charAt(0), cr.charAt(1));
     }
 
-    /** Return WHO's all legal moves. (Unused) */
+    /** Set me to the position described by FEN, clearing the undo
+     *  history.  FEN lists the rows from 7 down to 1, separated by '/',
+     *  each giving its squares from column a to g as 'x' (red), 'o'
+     *  (blue), '-' (blocked), or a digit giving a number of empty
+     *  squares.  It is followed by the side to move ('x' or 'o') and,
+     *  optionally, the number of jumps since the last extend. */
+    void setPosition(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != SIDE || fields.length < 2
+            || !fields[1].matches("[xo]")
+            || (fields.length > 2 && !fields[2].matches("[0-9]+"))) {
+            throw error("Bad position: %s", fen);
+        }
+        PieceColor[] board = new PieceColor[_board.length];
+        Arrays.fill(board, BLOCKED);
+        for (int k = 0; k < SIDE; k += 1) {
+            char r = (char) ('7' - k);
+            char c = 'a';
+            for (char p : rows[k].toCharArray()) {
+                int n = p >= '1' && p <= '7' ? p - '0' : 1;
+                if (c + n > 'g' + 1 || (n == 1 && "xo-1".indexOf(p) < 0)) {
+                    throw error("Bad position: %s", fen);
+                }
+                for (; n > 0; n -= 1, c += 1) {
+                    board[index(c, r)] =
+                        p == 'x' ? RED : p == 'o' ? BLUE
+                        : p == '-' ? BLOCKED : EMPTY;
+                }
+            }
+            if (c != 'g' + 1) {
+                throw error("Bad position: %s", fen);
+            }
+        }
+        _board = board;
+        _whoseMove = fields[1].equals("x") ? RED : BLUE;
+        _jumpCount = fields.length > 2 ? Integer.parseInt(fields[2]) : 0;
+        _undoStack = new Stack<Board>();
+        setChanged();
+    }
+
+    /** Return a description of my position in the form accepted by
+     *  setPosition. */
+    String fen() {
+        StringBuilder result = new StringBuilder();
+        for (char r = '7'; r >= '1'; r -= 1) {
+            int empty = 0;
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                PieceColor p = get(c, r);
+                if (p == EMPTY) {
+                    empty += 1;
+                    continue;
+                }
+                if (empty > 0) {
+                    result.append(empty);
+                    empty = 0;
+                }
+                result.append(p == RED ? 'x' : p == BLUE ? 'o' : '-');
+            }
+            if (empty > 0) {
+                result.append(empty);
+            }
+            result.append(r > '1' ? "/" : "");
+        }
+        result.append(_whoseMove == RED ? " x " : " o ").append(_jumpCount);
+        return result.toString();
+    }
+
+    /** Return all of WHO's legal moves, whether or not it is WHO's
+     *  move. */
     List<Move> allLegalMoves(PieceColor who) {
         ArrayList<Move> result = new ArrayList<Move>();
         for (int i = 'a'; i <= 'g'; i++) {
@@ -370,7 +454,7 @@ class Board extends Observable {
                 if (get(sq) == who) {
                     List<Integer> neighbors = squareIndices(sq, 2);
                     for (Integer nb : neighbors) {
-                        if (checkMovable(sq, nb)) {
+                        if (_board[nb] == EMPTY) {
                             char[] grid = toChar(nb);
                             Move mv = Move.move((char) i, (char) j,
                                                  grid[0], grid[1]);
@@ -476,4 +560,7 @@ class Board extends Observable {
     /** The undo stack of current game. */
     private Stack<Board> _undoStack;
 
+    /** The position as of the last publish. */
+    private volatile BoardSnapshot _snapshot;
+
 }
@@ -0,0 +1,150 @@
+package ataxx;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import javax.imageio.ImageIO;
+
+import static ataxx.PieceColor.*;
+
+/** Draws board snapshots into an image that it keeps between calls,
+ *  redrawing only the squares that differ from the last snapshot drawn.
+ *  Needs no display, so it also serves for tests and for making
+ *  thumbnails in bulk:
+ *      java ataxx.BoardRenderer SQDIM OUTDIR < FENS
+ *  writes OUTDIR/N.png for the Nth position (in the form accepted by
+ *  Board.setPosition) on the standard input, with squares SQDIM pixels
+ *  on a side.
+ *  @author Tianyi Fang
+ */
+class BoardRenderer {
+
+    /** Color of red pieces. */
+    static final Color RED_COLOR = Color.RED;
+    /** Color of blue pieces. */
+    static final Color BLUE_COLOR = Color.BLUE;
+    /** Color of blank squares. */
+    static final Color BLANK_COLOR = Color.WHITE;
+    /** Color of blocks. */
+    static final Color BLOCK_COLOR = Color.DARK_GRAY;
+    /** Color of lines. */
+    static final Color LINE_COLOR = Color.BLACK;
+
+    /** A renderer drawing squares SQDIM pixels on a side. */
+    BoardRenderer(int sqdim) {
+        _sqdim = sqdim;
+        int dim = sqdim * Board.SIDE + 1;
+        _image = new BufferedImage(dim, dim, BufferedImage.TYPE_INT_RGB);
+    }
+
+    /** Bring my image up to date with SNAPSHOT, redrawing only the
+     *  squares that have changed, and return it.  The image is reused
+     *  by later calls. */
+    BufferedImage render(BoardSnapshot snapshot) {
+        long dirty;
+        if (_drawn == null) {
+            dirty = (1L << BoardSnapshot.SQUARES) - 1;
+        } else {
+            dirty = (snapshot.squares(RED) ^ _drawn.squares(RED))
+                | (snapshot.squares(BLUE) ^ _drawn.squares(BLUE))
+                | (snapshot.squares(BLOCKED) ^ _drawn.squares(BLOCKED));
+        }
+        _lastDirty = Long.bitCount(dirty);
+        if (dirty != 0) {
+            Graphics2D g = _image.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                               RenderingHints.VALUE_ANTIALIAS_ON);
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                for (char r = '1'; r <= '7'; r += 1) {
+                    if ((dirty & (1L << BoardSnapshot.bit(c, r))) != 0) {
+                        drawSquare(g, c, r, snapshot.get(c, r));
+                    }
+                }
+            }
+            g.dispose();
+        }
+        _drawn = snapshot;
+        return _image;
+    }
+
+    /** Return a new image of SNAPSHOT with squares SQDIM pixels on a
+     *  side. */
+    static BufferedImage image(BoardSnapshot snapshot, int sqdim) {
+        return new BoardRenderer(sqdim).render(snapshot);
+    }
+
+    /** Return the number of squares redrawn by the last call of
+     *  render. */
+    int lastDirty() {
+        return _lastDirty;
+    }
+
+    /** Return the size of a square in pixels. */
+    int squareSize() {
+        return _sqdim;
+    }
+
+    /** Draw square C R, holding CONTENTS, on G, including its
+     *  outline. */
+    private void drawSquare(Graphics2D g, char c, char r,
+                            PieceColor contents) {
+        int x = (c - 'a') * _sqdim, y = ('7' - r) * _sqdim;
+        g.setColor(contents == BLOCKED ? BLOCK_COLOR : BLANK_COLOR);
+        g.fillRect(x, y, _sqdim, _sqdim);
+        g.setColor(LINE_COLOR);
+        g.setStroke(LINE_STROKE);
+        g.drawRect(x, y, _sqdim, _sqdim);
+        if (contents == RED || contents == BLUE) {
+            int radius = _sqdim * PIECE_RATIO / 100;
+            g.setColor(contents == RED ? RED_COLOR : BLUE_COLOR);
+            g.fillOval(x + _sqdim / 2 - radius, y + _sqdim / 2 - radius,
+                       2 * radius, 2 * radius);
+        }
+    }
+
+    /** Write images of the positions on the standard input, as described
+     *  in the class comment, using ARGS[0] and ARGS[1]. */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java ataxx.BoardRenderer SQDIM OUTDIR");
+            System.exit(1);
+        }
+        int sqdim = Integer.parseInt(args[0]);
+        File dir = new File(args[1]);
+        BufferedReader in =
+            new BufferedReader(new InputStreamReader(System.in));
+        Board board = new Board();
+        int n = 0;
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            n += 1;
+            board.setPosition(line);
+            board.publish();
+            ImageIO.write(image(board.snapshot(), sqdim), "png",
+                          new File(dir, n + ".png"));
+        }
+    }
+
+    /** Radius of a piece, as a percentage of the square size. */
+    private static final int PIECE_RATIO = 30;
+    /** Stroke for lines. */
+    private static final BasicStroke LINE_STROKE = new BasicStroke(1.0f);
+
+    /** Size of a square in pixels. */
+    private final int _sqdim;
+    /** The image, showing _drawn. */
+    private final BufferedImage _image;
+    /** The snapshot last drawn (null if none). */
+    private BoardSnapshot _drawn;
+    /** Number of squares redrawn by the last render. */
+    private int _lastDirty;
+}
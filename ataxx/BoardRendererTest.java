@@ -0,0 +1,60 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+/** Tests of headless board rendering.
+ *  @author Tianyi Fang
+ */
+public class BoardRendererTest {
+
+    /** Square size used in tests. */
+    private static final int SQDIM = 20;
+
+    /** Return the color at the center of square C R of IMAGE. */
+    private Color center(BufferedImage image, char c, char r) {
+        return new Color(image.getRGB((c - 'a') * SQDIM + SQDIM / 2,
+                                      ('7' - r) * SQDIM + SQDIM / 2));
+    }
+
+    /** Assert that IMAGE0 and IMAGE1 are identical. */
+    private void checkSameImage(BufferedImage image0, BufferedImage image1) {
+        assertEquals(image0.getWidth(), image1.getWidth());
+        for (int x = 0; x < image0.getWidth(); x += 1) {
+            for (int y = 0; y < image0.getHeight(); y += 1) {
+                assertEquals("pixel " + x + "," + y,
+                             image0.getRGB(x, y), image1.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test public void testImage() {
+        Board board = new Board();
+        board.setBlock('c', '3');
+        board.publish();
+        BufferedImage image = BoardRenderer.image(board.snapshot(), SQDIM);
+        assertEquals(SQDIM * Board.SIDE + 1, image.getWidth());
+        assertEquals(BoardRenderer.RED_COLOR, center(image, 'a', '7'));
+        assertEquals(BoardRenderer.BLUE_COLOR, center(image, 'g', '7'));
+        assertEquals(BoardRenderer.BLOCK_COLOR, center(image, 'e', '5'));
+        assertEquals(BoardRenderer.BLANK_COLOR, center(image, 'd', '4'));
+    }
+
+    @Test public void testIncremental() {
+        Board board = new Board();
+        BoardRenderer renderer = new BoardRenderer(SQDIM);
+        renderer.render(board.snapshot());
+        assertEquals(Board.SIDE * Board.SIDE, renderer.lastDirty());
+        board.makeMove('g', '1', 'f', '2');
+        board.makeMove('a', '1', 'a', '3');
+        board.publish();
+        BufferedImage image = renderer.render(board.snapshot());
+        assertEquals(3, renderer.lastDirty());
+        checkSameImage(BoardRenderer.image(board.snapshot(), SQDIM), image);
+        renderer.render(board.snapshot());
+        assertEquals(0, renderer.lastDirty());
+    }
+}
@@ -0,0 +1,127 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** An immutable copy of the position on a Board, which any thread may
+ *  read while the game goes on.  The squares are held as bit sets (bit
+ *  7 * (row - '1') + (col - 'a') for square col row), so a snapshot is
+ *  a few words and costs little to make.  Board makes one each time it
+ *  publishes its changes.
+ *  @author Tianyi Fang
+ */
+final class BoardSnapshot {
+
+    /** Number of squares on the board. */
+    static final int SQUARES = Board.SIDE * Board.SIDE;
+
+    /** A snapshot of the current position on BOARD. */
+    BoardSnapshot(Board board) {
+        long red, blue, blocked;
+        red = blue = blocked = 0;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                long bit = 1L << bit(c, r);
+                switch (board.get(c, r)) {
+                case RED:
+                    red |= bit;
+                    break;
+                case BLUE:
+                    blue |= bit;
+                    break;
+                case BLOCKED:
+                    blocked |= bit;
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        _red = red;
+        _blue = blue;
+        _blocked = blocked;
+        _whoseMove = board.whoseMove();
+        _jumps = board.numJumps();
+        _moves = board.numMoves();
+    }
+
+    /** Return the bit number of square C R, where 'a' <= C <= 'g' and
+     *  '1' <= R <= '7'. */
+    static int bit(char c, char r) {
+        return Board.SIDE * (r - '1') + (c - 'a');
+    }
+
+    /** Return the contents of square C R, where 'a' <= C <= 'g' and
+     *  '1' <= R <= '7'. */
+    PieceColor get(char c, char r) {
+        long bit = 1L << bit(c, r);
+        if ((_red & bit) != 0) {
+            return RED;
+        } else if ((_blue & bit) != 0) {
+            return BLUE;
+        } else if ((_blocked & bit) != 0) {
+            return BLOCKED;
+        } else {
+            return EMPTY;
+        }
+    }
+
+    /** Return the set of squares holding COLOR, as a bit set. */
+    long squares(PieceColor color) {
+        switch (color) {
+        case RED:
+            return _red;
+        case BLUE:
+            return _blue;
+        case BLOCKED:
+            return _blocked;
+        default:
+            return ~(_red | _blue | _blocked) & ((1L << SQUARES) - 1);
+        }
+    }
+
+    /** Return the number of squares holding COLOR. */
+    int numPieces(PieceColor color) {
+        return Long.bitCount(squares(color));
+    }
+
+    /** Return the side to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of jumps since the last extend. */
+    int numJumps() {
+        return _jumps;
+    }
+
+    /** Return the number of moves and passes made in the game. */
+    int numMoves() {
+        return _moves;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof BoardSnapshot)) {
+            return false;
+        }
+        BoardSnapshot other = (BoardSnapshot) obj;
+        return _red == other._red && _blue == other._blue
+            && _blocked == other._blocked && _whoseMove == other._whoseMove
+            && _jumps == other._jumps && _moves == other._moves;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(_red * 31 + _blue) * 31
+            + Long.hashCode(_blocked) + _jumps + _whoseMove.ordinal();
+    }
+
+    /** Squares holding red pieces, blue pieces, and blocks. */
+    private final long _red, _blue, _blocked;
+    /** Side to move. */
+    private final PieceColor _whoseMove;
+    /** Jumps since the last extend. */
+    private final int _jumps;
+    /** Moves and passes made. */
+    private final int _moves;
+}
@@ -0,0 +1,76 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of board snapshots.
+ *  @author Tianyi Fang
+ */
+public class BoardSnapshotTest {
+
+    /** Assert that SNAPSHOT holds the current position of BOARD. */
+    private void checkSame(BoardSnapshot snapshot, Board board) {
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                assertEquals(board.get(c, r), snapshot.get(c, r));
+            }
+        }
+        assertEquals(board.whoseMove(), snapshot.whoseMove());
+        assertEquals(board.numJumps(), snapshot.numJumps());
+        assertEquals(board.numMoves(), snapshot.numMoves());
+        assertEquals(board.numPieces(EMPTY), snapshot.numPieces(EMPTY));
+    }
+
+    @Test public void testPublish() {
+        Board board = new Board();
+        board.setBlock('c', '3');
+        BoardSnapshot before = board.snapshot();
+        assertEquals(EMPTY, before.get('c', '3'));
+        board.publish();
+        BoardSnapshot after = board.snapshot();
+        checkSame(after, board);
+        board.makeMove('g', '1', 'f', '2');
+        assertSame(after, board.snapshot());
+        board.publish();
+        checkSame(board.snapshot(), board);
+        assertEquals(BLOCKED, after.get('c', '3'));
+        assertEquals(EMPTY, after.get('f', '2'));
+        assertEquals(RED, board.snapshot().get('f', '2'));
+        assertEquals(new Position(board.snapshot()).allLegalMoves(BLUE),
+                     board.allLegalMoves(BLUE));
+    }
+
+    @Test public void testConcurrentReader() throws InterruptedException {
+        Board board = new Board();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                BoardSnapshot s = board.snapshot();
+                long red = s.squares(RED), blue = s.squares(BLUE);
+                if ((red & blue) != 0 || s.numPieces(RED)
+                    + s.numPieces(BLUE) + s.numPieces(EMPTY)
+                    != BoardSnapshot.SQUARES) {
+                    failure.set("inconsistent snapshot");
+                }
+            }
+        });
+        reader.start();
+        Random random = new Random(2);
+        while (!board.gameOver()) {
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            board.makeMove(moves.isEmpty() ? Move.pass()
+                           : moves.get(random.nextInt(moves.size())));
+            board.publish();
+        }
+        reader.interrupt();
+        reader.join();
+        assertNull(failure.get());
+        checkSame(board.snapshot(), board);
+    }
+}
@@ -47,4 +47,23 @@ public class BoardTest {
         assertEquals("second pass failed to reach same position", b2, b0);
     }
 
+    /** Check that canMove and allLegalMoves judge the side they are
+     *  given, not the side to move, so that a side that cannot move
+     *  passes rather than ending the game. */
+    @Test public void testStuckSide() {
+        Board b = new Board();
+        b.setPosition("xoo4/ooo4/ooo4/7/7/7/7 x 0");
+        assertFalse(b.canMove(PieceColor.RED));
+        assertTrue(b.canMove(PieceColor.BLUE));
+        assertTrue(b.allLegalMoves(PieceColor.RED).isEmpty());
+        assertFalse(b.allLegalMoves(PieceColor.BLUE).isEmpty());
+        for (Move mv : b.allLegalMoves(PieceColor.BLUE)) {
+            assertEquals(PieceColor.BLUE, b.get(mv.col0(), mv.row0()));
+        }
+        assertFalse("game ended with a move left", b.gameOver());
+        b.pass();
+        assertEquals(PieceColor.BLUE, b.whoseMove());
+        assertTrue(b.legalMove(b.allLegalMoves(PieceColor.BLUE).get(0)));
+    }
+
 }
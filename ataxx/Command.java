@@ -1,5 +1,6 @@
 package ataxx;
 
+import java.util.HashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -16,17 +17,23 @@ class Command {
      *  programmer writes. */
     static enum Type {
         /* Start-up state only. */
-        AUTO("(?i)auto\\s+(red|blue)"),
+        AUTO("(?i)auto\\s+(red|blue)(?:\\s+(ai|mcts|net))?"),
         BLOCK("(?i)block\\s+([a-g][1-7])"),
         MANUAL("(?i)manual\\s+(red|blue)"),
         SEED("(?i)seed\\s+([0-9]+)"),
+        SET("(?i)set\\s+(\\S+)\\s+(-?[0-9]+)"),
+        TIME("(?i)time\\s+([0-9]+)(?:\\s+([0-9]+))?"),
         START,
         /* Regular moves (set-up or play) */
         PASS("(?i)pass|-"),
         PIECEMOVE("(?i)([a-g])([1-7])-([a-g])([1-7])"),
         /* Valid at any time. */
         LOAD("(?i)load\\s+(.+)"),
-        QUIT, CLEAR, DUMP, HELP,
+        CACHE("(?i)cache\\s+(.+)"),
+        NETWORK("(?i)network\\s+(.+)"),
+        ANALYZE("(?i)analyze\\s+([0-9]+)\\s+([0-9]+)"),
+        WORKERS("(?i)workers\\s+(.+)"),
+        QUIT, STOP, CLEAR, DUMP, HELP,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
         ERROR(".*"),
@@ -71,8 +78,219 @@ class Command {
 
     /** Parse COMMAND, returning the command and its operands.
      *  COMMAND is assumed to be trimmed of all leading and
-     *  trailing whitespace.  */
+     *  trailing whitespace.  Trailing optional operands that are
+     *  absent are omitted.  Equivalent to parseCommandRegex, but
+     *  dispatches on the first word of COMMAND and scans the rest by
+     *  hand instead of trying each Type's pattern in turn. */
     static Command parseCommand(String command) {
+        if (command == null) {
+            return new Command(Type.EOF);
+        }
+        command = command.trim();
+        int n = command.length();
+        int end;
+        for (end = 0; end < n && !isSpace(command.charAt(end)); end += 1) {
+            continue;
+        }
+        Command result;
+        if (end == n) {
+            result = parseWord(command);
+        } else {
+            Type type = KEYWORDS.get(asciiLowerCase(command, end));
+            result = type == null ? null
+                : parseOperands(type, command, end);
+        }
+        if (result != null) {
+            return result;
+        }
+        for (int i = 0; i < n; i += 1) {
+            if (isLineTerminator(command.charAt(i))) {
+                throw new Error("Internal failure: error command did not "
+                                + "match.");
+            }
+        }
+        return new Command(Type.ERROR);
+    }
+
+    /** Return the Command denoted by WORD, which contains no whitespace,
+     *  or null if it is erroneous. */
+    private static Command parseWord(String word) {
+        switch (word) {
+        case "start":
+            return new Command(Type.START);
+        case "quit":
+            return new Command(Type.QUIT);
+        case "stop":
+            return new Command(Type.STOP);
+        case "clear":
+            return new Command(Type.CLEAR);
+        case "dump":
+            return new Command(Type.DUMP);
+        case "help":
+            return new Command(Type.HELP);
+        case "-":
+            return new Command(Type.PASS);
+        default:
+            break;
+        }
+        if (word.length() == 4 && asciiLowerCase(word, 4).equals("pass")) {
+            return new Command(Type.PASS);
+        }
+        if (word.length() == 5 && isColumn(word.charAt(0))
+            && isRow(word.charAt(1)) && word.charAt(2) == '-'
+            && isColumn(word.charAt(3)) && isRow(word.charAt(4))) {
+            return new Command(Type.PIECEMOVE, word.substring(0, 1),
+                               word.substring(1, 2), word.substring(3, 4),
+                               word.substring(4, 5));
+        }
+        return null;
+    }
+
+    /** Return the Command of type TYPE whose operands follow position
+     *  START of COMMAND, where its first word ends, or null if they are
+     *  erroneous. */
+    private static Command parseOperands(Type type, String command,
+                                         int start) {
+        if (type == Type.LOAD || type == Type.CACHE
+            || type == Type.NETWORK || type == Type.WORKERS) {
+            while (isSpace(command.charAt(start))) {
+                start += 1;
+            }
+            for (int i = start; i < command.length(); i += 1) {
+                if (isLineTerminator(command.charAt(i))) {
+                    return null;
+                }
+            }
+            return new Command(type, command.substring(start));
+        }
+        String[] words = words(command, start);
+        boolean valid;
+        switch (type) {
+        case AUTO:
+            valid = (words.length == 1 || words.length == 2)
+                && isColor(words[0])
+                && (words.length == 1 || isEngine(words[1]));
+            break;
+        case BLOCK:
+            valid = words.length == 1 && words[0].length() == 2
+                && isColumn(words[0].charAt(0))
+                && isRow(words[0].charAt(1));
+            break;
+        case MANUAL:
+            valid = words.length == 1 && isColor(words[0]);
+            break;
+        case SEED:
+            valid = words.length == 1 && isNumeral(words[0], 0);
+            break;
+        case SET:
+            valid = words.length == 2
+                && isNumeral(words[1], words[1].startsWith("-") ? 1 : 0);
+            break;
+        case ANALYZE:
+            valid = words.length == 2 && isNumeral(words[0], 0)
+                && isNumeral(words[1], 0);
+            break;
+        case TIME:
+            valid = (words.length == 1 || words.length == 2)
+                && isNumeral(words[0], 0)
+                && (words.length == 1 || isNumeral(words[1], 0));
+            break;
+        default:
+            valid = false;
+            break;
+        }
+        return valid ? new Command(type, words) : null;
+    }
+
+    /** Return the whitespace-separated words of COMMAND after position
+     *  START, where COMMAND has no trailing whitespace. */
+    private static String[] words(String command, int start) {
+        int n = command.length(), count = 0;
+        for (int i = start; i < n; i += 1) {
+            if (isSpace(command.charAt(i)) && !isSpace(command.charAt(i + 1))) {
+                count += 1;
+            }
+        }
+        String[] result = new String[count];
+        int k = 0;
+        for (int i = start; i < n; ) {
+            while (isSpace(command.charAt(i))) {
+                i += 1;
+            }
+            int end;
+            for (end = i; end < n && !isSpace(command.charAt(end)); end += 1) {
+                continue;
+            }
+            result[k] = command.substring(i, end);
+            k += 1;
+            i = end;
+        }
+        return result;
+    }
+
+    /** Return the ASCII lower-case version of the first N characters of
+     *  S, leaving other characters unchanged. */
+    private static String asciiLowerCase(String s, int n) {
+        char[] result = new char[n];
+        for (int i = 0; i < n; i += 1) {
+            char c = s.charAt(i);
+            result[i] = c >= 'A' && c <= 'Z' ? (char) (c + 'a' - 'A') : c;
+        }
+        return new String(result);
+    }
+
+    /** Return true iff C matches \s in a Pattern. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /** Return true iff C is a line terminator, which '.' does not match
+     *  in a Pattern. */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085'
+            || c == '\u2028' || c == '\u2029';
+    }
+
+    /** Return true iff C is a column letter, in either case. */
+    private static boolean isColumn(char c) {
+        return (c >= 'a' && c <= 'g') || (c >= 'A' && c <= 'G');
+    }
+
+    /** Return true iff C is a row number. */
+    private static boolean isRow(char c) {
+        return c >= '1' && c <= '7';
+    }
+
+    /** Return true iff WORD is "red" or "blue", in any case. */
+    private static boolean isColor(String word) {
+        String w = asciiLowerCase(word, word.length());
+        return w.equals("red") || w.equals("blue");
+    }
+
+    /** Return true iff WORD is "ai", "mcts", or "net", in any case. */
+    private static boolean isEngine(String word) {
+        String w = asciiLowerCase(word, word.length());
+        return w.equals("ai") || w.equals("mcts") || w.equals("net");
+    }
+
+    /** Return true iff WORD consists of one or more decimal digits after
+     *  position START. */
+    private static boolean isNumeral(String word, int start) {
+        if (word.length() == start) {
+            return false;
+        }
+        for (int i = start; i < word.length(); i += 1) {
+            if (word.charAt(i) < '0' || word.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Parse COMMAND as for parseCommand, by matching it against the
+     *  pattern of each Type in turn.  The reference definition of the
+     *  command syntax. */
+    static Command parseCommandRegex(String command) {
         if (command == null) {
             return new Command(Type.EOF);
         }
@@ -80,7 +298,11 @@ class Command {
         for (Type type : Type.values()) {
             Matcher mat = type._pattern.matcher(command);
             if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
+                int n = mat.groupCount();
+                while (n > 0 && mat.group(n) == null) {
+                    n -= 1;
+                }
+                String[] operands = new String [n];
                 for (int i = 1; i <= operands.length; i += 1) {
                     operands[i - 1] = mat.group(i);
                 }
@@ -90,6 +312,20 @@ class Command {
         throw new Error("Internal failure: error command did not match.");
     }
 
+    /** The first words of commands with operands, in lower case, and
+     *  their types. */
+    private static final HashMap<String, Type> KEYWORDS = new HashMap<>();
+
+    static {
+        for (Type type : new Type[] { Type.AUTO, Type.BLOCK, Type.MANUAL,
+                                      Type.SEED, Type.SET, Type.TIME,
+                                      Type.LOAD, Type.CACHE,
+                                      Type.NETWORK, Type.ANALYZE,
+                                      Type.WORKERS }) {
+            KEYWORDS.put(type.toString().toLowerCase(), type);
+        }
+    }
+
     /** The command name. */
     private final Type _type;
     /** Command arguments. */
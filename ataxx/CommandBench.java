@@ -0,0 +1,66 @@
+package ataxx;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/** Measures the speed of command parsing on a replay-like mix of lines:
+ *  mostly moves, with some passes, setup commands, and errors.  Usage:
+ *      java ataxx.CommandBench [LINES [ROUNDS]]
+ *  @author Tianyi Fang
+ */
+class CommandBench {
+
+    /** Occasional lines other than moves. */
+    private static final String[] OTHERS = {
+        "-", "pass", "start", "auto blue", "manual red", "seed 42",
+        "set depth 3", "block c3", "dump", "clear", "oops", "a3-b3 foo",
+    };
+
+    /** Time parsing ARGS[0] lines (default 1000000), ARGS[1] times
+     *  (default 5), with each parser. */
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] input = new String[lines];
+        Random random = new Random(0);
+        Board board = new Board();
+        for (int k = 0; k < lines; k += 1) {
+            if (random.nextInt(10) == 0) {
+                input[k] = OTHERS[random.nextInt(OTHERS.length)];
+                continue;
+            }
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            if (moves.isEmpty() || board.gameOver()) {
+                board = new Board();
+                moves = board.allLegalMoves(board.whoseMove());
+            }
+            Move mv = moves.get(random.nextInt(moves.size()));
+            input[k] = mv.toString();
+            board.makeMove(mv);
+        }
+        for (int r = 0; r < rounds; r += 1) {
+            double regex = run(input, Command::parseCommandRegex);
+            double table = run(input, Command::parseCommand);
+            System.out.printf("regex %.2f M lines/s, table %.2f M lines/s"
+                              + " (%.1fx)%n", regex / 1e6, table / 1e6,
+                              table / regex);
+        }
+    }
+
+    /** Return the number of lines of INPUT per second that PARSER
+     *  parses. */
+    private static double run(String[] input,
+                              Function<String, Command> parser) {
+        long start = System.nanoTime();
+        int check = 0;
+        for (String line : input) {
+            check += parser.apply(line).commandType().ordinal();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (check == 0) {
+            System.out.println();
+        }
+        return input.length / seconds;
+    }
+}
@@ -37,6 +37,12 @@ class CommandSources implements CommandSource {
         _inputs.add(source);
     }
 
+    /** Return true iff a source added after the first (such as a
+     *  loaded file) is still being read. */
+    boolean nested() {
+        return _inputs.size() > 1;
+    }
+
     /** Stack of input sources, most recent on top. */
     private Stack<CommandSource> _inputs = new Stack<>();
 
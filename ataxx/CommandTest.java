@@ -5,6 +5,8 @@ package ataxx;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.Random;
+
 import ataxx.Command.Type;
 import static ataxx.Command.Type.*;
 
@@ -31,6 +33,9 @@ public class CommandTest {
     @Test public void testAUTO() {
         check("auto red", AUTO, "red");
         check("auto blue", AUTO, "blue");
+        check("auto red mcts", AUTO, "red", "mcts");
+        check("auto blue Net", AUTO, "blue", "Net");
+        check("auto blue ai", AUTO, "blue", "ai");
         checkError("auto green");
         checkError("autored");
         checkError("auto");
@@ -52,6 +57,48 @@ public class CommandTest {
         checkError("seed 142 foo");
     }
 
+    @Test public void testSET() {
+        check("set depth 7", SET, "depth", "7");
+        check("set futility-margin -2", SET, "futility-margin", "-2");
+        checkError("set depth");
+        checkError("set depth x");
+    }
+
+    @Test public void testTIME() {
+        check("time 60000", TIME, "60000");
+        check("TIME 60000  500", TIME, "60000", "500");
+        checkError("time");
+        checkError("time -5");
+        checkError("time 1 2 3");
+    }
+
+    @Test public void testCACHE() {
+        check("cache /tmp/ataxx.cache", CACHE, "/tmp/ataxx.cache");
+        check("Cache  my cache", CACHE, "my cache");
+        check("cache off", CACHE, "off");
+        checkError("cache");
+    }
+
+    @Test public void testNETWORK() {
+        check("network /tmp/best.net", NETWORK, "/tmp/best.net");
+        check("Network  my net", NETWORK, "my net");
+        checkError("network");
+    }
+
+    @Test public void testANALYZE() {
+        check("analyze 3 5", ANALYZE, "3", "5");
+        check("Analyze\t10  2", ANALYZE, "10", "2");
+        checkError("analyze 3");
+        checkError("analyze 3 x");
+        checkError("analyze 3 5 7");
+    }
+
+    @Test public void testWORKERS() {
+        check("workers 7001,7002", WORKERS, "7001,7002");
+        check("workers  host:7001 host:7002", WORKERS, "host:7001 host:7002");
+        checkError("workers");
+    }
+
     @Test public void testSTART() {
         check("start", START);
         checkError("start foo");
@@ -68,6 +115,11 @@ public class CommandTest {
         checkError("quit foo");
     }
 
+    @Test public void testSTOP() {
+        check("stop", STOP);
+        checkError("stop now");
+    }
+
     @Test public void testCLEAR() {
         check("clear", CLEAR);
         checkError("clear foo");
@@ -83,4 +135,49 @@ public class CommandTest {
         checkError("a7-a8");
     }
 
+    /** Return the type and operands of COMMAND, as parsed by the regular
+     *  expression parser if REGEX, or "Error" if it fails. */
+    private String parse(String command, boolean regex) {
+        try {
+            Command c = regex ? Command.parseCommandRegex(command)
+                : Command.parseCommand(command);
+            return c.commandType() + " " + String.join("|", c.operands());
+        } catch (Error excp) {
+            return "Error";
+        }
+    }
+
+    /** Pieces of random commands. */
+    private static final String[] PIECES = {
+        "auto", "AUTO", "block", "Block", "manual", "seed", "sEt", "set",
+        "start", "Start", "pass", "PASS", "-", "load", "cache", "analyze",
+        "workers", "quit", "clear", "dump", "help", "time", "eof", "red",
+        "Blue", "ai", "MCTS", "b3", "A3", "h3", "a3-b3", "C7-G1", "a0", "3",
+        "net", "network", "stop", "-2", "x", "depth", " ", " ",
+        "\t", "\n", "\u000b", "\f", "\r", "\u0085", "\u2028", "\u0001",
+    };
+
+    @Test public void testEquivalence() {
+        String[] fixed = {
+            "", "  ", "auto red", "auto  RED\tai", "autored", "auto red foo",
+            "set x\n-1", "set x -", "set x 1 2", "load  f.inp", "load",
+            "cache  f", "load a\nb", "load\na b", "seed 0012", "a1-G7", "PASS",
+            "x\u2028y", "quit\u0085", "block A7", "manual\u000bblue",
+        };
+        for (String cmnd : fixed) {
+            assertEquals("parsers differ on '" + cmnd + "'",
+                         parse(cmnd, true), parse(cmnd, false));
+        }
+        Random random = new Random(0);
+        for (int k = 0; k < 20000; k += 1) {
+            StringBuilder cmnd = new StringBuilder();
+            for (int n = random.nextInt(6); n >= 0; n -= 1) {
+                cmnd.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            String c = cmnd.toString();
+            assertEquals("parsers differ on '" + c + "'",
+                         parse(c, true), parse(c, false));
+        }
+    }
+
 }
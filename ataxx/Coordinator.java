@@ -0,0 +1,184 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** Does the work of an Analyzer with the help of SearchWorkers in other
+ *  processes.  The root moves form a queue of work units, from which
+ *  each worker connection takes one unit at a time, so that faster
+ *  workers do more of them.  Each unit is sent with the current bound
+ *  of the shared list of best moves (see Analyzer), so that results
+ *  already merged prune the units still to be searched.  A unit whose
+ *  worker fails is put back for the others; the analysis fails only if
+ *  every worker does.  A worker fails if it cannot be reached within
+ *  CONNECT_MILLIS, or takes longer than the reply timeout (see
+ *  setReplyTimeout) to answer for one unit, so that a stalled worker
+ *  cannot hold up the analysis for good.
+ *  @author Tianyi Fang
+ */
+class Coordinator {
+
+    /** Milliseconds allowed for connecting to a worker. */
+    static final int CONNECT_MILLIS = 5000;
+    /** Default milliseconds allowed for a worker's reply for one
+     *  unit. */
+    static final int REPLY_MILLIS = 600000;
+
+    /** A coordinator for the workers at ADDRESSES.  A worker may be
+     *  listed more than once, to have it search several units at
+     *  once. */
+    Coordinator(List<InetSocketAddress> addresses) {
+        _addresses = new ArrayList<>(addresses);
+    }
+
+    /** Return a coordinator for the workers listed in SPEC, as
+     *  HOST:PORT or PORT (meaning a port of this host), separated by
+     *  commas or whitespace. */
+    static Coordinator parse(String spec) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : spec.trim().split("[,\\s]+")) {
+            int colon = worker.lastIndexOf(':');
+            String host =
+                colon < 0 ? "localhost" : worker.substring(0, colon);
+            try {
+                int port = Integer.parseInt(worker.substring(colon + 1));
+                addresses.add(InetSocketAddress.createUnresolved(host, port));
+            } catch (NumberFormatException excp) {
+                throw error("Bad worker address: %s", worker);
+            }
+        }
+        return new Coordinator(addresses);
+    }
+
+    /** Treat workers that take more than MILLIS milliseconds to reply
+     *  for a unit as failed. */
+    void setReplyTimeout(int millis) {
+        _replyMillis = millis;
+    }
+
+    /** Return the number of workers. */
+    int workers() {
+        return _addresses.size();
+    }
+
+    /** Return the result of Analyzer.analyze(BOARD, SETTINGS, K, DEPTH),
+     *  found by my workers.  Units put back by failing workers are
+     *  retried by a new round of connections to the workers that have
+     *  not failed, as long as there are any. */
+    List<Analyzer.Line> analyze(Board board, Settings settings, int k,
+                                int depth) {
+        Position root = new Position(board);
+        ConcurrentLinkedQueue<Move> units =
+            new ConcurrentLinkedQueue<>(Analyzer.rootMoves(root));
+        Analyzer.Best best = new Analyzer.Best(k);
+        String fen = board.fen();
+        _nodes.set(0);
+        List<InetSocketAddress> live = new ArrayList<>(_addresses);
+        while (!units.isEmpty() && !live.isEmpty()) {
+            boolean[] failed = new boolean[live.size()];
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < live.size(); i += 1) {
+                InetSocketAddress address = live.get(i);
+                int at = i;
+                Thread thread = new Thread(() -> {
+                    failed[at] = !work(address, units, best, fen, settings,
+                                       depth);
+                }, "coordinator");
+                thread.start();
+                threads.add(thread);
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException excp) {
+                    Thread.currentThread().interrupt();
+                    throw error("Analysis interrupted");
+                }
+            }
+            List<InetSocketAddress> next = new ArrayList<>();
+            for (int i = 0; i < live.size(); i += 1) {
+                if (!failed[i]) {
+                    next.add(live.get(i));
+                }
+            }
+            live = next;
+        }
+        if (!units.isEmpty()) {
+            throw error("No worker could complete the analysis");
+        }
+        return best.lines(root.whoseMove() == RED ? 1 : -1);
+    }
+
+    /** Return the number of positions visited by the last analysis. */
+    long nodes() {
+        return _nodes.get();
+    }
+
+    /** Have the worker at ADDRESS search UNITS, root moves from the
+     *  position FEN, to depth DEPTH using SETTINGS, offering the results
+     *  to BEST, until there are none left or it fails.  Return false
+     *  iff it fails. */
+    private boolean work(InetSocketAddress address,
+                         ConcurrentLinkedQueue<Move> units,
+                         Analyzer.Best best, String fen, Settings settings,
+                         int depth) {
+        Move unit = null;
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(address.getHostString(),
+                                                 address.getPort()),
+                           CONNECT_MILLIS);
+            socket.setSoTimeout(_replyMillis);
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream()));
+            PrintStream out = new PrintStream(socket.getOutputStream(), true);
+            for (String setting : settings.toString().split("\\R")) {
+                out.println("set " + setting);
+            }
+            for (unit = units.poll(); unit != null; unit = units.poll()) {
+                out.printf("search %d %d %s %s%n", depth, best.bound(),
+                           unit, fen);
+                String reply = in.readLine();
+                String[] words = reply == null ? new String[0]
+                    : reply.split(" ");
+                if (words.length < 4 || !words[0].equals("value")) {
+                    throw new IOException("bad reply: " + reply);
+                }
+                List<Move> pv = new ArrayList<>();
+                for (int i = 3; i < words.length; i += 1) {
+                    Move mv = SearchWorker.parseMove(words[i]);
+                    if (mv == null) {
+                        throw new IOException("bad reply: " + reply);
+                    }
+                    pv.add(mv);
+                }
+                _nodes.addAndGet(Long.parseLong(words[2]));
+                best.offer(Integer.parseInt(words[1]), pv);
+            }
+            out.println("quit");
+            return true;
+        } catch (IOException | NumberFormatException excp) {
+            if (unit != null) {
+                units.add(unit);
+            }
+            return false;
+        }
+    }
+
+    /** Addresses of the workers. */
+    private final List<InetSocketAddress> _addresses;
+    /** Number of positions visited by the current analysis. */
+    private final AtomicLong _nodes = new AtomicLong();
+    /** Milliseconds allowed for a worker's reply for one unit. */
+    private int _replyMillis = REPLY_MILLIS;
+}
@@ -0,0 +1,133 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/** Tests of analysis by search workers on this host.
+ *  @author Tianyi Fang
+ */
+public class CoordinatorTest {
+
+    /** Return a new worker, serving in a background thread. */
+    private SearchWorker startWorker() throws IOException {
+        SearchWorker worker = new SearchWorker(0);
+        Thread thread = new Thread(() -> {
+            try {
+                worker.serve();
+            } catch (IOException excp) {
+                /* Ignore */
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return worker;
+    }
+
+    /** Return settings for searches with no forward pruning, so that
+     *  their values are exact. */
+    private Settings exact() {
+        Settings settings = new Settings();
+        settings.set("lmr", "0");
+        settings.set("futility-depth", "0");
+        settings.set("razor-depth", "0");
+        settings.set("probcut", "0");
+        return settings;
+    }
+
+    /** Assert that LINES0 and LINES1 give the same scores. */
+    private void checkSameScores(List<Analyzer.Line> lines0,
+                                 List<Analyzer.Line> lines1) {
+        assertEquals(lines0.size(), lines1.size());
+        for (int i = 0; i < lines0.size(); i += 1) {
+            assertEquals(lines0.get(i).score(), lines1.get(i).score());
+        }
+    }
+
+    @Test public void testWorkers() throws IOException {
+        SearchWorker w0 = startWorker(), w1 = startWorker();
+        Board board = new Board();
+        board.setPosition("x2o3/1xo4/2x4/7/3o3/7/o5x o 0");
+        List<Analyzer.Line> local = new Analyzer(new ForkJoinPool(1))
+            .analyze(board, exact(), 3, 3);
+        Coordinator coordinator =
+            Coordinator.parse(w0.port() + ", localhost:" + w1.port());
+        assertEquals(2, coordinator.workers());
+        checkSameScores(local, coordinator.analyze(board, exact(), 3, 3));
+        assertTrue(coordinator.nodes() > 0);
+        w0.close();
+        w1.close();
+    }
+
+    @Test public void testFailedWorker() throws IOException {
+        SearchWorker worker = startWorker();
+        int dead;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            dead = socket.getLocalPort();
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        addresses.add(new InetSocketAddress("localhost", dead));
+        addresses.add(new InetSocketAddress("localhost", worker.port()));
+        Board board = new Board();
+        List<Analyzer.Line> local = new Analyzer(new ForkJoinPool(1))
+            .analyze(board, exact(), 2, 2);
+        checkSameScores(local, new Coordinator(addresses)
+                        .analyze(board, exact(), 2, 2));
+        worker.close();
+        try {
+            new Coordinator(addresses).analyze(board, exact(), 2, 2);
+            fail("analysis without workers succeeded");
+        } catch (GameException excp) {
+            /* Expected */
+        }
+    }
+
+    @Test public void testStalledWorker() throws IOException {
+        SearchWorker worker = startWorker();
+        ServerSocket stalled = new ServerSocket(0);
+        List<Socket> connections = new ArrayList<>();
+        /* Accept connections, keeping them open, but never answer. */
+        Thread acceptor = new Thread(() -> {
+            try {
+                while (true) {
+                    connections.add(stalled.accept());
+                }
+            } catch (IOException excp) {
+                /* Closed. */
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        Coordinator coordinator =
+            Coordinator.parse(stalled.getLocalPort() + "," + worker.port());
+        coordinator.setReplyTimeout(500);
+        Board board = new Board();
+        long start = System.currentTimeMillis();
+        checkSameScores(new Analyzer(new ForkJoinPool(1))
+                        .analyze(board, exact(), 2, 2),
+                        coordinator.analyze(board, exact(), 2, 2));
+        assertTrue(System.currentTimeMillis() - start < 10000);
+        stalled.close();
+        worker.close();
+    }
+
+    @Test public void testBadCommands() {
+        try {
+            Coordinator.parse("localhost:x");
+            fail("bad address accepted");
+        } catch (GameException excp) {
+            /* Expected */
+        }
+        assertNull(SearchWorker.parseMove("a1c3"));
+        assertEquals(Move.move('a', '1', 'c', '3'),
+                     SearchWorker.parseMove("a1-c3"));
+        assertTrue(SearchWorker.parseMove("-").isPass());
+    }
+}
@@ -0,0 +1,316 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** An Ataxx engine for use within a JVM: a position and limits go in,
+ *  and a Search, a future result (move, score, and principal variation)
+ *  that can be stopped early, comes out.  Searches run on the engine's
+ *  own threads, one per search context; a context is an AI together
+ *  with everything it keeps from one search to the next
+ *  (principal-variation tables, evaluator, the proof-search table, and
+ *  the helpers of the parallel search), so that a burst of requests
+ *  reuses the contexts rather than allocating them.  Requests beyond
+ *  the number of contexts wait their turn.  All methods may be called
+ *  from any thread.  Games use the engine given to them by
+ *  Game.setEngine, or else standard().
+ *  @author Tianyi Fang
+ */
+public class Engine implements AutoCloseable {
+
+    /** Limits on a search.  Unset limits take the defaults of the
+     *  "set" command.  The setters return the Limits, so that they can
+     *  be chained. */
+    public static class Limits {
+
+        /** Search to DEPTH plies (at most AI.MAX_PLY - 1). */
+        public Limits depth(int depth) {
+            return set("depth", depth);
+        }
+
+        /** Stop after about NODES positions (no limit if 0). */
+        public Limits nodes(long nodes) {
+            _nodes = nodes;
+            return this;
+        }
+
+        /** Start no new iteration of deepening after SOFT milliseconds,
+         *  and stop after HARD milliseconds (no limits if 0). */
+        public Limits millis(long soft, long hard) {
+            _soft = soft;
+            _hard = hard;
+            return this;
+        }
+
+        /** Make the search reproducible, using random seed SEED (none
+         *  if null).  A search given a cache may instead return a result
+         *  the cache holds, which another seed may have produced. */
+        public Limits seed(Long seed) {
+            _seed = seed;
+            return this;
+        }
+
+        /** Set search parameter NAME, as for the "set" command, to
+         *  VALUE.  Throws IllegalArgumentException if there is no such
+         *  parameter. */
+        public Limits set(String name, int value) {
+            try {
+                _settings.set(name, Integer.toString(value));
+            } catch (GameException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            return this;
+        }
+
+        /** Return the search parameters. */
+        Settings settings() {
+            return _settings;
+        }
+
+        /** Use a copy of SETTINGS as the search parameters. */
+        Limits settings(Settings settings) {
+            _settings = new Settings(settings);
+            return this;
+        }
+
+        /** Search parameters. */
+        private Settings _settings = new Settings();
+        /** Node limit, and soft and hard time limits in milliseconds. */
+        private long _nodes, _soft, _hard;
+        /** Random seed (null if none). */
+        private Long _seed;
+    }
+
+    /** The result of a search. */
+    public static class Result {
+
+        /** The result of a search choosing MOVE, with SCORE (positive
+         *  favors red) after completing DEPTH plies and visiting NODES
+         *  positions, whose principal variation is PV. */
+        Result(Move move, int score, int depth, long nodes, List<Move> pv) {
+            _move = move;
+            _score = score;
+            _depth = depth;
+            _nodes = nodes;
+            _pv = Collections.unmodifiableList(new ArrayList<>(pv));
+        }
+
+        /** Return the move chosen, as c0r0-c1r1 or "-" for a pass. */
+        public String move() {
+            return _move.toString();
+        }
+
+        /** Return the score (positive favors red). */
+        public int score() {
+            return _score;
+        }
+
+        /** Return the depth of the last completed iteration. */
+        public int depth() {
+            return _depth;
+        }
+
+        /** Return the number of positions visited. */
+        public long nodes() {
+            return _nodes;
+        }
+
+        /** Return the principal variation, starting with move(). */
+        public List<String> pv() {
+            List<String> result = new ArrayList<>();
+            for (Move mv : _pv) {
+                result.add(mv.toString());
+            }
+            return result;
+        }
+
+        /** Return the move chosen. */
+        Move bestMove() {
+            return _move;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s score %d depth %d nodes %d pv %s",
+                                 move(), _score, _depth, _nodes,
+                                 String.join(" ", pv()));
+        }
+
+        /** The move chosen. */
+        private final Move _move;
+        /** Score, and depth completed. */
+        private final int _score, _depth;
+        /** Positions visited. */
+        private final long _nodes;
+        /** Principal variation. */
+        private final List<Move> _pv;
+    }
+
+    /** A search in progress: a future result that can be told to
+     *  finish early.  Cancelling it also stops the search. */
+    public static class Search extends CompletableFuture<Result> {
+
+        /** Have the search finish as soon as possible, with the best
+         *  move found by the iterations of deepening it has completed
+         *  (at least one).  A search not yet started will complete only
+         *  its first iteration.  May be called from any thread. */
+        public synchronized void stop() {
+            _stopped = true;
+            if (_ai != null) {
+                _ai.stop();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            stop();
+            return super.cancel(mayInterruptIfRunning);
+        }
+
+        /** Record that AI is performing me (none if null). */
+        private synchronized void attach(AI ai) {
+            _ai = ai;
+            if (ai != null && _stopped) {
+                ai.stop();
+            }
+        }
+
+        /** The AI performing me (null if none). */
+        private AI _ai;
+        /** True once stop() has been called. */
+        private boolean _stopped;
+    }
+
+    /** An engine with CONTEXTS search contexts. */
+    public Engine(int contexts) {
+        _contexts = Math.max(1, contexts);
+        _threads = Executors.newFixedThreadPool(_contexts, r -> {
+            Thread t = new Thread(r, "engine");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Return the engine shared by games not given one, with a context
+     *  per processor. */
+    static synchronized Engine standard() {
+        if (_standard == null) {
+            _standard =
+                new Engine(Runtime.getRuntime().availableProcessors());
+        }
+        return _standard;
+    }
+
+    /** Return the number of search contexts. */
+    public int contexts() {
+        return _contexts;
+    }
+
+    /** Return the number of search contexts created so far. */
+    int created() {
+        synchronized (_idle) {
+            return _created;
+        }
+    }
+
+    /** Search POSITION within LIMITS.  POSITION lists the rows from 7
+     *  down to 1, separated by '/', each giving its squares from column a
+     *  to g as 'x' (red), 'o' (blue), '-' (blocked), or a digit counting
+     *  empty squares, followed by the side to move ('x' or 'o') and,
+     *  optionally, the number of jumps since the last extend.  A side
+     *  that cannot move passes.  The search fails with an
+     *  IllegalArgumentException if POSITION is malformed or the game is
+     *  over. */
+    public Search submit(String position, Limits limits) {
+        Board board = new Board();
+        try {
+            board.setPosition(position);
+        } catch (GameException excp) {
+            Search result = new Search();
+            result.completeExceptionally(
+                new IllegalArgumentException(excp.getMessage()));
+            return result;
+        }
+        return submit(board, limits, null);
+    }
+
+    /** Search BOARD within LIMITS, looking up and recording results in
+     *  CACHE (none if null), as for submit(String, Limits).  BOARD may
+     *  change once this returns. */
+    Search submit(Board board, Limits limits, PositionCache cache) {
+        Search result = new Search();
+        if (board.gameOver()) {
+            result.completeExceptionally(
+                new IllegalArgumentException("game is over"));
+            return result;
+        }
+        if (!board.canMove(board.whoseMove())) {
+            result.complete(
+                new Result(Move.pass(), 0, 0, 0, List.of(Move.pass())));
+            return result;
+        }
+        Position position = new Position(board);
+        Settings settings = new Settings(limits.settings());
+        long nodes = limits._nodes, soft = limits._soft, hard = limits._hard;
+        Long seed = limits._seed;
+        _threads.execute(() -> {
+            if (result.isDone()) {
+                return;
+            }
+            AI ai = acquire();
+            try {
+                ai.setLimits(nodes, soft, hard);
+                ai.setSeed(seed);
+                ai.setCache(cache);
+                result.attach(ai);
+                Move move = ai.findMove(position, settings);
+                result.complete(new Result(move, ai.lastScore(),
+                                           ai.lastDepth(), ai.nodes(),
+                                           ai.principalVariation()));
+            } catch (RuntimeException | Error excp) {
+                result.completeExceptionally(excp);
+            } finally {
+                result.attach(null);
+                ai.resume();
+                _idle.add(ai);
+            }
+        });
+        return result;
+    }
+
+    /** Stop accepting requests.  Those already submitted still run. */
+    @Override
+    public void close() {
+        _threads.shutdown();
+    }
+
+    /** Return an idle search context, creating one if there is none. */
+    private AI acquire() {
+        AI ai = _idle.poll();
+        if (ai == null) {
+            ai = new AI();
+            synchronized (_idle) {
+                _created += 1;
+            }
+        }
+        return ai;
+    }
+
+    /** The engine returned by standard() (null until first needed). */
+    private static Engine _standard;
+
+    /** Number of search contexts. */
+    private final int _contexts;
+    /** Threads running searches, one per context. */
+    private final ExecutorService _threads;
+    /** Search contexts not in use. */
+    private final ConcurrentLinkedQueue<AI> _idle =
+        new ConcurrentLinkedQueue<>();
+    /** Number of search contexts created. */
+    private int _created;
+}
@@ -0,0 +1,167 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** Tests of the in-process engine.
+ *  @author Tianyi Fang
+ */
+public class EngineTest {
+
+    @Test public void testMatchesAI() throws Exception {
+        try (Engine engine = new Engine(1)) {
+            for (Board b : EvaluatorBench.randomBoards(5, new Random(6))) {
+                if (b.gameOver() || !b.canMove(b.whoseMove())) {
+                    continue;
+                }
+                Engine.Result result =
+                    engine.submit(b.fen(), new Engine.Limits().depth(3)
+                                  .seed(7L)).get();
+                AI ai = new AI();
+                ai.setSeed(7L);
+                Settings settings = new Settings();
+                settings.set("depth", "3");
+                Move move = ai.findMove(b, settings);
+                assertEquals(move.toString(), result.move());
+                assertEquals(ai.lastScore(), result.score());
+                assertEquals(3, result.depth());
+                assertEquals(result.move(), result.pv().get(0));
+                assertTrue(result.nodes() > 0);
+            }
+        }
+    }
+
+    @Test public void testBurst() throws Exception {
+        try (Engine engine = new Engine(2)) {
+            List<CompletableFuture<Engine.Result>> results = new ArrayList<>();
+            for (int k = 0; k < 12; k += 1) {
+                results.add(engine.submit(new Board().fen(),
+                                          new Engine.Limits().depth(2)
+                                          .seed((long) k)));
+            }
+            for (CompletableFuture<Engine.Result> r : results) {
+                assertTrue(new Board().legalMove(Move.move(
+                    r.get().move().charAt(0), r.get().move().charAt(1),
+                    r.get().move().charAt(3), r.get().move().charAt(4))));
+            }
+            assertTrue(engine.created() <= 2);
+        }
+    }
+
+    @Test public void testErrors() throws Exception {
+        try (Engine engine = new Engine(1)) {
+            try {
+                engine.submit("junk", new Engine.Limits()).get();
+                fail("bad position accepted");
+            } catch (ExecutionException excp) {
+                assertTrue(excp.getCause()
+                           instanceof IllegalArgumentException);
+            }
+            try {
+                new Engine.Limits().set("no-such-setting", 1);
+                fail("bad setting accepted");
+            } catch (IllegalArgumentException excp) {
+                /* Expected. */
+            }
+            Engine.Result pass =
+                engine.submit("ooxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/"
+                              + "xxxxxxx/xxxxxx1 o", new Engine.Limits())
+                .get();
+            assertEquals("-", pass.move());
+        }
+    }
+
+    @Test public void testStop() throws Exception {
+        try (Engine engine = new Engine(1)) {
+            Engine.Search search =
+                engine.submit(new Board().fen(), new Engine.Limits()
+                              .depth(AI.MAX_PLY - 1).seed(1L));
+            Thread.sleep(50);
+            search.stop();
+            Engine.Result result = search.get(5, TimeUnit.SECONDS);
+            assertTrue("no iteration completed: " + result,
+                       result.depth() >= 1);
+            assertTrue("not stopped: " + result,
+                       result.depth() < AI.MAX_PLY - 1);
+            assertTrue(new Board().legalMove(result.bestMove()));
+            Engine.Search cancelled =
+                engine.submit(new Board().fen(), new Engine.Limits()
+                              .depth(AI.MAX_PLY - 1));
+            assertTrue("search finished before cancellation",
+                       cancelled.cancel(true));
+            assertEquals(1, engine.submit(new Board().fen(),
+                                          new Engine.Limits().depth(1))
+                         .get(5, TimeUnit.SECONDS).depth());
+        }
+    }
+
+    @Test public void testThreadedStop() throws Exception {
+        try (Engine engine = new Engine(1)) {
+            Engine.Search search =
+                engine.submit(new Board().fen(), new Engine.Limits()
+                              .depth(AI.MAX_PLY - 1).set("threads", 2)
+                              .seed(1L));
+            Thread.sleep(200);
+            search.stop();
+            Engine.Result result = search.get(5, TimeUnit.SECONDS);
+            assertTrue("no iteration completed: " + result,
+                       result.depth() >= 1);
+            assertTrue("not stopped: " + result,
+                       result.depth() < AI.MAX_PLY - 1);
+            assertTrue(new Board().legalMove(result.bestMove()));
+        }
+    }
+
+    @Test public void testGameStop() throws Exception {
+        BlockingQueue<String> input = new LinkedBlockingQueue<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        Game game = new Game(new Board(), prompt -> {
+            try {
+                return input.take();
+            } catch (InterruptedException excp) {
+                return null;
+            }
+        }, new TextReporter(out), out);
+        game.setInteractive(true);
+        Thread play = new Thread(() -> game.process(false));
+        play.start();
+        for (String line : new String[] { "set depth 60", "auto red",
+                                          "manual blue", "start", "dump" }) {
+            input.add(line);
+        }
+        waitFor(bytes, "===");
+        assertFalse("dump waited for the move",
+                    bytes.toString().contains("Red moves"));
+        input.add("stop");
+        waitFor(bytes, "Red moves");
+        input.add("quit");
+        play.join(5000);
+        assertFalse("game did not quit", play.isAlive());
+        String[] lines = bytes.toString().split("\\R");
+        assertEquals("===", lines[0]);
+        assertTrue(lines[lines.length - 1]
+                   .matches("Red moves [a-g][1-7]-[a-g][1-7]\\."));
+    }
+
+    /** Wait up to 5 seconds for BYTES to contain TEXT. */
+    private void waitFor(ByteArrayOutputStream bytes, String text)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!bytes.toString().contains(text)
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
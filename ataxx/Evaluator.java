@@ -0,0 +1,162 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** Computes evaluation features of Ataxx positions.  Each feature is
+ *  a sum over the 49 squares of the board, counted positively for red
+ *  and negatively for blue, so that the features are data-parallel over
+ *  the squares and can be computed with vector operations.  An
+ *  Evaluator keeps scratch arrays between calls, so each thread that
+ *  evaluates positions should create its own.
+ *  @author Tianyi Fang
+ */
+abstract class Evaluator {
+
+    /** Feature: number of pieces. */
+    static final int MATERIAL = 0;
+    /** Feature: pieces weighted by SQUARE_WEIGHTS. */
+    static final int WEIGHTED = 1;
+    /** Feature: number of empty squares within two squares of each
+     *  piece, i.e., the number of moves available from each piece. */
+    static final int MOBILITY = 2;
+    /** Feature: number of pieces adjacent to at least one empty square. */
+    static final int FRONTIER = 3;
+    /** Number of features. */
+    static final int NUM_FEATURES = 4;
+
+    /** Number of squares in the extended board. */
+    static final int SQUARES = Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+    /** Linearized index of the first square on the real board. */
+    static final int FIRST = Board.index('a', '1');
+    /** Number of linearized indices from the first to the last square
+     *  on the real board, inclusive.  Border squares in this range are
+     *  blocked, and so contribute nothing to any feature. */
+    static final int SPAN = Board.index('g', '7') - FIRST + 1;
+
+    /** Offsets of the squares adjacent to a square. */
+    static final int[] NEAR = offsets(1, 1);
+    /** Offsets of the squares exactly two away from a square. */
+    static final int[] FAR = offsets(2, 2);
+
+    /** Weight of each linearized square for the WEIGHTED feature:
+     *  corners are worth the most and interior squares the least. */
+    static final int[] SQUARE_WEIGHTS = new int[SQUARES];
+
+    static {
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int edges = (c == 'a' || c == 'g' ? 1 : 0)
+                    + (r == '1' || r == '7' ? 1 : 0);
+                SQUARE_WEIGHTS[Board.index(c, r)] = 1 + edges;
+            }
+        }
+    }
+
+    /** Return a new Evaluator, using the Vector API if the
+     *  jdk.incubator.vector module is available and a scalar one
+     *  otherwise. */
+    static Evaluator create() {
+        if (_vectorAvailable) {
+            try {
+                return (Evaluator) Class.forName("ataxx.VectorEvaluator")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError excp) {
+                _vectorAvailable = false;
+            }
+        }
+        return new ScalarEvaluator();
+    }
+
+    /** Store the features of POSITION into RESULT[0 .. NUM_FEATURES-1]. */
+    abstract void features(Position position, int[] result);
+
+    /** Store the features of BOARD into RESULT[0 .. NUM_FEATURES-1]. */
+    void features(Board board, int[] result) {
+        features(new Position(board), result);
+    }
+
+    /** Store the features of BOARDS[k] into RESULT[k] for each k. */
+    void features(Board[] boards, int[][] result) {
+        for (int k = 0; k < boards.length; k += 1) {
+            features(boards[k], result[k]);
+        }
+    }
+
+    /** Return the weighted sum of the features of BOARD, positive when
+     *  red is ahead. */
+    int score(Board board) {
+        return score(new Position(board));
+    }
+
+    /** Return the weighted sum of the features of POSITION, positive
+     *  when red is ahead.  Material comes from POSITION's piece counts;
+     *  the other features, which take a pass over the board, are found
+     *  only if one of them has a weight.  With the default weights, this
+     *  is the cost of a leaf of the search. */
+    int score(Position position) {
+        int result = _weights[MATERIAL]
+            * (position.redPieces() - position.bluePieces());
+        if (_positional) {
+            features(position, _features);
+            for (int f = MATERIAL + 1; f < NUM_FEATURES; f += 1) {
+                result += _weights[f] * _features[f];
+            }
+        }
+        return result;
+    }
+
+    /** Set the weights used by score to WEIGHTS, indexed by feature. */
+    void setWeights(int... weights) {
+        assert weights.length == NUM_FEATURES;
+        System.arraycopy(weights, 0, _weights, 0, NUM_FEATURES);
+        _positional = false;
+        for (int f = MATERIAL + 1; f < NUM_FEATURES; f += 1) {
+            _positional |= _weights[f] != 0;
+        }
+    }
+
+    /** Return true iff this Evaluator uses vector operations. */
+    boolean isVector() {
+        return false;
+    }
+
+    /** Fill DIFF and EMPTY, indexed by linearized square, from POSITION.
+     *  DIFF[sq] is 1 for a red piece, -1 for a blue one, and 0 otherwise.
+     *  EMPTY[sq] is 1 for an empty square and 0 otherwise. */
+    static void encode(Position position, int[] diff, int[] empty) {
+        for (int sq = 0; sq < SQUARES; sq += 1) {
+            PieceColor p = position.get(sq);
+            diff[sq] = p == RED ? 1 : p == BLUE ? -1 : 0;
+            empty[sq] = p == EMPTY ? 1 : 0;
+        }
+    }
+
+    /** Return the linearized offsets of all squares whose distance
+     *  from a square is between MIN and MAX. */
+    private static int[] offsets(int min, int max) {
+        int n;
+        n = 0;
+        int[] result = new int[(2 * max + 1) * (2 * max + 1)];
+        for (int dc = -max; dc <= max; dc += 1) {
+            for (int dr = -max; dr <= max; dr += 1) {
+                int dist = Math.max(Math.abs(dc), Math.abs(dr));
+                if (dist >= min && dist <= max) {
+                    result[n] = Board.neighbor(0, dc, dr);
+                    n += 1;
+                }
+            }
+        }
+        return java.util.Arrays.copyOf(result, n);
+    }
+
+    /** Feature weights used by score.  By default, only material
+     *  counts. */
+    private final int[] _weights = { 1, 0, 0, 0 };
+    /** True iff a feature other than MATERIAL has a weight. */
+    private boolean _positional;
+    /** Scratch space for score. */
+    private final int[] _features = new int[NUM_FEATURES];
+
+    /** False once we discover that the Vector API is unavailable. */
+    private static boolean _vectorAvailable = true;
+}
@@ -0,0 +1,76 @@
+package ataxx;
+
+import java.util.List;
+import java.util.Random;
+
+/** Compares the throughput of the scalar and vector Evaluators on
+ *  random positions.  Run with
+ *      java --add-modules jdk.incubator.vector ataxx.EvaluatorBench [N]
+ *  to evaluate N positions (default 4096) in each trial.
+ *  @author Tianyi Fang
+ */
+class EvaluatorBench {
+
+    /** Number of timed trials per evaluator. */
+    private static final int TRIALS = 200;
+
+    /** Run the benchmark, with ARGS[0], if present, giving the number
+     *  of positions. */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        Board[] boards = randomBoards(n, new Random(42));
+        int[][] result = new int[n][Evaluator.NUM_FEATURES];
+
+        Evaluator scalar = new ScalarEvaluator();
+        Evaluator vector = Evaluator.create();
+        if (!vector.isVector()) {
+            System.out.println("Vector API unavailable; add "
+                               + "--add-modules jdk.incubator.vector.");
+        }
+        report("scalar", scalar, boards, result, false);
+        report("vector", vector, boards, result, false);
+        report("scalar batch", scalar, boards, result, true);
+        report("vector batch", vector, boards, result, true);
+    }
+
+    /** Time EVAL on BOARDS, storing into RESULT, one position at a time
+     *  or all at once if BATCH, and print positions per second under
+     *  NAME. */
+    private static void report(String name, Evaluator eval, Board[] boards,
+                               int[][] result, boolean batch) {
+        long best = Long.MAX_VALUE;
+        for (int t = 0; t < TRIALS; t += 1) {
+            long start = System.nanoTime();
+            if (batch) {
+                eval.features(boards, result);
+            } else {
+                for (int k = 0; k < boards.length; k += 1) {
+                    eval.features(boards[k], result[k]);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-14s %12.0f positions/s%n", name,
+                          boards.length * 1e9 / best);
+    }
+
+    /** Return N positions reached by random play from the initial
+     *  position, using RANDOM to choose moves. */
+    static Board[] randomBoards(int n, Random random) {
+        Board[] result = new Board[n];
+        for (int k = 0; k < n; k += 1) {
+            Board b = new Board();
+            int plies = random.nextInt(40);
+            for (int i = 0; i < plies && !b.gameOver(); i += 1) {
+                List<Move> moves = b.allLegalMoves(b.whoseMove());
+                if (moves.isEmpty()) {
+                    b.pass();
+                } else {
+                    b.makeMove(moves.get(random.nextInt(moves.size())));
+                }
+            }
+            result[k] = b;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,78 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import static ataxx.Evaluator.*;
+
+/** Tests of the Evaluators.
+ *  @author Tianyi Fang
+ */
+public class EvaluatorTest {
+
+    @Test public void testInitial() {
+        int[] f = new int[NUM_FEATURES];
+        Board b = new Board();
+        new ScalarEvaluator().features(b, f);
+        assertEquals("material", 0, f[MATERIAL]);
+        assertEquals("mobility", 0, f[MOBILITY]);
+        b.makeMove('g', '1', 'f', '2');
+        new ScalarEvaluator().features(b, f);
+        assertEquals("material after extend", 1, f[MATERIAL]);
+        assertEquals("weighted after extend", 1, f[WEIGHTED]);
+        assertEquals("frontier after extend", 1, f[FRONTIER]);
+        assertEquals("mobility after extend", (8 + 7 + 14) - (8 + 8),
+                     f[MOBILITY]);
+    }
+
+    @Test public void testAgree() {
+        Board[] boards = EvaluatorBench.randomBoards(37, new Random(7));
+        Evaluator scalar = new ScalarEvaluator();
+        Evaluator other = Evaluator.create();
+        int[][] batch = new int[boards.length][NUM_FEATURES];
+        other.features(boards, batch);
+        int[] f0 = new int[NUM_FEATURES], f1 = new int[NUM_FEATURES];
+        for (int k = 0; k < boards.length; k += 1) {
+            scalar.features(boards[k], f0);
+            other.features(boards[k], f1);
+            assertArrayEquals(f0, f1);
+            assertArrayEquals(f0, batch[k]);
+            assertEquals("score", boards[k].redPieces()
+                         - boards[k].bluePieces(), other.score(boards[k]));
+        }
+    }
+
+    @Test public void testWeights() {
+        Evaluator eval = Evaluator.create();
+        int[] f = new int[NUM_FEATURES];
+        for (Board b : EvaluatorBench.randomBoards(9, new Random(3))) {
+            eval.features(b, f);
+            eval.setWeights(2, 0, 0, 0);
+            assertEquals(2 * f[MATERIAL], eval.score(b));
+            eval.setWeights(2, 1, 0, 3);
+            assertEquals(2 * f[MATERIAL] + f[WEIGHTED] + 3 * f[FRONTIER],
+                         eval.score(b));
+            eval.setWeights(0, 0, 5, 0);
+            assertEquals(5 * f[MOBILITY], eval.score(b));
+        }
+    }
+
+    @Test public void testBatchSizes() {
+        Evaluator scalar = new ScalarEvaluator();
+        Evaluator other = Evaluator.create();
+        Random random = new Random(8);
+        int[] f = new int[NUM_FEATURES];
+        for (int n : new int[] { 40, 3, 5, 9, 17, 1, 40 }) {
+            Board[] boards = EvaluatorBench.randomBoards(n, random);
+            int[][] batch = new int[n][NUM_FEATURES];
+            other.features(boards, batch);
+            for (int k = 0; k < n; k += 1) {
+                scalar.features(boards[k], f);
+                assertArrayEquals(f, batch[k]);
+            }
+        }
+    }
+
+}
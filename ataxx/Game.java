@@ -7,8 +7,16 @@ import java.io.InputStreamReader;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 import static ataxx.PieceColor.*;
@@ -27,52 +35,71 @@ class Game {
     }
 
     /** A new Game, using BOARD to play on, reading initially from
-     *  BASESOURCE and using REPORTER for error and informational messages. */
+     *  BASESOURCE and using REPORTER for error and informational messages.
+     *  Other output (board dumps and help) goes to the standard output. */
     Game(Board board, CommandSource baseSource, Reporter reporter) {
+        this(board, baseSource, reporter, System.out);
+    }
+
+    /** A new Game, using BOARD to play on, reading initially from
+     *  BASESOURCE, using REPORTER for error and informational messages,
+     *  and printing board dumps and help on OUT. */
+    Game(Board board, CommandSource baseSource, Reporter reporter,
+         PrintStream out) {
         _inputs.addSource(baseSource);
         _board = board;
         _reporter = reporter;
+        _out = out;
         _state = SETUP;
     }
 
-    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI. */
+    /** Run a session of Ataxx gaming until a 'quit' command or the end
+     *  of input.  Use an AtaxxGUI iff USEGUI. */
     void process(boolean useGUI) {
         Player red, blue;
 
         red = blue = null;
 
         GameLoop:
-        while (true) {
+        while (!_quit) {
             doClear(null);
+            _board.publish();
 
             SetupLoop:
-            while (_state == SETUP) {
+            while (_state == SETUP && !_quit) {
                 doCommand();
             }
+            if (_quit) {
+                break;
+            }
 
             _state = PLAYING;
-            red = _redAuto ? new AI(this, RED)
+            red = _redAuto ? newAI(_redEngine, RED)
                            : new Manual(this, RED);
-            blue = _blueAuto ? new AI(this, BLUE)
+            blue = _blueAuto ? newAI(_blueEngine, BLUE)
                              : new Manual(this, BLUE);
             if (_seed != null) {
                 red.setSeed(_seed);
                 blue.setSeed(_seed);
             }
-            while (_state != SETUP && !_board.gameOver()) {
+            _clock.reset();
+            while (_state != SETUP && !_board.gameOver() && !_quit) {
                 Move move;
+                _clock.start(_board.whoseMove());
                 move = (_board.whoseMove() == RED) ? red.myMove()
                                                    : blue.myMove();
-                if (_state == PLAYING) {
+                _clock.stop();
+                if (_state == PLAYING && !_quit) {
                     try {
                         _board.makeMove(move);
                     } catch (GameException excp) {
                         _reporter.errMsg(excp.getMessage());
                     }
+                    _board.publish();
                 }
             }
 
-            if (_state != SETUP) {
+            if (_state != SETUP && !_quit) {
                 reportWinner();
             }
 
@@ -80,13 +107,153 @@ class Game {
                 _state = FINISHED;
             }
 
-            while (_state == FINISHED) {
+            while (_state == FINISHED && !_quit) {
                 doCommand();
             }
         }
 
     }
 
+    /** Read commands while my automated players think (see think) iff
+     *  INTERACTIVE.  Only appropriate for input typed by a user as the
+     *  game goes on: a script's commands are meant to follow the moves
+     *  that come before them. */
+    void setInteractive(boolean interactive) {
+        _interactive = interactive;
+    }
+
+    /** Have my automated players search with ENGINE, rather than
+     *  Engine.standard().  Used to bound the number of simultaneous
+     *  searches when many games share a JVM. */
+    void setEngine(Engine engine) {
+        _engine = engine;
+    }
+
+    /** Return the engine my automated players search with. */
+    Engine engine() {
+        return _engine == null ? Engine.standard() : _engine;
+    }
+
+    /** Announce a move (or pass) made by an automated player, using
+     *  FORMAT and ARGS as for String.format. */
+    void reportMove(String format, Object... args) {
+        if (!_quit) {
+            _reporter.moveMsg(format, args);
+        }
+    }
+
+    /** Return the result of SEARCH, a search by one of my automated
+     *  players.  If I am interactive (see setInteractive) and no loaded
+     *  file is being read, reads commands while it runs, without
+     *  prompting.  The command 'stop' calls
+     *  STOP, which should make SEARCH complete soon with the best move it
+     *  has found, and 'quit' does the same and ends the session.  The
+     *  commands 'dump' and 'help', which change nothing, are performed at
+     *  once unless commands read earlier are waiting.  Other commands are
+     *  kept, and performed in order once SEARCH is done and commands are
+     *  next wanted.  Reading stops early after a 'load', since the lines
+     *  of its file come before any that follow it. */
+    <T> T think(CompletableFuture<T> search, Runnable stop) {
+        boolean reading = _interactive && !_inputs.nested();
+        while (reading && !search.isDone()) {
+            if (_pendingLine == null) {
+                _pendingLine = CompletableFuture.supplyAsync(
+                    () -> _inputs.getLine(""), READERS);
+            }
+            try {
+                CompletableFuture.anyOf(search, _pendingLine).join();
+            } catch (CompletionException excp) {
+                break;
+            }
+            if (!_pendingLine.isDone()) {
+                break;
+            }
+            String line = _pendingLine.join();
+            _pendingLine = null;
+            if (line == null) {
+                reading = false;
+                continue;
+            }
+            Command cmnd = Command.parseCommand(line);
+            switch (cmnd.commandType()) {
+            case DUMP:
+            case HELP:
+                if (_deferred.isEmpty()) {
+                    _commands.get(cmnd.commandType()).accept(cmnd.operands());
+                } else {
+                    _deferred.add(line);
+                }
+                break;
+            case STOP:
+                stop.run();
+                break;
+            case QUIT:
+                stop.run();
+                _quit = true;
+                break;
+            case LOAD:
+                reading = false;
+                _deferred.add(line);
+                break;
+            default:
+                _deferred.add(line);
+                break;
+            }
+        }
+        return search.join();
+    }
+
+    /** Return the next line of input, using PROMPT if appropriate to the
+     *  input source: the first of those read by think and not yet
+     *  performed, if any, and otherwise one read from my input sources. */
+    private String nextLine(String prompt) {
+        if (!_deferred.isEmpty()) {
+            return _deferred.poll();
+        }
+        if (_pendingLine != null) {
+            String line = _pendingLine.join();
+            _pendingLine = null;
+            return line;
+        }
+        return _inputs.getLine(prompt);
+    }
+
+    /** Return a new automated player of kind ENGINE ("ai", "mcts", or
+     *  "net") playing COLOR. */
+    private Player newAI(String engine, PieceColor color) {
+        if (engine.equals("mcts") || engine.equals("net")) {
+            MctsAI player = new MctsAI(this, color);
+            if (engine.equals("net")) {
+                player.setNetwork(_network);
+            }
+            return player;
+        }
+        return new AI(this, color);
+    }
+
+    /** Return the cache of search results used by my automated players
+     *  (null if none). */
+    PositionCache cache() {
+        return _cache;
+    }
+
+    /** Have my automated players use CACHE (none if null), which I do
+     *  not close when I replace it. */
+    void setCache(PositionCache cache) {
+        _cache = cache;
+        _ownCache = false;
+    }
+
+    /** Return my game clock. */
+    GameClock clock() {
+        return _clock;
+    }
+
+    /** Return the settings used by my automated players. */
+    Settings settings() {
+        return _settings;
+    }
+
     /** Return a view of my game board that should not be modified by
      *  the caller. */
     Board board() {
@@ -96,23 +263,23 @@ class Game {
     /** Perform the next command from our input source. */
     void doCommand() {
         try {
-            Command cmnd =
-                Command.parseCommand(_inputs.getLine("ataxx: "));
+            Command cmnd = Command.parseCommand(nextLine("ataxx: "));
             _commands.get(cmnd.commandType()).accept(cmnd.operands());
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
         }
+        _board.publish();
     }
 
     /** Read and execute commands until encountering a move or until
      *  the game leaves playing state due to one of the commands. Return
      *  the terminating move command, or null if the game first drops out
-     *  of playing mode. If appropriate to the current input source, use
-     *  PROMPT to prompt for input. */
+     *  of playing mode or the session ends. If appropriate to the current
+     *  input source, use PROMPT to prompt for input. */
     Command getMoveCmnd(String prompt) {
-        while (_state == PLAYING) {
+        while (_state == PLAYING && !_quit) {
             try {
-                Command cmnd = Command.parseCommand(_inputs.getLine(prompt));
+                Command cmnd = Command.parseCommand(nextLine(prompt));
                 if (cmnd.commandType() != PIECEMOVE) {
                     _commands.get(cmnd.commandType()).accept(cmnd.operands());
                 } else {
@@ -121,6 +288,7 @@ class Game {
             } catch (GameException excp) {
                 _reporter.errMsg(excp.getMessage());
             }
+            _board.publish();
         }
         return null;
     }
@@ -132,13 +300,20 @@ class Game {
 
     /* Command Processors */
 
-    /** Perform the command 'auto OPERANDS[0]'. */
+    /** Perform the command 'auto OPERANDS[0] [OPERANDS[1]]', where the
+     *  optional second operand selects the kind of engine. */
     void doAuto(String[] operands) {
         checkState("auto", SETUP);
+        String engine = operands.length > 1 ? operands[1].toLowerCase() : "ai";
+        if (engine.equals("net") && _network == null) {
+            throw error("No network loaded (use the network command).");
+        }
         if (operands[0].equals("red")) {
             _redAuto = true;
+            _redEngine = engine;
         } else if (operands[0].equals("blue")) {
             _blueAuto = true;
+            _blueEngine = engine;
         }
     }
 
@@ -147,7 +322,7 @@ class Game {
         InputStream helpIn =
             Game.class.getClassLoader().getResourceAsStream("ataxx/help.txt");
         if (helpIn == null) {
-            System.err.println("No help available.");
+            _reporter.errMsg("No help available.");
         } else {
             try {
                 BufferedReader r
@@ -157,7 +332,7 @@ class Game {
                     if (line == null) {
                         break;
                     }
-                    System.out.println(line);
+                    _out.println(line);
                 }
                 r.close();
             } catch (IOException e) {
@@ -188,9 +363,14 @@ class Game {
         }
     }
 
-    /** Exit the program. */
+    /** End the session, causing process to return. */
     void doQuit(String[] unused) {
-        System.exit(0);
+        _quit = true;
+    }
+
+    /** Perform the command 'stop', which only has an effect while an
+     *  automated player is thinking (see think). */
+    void doStop(String[] unused) {
     }
 
     /** Perform the command 'start'. */
@@ -228,6 +408,7 @@ class Game {
         _state = SETUP;
         _blueAuto = true;
         _redAuto = false;
+        _redEngine = _blueEngine = "ai";
         _randoms = new Random();
         _seed = null;
     }
@@ -235,9 +416,12 @@ class Game {
     /** Perform the command 'dump'. */
     void doDump(String[] unused) {
         int printCount = 0;
-        System.out.println("===");
-        System.out.print(_board.toString(false));
-        System.out.println("===");
+        _out.println("===");
+        _out.print(_board.toString(false));
+        _out.println("===");
+        if (_clock.isSet()) {
+            _out.println(_clock);
+        }
     }
 
     /** Execute 'seed OPERANDS[0]' command, where the operand is a string
@@ -247,8 +431,83 @@ class Game {
         try {
             _seed = Long.parseLong(operands[0]);
         } catch (NumberFormatException excp) {
-            System.out.println("Number format incorrect.");
+            _reporter.errMsg("Number format incorrect.");
+        }
+    }
+
+    /** Execute the command 'set OPERANDS[0] OPERANDS[1]'. */
+    void doSet(String[] operands) {
+        _settings.set(operands[0], operands[1]);
+    }
+
+    /** Execute the command 'time OPERANDS[0] [OPERANDS[1]]', giving
+     *  each side OPERANDS[0] milliseconds for the game (0 for no limit)
+     *  and OPERANDS[1] (default 0) more after each move. */
+    void doTime(String[] operands) {
+        try {
+            _clock.set(Long.parseLong(operands[0]),
+                       operands.length > 1 ? Long.parseLong(operands[1]) : 0);
+        } catch (NumberFormatException excp) {
+            _reporter.errMsg("Number format incorrect.");
+        }
+    }
+
+    /** Execute the command 'cache OPERANDS[0]', making my automated
+     *  players use the cache in the file named OPERANDS[0], or none if
+     *  it is "off". */
+    void doCache(String[] operands) {
+        _cache = PositionCache.replace(_ownCache ? _cache : null,
+                                       operands[0]);
+        _ownCache = _cache != null;
+    }
+
+    /** Execute the command 'network OPERANDS[0]', making the "net"
+     *  engine use the network in the file named OPERANDS[0]. */
+    void doNetwork(String[] operands) {
+        _network = Network.load(operands[0]);
+    }
+
+    /** Execute the command 'analyze OPERANDS[0] OPERANDS[1]', printing
+     *  the OPERANDS[0] best moves of the side to move, as found by
+     *  searches OPERANDS[1] plies deep, with their values and principal
+     *  variations. */
+    void doAnalyze(String[] operands) {
+        int k, depth;
+        try {
+            k = Integer.parseInt(operands[0]);
+            depth = Integer.parseInt(operands[1]);
+        } catch (NumberFormatException excp) {
+            throw error("Number format incorrect.");
+        }
+        if (k < 1 || depth < 1 || depth >= AI.MAX_PLY) {
+            throw error("Cannot analyze %d lines to depth %d", k, depth);
+        }
+        if (_analyzer == null) {
+            _analyzer = new Analyzer(ForkJoinPool.commonPool());
         }
+        long start = System.nanoTime();
+        List<Analyzer.Line> lines;
+        long nodes;
+        if (_coordinator != null) {
+            lines = _coordinator.analyze(_board, _settings, k, depth);
+            nodes = _coordinator.nodes();
+        } else {
+            lines = _analyzer.analyze(_board, _settings, k, depth);
+            nodes = _analyzer.nodes();
+        }
+        for (int i = 0; i < lines.size(); i += 1) {
+            _out.printf("%d. %s%n", i + 1, lines.get(i));
+        }
+        _out.printf("analysis: depth %d, %d nodes, %d ms%n", depth,
+                    nodes, (System.nanoTime() - start) / 1000000);
+    }
+
+    /** Execute the command 'workers OPERANDS[0]', having 'analyze'
+     *  use the search workers listed in OPERANDS[0] (see
+     *  Coordinator.parse), or none if it is "off". */
+    void doWorkers(String[] operands) {
+        _coordinator = operands[0].equals("off") ? null
+            : Coordinator.parse(operands[0]);
     }
 
     /** Execute the command 'block OPERANDS[0]'. */
@@ -315,15 +574,37 @@ class Game {
         _commands.put(PASS, this::doPass);
         _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
+        _commands.put(SET, this::doSet);
+        _commands.put(TIME, this::doTime);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
+        _commands.put(CACHE, this::doCache);
+        _commands.put(NETWORK, this::doNetwork);
+        _commands.put(ANALYZE, this::doAnalyze);
+        _commands.put(WORKERS, this::doWorkers);
         _commands.put(QUIT, this::doQuit);
+        _commands.put(STOP, this::doStop);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
     }
 
+    /** Reads lines of input while automated players think. */
+    private static final ExecutorService READERS =
+        Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "input");
+            t.setDaemon(true);
+            return t;
+        });
+
     /** Input source. */
     private final CommandSources _inputs = new CommandSources();
+    /** Lines read while an automated player was thinking, not yet
+     *  performed. */
+    private final ArrayDeque<String> _deferred = new ArrayDeque<>();
+    /** Line being read by READERS (null if none). */
+    private CompletableFuture<String> _pendingLine;
+    /** True iff commands are read while automated players think. */
+    private boolean _interactive;
 
     /** My board. */
     private Board _board;
@@ -331,6 +612,13 @@ class Game {
     private State _state;
     /** Used to send messages to the user. */
     private Reporter _reporter;
+    /** Destination of board dumps and help. */
+    private final PrintStream _out;
+    /** True once the session has been ended by 'quit' or end of input. */
+    private boolean _quit;
+    /** Engine my automated players search with (null for
+     *  Engine.standard()). */
+    private Engine _engine;
     /** Source of pseudo-random numbers (used by AIs). */
     private Random _randoms = new Random();
 
@@ -340,6 +628,32 @@ class Game {
     /** Whether red is an auto player. */
     private boolean _redAuto = false;
 
+    /** Kind of engine ("ai", "mcts", or "net") used when red is
+     *  automated. */
+    private String _redEngine = "ai";
+
+    /** Kind of engine ("ai", "mcts", or "net") used when blue is
+     *  automated. */
+    private String _blueEngine = "ai";
+
     /** AI seed. */
     private Long _seed;
+
+    /** Parameters of the automated players. */
+    private final Settings _settings = new Settings();
+
+    /** Finds the best moves for 'analyze' (null until needed). */
+    private Analyzer _analyzer;
+    /** Has search workers in other processes do the work of _analyzer
+     *  (null if none). */
+    private Coordinator _coordinator;
+    /** Cache of search results (null if none). */
+    private PositionCache _cache;
+    /** True iff I opened _cache, and so should close it. */
+    private boolean _ownCache;
+    /** Network used by the "net" engine (null if none). */
+    private Network _network;
+
+    /** Time control of the game. */
+    private final GameClock _clock = new GameClock();
 }
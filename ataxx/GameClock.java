@@ -0,0 +1,124 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+
+/** A chess-style clock: each side has a total time for the game, from
+ *  which the time it takes for each of its moves is deducted, and an
+ *  increment added after each of its moves.  Also decides how long an
+ *  automated player should think about a move.  A clock that has not
+ *  been set imposes no limits.
+ *  @author Tianyi Fang
+ */
+class GameClock {
+
+    /** Fewest moves a side is assumed still to have to make. */
+    static final int MIN_MOVES_LEFT = 4;
+    /** Ratio of the hard deadline to the soft one. */
+    static final int HARD_FACTOR = 4;
+    /** Time kept in reserve for overhead (ms). */
+    static final int SAFETY_MILLIS = 20;
+
+    /** Set each side's time to MILLIS milliseconds, with INCREMENT
+     *  milliseconds added after each move, and stop the clock.  A MILLIS
+     *  of 0 unsets the clock. */
+    void set(long millis, long increment) {
+        _initial = millis;
+        _increment = increment;
+        reset();
+    }
+
+    /** Give both sides their full time again and stop the clock. */
+    void reset() {
+        _remaining[0] = _remaining[1] = _initial;
+        _running = null;
+    }
+
+    /** Return true iff the clock has been set. */
+    boolean isSet() {
+        return _initial > 0;
+    }
+
+    /** Return the increment (ms). */
+    long increment() {
+        return _increment;
+    }
+
+    /** Return the time SIDE has left (ms), counting the current move if
+     *  SIDE's clock is running.  Never negative. */
+    long remaining(PieceColor side) {
+        long result = _remaining[side.ordinal() - RED.ordinal()];
+        if (side == _running) {
+            result -= (System.nanoTime() - _started) / 1000000;
+        }
+        return Math.max(0, result);
+    }
+
+    /** Start SIDE's clock, stopping the other side's if it is
+     *  running. */
+    void start(PieceColor side) {
+        stop();
+        _running = side;
+        _started = System.nanoTime();
+    }
+
+    /** Stop the running clock, if any, charging its side for the time
+     *  since it started and adding the increment. */
+    void stop() {
+        if (_running != null) {
+            int k = _running.ordinal() - RED.ordinal();
+            _remaining[k] = remaining(_running) + _increment;
+            _running = null;
+        }
+    }
+
+    /** Return the time (ms) after which SIDE, with EMPTY empty squares
+     *  on the board, should not start another iteration of its search,
+     *  or 0 if the clock is not set. */
+    long softMillis(PieceColor side, int empty) {
+        return isSet() ? softMillis(remaining(side), _increment, empty) : 0;
+    }
+
+    /** Return the time (ms) at which SIDE, with EMPTY empty squares on
+     *  the board, must stop searching, or 0 if the clock is not set. */
+    long hardMillis(PieceColor side, int empty) {
+        return isSet() ? hardMillis(remaining(side), _increment, empty) : 0;
+    }
+
+    /** Return the soft deadline for a move by a side with REMAINING ms
+     *  left, INCREMENT ms added per move, and EMPTY empty squares on the
+     *  board.  The side is expected to make about half of the moves that
+     *  fill the board, and so is given an equal share of its time for
+     *  each, plus most of its increment. */
+    static long softMillis(long remaining, long increment, int empty) {
+        int movesLeft = Math.max(MIN_MOVES_LEFT, empty / 2);
+        long soft = remaining / movesLeft + increment * 3 / 4;
+        return Math.max(1, Math.min(soft,
+                                    hardMillis(remaining, increment, empty)));
+    }
+
+    /** Return the hard deadline for a move, given REMAINING, INCREMENT,
+     *  and EMPTY as for softMillis: several times the soft deadline, but
+     *  never more than a third of the time left. */
+    static long hardMillis(long remaining, long increment, int empty) {
+        int movesLeft = Math.max(MIN_MOVES_LEFT, empty / 2);
+        long hard = HARD_FACTOR * (remaining / movesLeft + increment);
+        hard = Math.min(hard, (remaining - SAFETY_MILLIS) / 3);
+        return Math.max(1, hard);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("clock: red %.2f s, blue %.2f s, "
+                             + "increment %.2f s", remaining(RED) / 1e3,
+                             remaining(BLUE) / 1e3, _increment / 1e3);
+    }
+
+    /** Time for the game and increment per move (ms). */
+    private long _initial, _increment;
+    /** Time left for red and blue (ms), not counting a running move. */
+    private final long[] _remaining = new long[2];
+    /** Side whose clock is running (null if none). */
+    private PieceColor _running;
+    /** Value of System.nanoTime() when _running's clock started. */
+    private long _started;
+}
@@ -0,0 +1,57 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of the game clock.
+ *  @author Tianyi Fang
+ */
+public class GameClockTest {
+
+    @Test public void testUnset() {
+        GameClock clock = new GameClock();
+        assertFalse(clock.isSet());
+        assertEquals(0, clock.softMillis(RED, 45));
+        assertEquals(0, clock.hardMillis(BLUE, 45));
+        clock.set(1000, 10);
+        assertTrue(clock.isSet());
+        clock.set(0, 0);
+        assertFalse(clock.isSet());
+    }
+
+    @Test public void testAllocation() {
+        assertEquals(60000 / 22 + 750,
+                     GameClock.softMillis(60000, 1000, 45));
+        assertEquals(4 * (60000 / 22 + 1000),
+                     GameClock.hardMillis(60000, 1000, 45));
+        assertEquals(1000 / 4, GameClock.softMillis(1000, 0, 3));
+        assertEquals((1000 - GameClock.SAFETY_MILLIS) / 3,
+                     GameClock.hardMillis(1000, 0, 3));
+        assertEquals(1, GameClock.softMillis(0, 0, 45));
+        for (long left = 0; left < 100000; left += 997) {
+            for (int empty = 0; empty <= 45; empty += 5) {
+                assertTrue(GameClock.softMillis(left, 100, empty)
+                           <= GameClock.hardMillis(left, 100, empty));
+            }
+        }
+    }
+
+    @Test public void testRunning() throws InterruptedException {
+        GameClock clock = new GameClock();
+        clock.set(10000, 500);
+        clock.start(RED);
+        Thread.sleep(50);
+        assertTrue(clock.remaining(RED) <= 9950);
+        clock.start(BLUE);
+        long red = clock.remaining(RED);
+        assertTrue(red <= 10450 && red > 10000);
+        clock.stop();
+        assertTrue(clock.remaining(BLUE) > 10000);
+        assertEquals(red, clock.remaining(RED));
+        clock.reset();
+        assertEquals(10000, clock.remaining(RED));
+        assertEquals(10000, clock.remaining(BLUE));
+    }
+}
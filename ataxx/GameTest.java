@@ -0,0 +1,44 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/** Tests of sessions whose commands come from scripts.
+ *  @author Tianyi Fang
+ */
+public class GameTest {
+
+    /** Return the output of a session whose input is SCRIPT. */
+    private String transcript(String script) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        new Game(new Board(), new ReaderSource(new StringReader(script),
+                                               false),
+                 new TextReporter(out), out).process(false);
+        return bytes.toString();
+    }
+
+    @Test public void testPipedInput() {
+        String[] lines =
+            transcript("seed 1\nauto red\nset depth 1\nstart\ndump\nquit\n")
+            .split("\\R");
+        int k;
+        for (k = 0; k < lines.length && !lines[k].startsWith("==="); k += 1) {
+            assertTrue("unexpected line: " + lines[k],
+                       lines[k].matches("(Red|Blue) moves [a-g][1-7]-"
+                                        + "[a-g][1-7]\\.|(Red|Blue) passes\\."
+                                        + "|Red wins\\.|Blue wins\\.|Draw\\."));
+        }
+        assertTrue("board dumped before the game ended",
+                   k >= 2 && lines[k - 1].matches("Red wins\\.|Blue wins\\."
+                                                  + "|Draw\\."));
+        assertEquals("===", lines[k]);
+        assertFalse("board not full", lines[k + 1].contains("-"));
+        assertEquals("===", lines[k + 8]);
+        assertEquals(k + 9, lines.length);
+    }
+}
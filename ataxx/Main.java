@@ -4,6 +4,7 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.PipedReader;
 import java.io.PipedWriter;
+import java.net.InetAddress;
 import java.awt.HeadlessException;
 
 /** The main program for Ataxx.
@@ -11,21 +12,128 @@ import java.awt.HeadlessException;
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  If
+     *  ARGS[k] is '--serve', instead serve games on the local port
+     *  ARGS[k+1].  If it is '--uai', instead speak the machine protocol
+     *  (see Uai) on the standard input and output.  If it is '--cache',
+     *  automated players use the cache of search results in the file
+     *  ARGS[k+1] (see PositionCache).  If it is '--worker', instead
+     *  search for coordinators in other processes (see SearchWorker) on
+     *  ARGS[k+1], a port of the loopback interface or HOST:PORT.  If it
+     *  is '--pipe', instead evaluate positions given in binary on the
+     *  standard input (see Pipe). */
     public static void main(String[] args) {
-        boolean useGUI;
-        useGUI = false;
+        boolean useGUI, uai, pipe;
+        useGUI = uai = pipe = false;
+        int servePort = -1;
+        String worker = null;
+        PositionCache cache = null;
         for (int i = 0; i < args.length; i += 1) {
             switch (args[i]) {
             case "--display":
                 useGUI = true;
                 break;
+            case "--uai":
+                uai = true;
+                break;
+            case "--pipe":
+                pipe = true;
+                break;
+            case "--serve":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                try {
+                    servePort = Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException excp) {
+                    usage();
+                }
+                i += 1;
+                break;
+            case "--worker":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                worker = args[i + 1];
+                i += 1;
+                break;
+            case "--cache":
+                if (i + 1 == args.length) {
+                    usage();
+                }
+                try {
+                    cache = PositionCache.open(args[i + 1],
+                                               PositionCache.DEFAULT_ENTRIES);
+                } catch (IOException excp) {
+                    System.err.printf("Could not use cache file %s: %s%n",
+                                      args[i + 1], excp.getMessage());
+                    System.exit(1);
+                }
+                i += 1;
+                break;
             default:
                 usage();
                 break;
             }
         }
 
+        if (uai) {
+            try {
+                Uai driver =
+                    new Uai(new InputStreamReader(System.in), System.out);
+                driver.setCache(cache);
+                driver.run();
+            } catch (IOException excp) {
+                System.exit(1);
+            }
+            System.exit(0);
+        }
+
+        if (pipe) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            try (Engine engine = new Engine(processors)) {
+                Pipe evaluator = new Pipe(System.in, System.out, engine,
+                                          PIPE_WINDOW * processors);
+                evaluator.setCache(cache);
+                evaluator.run();
+            } catch (IOException excp) {
+                System.err.printf("Pipe failed: %s%n", excp.getMessage());
+                System.exit(1);
+            }
+            System.exit(0);
+        }
+
+        if (worker != null) {
+            try {
+                int colon = worker.lastIndexOf(':');
+                int port = Integer.parseInt(worker.substring(colon + 1));
+                SearchWorker searcher = colon < 0 ? new SearchWorker(port)
+                    : new SearchWorker(InetAddress.getByName(
+                        worker.substring(0, colon)), port);
+                searcher.serve();
+            } catch (NumberFormatException excp) {
+                usage();
+            } catch (IOException excp) {
+                System.err.printf("Could not serve searches on %s: %s%n",
+                                  worker, excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (servePort >= 0) {
+            try {
+                Server server = new Server(servePort);
+                server.setCache(cache);
+                server.serve();
+            } catch (IOException excp) {
+                System.err.printf("Could not serve on port %d: %s%n",
+                                  servePort, excp.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
         Game game;
         Board board = new Board();
 
@@ -39,6 +147,7 @@ public class Main {
                                                                  BUFFER_LEN),
                                                  false),
                                 display);
+                game.setInteractive(true);
                 display.display(true);
             } catch (HeadlessException excp) {
                 System.err.printf("Could not connect to display.%n");
@@ -52,18 +161,25 @@ public class Main {
                             new ReaderSource(new InputStreamReader(System.in),
                                              true),
                             new TextReporter());
+            game.setInteractive(System.console() != null);
         }
+        game.setCache(cache);
         game.process(false);
+        System.exit(0);
     }
 
     /** Give usage message and exit. */
     static void usage() {
         System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
+                           + " [--strict] [--serve PORT] [--uai]"
+                           + " [--cache FILE] [--worker [HOST:]PORT]"
+                           + " [--pipe]");
         System.exit(1);
     }
 
     /** Size of the buffer for reading commands from a GUI (bytes). */
     private static final int BUFFER_LEN = 128;
+    /** Requests outstanding in --pipe mode per processor. */
+    private static final int PIPE_WINDOW = 4;
 
 }
@@ -0,0 +1,78 @@
+package ataxx;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import static ataxx.PieceColor.*;
+
+/** Plays the minimax AI against the MctsAI headlessly, alternating
+ *  colors, and reports the results.  The MctsAI is given, for each move,
+ *  the average time the AI has taken per move so far, so that the two
+ *  engines play at equal time.  Usage:
+ *      java ataxx.Match [GAMES [THREADS]]
+ *  @author Tianyi Fang
+ */
+class Match {
+
+    /** Time given to the MctsAI before the AI has moved (ms). */
+    private static final int INITIAL_MILLIS = 100;
+
+    /** Play ARGS[0] games (default 10), giving the MctsAI ARGS[1] threads
+     *  (default: all processors). */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+        int aiWins, mctsWins, draws;
+        aiWins = mctsWins = draws = 0;
+        long aiNanos, mctsNanos;
+        aiNanos = mctsNanos = 0;
+        int aiMoves, mctsMoves;
+        aiMoves = mctsMoves = 0;
+        Reporter silent =
+            new TextReporter(new PrintStream(OutputStream.nullOutputStream()));
+        for (int g = 0; g < games; g += 1) {
+            Board board = new Board();
+            Game game = new Game(board, p -> null, silent);
+            PieceColor aiColor = g % 2 == 0 ? RED : BLUE;
+            AI ai = new AI(game, aiColor);
+            MctsAI mcts = new MctsAI(game, aiColor.opposite());
+            mcts.setThreads(threads);
+            while (!board.gameOver()) {
+                long start = System.nanoTime();
+                Move move;
+                if (board.whoseMove() == aiColor) {
+                    move = ai.myMove();
+                    aiNanos += System.nanoTime() - start;
+                    aiMoves += 1;
+                } else {
+                    mcts.setTimeLimit(aiMoves == 0 ? INITIAL_MILLIS
+                        : (int) Math.max(1, aiNanos / aiMoves / 1000000));
+                    move = mcts.myMove();
+                    mctsNanos += System.nanoTime() - start;
+                    mctsMoves += 1;
+                }
+                board.makeMove(move);
+            }
+            int diff = board.numPieces(aiColor)
+                - board.numPieces(aiColor.opposite());
+            if (diff > 0) {
+                aiWins += 1;
+            } else if (diff < 0) {
+                mctsWins += 1;
+            } else {
+                draws += 1;
+            }
+            System.out.printf("Game %d: ai (%s) %d, mcts (%s) %d%n", g + 1,
+                              aiColor, board.numPieces(aiColor),
+                              aiColor.opposite(),
+                              board.numPieces(aiColor.opposite()));
+        }
+        System.out.printf("ai %d, mcts %d, draws %d%n",
+                          aiWins, mctsWins, draws);
+        System.out.printf("ai %.1f ms/move, mcts %.1f ms/move (%d threads)%n",
+                          aiNanos / 1e6 / Math.max(1, aiMoves),
+                          mctsNanos / 1e6 / Math.max(1, mctsMoves), threads);
+    }
+
+}
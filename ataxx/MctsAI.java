@@ -0,0 +1,605 @@
+package ataxx;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** A Player that chooses moves by Monte Carlo Tree Search.  The tree is
+ *  kept in preallocated parallel arrays indexed by node number, so
+ *  that searching allocates nothing per node, and several threads may
+ *  search the same tree, using virtual losses to spread themselves
+ *  over different lines.  The arrays, and the threads, are shared by
+ *  all players in turn, so that a player costs little when it is not
+ *  searching and nothing needs to be closed when its game ends.
+ *  @author Tianyi Fang
+ */
+class MctsAI extends Player {
+
+    /** Default thinking time per move, in milliseconds. */
+    static final int DEFAULT_MILLIS = 1000;
+    /** Number of iterations per move when a seed has been set, in
+     *  which case the search is single-threaded and reproducible. */
+    static final int SEEDED_ITERATIONS = 20000;
+    /** Maximum number of tree nodes. */
+    static final int MAX_NODES = 1 << 19;
+    /** Exploration constant for UCT. */
+    static final double UCT_C = 1.4;
+    /** Exploration constant for PUCT. */
+    static final double PUCT_C = 2.0;
+    /** Visits added to a node while a thread is searching below it. */
+    static final int VIRTUAL_LOSS = 3;
+    /** Maximum number of plies in a playout before it is decided by
+     *  piece count. */
+    static final int PLAYOUT_LIMIT = 150;
+    /** Scores (in half points) for a loss, draw, and win. */
+    static final int LOSS = 0, DRAW = 1, WIN = 2;
+
+    /** A new MCTS player for GAME that will play MYCOLOR. */
+    MctsAI(Game game, PieceColor myColor) {
+        super(game, myColor);
+    }
+
+    @Override
+    Move myMove() {
+        if (!board().canMove(myColor())) {
+            _game.reportMove("%s passes.", _myColor);
+            return Move.pass();
+        }
+        GameClock clock = _game.clock();
+        long millis = !clock.isSet() ? _millis
+            : clock.softMillis(_myColor, board().numPieces(EMPTY));
+        Board start = new Board(board());
+        _stopped = false;
+        Move move = _game.think(CompletableFuture.supplyAsync(
+            () -> findMove(start, millis), SEARCHES), this::stop);
+        _stopped = false;
+        String position = (String.valueOf(move.col0())
+             + String.valueOf(move.row0()) + '-' + String.valueOf(move.col1())
+                                                + String.valueOf(move.row1()));
+        _game.reportMove("%s moves %s.", _myColor, position);
+        return move;
+    }
+
+    @Override
+    void setSeed(Long seed) {
+        _seed = seed;
+    }
+
+    /** Cause the current search, if any, to finish as soon as possible
+     *  with the best move found so far.  May be called from any
+     *  thread. */
+    void stop() {
+        _stopped = true;
+    }
+
+    /** Set the thinking time per move to MILLIS milliseconds. */
+    void setTimeLimit(int millis) {
+        _millis = millis;
+    }
+
+    /** Set the number of search threads to THREADS. */
+    void setThreads(int threads) {
+        _threads = threads;
+    }
+
+    /** Use PUCT selection with light-policy priors if PUCT, and UCT
+     *  otherwise. */
+    void setPuct(boolean puct) {
+        _puct = puct;
+    }
+
+    /** Take the priors of moves from NETWORK, if not null, rather than
+     *  making them proportional to one plus the pieces each gains. */
+    void setNetwork(Network network) {
+        _network = network;
+    }
+
+    /** Return the number of playouts performed by the last search. */
+    int iterations() {
+        return _iterations.get();
+    }
+
+    /** Return the best move from position BOARD, which must have a
+     *  legal move for the side to move. */
+    Move findMove(Board board) {
+        return findMove(board, _millis);
+    }
+
+    /** Return the best move from position BOARD, as for findMove(BOARD),
+     *  thinking for MILLIS milliseconds.  The tree is kept in storage
+     *  taken from those left by earlier searches, or new if there are
+     *  none, and left for later ones. */
+    Move findMove(Board board, long millis) {
+        _tree = TREES.poll();
+        if (_tree == null) {
+            _tree = new Tree();
+        }
+        _root.load(board);
+        _size.set(1);
+        resetNode(ROOT);
+        _iterations.set(0);
+        new Worker(0).expandRoot();
+        long deadline = System.currentTimeMillis() + millis;
+        if (_seed != null) {
+            new Worker(_seed).run(SEEDED_ITERATIONS, Long.MAX_VALUE);
+        } else {
+            List<Future<?>> running = new ArrayList<>();
+            for (int k = 0; k < _threads; k += 1) {
+                Worker w = new Worker(System.nanoTime() + k);
+                running.add(WORKERS.submit(() ->
+                                           w.run(Integer.MAX_VALUE,
+                                                 deadline)));
+            }
+            for (Future<?> f : running) {
+                try {
+                    f.get();
+                } catch (InterruptedException | ExecutionException excp) {
+                    throw new IllegalStateException(excp);
+                }
+            }
+        }
+        int best, bestVisits;
+        best = -1;
+        bestVisits = -1;
+        for (int c = _tree.firstChild[ROOT];
+             c < _tree.firstChild[ROOT] + _tree.childCount[ROOT]; c += 1) {
+            if (_tree.visits.get(c) > bestVisits) {
+                best = c;
+                bestVisits = _tree.visits.get(c);
+            }
+        }
+        Move result = toMove(_tree.move[best]);
+        if (TREES.size() < IDLE_TREES) {
+            TREES.add(_tree);
+        }
+        _tree = null;
+        return result;
+    }
+
+    /** Return the Move corresponding to encoded move MV. */
+    static Move toMove(int mv) {
+        if (mv == State.PASS) {
+            return Move.pass();
+        }
+        char[] from = Board.toChar(mv >>> 8), to = Board.toChar(mv & 0xff);
+        return Move.move(from[0], from[1], to[0], to[1]);
+    }
+
+    /** Clear the statistics of NODE. */
+    private void resetNode(int node) {
+        _tree.visits.set(node, 0);
+        _tree.score.set(node, 0);
+        _tree.expanded.set(node, 0);
+        _tree.childCount[node] = 0;
+    }
+
+    /** One thread's share of a search, with its own scratch state. */
+    private class Worker {
+
+        /** A worker whose random numbers are determined by SEED. */
+        Worker(long seed) {
+            _rand = seed * 0x9E3779B97F4A7C15L | 1;
+        }
+
+        /** Expand the root node, so that there is always a move to
+         *  choose. */
+        void expandRoot() {
+            _state.copy(_root);
+            _tree.expanded.set(ROOT, 1);
+            expand(ROOT);
+        }
+
+        /** Perform up to ITERATIONS playouts, stopping when the time
+         *  reaches DEADLINE (in milliseconds) or stop() is called. */
+        void run(int iterations, long deadline) {
+            for (int i = 0; i < iterations; i += 1) {
+                if (_stopped || ((i & 0xff) == 0
+                                 && System.currentTimeMillis() > deadline)) {
+                    break;
+                }
+                iterate();
+                _iterations.incrementAndGet();
+            }
+        }
+
+        /** Perform one selection, expansion, playout, and backup. */
+        private void iterate() {
+            _state.copy(_root);
+            int node = ROOT, depth = 0;
+            _path[0] = ROOT;
+            _movers[0] = _state.side();
+            _tree.visits.addAndGet(ROOT, VIRTUAL_LOSS);
+            while (true) {
+                if (_tree.expanded.get(node) != 2) {
+                    if (_tree.visits.get(node) > VIRTUAL_LOSS
+                        && _tree.expanded.compareAndSet(node, 0, 1)) {
+                        expand(node);
+                    }
+                    if (_tree.expanded.get(node) != 2) {
+                        break;
+                    }
+                }
+                if (_tree.childCount[node] == 0) {
+                    break;
+                }
+                node = select(node);
+                _movers[depth + 1] = _state.side();
+                _state.play(_tree.move[node]);
+                depth += 1;
+                _path[depth] = node;
+                _tree.visits.addAndGet(node, VIRTUAL_LOSS);
+            }
+            int winner = playout();
+            for (int d = 0; d <= depth; d += 1) {
+                int n = _path[d];
+                int result = winner == 0 ? DRAW
+                    : winner == _movers[d] ? WIN : LOSS;
+                _tree.visits.addAndGet(n, 1 - VIRTUAL_LOSS);
+                _tree.score.addAndGet(n, result);
+            }
+        }
+
+        /** Create the children of NODE, whose position is _state.  Marks
+         *  NODE as expanded, or as a permanent leaf if the tree is full
+         *  or the game is over. */
+        private void expand(int node) {
+            if (_state.jumps() >= Board.JUMP_LIMIT) {
+                _tree.expanded.set(node, 3);
+                return;
+            }
+            int n = _state.moves(_moves);
+            if (n == 0) {
+                if (_state.opponentCanMove()) {
+                    _moves[0] = State.PASS;
+                    n = 1;
+                } else {
+                    _tree.expanded.set(node, 3);
+                    return;
+                }
+            }
+            int first = _size.getAndAdd(n);
+            if (first + n > MAX_NODES) {
+                _tree.expanded.set(node, 3);
+                return;
+            }
+            if (_network != null) {
+                if (_batch == null) {
+                    _batch = new Network.Batch(_network, 1);
+                }
+                _batch.set(0, _state);
+                _network.evaluate(_batch, 1);
+                _batch.priors(0, _moves, n, _priors);
+            } else {
+                double total = 0;
+                for (int k = 0; k < n; k += 1) {
+                    total += 1 + _state.gain(_moves[k]);
+                }
+                for (int k = 0; k < n; k += 1) {
+                    _priors[k] =
+                        (float) ((1 + _state.gain(_moves[k])) / total);
+                }
+            }
+            for (int k = 0; k < n; k += 1) {
+                int c = first + k;
+                resetNode(c);
+                _tree.move[c] = _moves[k];
+                _tree.prior[c] = _priors[k];
+            }
+            _tree.firstChild[node] = first;
+            _tree.childCount[node] = n;
+            _tree.expanded.set(node, 2);
+        }
+
+        /** Return the child of NODE with the best selection value. */
+        private int select(int node) {
+            int parentVisits = Math.max(1, _tree.visits.get(node));
+            double logN = Math.log(parentVisits),
+                sqrtN = Math.sqrt(parentVisits);
+            int best = -1;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int first = _tree.firstChild[node],
+                end = first + _tree.childCount[node];
+            for (int c = first; c < end; c += 1) {
+                int n = _tree.visits.get(c);
+                double q = n == 0 ? 0.5 : _tree.score.get(c) / (2.0 * n);
+                double value;
+                if (_puct) {
+                    value = q + PUCT_C * _tree.prior[c] * sqrtN / (1 + n);
+                } else {
+                    value = q + UCT_C * Math.sqrt(logN / (1 + n))
+                        + _tree.prior[c] * 1e-3;
+                }
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = c;
+                }
+            }
+            return best;
+        }
+
+        /** Play out _state to the end of the game (or PLAYOUT_LIMIT
+         *  plies) using a light policy: of two random moves, take the
+         *  one that gains more pieces.  Return the winning side's cell
+         *  value, or 0 for a draw. */
+        private int playout() {
+            for (int ply = 0; ply < PLAYOUT_LIMIT; ply += 1) {
+                if (_state.jumps() >= Board.JUMP_LIMIT) {
+                    break;
+                }
+                int n = _state.moves(_moves);
+                if (n == 0) {
+                    if (!_state.opponentCanMove()) {
+                        break;
+                    }
+                    _state.play(State.PASS);
+                    continue;
+                }
+                int a = _moves[nextInt(n)], b = _moves[nextInt(n)];
+                _state.play(_state.gain(a) >= _state.gain(b) ? a : b);
+            }
+            return _state.leader();
+        }
+
+        /** Return a pseudo-random integer in [0, N). */
+        private int nextInt(int n) {
+            _rand ^= _rand << 13;
+            _rand ^= _rand >>> 7;
+            _rand ^= _rand << 17;
+            return (int) ((_rand >>> 33) % n);
+        }
+
+        /** Position being searched. */
+        private final State _state = new State();
+        /** Move buffer, and the priors of its moves. */
+        private final int[] _moves = new int[State.MAX_MOVES];
+        private final float[] _priors = new float[State.MAX_MOVES];
+        /** Scratch space for the network (created on first use). */
+        private Network.Batch _batch;
+        /** Nodes on the current path from the root. */
+        private final int[] _path = new int[State.MAX_PLIES];
+        /** Side to move at each node of _path. */
+        private final int[] _movers = new int[State.MAX_PLIES];
+        /** Random state (xorshift). */
+        private long _rand;
+    }
+
+    /** A minimal, allocation-free Ataxx position for playouts. */
+    static class State {
+        /** Cell contents. */
+        static final byte EMPTY_CELL = 0, BLOCK_CELL = 1, RED_CELL = 2,
+            BLUE_CELL = 3;
+        /** Encoded pass. */
+        static final int PASS = -1;
+        /** Upper bound on the number of moves in a position. */
+        static final int MAX_MOVES = 1024;
+        /** Upper bound on the length of a game. */
+        static final int MAX_PLIES = 4096;
+
+        /** Set me to the position on BOARD. */
+        void load(Board board) {
+            for (int sq = 0; sq < _cells.length; sq += 1) {
+                PieceColor p = board.get(sq);
+                _cells[sq] = p == RED ? RED_CELL : p == BLUE ? BLUE_CELL
+                    : p == EMPTY ? EMPTY_CELL : BLOCK_CELL;
+            }
+            _side = board.whoseMove() == RED ? RED_CELL : BLUE_CELL;
+            _jumps = board.numJumps();
+        }
+
+        /** Set me to a copy of OTHER. */
+        void copy(State other) {
+            System.arraycopy(other._cells, 0, _cells, 0, _cells.length);
+            _side = other._side;
+            _jumps = other._jumps;
+        }
+
+        /** Return the cell value of the side to move. */
+        int side() {
+            return _side;
+        }
+
+        /** Return the number of consecutive jumps. */
+        int jumps() {
+            return _jumps;
+        }
+
+        /** Return the cell value of linearized square SQ. */
+        int cell(int sq) {
+            return _cells[sq];
+        }
+
+        /** Store the moves of the side to move in MOVES and return their
+         *  number.  Extensions to the same square are equivalent, so
+         *  only one is generated for each destination. */
+        int moves(int[] moves) {
+            return moves(_side, moves);
+        }
+
+        /** Return true iff the side not to move has a move. */
+        boolean opponentCanMove() {
+            return moves(BLUE_CELL + RED_CELL - _side, null) > 0;
+        }
+
+        /** Store the moves of SIDE in MOVES, if non-null, and return
+         *  their number.  When MOVES is null, stop at the first. */
+        private int moves(int side, int[] moves) {
+            int n = 0;
+            for (int to = FIRST; to <= LAST; to += 1) {
+                if (_cells[to] != EMPTY_CELL) {
+                    continue;
+                }
+                for (int off : Evaluator.NEAR) {
+                    if (_cells[to + off] == side) {
+                        if (moves == null) {
+                            return 1;
+                        }
+                        moves[n] = ((to + off) << 8) | to;
+                        n += 1;
+                        break;
+                    }
+                }
+                for (int off : Evaluator.FAR) {
+                    if (_cells[to + off] == side) {
+                        if (moves == null) {
+                            return 1;
+                        }
+                        moves[n] = ((to + off) << 8) | to;
+                        n += 1;
+                    }
+                }
+            }
+            return n;
+        }
+
+        /** Return the number of pieces the side to move gains by
+         *  encoded move MV: one for an extension, plus the captures. */
+        int gain(int mv) {
+            if (mv == PASS) {
+                return 0;
+            }
+            int from = mv >>> 8, to = mv & 0xff;
+            int result = isExtend(from, to) ? 1 : 0;
+            int other = BLUE_CELL + RED_CELL - _side;
+            for (int off : Evaluator.NEAR) {
+                if (_cells[to + off] == other) {
+                    result += 1;
+                }
+            }
+            return result;
+        }
+
+        /** Make encoded move MV for the side to move. */
+        void play(int mv) {
+            if (mv != PASS) {
+                int from = mv >>> 8, to = mv & 0xff;
+                if (isExtend(from, to)) {
+                    _jumps = 0;
+                } else {
+                    _cells[from] = EMPTY_CELL;
+                    _jumps += 1;
+                }
+                _cells[to] = (byte) _side;
+                int other = BLUE_CELL + RED_CELL - _side;
+                for (int off : Evaluator.NEAR) {
+                    if (_cells[to + off] == other) {
+                        _cells[to + off] = (byte) _side;
+                    }
+                }
+            }
+            _side = BLUE_CELL + RED_CELL - _side;
+        }
+
+        /** Return the cell value of the side with more pieces, or 0 if
+         *  they are equal. */
+        int leader() {
+            int diff = 0;
+            for (int sq = FIRST; sq <= LAST; sq += 1) {
+                if (_cells[sq] == RED_CELL) {
+                    diff += 1;
+                } else if (_cells[sq] == BLUE_CELL) {
+                    diff -= 1;
+                }
+            }
+            return diff > 0 ? RED_CELL : diff < 0 ? BLUE_CELL : 0;
+        }
+
+        /** Return true iff FROM and TO are adjacent. */
+        private static boolean isExtend(int from, int to) {
+            int d = Math.abs(from - to);
+            return d == 1 || Math.abs(d - Board.EXTENDED_SIDE) <= 1;
+        }
+
+        /** First and last linearized squares of the real board. */
+        private static final int FIRST = Board.index('a', '1'),
+            LAST = Board.index('g', '7');
+
+        /** Contents of each linearized square. */
+        private final byte[] _cells =
+            new byte[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+        /** Cell value of the side to move. */
+        private int _side;
+        /** Number of consecutive jumps. */
+        private int _jumps;
+    }
+
+    /** Index of the root node. */
+    private static final int ROOT = 0;
+    /** Largest number of trees kept for reuse between searches. */
+    private static final int IDLE_TREES =
+        Runtime.getRuntime().availableProcessors();
+
+    /** Storage for a search tree of up to MAX_NODES nodes, in parallel
+     *  arrays indexed by node number. */
+    private static class Tree {
+        /** Index of each node's first child; children are contiguous. */
+        final int[] firstChild = new int[MAX_NODES];
+        /** Number of children of each node. */
+        final int[] childCount = new int[MAX_NODES];
+        /** Encoded move leading to each node. */
+        final int[] move = new int[MAX_NODES];
+        /** Prior probability of each node's move. */
+        final float[] prior = new float[MAX_NODES];
+        /** Visit count (including virtual losses) of each node. */
+        final AtomicIntegerArray visits = new AtomicIntegerArray(MAX_NODES);
+        /** Total score, in half points, of each node for the side that
+         *  made its move. */
+        final AtomicLongArray score = new AtomicLongArray(MAX_NODES);
+        /** Expansion state of each node: 0 unexpanded, 1 being
+         *  expanded, 2 expanded, 3 permanent leaf. */
+        final AtomicIntegerArray expanded =
+            new AtomicIntegerArray(MAX_NODES);
+    }
+
+    /** Position at the root of the tree. */
+    private final State _root = new State();
+    /** Number of nodes in use. */
+    private final AtomicInteger _size = new AtomicInteger();
+    /** Number of playouts in the current search. */
+    private final AtomicInteger _iterations = new AtomicInteger();
+    /** Storage of the tree of the current search (null between
+     *  searches). */
+    private Tree _tree;
+
+    /** Thinking time per move, in milliseconds. */
+    private int _millis = DEFAULT_MILLIS;
+    /** Number of search threads. */
+    private int _threads = Runtime.getRuntime().availableProcessors();
+    /** True iff using PUCT rather than UCT. */
+    private boolean _puct = true;
+    /** Source of move priors (null if none). */
+    private Network _network;
+    /** AI seed. */
+    private Long _seed;
+    /** True iff stop() has been called during the current move. */
+    private volatile boolean _stopped;
+
+    /** Runs the threads of unseeded searches, for all players. */
+    private static final ExecutorService WORKERS =
+        Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mcts");
+            t.setDaemon(true);
+            return t;
+        });
+    /** Tree storage not in use by any search, kept for reuse. */
+    private static final ConcurrentLinkedQueue<Tree> TREES =
+        new ConcurrentLinkedQueue<>();
+
+    /** Runs the searches of myMove, so that games can read commands
+     *  meanwhile. */
+    private static final ExecutorService SEARCHES =
+        Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "mcts search");
+            t.setDaemon(true);
+            return t;
+        });
+}
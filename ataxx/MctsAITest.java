@@ -0,0 +1,66 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/** Tests of the MctsAI.
+ *  @author Tianyi Fang
+ */
+public class MctsAITest {
+
+    /** Check that the playout move generator produces one move per
+     *  extension destination and every jump. */
+    @Test public void testMoves() {
+        for (Board b : EvaluatorBench.randomBoards(20, new Random(3))) {
+            Set<String> expected = new HashSet<>();
+            for (Move mv : b.allLegalMoves(b.whoseMove())) {
+                expected.add(mv.isExtend() ? "+" + mv.toIndex()
+                             : mv.fromIndex() + "-" + mv.toIndex());
+            }
+            MctsAI.State state = new MctsAI.State();
+            state.load(b);
+            int[] moves = new int[MctsAI.State.MAX_MOVES];
+            int n = state.moves(moves);
+            Set<String> found = new HashSet<>();
+            for (int k = 0; k < n; k += 1) {
+                Move mv = MctsAI.toMove(moves[k]);
+                assertTrue("illegal move", b.legalMove(mv));
+                found.add(mv.isExtend() ? "+" + mv.toIndex()
+                          : mv.fromIndex() + "-" + mv.toIndex());
+            }
+            assertEquals("moves differ", expected, found);
+            assertEquals("duplicate moves", found.size(), n);
+        }
+    }
+
+    @Test public void testSeededMove() {
+        Board b = new Board();
+        Game game = new Game(b, p -> null, new TextReporter());
+        MctsAI ai = new MctsAI(game, PieceColor.RED);
+        ai.setSeed(5L);
+        Move mv = ai.findMove(b);
+        assertTrue("illegal move", b.legalMove(mv));
+        assertEquals("not reproducible", mv, ai.findMove(b));
+    }
+
+    /** Check that players made one after another, as for a series of
+     *  games, do not each keep threads of their own. */
+    @Test public void testManyPlayers() {
+        Board b = new Board();
+        Game game = new Game(b, p -> null, new TextReporter());
+        int before = Thread.activeCount();
+        for (int k = 0; k < 20; k += 1) {
+            MctsAI ai = new MctsAI(game, PieceColor.RED);
+            ai.setThreads(2);
+            ai.setTimeLimit(5);
+            assertTrue("illegal move", b.legalMove(ai.findMove(b)));
+        }
+        assertTrue("threads kept by finished players",
+                   Thread.activeCount() - before < 10);
+    }
+
+}
@@ -111,7 +111,7 @@ class Move {
         if (isPass()) {
             return "-";
         } else {
-            return _col0 + _row0 + "-" + _col1 + _row1;
+            return "" + _col0 + _row0 + "-" + _col1 + _row1;
         }
     }
 
@@ -0,0 +1,219 @@
+package ataxx;
+
+import java.util.Random;
+
+/** A single-threaded tree search guided by a Network, as in AlphaZero:
+ *  each iteration descends from the root by PUCT selection to a leaf,
+ *  which the network then evaluates, giving the priors of its moves and
+ *  a value that is backed up in place of a playout.  So that the leaves
+ *  of many searches can be evaluated in one batch, an iteration is split
+ *  in two: select finds a leaf and leaves it in leaf(), and expand takes
+ *  the network's outputs for it.
+ *  @author Tianyi Fang
+ */
+class NetSearch {
+
+    /** Exploration constant for PUCT. */
+    static final double PUCT_C = 1.5;
+
+    /** A search using at most NODES tree nodes. */
+    NetSearch(int nodes) {
+        _firstChild = new int[nodes];
+        _childCount = new int[nodes];
+        _move = new int[nodes];
+        _prior = new float[nodes];
+        _visits = new int[nodes];
+        _valueSum = new double[nodes];
+    }
+
+    /** Start a new search from ROOT. */
+    void reset(MctsAI.State root) {
+        _root.copy(root);
+        _size = 1;
+        clear(ROOT);
+    }
+
+    /** Return the number of iterations completed since the last reset. */
+    int visits() {
+        return _visits[ROOT];
+    }
+
+    /** Descend from the root to a leaf.  If the leaf ends the game, back
+     *  up its result and return false; otherwise, leave its position in
+     *  leaf(), to be evaluated and passed to expand, and return true. */
+    boolean select() {
+        _leaf.copy(_root);
+        int node = ROOT;
+        _depth = 0;
+        _path[0] = ROOT;
+        while (_childCount[node] > 0) {
+            node = child(node);
+            _leaf.play(_move[node]);
+            _depth += 1;
+            _path[_depth] = node;
+        }
+        if (_leaf.jumps() >= Board.JUMP_LIMIT) {
+            backup(result());
+            return false;
+        }
+        _n = _leaf.moves(_moves);
+        if (_n == 0) {
+            if (!_leaf.opponentCanMove()) {
+                backup(result());
+                return false;
+            }
+            _moves[0] = MctsAI.State.PASS;
+            _n = 1;
+        }
+        return true;
+    }
+
+    /** Return the position found by the last select. */
+    MctsAI.State leaf() {
+        return _leaf;
+    }
+
+    /** Complete the iteration begun by select, given the network's
+     *  evaluation of leaf() as entry K of BATCH.  Once the tree is full,
+     *  leaves are evaluated but no longer expanded. */
+    void expand(Network.Batch batch, int k) {
+        int node = _path[_depth];
+        if (_size + _n <= _firstChild.length) {
+            batch.priors(k, _moves, _n, _priors);
+            _firstChild[node] = _size;
+            _childCount[node] = _n;
+            for (int j = 0; j < _n; j += 1) {
+                int c = _size + j;
+                clear(c);
+                _move[c] = _moves[j];
+                _prior[c] = _priors[j];
+            }
+            _size += _n;
+        }
+        backup(batch.value(k));
+    }
+
+    /** Return the encoded move (as for MctsAI.State) from the root with
+     *  the most visits, or, if SAMPLE, one chosen using RANDOM with
+     *  probability proportional to its visits.  There must have been at
+     *  least one iteration. */
+    int chooseMove(boolean sample, Random random) {
+        int first = _firstChild[ROOT], n = _childCount[ROOT];
+        int best = first;
+        if (sample) {
+            int total = 0;
+            for (int c = first; c < first + n; c += 1) {
+                total += _visits[c];
+            }
+            int r = random.nextInt(Math.max(1, total));
+            for (int c = first; c < first + n; c += 1) {
+                r -= _visits[c];
+                if (r < 0) {
+                    return _move[c];
+                }
+            }
+        }
+        for (int c = first; c < first + n; c += 1) {
+            if (_visits[c] > _visits[best]) {
+                best = c;
+            }
+        }
+        return _move[best];
+    }
+
+    /** Store the policy indices of the moves from the root in MOVES and
+     *  the fractions of the visits each had in FRACTIONS, returning their
+     *  number (0 if the only move is a pass). */
+    int rootPolicy(int[] moves, float[] fractions) {
+        int first = _firstChild[ROOT], n = _childCount[ROOT];
+        if (n == 1 && _move[first] == MctsAI.State.PASS) {
+            return 0;
+        }
+        int total = 0;
+        for (int c = first; c < first + n; c += 1) {
+            total += _visits[c];
+        }
+        for (int j = 0; j < n; j += 1) {
+            moves[j] = Network.policyIndex(_move[first + j]);
+            fractions[j] = (float) _visits[first + j] / Math.max(1, total);
+        }
+        return n;
+    }
+
+    /** Return the mean value of the root for its side to move. */
+    double rootValue() {
+        return _visits[ROOT] == 0 ? 0 : -_valueSum[ROOT] / _visits[ROOT];
+    }
+
+    /** Return the child of NODE with the best PUCT value. */
+    private int child(int node) {
+        double sqrtN = Math.sqrt(Math.max(1, _visits[node]));
+        int best = -1;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = _firstChild[node];
+             c < _firstChild[node] + _childCount[node]; c += 1) {
+            int n = _visits[c];
+            double q = n == 0 ? 0 : _valueSum[c] / n;
+            double value = q + PUCT_C * _prior[c] * sqrtN / (1 + n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /** Return the final result of the game at _leaf for its side to
+     *  move: 1, 0, or -1. */
+    private float result() {
+        int leader = _leaf.leader();
+        return leader == 0 ? 0 : leader == _leaf.side() ? 1 : -1;
+    }
+
+    /** Add one visit to each node on the path to the leaf, whose value
+     *  for its side to move is VALUE.  Each node's value is kept for the
+     *  side that made its move. */
+    private void backup(float value) {
+        double v = -value;
+        for (int d = _depth; d >= 0; d -= 1) {
+            int node = _path[d];
+            _visits[node] += 1;
+            _valueSum[node] += v;
+            v = -v;
+        }
+    }
+
+    /** Clear the statistics and children of NODE. */
+    private void clear(int node) {
+        _visits[node] = 0;
+        _valueSum[node] = 0;
+        _childCount[node] = 0;
+    }
+
+    /** Index of the root node. */
+    private static final int ROOT = 0;
+
+    /** Position at the root, and at the current leaf. */
+    private final MctsAI.State _root = new MctsAI.State(),
+        _leaf = new MctsAI.State();
+    /** Moves from the current leaf, their number, and scratch space for
+     *  their priors. */
+    private final int[] _moves = new int[MctsAI.State.MAX_MOVES];
+    private int _n;
+    private final float[] _priors = new float[MctsAI.State.MAX_MOVES];
+    /** Nodes on the path to the current leaf, and its depth. */
+    private final int[] _path = new int[MctsAI.State.MAX_PLIES];
+    private int _depth;
+    /** Number of nodes in use. */
+    private int _size;
+    /** Index of each node's first child, and the number of children. */
+    private final int[] _firstChild, _childCount;
+    /** Encoded move leading to each node. */
+    private final int[] _move;
+    /** Prior probability of each node's move. */
+    private final float[] _prior;
+    /** Visit count of each node. */
+    private final int[] _visits;
+    /** Total value of each node for the side that made its move. */
+    private final double[] _valueSum;
+}
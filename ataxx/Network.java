@@ -0,0 +1,477 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static ataxx.GameException.error;
+
+/** A small policy and value network: one hidden layer of rectified
+ *  linear units over the position, seen from the side to move, feeding
+ *  a policy head (a logit for each possible move) and a value head (the
+ *  expected result for the side to move, in [-1, 1]).  The inputs are
+ *  the squares of the side to move, of its opponent, and the blocks, and
+ *  the jump count.  The policy has POLICY_MOVES entries for each
+ *  destination square: one for extending to it (from anywhere), and one
+ *  for a jump from each square two away.
+ *
+ *  Positions are evaluated in batches (see Batch), sharing one pass over
+ *  the first layer's weights, and only the logits of the moves actually
+ *  legal are computed.  A network is not changed by evaluation, so any
+ *  number of threads may evaluate it at once, each with its own Batch.
+ *  @author Tianyi Fang
+ */
+class Network {
+
+    /** Number of squares on the board. */
+    static final int SQUARES = Board.SIDE * Board.SIDE;
+    /** Number of inputs. */
+    static final int INPUTS = 3 * SQUARES + 1;
+    /** Number of policy entries per destination square. */
+    static final int POLICY_MOVES = 1 + Evaluator.FAR.length;
+    /** Number of policy entries. */
+    static final int POLICY = SQUARES * POLICY_MOVES;
+    /** Default number of hidden units. */
+    static final int DEFAULT_HIDDEN = 64;
+
+    /** Positions and their outputs, evaluated together. */
+    static class Batch {
+        /** A batch of up to SIZE positions for NETWORK. */
+        Batch(Network network, int size) {
+            _network = network;
+            _size = size;
+            _inputs = new float[size * INPUTS];
+            _hidden = new float[size * network._hidden];
+            _values = new float[size];
+        }
+
+        /** Return the capacity of the batch. */
+        int size() {
+            return _size;
+        }
+
+        /** Set the inputs of entry K to the position STATE. */
+        void set(int k, MctsAI.State state) {
+            features(state, _inputs, k * INPUTS);
+        }
+
+        /** Return the value of entry K for its side to move, as of the
+         *  last evaluate. */
+        float value(int k) {
+            return _values[k];
+        }
+
+        /** Return the logit of the move with policy index INDEX for entry
+         *  K, as of the last evaluate. */
+        float logit(int k, int index) {
+            return _network.logit(_hidden, k * _network._hidden, index);
+        }
+
+        /** Store in PRIORS[0 .. N-1] the probabilities of encoded moves
+         *  MOVES[0 .. N-1] (as for MctsAI.State) for entry K, as of the
+         *  last evaluate: the softmax of their logits. */
+        void priors(int k, int[] moves, int n, float[] priors) {
+            float most = Float.NEGATIVE_INFINITY;
+            for (int j = 0; j < n; j += 1) {
+                priors[j] = moves[j] == MctsAI.State.PASS ? 0
+                    : logit(k, policyIndex(moves[j]));
+                most = Math.max(most, priors[j]);
+            }
+            float total = 0;
+            for (int j = 0; j < n; j += 1) {
+                priors[j] = (float) Math.exp(priors[j] - most);
+                total += priors[j];
+            }
+            for (int j = 0; j < n; j += 1) {
+                priors[j] /= total;
+            }
+        }
+
+        /** The network evaluated. */
+        private final Network _network;
+        /** Capacity. */
+        private final int _size;
+        /** Inputs, hidden activations, and values of each entry. */
+        private final float[] _inputs, _hidden, _values;
+    }
+
+    /** A training example. */
+    static class Sample {
+        /** An example for the position STATE, whose legal moves (as
+         *  policy indices) are MOVES, with target probabilities TARGET,
+         *  and whose final result for the side to move was VALUE. */
+        Sample(MctsAI.State state, int[] moves, float[] target,
+               float value) {
+            this(features(state), moves, target, value);
+        }
+
+        /** An example as for Sample(STATE, MOVES, TARGET, VALUE), but
+         *  with the inputs INPUT for the position. */
+        Sample(float[] input, int[] moves, float[] target, float value) {
+            _input = input;
+            _moves = moves;
+            _target = target;
+            _value = value;
+        }
+
+        /** Return the inputs for the position. */
+        float[] input() {
+            return _input;
+        }
+
+        /** Return the policy indices of the legal moves. */
+        int[] moves() {
+            return _moves;
+        }
+
+        /** Return the target probabilities of moves(). */
+        float[] target() {
+            return _target;
+        }
+
+        /** Return the target value. */
+        float value() {
+            return _value;
+        }
+
+        /** Inputs, and target probabilities of _moves. */
+        private final float[] _input, _target;
+        /** Policy indices of the legal moves. */
+        private final int[] _moves;
+        /** Target value. */
+        private final float _value;
+    }
+
+    /** A network with HIDDEN hidden units and small random weights chosen
+     *  using RANDOM. */
+    Network(int hidden, Random random) {
+        this(hidden);
+        double scale = Math.sqrt(2.0 / INPUTS);
+        for (int i = 0; i < INPUTS * hidden; i += 1) {
+            _params[W1 + i] = (float) (random.nextGaussian() * scale);
+        }
+        scale = Math.sqrt(1.0 / hidden);
+        for (int i = 0; i < POLICY * hidden; i += 1) {
+            _params[_wp + i] = (float) (random.nextGaussian() * scale * 0.1);
+        }
+        for (int h = 0; h < hidden; h += 1) {
+            _params[_wv + h] = (float) (random.nextGaussian() * scale * 0.1);
+        }
+    }
+
+    /** A copy of OTHER. */
+    Network(Network other) {
+        this(other._hidden);
+        System.arraycopy(other._params, 0, _params, 0, _params.length);
+    }
+
+    /** A network with HIDDEN hidden units and zero weights. */
+    private Network(int hidden) {
+        _hidden = hidden;
+        _b1 = W1 + INPUTS * hidden;
+        _wp = _b1 + hidden;
+        _bp = _wp + POLICY * hidden;
+        _wv = _bp + POLICY;
+        _bv = _wv + hidden;
+        _params = new float[_bv + 1];
+        _velocity = new float[_params.length];
+    }
+
+    /** Return the network stored in FILE. */
+    static Network load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != INPUTS
+                || in.readInt() != POLICY) {
+                throw new IOException("not a network file: " + file);
+            }
+            Network result = new Network(in.readInt());
+            for (int i = 0; i < result._params.length; i += 1) {
+                result._params[i] = in.readFloat();
+            }
+            return result;
+        }
+    }
+
+    /** Return the network in the file named NAME, reporting failure as a
+     *  GameException.  Used by the command that chooses the network. */
+    static Network load(String name) {
+        try {
+            return load(new File(name));
+        } catch (IOException excp) {
+            throw error("Cannot use network file %s: %s", name,
+                        excp.getMessage());
+        }
+    }
+
+    /** Write me to FILE, replacing it atomically, so that readers never
+     *  see a partial network. */
+    void save(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(INPUTS);
+            out.writeInt(POLICY);
+            out.writeInt(_hidden);
+            for (float p : _params) {
+                out.writeFloat(p);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("cannot replace " + file);
+        }
+    }
+
+    /** Return the number of hidden units. */
+    int hidden() {
+        return _hidden;
+    }
+
+    /** Compute the hidden activations and values of entries
+     *  0 .. N-1 of BATCH, taking each row of the first layer's weights
+     *  once for the whole batch. */
+    void evaluate(Batch batch, int n) {
+        float[] inputs = batch._inputs, hidden = batch._hidden;
+        for (int k = 0; k < n; k += 1) {
+            System.arraycopy(_params, _b1, hidden, k * _hidden, _hidden);
+        }
+        for (int i = 0; i < INPUTS; i += 1) {
+            int row = W1 + i * _hidden;
+            for (int k = 0; k < n; k += 1) {
+                float x = inputs[k * INPUTS + i];
+                if (x != 0) {
+                    int off = k * _hidden;
+                    for (int h = 0; h < _hidden; h += 1) {
+                        hidden[off + h] += x * _params[row + h];
+                    }
+                }
+            }
+        }
+        for (int k = 0; k < n; k += 1) {
+            int off = k * _hidden;
+            for (int h = 0; h < _hidden; h += 1) {
+                hidden[off + h] = Math.max(0, hidden[off + h]);
+            }
+            batch._values[k] = (float) Math.tanh(value(hidden, off));
+        }
+    }
+
+    /** Return the policy index of encoded move MV (as for MctsAI.State),
+     *  which must not be a pass. */
+    static int policyIndex(int mv) {
+        int from = mv >>> 8, to = mv & 0xff;
+        int dest = SQUARE[to] * POLICY_MOVES;
+        for (int k = 0; k < Evaluator.FAR.length; k += 1) {
+            if (from == to + Evaluator.FAR[k]) {
+                return dest + 1 + k;
+            }
+        }
+        return dest;
+    }
+
+    /** Return the inputs for STATE. */
+    static float[] features(MctsAI.State state) {
+        float[] result = new float[INPUTS];
+        features(state, result, 0);
+        return result;
+    }
+
+    /** Store the inputs for STATE in INPUTS[OFF .. OFF+INPUTS-1]. */
+    static void features(MctsAI.State state, float[] inputs, int off) {
+        int me = state.side();
+        for (int sq = 0; sq < SQUARE.length; sq += 1) {
+            int s = SQUARE[sq];
+            if (s < 0) {
+                continue;
+            }
+            int cell = state.cell(sq);
+            inputs[off + s] = cell == me ? 1 : 0;
+            inputs[off + SQUARES + s] = cell != me
+                && cell != MctsAI.State.EMPTY_CELL
+                && cell != MctsAI.State.BLOCK_CELL ? 1 : 0;
+            inputs[off + 2 * SQUARES + s] =
+                cell == MctsAI.State.BLOCK_CELL ? 1 : 0;
+        }
+        inputs[off + 3 * SQUARES] = (float) state.jumps() / Board.JUMP_LIMIT;
+    }
+
+    /** Train on SAMPLES with one step of stochastic gradient descent,
+     *  with learning rate RATE, weight decay DECAY, and momentum
+     *  MOMENTUM, computing the gradient in THREADS parts run on POOL.
+     *  The parts are summed in a fixed order, so that the result does not
+     *  depend on timing.  Returns the mean loss of the samples: the
+     *  cross-entropy of the policy plus the squared error of the
+     *  value. */
+    double train(List<Sample> samples, double rate, double decay,
+                 double momentum, int threads, ExecutorService pool) {
+        int parts = Math.max(1, Math.min(threads, samples.size()));
+        List<Callable<Double>> tasks = new ArrayList<>();
+        float[][] grads = new float[parts][_params.length];
+        for (int p = 0; p < parts; p += 1) {
+            List<Sample> part =
+                samples.subList(p * samples.size() / parts,
+                                (p + 1) * samples.size() / parts);
+            float[] grad = grads[p];
+            tasks.add(() -> gradient(part, grad));
+        }
+        double loss = 0;
+        try {
+            for (Future<Double> f : pool.invokeAll(tasks)) {
+                loss += f.get();
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        }
+        double scale = 1.0 / Math.max(1, samples.size());
+        for (int i = 0; i < _params.length; i += 1) {
+            double g = decay * _params[i];
+            for (int p = 0; p < parts; p += 1) {
+                g += grads[p][i] * scale;
+            }
+            _velocity[i] = (float) (momentum * _velocity[i] - rate * g);
+            _params[i] += _velocity[i];
+        }
+        return loss * scale;
+    }
+
+    /** Add the gradient of the loss of SAMPLES to GRAD, and return their
+     *  total loss. */
+    private double gradient(List<Sample> samples, float[] grad) {
+        float[] hidden = new float[_hidden], dh = new float[_hidden];
+        float[] probs = new float[POLICY];
+        double loss = 0;
+        for (Sample s : samples) {
+            hidden(s._input, 0, hidden, 0);
+            int n = s._moves.length;
+            float most = Float.NEGATIVE_INFINITY, total = 0;
+            for (int j = 0; j < n; j += 1) {
+                probs[j] = logit(hidden, 0, s._moves[j]);
+                most = Math.max(most, probs[j]);
+            }
+            for (int j = 0; j < n; j += 1) {
+                probs[j] = (float) Math.exp(probs[j] - most);
+                total += probs[j];
+            }
+            Arrays.fill(dh, 0);
+            for (int j = 0; j < n; j += 1) {
+                probs[j] /= total;
+                if (s._target[j] > 0) {
+                    loss -= s._target[j] * Math.log(probs[j] + 1e-9);
+                }
+                float dz = probs[j] - s._target[j];
+                int row = _wp + s._moves[j] * _hidden;
+                for (int h = 0; h < _hidden; h += 1) {
+                    grad[row + h] += dz * hidden[h];
+                    dh[h] += dz * _params[row + h];
+                }
+                grad[_bp + s._moves[j]] += dz;
+            }
+            float v = (float) Math.tanh(value(hidden, 0));
+            loss += (v - s._value) * (v - s._value);
+            float du = 2 * (v - s._value) * (1 - v * v);
+            for (int h = 0; h < _hidden; h += 1) {
+                grad[_wv + h] += du * hidden[h];
+                dh[h] += du * _params[_wv + h];
+            }
+            grad[_bv] += du;
+            for (int h = 0; h < _hidden; h += 1) {
+                if (hidden[h] <= 0) {
+                    dh[h] = 0;
+                }
+                grad[_b1 + h] += dh[h];
+            }
+            for (int i = 0; i < INPUTS; i += 1) {
+                float x = s._input[i];
+                if (x != 0) {
+                    int row = W1 + i * _hidden;
+                    for (int h = 0; h < _hidden; h += 1) {
+                        grad[row + h] += x * dh[h];
+                    }
+                }
+            }
+        }
+        return loss;
+    }
+
+    /** Store in HIDDEN[HOFF ..] the hidden activations for the inputs
+     *  INPUTS[IOFF ..]. */
+    private void hidden(float[] inputs, int ioff, float[] hidden,
+                        int hoff) {
+        System.arraycopy(_params, _b1, hidden, hoff, _hidden);
+        for (int i = 0; i < INPUTS; i += 1) {
+            float x = inputs[ioff + i];
+            if (x != 0) {
+                int row = W1 + i * _hidden;
+                for (int h = 0; h < _hidden; h += 1) {
+                    hidden[hoff + h] += x * _params[row + h];
+                }
+            }
+        }
+        for (int h = 0; h < _hidden; h += 1) {
+            hidden[hoff + h] = Math.max(0, hidden[hoff + h]);
+        }
+    }
+
+    /** Return the logit of policy index INDEX for hidden activations
+     *  HIDDEN[OFF ..]. */
+    private float logit(float[] hidden, int off, int index) {
+        int row = _wp + index * _hidden;
+        float sum = _params[_bp + index];
+        for (int h = 0; h < _hidden; h += 1) {
+            sum += _params[row + h] * hidden[off + h];
+        }
+        return sum;
+    }
+
+    /** Return the value, before the final tanh, for hidden activations
+     *  HIDDEN[OFF ..]. */
+    private float value(float[] hidden, int off) {
+        float sum = _params[_bv];
+        for (int h = 0; h < _hidden; h += 1) {
+            sum += _params[_wv + h] * hidden[off + h];
+        }
+        return sum;
+    }
+
+    /** Identifies network files ("ATXN"). */
+    private static final int MAGIC = 0x4154584E;
+    /** Offset of the first layer's weights in the parameters. */
+    private static final int W1 = 0;
+    /** Number of each linearized square (0 .. SQUARES-1), or -1 for
+     *  squares off the board. */
+    private static final int[] SQUARE =
+        new int[Board.EXTENDED_SIDE * Board.EXTENDED_SIDE];
+
+    static {
+        Arrays.fill(SQUARE, -1);
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                SQUARE[Board.index(c, r)] = (r - '1') * Board.SIDE + c - 'a';
+            }
+        }
+    }
+
+    /** Number of hidden units. */
+    private final int _hidden;
+    /** Offsets in _params of the first layer's biases, the policy
+     *  weights and biases, and the value weights and bias. */
+    private final int _b1, _wp, _bp, _wv, _bv;
+    /** All weights and biases. */
+    private final float[] _params;
+    /** Momentum of each parameter in training. */
+    private final float[] _velocity;
+}
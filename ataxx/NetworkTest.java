@@ -0,0 +1,197 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Tests of the policy and value network and its training.
+ *  @author Tianyi Fang
+ */
+public class NetworkTest {
+
+    /** Return a new empty temporary directory, deleted on exit. */
+    private File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("ataxx").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /** Delete DIR and its files. */
+    private void delete(File dir) {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    /** Return the positions of N random boards. */
+    private List<MctsAI.State> states(int n) {
+        List<MctsAI.State> result = new ArrayList<>();
+        for (Board b : EvaluatorBench.randomBoards(n, new Random(2))) {
+            MctsAI.State state = new MctsAI.State();
+            state.load(b);
+            result.add(state);
+        }
+        return result;
+    }
+
+    /** Return examples for STATES whose target is the first legal move
+     *  and a value of 1 for positions with an even number of moves, and
+     *  -1 otherwise. */
+    private List<Network.Sample> samples(List<MctsAI.State> states) {
+        List<Network.Sample> result = new ArrayList<>();
+        int[] moves = new int[MctsAI.State.MAX_MOVES];
+        for (MctsAI.State state : states) {
+            int n = state.moves(moves);
+            if (n == 0) {
+                continue;
+            }
+            int[] indices = new int[n];
+            float[] target = new float[n];
+            for (int j = 0; j < n; j += 1) {
+                indices[j] = Network.policyIndex(moves[j]);
+            }
+            target[0] = 1;
+            result.add(new Network.Sample(state, indices, target,
+                                          n % 2 == 0 ? 1 : -1));
+        }
+        return result;
+    }
+
+    @Test public void testBatch() throws IOException {
+        Network net = new Network(16, new Random(1));
+        List<MctsAI.State> states = states(6);
+        Network.Batch batch = new Network.Batch(net, states.size());
+        for (int k = 0; k < states.size(); k += 1) {
+            batch.set(k, states.get(k));
+        }
+        net.evaluate(batch, states.size());
+        File file = File.createTempFile("ataxx", ".net");
+        file.deleteOnExit();
+        net.save(file);
+        Network copy = Network.load(file);
+        assertEquals(16, copy.hidden());
+        Network.Batch single = new Network.Batch(copy, 1);
+        int[] moves = new int[MctsAI.State.MAX_MOVES];
+        float[] priors = new float[MctsAI.State.MAX_MOVES];
+        for (int k = 0; k < states.size(); k += 1) {
+            single.set(0, states.get(k));
+            copy.evaluate(single, 1);
+            assertEquals(batch.value(k), single.value(0), 1e-6);
+            int n = states.get(k).moves(moves);
+            batch.priors(k, moves, n, priors);
+            double total = 0;
+            for (int j = 0; j < n; j += 1) {
+                total += priors[j];
+                assertEquals(batch.logit(k, Network.policyIndex(moves[j])),
+                             single.logit(0, Network.policyIndex(moves[j])),
+                             1e-5);
+            }
+            assertEquals(1, total, 1e-4);
+        }
+        file.delete();
+    }
+
+    @Test public void testPolicyIndex() {
+        int a1 = Board.index('a', '1');
+        int ext = (Board.index('b', '2') << 8) | a1;
+        int jump = (Board.index('c', '3') << 8) | a1;
+        assertEquals(0, Network.policyIndex(ext));
+        assertTrue(Network.policyIndex(jump) > 0);
+        assertTrue(Network.policyIndex(jump) < Network.POLICY_MOVES);
+        int g7 = Board.index('g', '7');
+        assertEquals(Network.POLICY - Network.POLICY_MOVES,
+                     Network.policyIndex((Board.index('f', '7') << 8) | g7));
+    }
+
+    @Test public void testTraining() {
+        Network net = new Network(32, new Random(3));
+        List<Network.Sample> samples = samples(states(20));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            double first = net.train(samples, 0.02, 0, 0.9, 2, pool);
+            double last = first;
+            for (int k = 0; k < 100; k += 1) {
+                last = net.train(samples, 0.02, 0, 0.9, 2, pool);
+            }
+            assertTrue(last < first / 2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void testSearch() {
+        Network net = new Network(16, new Random(4));
+        NetSearch search = new NetSearch(10000);
+        Network.Batch batch = new Network.Batch(net, 1);
+        Board board = new Board();
+        MctsAI.State state = new MctsAI.State();
+        state.load(board);
+        search.reset(state);
+        while (search.visits() < 50) {
+            if (search.select()) {
+                batch.set(0, search.leaf());
+                net.evaluate(batch, 1);
+                search.expand(batch, 0);
+            }
+        }
+        assertTrue(board.legalMove(MctsAI.toMove(
+            search.chooseMove(false, new Random(0)))));
+        assertTrue(board.legalMove(MctsAI.toMove(
+            search.chooseMove(true, new Random(0)))));
+        int[] moves = new int[MctsAI.State.MAX_MOVES];
+        float[] fractions = new float[MctsAI.State.MAX_MOVES];
+        int n = search.rootPolicy(moves, fractions);
+        assertEquals(board.allLegalMoves(board.whoseMove()).size(), n);
+        double total = 0;
+        for (int j = 0; j < n; j += 1) {
+            total += fractions[j];
+        }
+        assertEquals(1, total, 1e-4);
+        assertTrue(Math.abs(search.rootValue()) <= 1);
+    }
+
+    @Test public void testNetPlayer() {
+        Board b = new Board();
+        Game game = new Game(b, p -> null, new TextReporter());
+        MctsAI ai = new MctsAI(game, PieceColor.RED);
+        ai.setNetwork(new Network(16, new Random(5)));
+        ai.setSeed(5L);
+        Move mv = ai.findMove(b);
+        assertTrue("illegal move", b.legalMove(mv));
+        assertEquals("not reproducible", mv, ai.findMove(b));
+    }
+
+    @Test public void testPipeline() throws Exception {
+        File dir = tempDir();
+        Zero zero = new Zero(dir, 2, 8, 1, 6);
+        zero.run(1);
+        assertTrue(new File(dir, Zero.BEST).exists());
+        ReplayBuffer buffer = new ReplayBuffer(dir, 2);
+        assertEquals(1, buffer.nextGeneration());
+        List<Network.Sample> samples = buffer.samples();
+        assertFalse(samples.isEmpty());
+        for (Network.Sample s : samples) {
+            assertEquals(s.moves().length, s.target().length);
+            assertTrue(Math.abs(s.value()) <= 1);
+        }
+        buffer.add(1, samples.subList(0, 1));
+        buffer.add(2, samples.subList(0, 2));
+        assertEquals(3, buffer.nextGeneration());
+        List<Network.Sample> kept = buffer.samples();
+        assertEquals(3, kept.size());
+        assertTrue(Arrays.equals(samples.get(0).input(),
+                                 kept.get(0).input()));
+        assertArrayEquals(samples.get(0).moves(), kept.get(0).moves());
+        delete(dir);
+    }
+}
@@ -0,0 +1,44 @@
+package ataxx;
+
+import java.util.Random;
+
+/** Measures the speed of the search: the time taken and positions
+ *  visited by seeded searches of random positions with the default
+ *  settings, so that runs before and after a change to the search
+ *  visit the same positions unless the change alters the tree.  Usage:
+ *      java --add-modules jdk.incubator.vector ataxx.NodeBench [N [DEPTH]]
+ *  to search N positions (default 40) to depth DEPTH (default that of
+ *  the "set" command).
+ *  @author Tianyi Fang
+ */
+class NodeBench {
+
+    /** Search ARGS[0] positions (default 40) to depth ARGS[1] (default
+     *  that of the "set" command), and print the total time and
+     *  positions visited. */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        Settings settings = new Settings();
+        if (args.length > 1) {
+            settings.set("depth", args[1]);
+        }
+        Board[] boards = EvaluatorBench.randomBoards(n, new Random(42));
+        AI ai = new AI();
+        long nodes = 0;
+        int searched = 0;
+        long start = System.nanoTime();
+        for (Board board : boards) {
+            if (board.gameOver() || !board.canMove(board.whoseMove())) {
+                continue;
+            }
+            ai.setSeed(0L);
+            ai.findMove(board, settings);
+            nodes += ai.nodes();
+            searched += 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d positions searched, %d nodes, %.1f s,"
+                          + " %.0f nodes/s%n", searched, nodes, seconds,
+                          nodes / seconds);
+    }
+}
@@ -0,0 +1,65 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the deterministic parallel search.
+ *  @author Tianyi Fang
+ */
+public class ParallelSearchTest {
+
+    /** Return the result of a search of BOARD by a new AI with seed 7
+     *  and SETTINGS, with "threads" set to THREADS: its move, score,
+     *  depth, and node count. */
+    private String search(Board board, Settings settings, int threads) {
+        AI ai = new AI();
+        ai.setSeed(7L);
+        Settings s = new Settings(settings);
+        s.set("threads", Integer.toString(threads));
+        Move move = ai.findMove(board, s);
+        return String.format("%s %d %d %d", move, ai.lastScore(),
+                             ai.lastDepth(), ai.nodes());
+    }
+
+    @Test public void testSameAtAnyThreadCount() {
+        Board board = new Board();
+        board.setPosition("x2o3/1xo4/2x4/7/3o3/7/o5x x 0");
+        Settings settings = new Settings();
+        settings.set("depth", "4");
+        String expected = search(board, settings, 1);
+        for (int threads = 2; threads <= 4; threads += 1) {
+            assertEquals(expected, search(board, settings, threads));
+        }
+    }
+
+    @Test public void testNodeLimit() {
+        Board board = new Board();
+        Settings settings = new Settings();
+        settings.set("depth", "20");
+        settings.set("nodes", "3000");
+        String expected = search(board, settings, 1);
+        assertEquals(expected, search(board, settings, 3));
+        String[] result = expected.split(" ");
+        assertTrue(Integer.parseInt(result[2]) < 20);
+        assertTrue(board.legalMove(SearchWorker.parseMove(result[0])));
+        assertTrue("node limit overrun: " + result[3],
+                   Long.parseLong(result[3]) <= 3000L * (2 * AI.SPLIT_BATCH
+                                                         + 1));
+    }
+
+    @Test public void testHardLimit() {
+        AI ai = new AI();
+        ai.setSeed(7L);
+        ai.setLimits(0, 0, 200);
+        Settings settings = new Settings();
+        settings.set("depth", Integer.toString(AI.MAX_PLY - 1));
+        settings.set("threads", "2");
+        Board board = new Board();
+        long start = System.currentTimeMillis();
+        Move move = ai.findMove(board, settings);
+        long millis = System.currentTimeMillis() - start;
+        assertTrue("hard limit overrun: " + millis, millis < 2000);
+        assertTrue(ai.lastDepth() < AI.MAX_PLY - 1);
+        assertTrue(board.legalMove(move));
+    }
+}
@@ -0,0 +1,251 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/** Bulk evaluation of positions over a binary pipe (--pipe), for
+ *  scoring large sets of positions without the cost of parsing and
+ *  answering commands one at a time.  Requests and replies are frames:
+ *  a 4-byte length N followed by N bytes, all numbers big-endian.  A
+ *  request holds a position as the first 24 bytes of a TrainingData
+ *  record (the red squares with the side to move and jump count, the
+ *  blue squares, and the blocked squares), optionally followed by a
+ *  1-byte depth (0 for the default of the "set" command) and an 8-byte
+ *  node limit (0 for none); further bytes, up to a frame of MAX_FRAME
+ *  bytes, are ignored.  Each request gets a reply of REPLY_BYTES
+ *  bytes, in the order of the requests: a status (one of the constants
+ *  below), the squares moved from and to (bit numbers as in the masks,
+ *  or 255 for a pass), the depth completed, the score (positive favors
+ *  red), and the number of positions visited.  Requests are searched
+ *  in parallel by an Engine, with searches reproducible (unless a
+ *  cache supplies their results; see setCache); at most a fixed number
+ *  of them are outstanding at once, so that a slow search holds up
+ *  reading, rather than letting the replies waiting behind it grow
+ *  without bound.
+ *  @author Tianyi Fang
+ */
+class Pipe {
+
+    /** Reply status: a move was found. */
+    static final int MOVE = 0;
+    /** Reply status: the side to move must pass. */
+    static final int PASS = 1;
+    /** Reply status: the game is over in the position. */
+    static final int GAME_OVER = 2;
+    /** Reply status: the request was malformed. */
+    static final int BAD_REQUEST = 3;
+    /** Reply status: the search failed. */
+    static final int FAILED = 4;
+
+    /** Length of a position in a request, in bytes. */
+    static final int POSITION_BYTES = 24;
+    /** Length of a reply, in bytes. */
+    static final int REPLY_BYTES = 16;
+    /** Square number of the squares of a pass. */
+    static final int NO_SQUARE = 255;
+    /** Largest length of a request frame, in bytes. */
+    static final int MAX_FRAME = 4096;
+
+    /** A pipe reading requests from INPUT and writing replies to OUTPUT,
+     *  searching with ENGINE and keeping at most WINDOW requests
+     *  outstanding. */
+    Pipe(InputStream input, OutputStream output, Engine engine,
+         int window) {
+        _in = new DataInputStream(new BufferedInputStream(input));
+        _out = new DataOutputStream(new BufferedOutputStream(output));
+        _engine = engine;
+        _pending = new ArrayBlockingQueue<>(Math.max(1, window));
+    }
+
+    /** Have searches use CACHE (none if null). */
+    void setCache(PositionCache cache) {
+        _cache = cache;
+    }
+
+    /** Answer requests until the end of the input, and return the number
+     *  answered.  Throws IOException if the input ends within a frame,
+     *  a frame is longer than MAX_FRAME, or the output fails. */
+    long run() throws IOException {
+        Thread writer = new Thread(this::write, "pipe writer");
+        writer.start();
+        long count = 0;
+        try {
+            while (_failure == null) {
+                int length;
+                try {
+                    length = _in.readInt();
+                } catch (EOFException excp) {
+                    break;
+                }
+                if (length < 0 || length > MAX_FRAME) {
+                    throw new IOException("bad frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                _in.readFully(frame);
+                put(request(frame));
+                count += 1;
+            }
+        } finally {
+            put(END);
+            try {
+                writer.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (_failure != null) {
+            throw _failure;
+        }
+        return count;
+    }
+
+    /** Return the future reply to the request FRAME. */
+    private CompletableFuture<byte[]> request(byte[] frame) {
+        if (frame.length < POSITION_BYTES) {
+            return CompletableFuture.completedFuture(reply(BAD_REQUEST));
+        }
+        Board board = TrainingData.Record.board(getLong(frame, 0),
+                                                getLong(frame, 8),
+                                                getLong(frame, 16));
+        if (board == null) {
+            return CompletableFuture.completedFuture(reply(BAD_REQUEST));
+        }
+        if (board.gameOver()) {
+            return CompletableFuture.completedFuture(reply(GAME_OVER));
+        }
+
+        Engine.Limits limits = new Engine.Limits().seed(0L);
+        if (frame.length > POSITION_BYTES && frame[POSITION_BYTES] != 0) {
+            int depth = frame[POSITION_BYTES] & 0xff;
+            limits.depth(Math.min(depth, AI.MAX_PLY - 1));
+        }
+        if (frame.length >= POSITION_BYTES + 9) {
+            limits.nodes(Math.max(0, getLong(frame, POSITION_BYTES + 1)));
+        }
+        return _engine.submit(board, limits, _cache).handle((r, excp) ->
+            excp != null ? reply(FAILED) : reply(r));
+    }
+
+    /** Wait to add REPLY to the replies outstanding. */
+    private void put(CompletableFuture<byte[]> reply) {
+        while (true) {
+            try {
+                _pending.put(reply);
+                return;
+            } catch (InterruptedException excp) {
+                /* Ignore. */
+            }
+        }
+    }
+
+    /** Write the replies outstanding in order as they complete, until
+     *  END.  After the output fails, discard them instead, so that the
+     *  reader is not held up. */
+    private void write() {
+        while (true) {
+            CompletableFuture<byte[]> reply;
+            try {
+                reply = _pending.take();
+            } catch (InterruptedException excp) {
+                continue;
+            }
+            if (reply == END) {
+                break;
+            }
+            byte[] bytes = reply.join();
+            if (_failure != null) {
+                continue;
+            }
+            try {
+                _out.writeInt(bytes.length);
+                _out.write(bytes);
+                if (_pending.isEmpty()) {
+                    _out.flush();
+                }
+            } catch (IOException excp) {
+                _failure = excp;
+            }
+        }
+        try {
+            _out.flush();
+        } catch (IOException excp) {
+            if (_failure == null) {
+                _failure = excp;
+            }
+        }
+    }
+
+    /** Return a reply with status STATUS and no move. */
+    private static byte[] reply(int status) {
+        return reply(status, NO_SQUARE, NO_SQUARE, 0, 0, 0);
+    }
+
+    /** Return the reply for search result RESULT. */
+    private static byte[] reply(Engine.Result result) {
+        Move mv = result.bestMove();
+        if (mv.isPass()) {
+            return reply(PASS, NO_SQUARE, NO_SQUARE, 0, 0, 0);
+        }
+        return reply(MOVE, square(mv.col0(), mv.row0()),
+                     square(mv.col1(), mv.row1()), result.depth(),
+                     result.score(), result.nodes());
+    }
+
+    /** Return a reply with STATUS, squares FROM and TO, DEPTH, SCORE,
+     *  and NODES. */
+    private static byte[] reply(int status, int from, int to, int depth,
+                                int score, long nodes) {
+        byte[] result = new byte[REPLY_BYTES];
+        result[0] = (byte) status;
+        result[1] = (byte) from;
+        result[2] = (byte) to;
+        result[3] = (byte) depth;
+        for (int k = 0; k < 4; k += 1) {
+            result[4 + k] = (byte) (score >>> (24 - 8 * k));
+        }
+        for (int k = 0; k < 8; k += 1) {
+            result[8 + k] = (byte) (nodes >>> (56 - 8 * k));
+        }
+        return result;
+    }
+
+    /** Return the bit number of square C R in the masks. */
+    static int square(char c, char r) {
+        return (r - '1') * Board.SIDE + (c - 'a');
+    }
+
+    /** Return the big-endian long at byte K of BYTES. */
+    private static long getLong(byte[] bytes, int k) {
+        long result = 0;
+        for (int j = 0; j < 8; j += 1) {
+            result = (result << 8) | (bytes[k + j] & 0xff);
+        }
+        return result;
+    }
+
+    /** Marks the end of the replies outstanding. */
+    private static final CompletableFuture<byte[]> END =
+        new CompletableFuture<>();
+
+    /** Source of requests. */
+    private final DataInputStream _in;
+    /** Destination of replies. */
+    private final DataOutputStream _out;
+    /** Searches the requests. */
+    private final Engine _engine;
+    /** Replies not yet written, in the order of their requests. */
+    private final BlockingQueue<CompletableFuture<byte[]>> _pending;
+    /** Cache used by searches (none if null). */
+    private PositionCache _cache;
+    /** Failure of the output, or null if none. */
+    private volatile IOException _failure;
+}
@@ -0,0 +1,126 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Tests of bulk evaluation over a binary pipe.
+ *  @author Tianyi Fang
+ */
+public class PipeTest {
+
+    /** Write a request for BOARD, searched to DEPTH, to OUT. */
+    private void request(DataOutputStream out, Board board, int depth)
+        throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        new TrainingData.Record(new Position(board), 0, 0, 0)
+            .write(new DataOutputStream(record));
+        out.writeInt(Pipe.POSITION_BYTES + 9);
+        out.write(record.toByteArray(), 0, Pipe.POSITION_BYTES);
+        out.writeByte(depth);
+        out.writeLong(0);
+    }
+
+    @Test public void testOrder() throws IOException {
+        List<Board> boards = new ArrayList<>();
+        for (Board b : EvaluatorBench.randomBoards(8, new Random(9))) {
+            if (!b.gameOver() && b.canMove(b.whoseMove())) {
+                boards.add(b);
+            }
+        }
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        for (Board b : boards) {
+            request(out, b, 2);
+        }
+        out.writeInt(3);
+        out.write(new byte[3]);
+        request(out, new Board(), 0);
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        try (Engine engine = new Engine(2)) {
+            Pipe pipe = new Pipe(new ByteArrayInputStream(
+                                     requests.toByteArray()),
+                                 replies, engine, 2);
+            assertEquals(boards.size() + 2, pipe.run());
+            DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(replies.toByteArray()));
+            for (Board b : boards) {
+                assertEquals(Pipe.REPLY_BYTES, in.readInt());
+                Engine.Result expected =
+                    engine.submit(b.fen(), new Engine.Limits().depth(2)
+                                  .seed(0L)).join();
+                Move mv = expected.bestMove();
+                assertEquals(Pipe.MOVE, in.readByte());
+                assertEquals(Pipe.square(mv.col0(), mv.row0()),
+                             in.readUnsignedByte());
+                assertEquals(Pipe.square(mv.col1(), mv.row1()),
+                             in.readUnsignedByte());
+                assertEquals(2, in.readByte());
+                assertEquals(expected.score(), in.readInt());
+                assertEquals(expected.nodes(), in.readLong());
+            }
+            assertEquals(Pipe.REPLY_BYTES, in.readInt());
+            assertEquals(Pipe.BAD_REQUEST, in.readByte());
+            in.skipBytes(Pipe.REPLY_BYTES - 1);
+            assertEquals(Pipe.REPLY_BYTES, in.readInt());
+            assertEquals(Pipe.MOVE, in.readByte());
+            in.skipBytes(Pipe.REPLY_BYTES - 1);
+            assertEquals(0, in.available());
+        }
+    }
+
+    @Test public void testStatus() throws IOException {
+        Board pass = new Board();
+        pass.setPosition("ooxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/"
+                         + "xxxxxxx/xxxxxx1 o");
+        Board over = new Board();
+        over.setPosition("xxxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/xxxxxxx/"
+                         + "xxxxxxx/xxxxxxx o");
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(requests);
+        request(out, pass, 1);
+        request(out, over, 1);
+        out.writeInt(Pipe.POSITION_BYTES);
+        out.writeLong(1);
+        out.writeLong(1);
+        out.writeLong(0);
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        try (Engine engine = new Engine(1)) {
+            new Pipe(new ByteArrayInputStream(requests.toByteArray()),
+                     replies, engine, 1).run();
+        }
+        byte[] bytes = replies.toByteArray();
+        assertEquals(3 * (4 + Pipe.REPLY_BYTES), bytes.length);
+        assertEquals(Pipe.PASS, bytes[4]);
+        assertEquals(Pipe.NO_SQUARE, bytes[5] & 0xff);
+        assertEquals(Pipe.GAME_OVER, bytes[4 + 4 + Pipe.REPLY_BYTES]);
+        assertEquals(Pipe.BAD_REQUEST, bytes[4 + 2 * (4 + Pipe.REPLY_BYTES)]);
+    }
+
+    @Test(expected = IOException.class)
+    public void testLongFrame() throws IOException {
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        new DataOutputStream(requests).writeInt(Pipe.MAX_FRAME + 1);
+        try (Engine engine = new Engine(1)) {
+            new Pipe(new ByteArrayInputStream(requests.toByteArray()),
+                     new ByteArrayOutputStream(), engine, 1).run();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        byte[] requests = { 0, 0, 0, 24, 1, 2 };
+        try (Engine engine = new Engine(1)) {
+            new Pipe(new ByteArrayInputStream(requests),
+                     new ByteArrayOutputStream(), engine, 1).run();
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** An Ataxx position for use inside searches.  It follows the same
+ *  rules and square numbering as Board, but has none of Board's
+ *  machinery for the game and its displays: it is not Observable, it
+ *  does not check moves (its methods assume that they are legal, and
+ *  report nothing), and its undo history is a stack of small records
+ *  rather than of copies of the whole board.  Piece counts are kept
+ *  incrementally.
+ *  @author Tianyi Fang
+ */
+class Position {
+
+    /** Number of linearized squares. */
+    static final int SQUARES = Board.EXTENDED_SIDE * Board.EXTENDED_SIDE;
+
+    /** Offsets of the squares within two of a square, in the order in
+     *  which Board generates moves to them. */
+    private static final int[] RANGE = new int[24];
+    /** The Move from each square to each square (null if none), indexed
+     *  by from * SQUARES + to. */
+    private static final Move[] MOVES = new Move[SQUARES * SQUARES];
+
+    /** Seed of the hash keys.  Changing it invalidates saved hashes. */
+    private static final long HASH_SEED = 0x41544158584841L;
+    /** Random keys for hashing: ZOBRIST[k][sq] for a piece of color k
+     *  (red, blue, or blocked) on square sq. */
+    private static final long[][] ZOBRIST = new long[3][SQUARES];
+    /** Keys to change the color of a piece on each square:
+     *  FLIP_KEYS[sq] = ZOBRIST[0][sq] ^ ZOBRIST[1][sq]. */
+    private static final long[] FLIP_KEYS = new long[SQUARES];
+    /** Hash key for blue to move. */
+    private static final long BLUE_KEY;
+    /** Hash keys for each number of jumps since the last extend. */
+    private static final long[] JUMP_KEYS = new long[Board.JUMP_LIMIT + 1];
+
+    static {
+        Random keys = new Random(HASH_SEED);
+        for (long[] row : ZOBRIST) {
+            for (int sq = 0; sq < SQUARES; sq += 1) {
+                row[sq] = keys.nextLong();
+            }
+        }
+        for (int sq = 0; sq < SQUARES; sq += 1) {
+            FLIP_KEYS[sq] = ZOBRIST[0][sq] ^ ZOBRIST[1][sq];
+        }
+        BLUE_KEY = keys.nextLong();
+        for (int k = 0; k < JUMP_KEYS.length; k += 1) {
+            JUMP_KEYS[k] = keys.nextLong();
+        }
+        int n = 0;
+        for (int dc = -2; dc <= 2; dc += 1) {
+            for (int dr = -2; dr <= 2; dr += 1) {
+                if (dc != 0 || dr != 0) {
+                    RANGE[n] = Board.neighbor(0, dc, dr);
+                    n += 1;
+                }
+            }
+        }
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int from = Board.index(c, r);
+                for (int off : RANGE) {
+                    char[] to = Board.toChar(from + off);
+                    MOVES[from * SQUARES + from + off] =
+                        Move.move(c, r, to[0], to[1]);
+                }
+            }
+        }
+    }
+
+    /** The position at the start of a game. */
+    Position() {
+        this(new Board());
+    }
+
+    /** The current position of BOARD, with no undo history. */
+    Position(Board board) {
+        for (int sq = 0; sq < SQUARES; sq += 1) {
+            _squares[sq] = board.get(sq);
+        }
+        _whoseMove = board.whoseMove();
+        _jumps = board.numJumps();
+        count();
+    }
+
+    /** The position in SNAPSHOT, with no undo history. */
+    Position(BoardSnapshot snapshot) {
+        Arrays.fill(_squares, BLOCKED);
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                _squares[Board.index(c, r)] = snapshot.get(c, r);
+            }
+        }
+        _whoseMove = snapshot.whoseMove();
+        _jumps = snapshot.numJumps();
+        count();
+    }
+
+    /** The current position of OTHER, with no undo history. */
+    Position(Position other) {
+        System.arraycopy(other._squares, 0, _squares, 0, SQUARES);
+        _whoseMove = other._whoseMove;
+        _jumps = other._jumps;
+        count();
+    }
+
+    /** Return the contents of the square with linearized index SQ. */
+    PieceColor get(int sq) {
+        return _squares[sq];
+    }
+
+    /** Return the color of the side to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of jumps since the last extend. */
+    int numJumps() {
+        return _jumps;
+    }
+
+    /** Return the number of squares containing COLOR (RED, BLUE, EMPTY,
+     *  or BLOCKED). */
+    int numPieces(PieceColor color) {
+        switch (color) {
+        case RED:
+            return _red;
+        case BLUE:
+            return _blue;
+        case EMPTY:
+            return _empty;
+        case BLOCKED:
+            return Board.SIDE * Board.SIDE - _red - _blue - _empty;
+        default:
+            throw new IllegalArgumentException("no count of " + color);
+        }
+    }
+
+    /** Return the number of red pieces. */
+    int redPieces() {
+        return _red;
+    }
+
+    /** Return the number of blue pieces. */
+    int bluePieces() {
+        return _blue;
+    }
+
+    /** Return a 64-bit hash of this position: its pieces and blocks,
+     *  the side to move, and the jump count.  Hashes are the same in
+     *  every run of the program, so that they may be saved.  The hash
+     *  is kept up to date by makeMove and undo. */
+    long hash() {
+        return _hash;
+    }
+
+    /** Return the hash of this position, as for hash(), computed from
+     *  scratch. */
+    private long computeHash() {
+        long result = _whoseMove == BLUE ? BLUE_KEY : 0;
+        result ^= JUMP_KEYS[Math.min(_jumps, Board.JUMP_LIMIT)];
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int sq = Board.index(c, r);
+                switch (_squares[sq]) {
+                case RED:
+                    result ^= ZOBRIST[0][sq];
+                    break;
+                case BLUE:
+                    result ^= ZOBRIST[1][sq];
+                    break;
+                case BLOCKED:
+                    result ^= ZOBRIST[2][sq];
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return true iff WHO has a move. */
+    boolean canMove(PieceColor who) {
+        for (int sq = FIRST; sq <= LAST; sq += 1) {
+            if (_squares[sq] == who) {
+                for (int off : RANGE) {
+                    if (_squares[sq + off] == EMPTY) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Return true iff the game is over, by the rules of
+     *  Board.gameOver. */
+    boolean gameOver() {
+        return _jumps >= Board.JUMP_LIMIT
+            || (!canMove(_whoseMove) && !canMove(_whoseMove.opposite()));
+    }
+
+    /** Return WHO's legal moves, in the order Board.allLegalMoves gives
+     *  them. */
+    List<Move> allLegalMoves(PieceColor who) {
+        ArrayList<Move> result = new ArrayList<>();
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int sq = Board.index(c, r);
+                if (_squares[sq] != who) {
+                    continue;
+                }
+                for (int off : RANGE) {
+                    if (_squares[sq + off] == EMPTY) {
+                        result.add(MOVES[sq * SQUARES + sq + off]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Make MOVE, which must be legal, for the side to move. */
+    void makeMove(Move move) {
+        if (_undoSize == _undoMoves.length) {
+            int n = 2 * _undoSize;
+            _undoMoves = Arrays.copyOf(_undoMoves, n);
+            _undoFlips = Arrays.copyOf(_undoFlips, n);
+            _undoJumps = Arrays.copyOf(_undoJumps, n);
+            _undoHashes = Arrays.copyOf(_undoHashes, n);
+        }
+        _undoMoves[_undoSize] = move;
+        _undoJumps[_undoSize] = _jumps;
+        _undoHashes[_undoSize] = _hash;
+        int flips = 0;
+        long hash = _hash ^ BLUE_KEY;
+        if (!move.isPass()) {
+            PieceColor me = _whoseMove, other = me.opposite();
+            long[] mine = ZOBRIST[me == RED ? 0 : 1];
+            int to = move.toIndex();
+            hash ^= JUMP_KEYS[Math.min(_jumps, Board.JUMP_LIMIT)];
+            if (move.isExtend()) {
+                _jumps = 0;
+                add(me, 1);
+                _empty -= 1;
+            } else {
+                _squares[move.fromIndex()] = EMPTY;
+                hash ^= mine[move.fromIndex()];
+                _jumps += 1;
+            }
+            hash ^= JUMP_KEYS[Math.min(_jumps, Board.JUMP_LIMIT)]
+                ^ mine[to];
+            _squares[to] = me;
+            for (int k = 0; k < NEAR.length; k += 1) {
+                if (_squares[to + NEAR[k]] == other) {
+                    _squares[to + NEAR[k]] = me;
+                    hash ^= FLIP_KEYS[to + NEAR[k]];
+                    flips |= 1 << k;
+                }
+            }
+            int n = Integer.bitCount(flips);
+            add(me, n);
+            add(other, -n);
+        }
+        _undoFlips[_undoSize] = flips;
+        _undoSize += 1;
+        _hash = hash;
+        _whoseMove = _whoseMove.opposite();
+    }
+
+    /** Undo the last move made by makeMove. */
+    void undo() {
+        _undoSize -= 1;
+        Move move = _undoMoves[_undoSize];
+        _whoseMove = _whoseMove.opposite();
+        _jumps = _undoJumps[_undoSize];
+        _hash = _undoHashes[_undoSize];
+        if (move.isPass()) {
+            return;
+        }
+        PieceColor me = _whoseMove, other = me.opposite();
+        int to = move.toIndex(), flips = _undoFlips[_undoSize];
+        for (int k = 0; k < NEAR.length; k += 1) {
+            if ((flips & (1 << k)) != 0) {
+                _squares[to + NEAR[k]] = other;
+            }
+        }
+        int n = Integer.bitCount(flips);
+        add(me, -n);
+        add(other, n);
+        _squares[to] = EMPTY;
+        if (move.isExtend()) {
+            add(me, -1);
+            _empty += 1;
+        } else {
+            _squares[move.fromIndex()] = me;
+        }
+    }
+
+    /** Return the number of moves that can be undone. */
+    int numMoves() {
+        return _undoSize;
+    }
+
+    /** Add N to the piece count of COLOR. */
+    private void add(PieceColor color, int n) {
+        if (color == RED) {
+            _red += n;
+        } else {
+            _blue += n;
+        }
+    }
+
+    /** Set the piece counts and hash from _squares, _whoseMove, and
+     *  _jumps. */
+    private void count() {
+        _hash = computeHash();
+        _red = _blue = _empty = 0;
+        for (int sq = FIRST; sq <= LAST; sq += 1) {
+            switch (_squares[sq]) {
+            case RED:
+                _red += 1;
+                break;
+            case BLUE:
+                _blue += 1;
+                break;
+            case EMPTY:
+                _empty += 1;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    /** First and last linearized squares of the real board. */
+    private static final int FIRST = Board.index('a', '1'),
+        LAST = Board.index('g', '7');
+    /** Offsets of adjacent squares. */
+    private static final int[] NEAR = Evaluator.NEAR;
+    /** Initial size of the undo stack. */
+    private static final int UNDO_SIZE = 128;
+
+    /** Contents of each linearized square. */
+    private final PieceColor[] _squares = new PieceColor[SQUARES];
+    /** Side to move. */
+    private PieceColor _whoseMove;
+    /** Jumps since the last extend. */
+    private int _jumps;
+    /** Numbers of red pieces, blue pieces, and empty squares. */
+    private int _red, _blue, _empty;
+    /** The value of hash(). */
+    private long _hash;
+    /** Moves made, for undo. */
+    private Move[] _undoMoves = new Move[UNDO_SIZE];
+    /** Bit k is set in an entry iff the move flipped the piece at offset
+     *  NEAR[k] from its destination. */
+    private int[] _undoFlips = new int[UNDO_SIZE];
+    /** Jump counts before each move. */
+    private int[] _undoJumps = new int[UNDO_SIZE];
+    /** Hashes before the moves in _undoMoves. */
+    private long[] _undoHashes = new long[UNDO_SIZE];
+    /** Number of moves that can be undone. */
+    private int _undoSize;
+}
@@ -0,0 +1,298 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.StandardOpenOption.*;
+import static ataxx.GameException.error;
+
+/** A table of the results of searches (depth, score, and best move),
+ *  keyed by Position.hash, kept in a memory-mapped file so that it
+ *  survives from one run of the program to the next and may be shared
+ *  by all the games in a run.
+ *
+ *  The file holds a header (a magic number, a version, and the number
+ *  of entries) followed by a fixed number of 16-byte entries, addressed
+ *  by the low bits of the key and probed in groups of PROBES.  Each
+ *  entry holds its data and the key XORed with that data, so that an
+ *  entry read while it is being written (which lookups do not prevent)
+ *  fails to match rather than giving wrong results.  Lookups are made
+ *  directly on the mapped file by the calling thread; stores are queued
+ *  and made by a single writer thread, so that searches never wait for
+ *  them.  The operating system writes the file back; flush forces it.
+ *  Caches still open when the program exits are closed then.
+ *  @author Tianyi Fang
+ */
+class PositionCache {
+
+    /** Default number of entries of a new cache file (16 MiB). */
+    static final int DEFAULT_ENTRIES = 1 << 20;
+    /** Largest number of entries. */
+    static final int MAX_ENTRIES = 1 << 26;
+
+    /** A cached search result. */
+    static class Entry {
+        /** An entry for a search DEPTH plies deep that found MOVE, with
+         *  value SCORE (positive favors red). */
+        Entry(int depth, int score, Move move) {
+            _depth = depth;
+            _score = score;
+            _move = move;
+        }
+
+        /** Return the depth of the search. */
+        int depth() {
+            return _depth;
+        }
+
+        /** Return the value found (positive favors red). */
+        int score() {
+            return _score;
+        }
+
+        /** Return the best move found. */
+        Move move() {
+            return _move;
+        }
+
+        /** Depth and score of the search. */
+        private final int _depth, _score;
+        /** Best move found. */
+        private final Move _move;
+    }
+
+    /** Return the cache in the file named NAME, creating one with
+     *  ENTRIES entries (rounded up to a power of two) if there is no such
+     *  file.  An existing file keeps its own size. */
+    static PositionCache open(String name, int entries) throws IOException {
+        return new PositionCache(Paths.get(name), entries);
+    }
+
+    /** Close OLD (if not null), and return the cache in the file named
+     *  NAME, created with DEFAULT_ENTRIES entries if needed, or null if
+     *  NAME is "off".  Used by the commands that choose the cache. */
+    static PositionCache replace(PositionCache old, String name) {
+        if (old != null) {
+            old.close();
+        }
+        if (name.equals("off")) {
+            return null;
+        }
+        try {
+            return open(name, DEFAULT_ENTRIES);
+        } catch (IOException excp) {
+            throw error("Cannot use cache file %s: %s", name,
+                        excp.getMessage());
+        }
+    }
+
+    /** A cache in the file FILE, created with ENTRIES entries if
+     *  needed. */
+    private PositionCache(Path file, int entries) throws IOException {
+        boolean fresh;
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE,
+                                                    CREATE)) {
+            long size = channel.size();
+            fresh = size == 0;
+            if (fresh) {
+                _entries = Math.max(PROBES, Integer.highestOneBit(
+                    Math.min(MAX_ENTRIES, Math.max(1, 2 * entries - 1))));
+            } else if (size < HEADER) {
+                throw new IOException("not a cache file");
+            } else {
+                MappedByteBuffer header =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                _entries = header.getInt(12);
+                if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION
+                    || Integer.bitCount(_entries) != 1
+                    || _entries > MAX_ENTRIES
+                    || size != HEADER + (long) _entries * ENTRY) {
+                    throw new IOException("not a cache file");
+                }
+            }
+            _buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                  HEADER + (long) _entries * ENTRY);
+        }
+        _buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (fresh) {
+            _buffer.putLong(0, MAGIC);
+            _buffer.putInt(8, VERSION);
+            _buffer.putInt(12, _entries);
+        }
+        _writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cache writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        synchronized (OPEN) {
+            OPEN.add(this);
+        }
+    }
+
+    /** Return the number of entries. */
+    int entries() {
+        return _entries;
+    }
+
+    /** Return the entry for the position whose hash is KEY, or null if
+     *  there is none. */
+    Entry get(long key) {
+        int home = (int) key & (_entries - 1);
+        for (int k = 0; k < PROBES; k += 1) {
+            int at = HEADER + ((home + k) & (_entries - 1)) * ENTRY;
+            long check = _buffer.getLong(at), data = _buffer.getLong(at + 8);
+            if (data != 0 && (check ^ data) == key) {
+                return unpack(data);
+            }
+        }
+        return null;
+    }
+
+    /** Record in the background that a search DEPTH plies deep from the
+     *  position whose hash is KEY found MOVE, with value SCORE (positive
+     *  favors red).  An existing entry for KEY is replaced only by a
+     *  search at least as deep.  Passes are not recorded.  Does nothing
+     *  once I am closed. */
+    void put(long key, int depth, int score, Move move) {
+        if (move.isPass()) {
+            return;
+        }
+        long data = pack(depth, score, move);
+        synchronized (this) {
+            if (!_closed) {
+                _writer.execute(() -> store(key, data));
+            }
+        }
+    }
+
+    /** Wait for the stores queued so far to be made, and write my file
+     *  to disk. */
+    void flush() {
+        Future<?> done;
+        synchronized (this) {
+            if (_closed) {
+                return;
+            }
+            done = _writer.submit(() -> {
+                _buffer.force();
+            });
+        }
+        try {
+            done.get();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException excp) {
+            throw new IllegalStateException(excp.getCause());
+        }
+    }
+
+    /** Flush, and stop accepting stores.  Closing more than once has no
+     *  further effect.  The mapping itself lasts until I am
+     *  garbage-collected. */
+    void close() {
+        flush();
+        synchronized (this) {
+            _closed = true;
+        }
+        _writer.shutdown();
+        synchronized (OPEN) {
+            OPEN.remove(this);
+        }
+    }
+
+    /** Close all caches still open. */
+    private static void closeAll() {
+        List<PositionCache> open;
+        synchronized (OPEN) {
+            open = new ArrayList<>(OPEN);
+        }
+        for (PositionCache cache : open) {
+            cache.close();
+        }
+    }
+
+    /** Store DATA for KEY, replacing the entry for KEY, if there is one
+     *  and it is no deeper, or else an empty entry, or else the
+     *  shallowest entry probed. */
+    private void store(long key, long data) {
+        int home = (int) key & (_entries - 1);
+        int victim = -1, victimDepth = Integer.MAX_VALUE;
+        for (int k = 0; k < PROBES; k += 1) {
+            int at = HEADER + ((home + k) & (_entries - 1)) * ENTRY;
+            long old = _buffer.getLong(at + 8);
+            if (old != 0 && (_buffer.getLong(at) ^ old) == key) {
+                if (depth(old) > depth(data)) {
+                    return;
+                }
+                victim = at;
+                break;
+            }
+            int depth = old == 0 ? -1 : depth(old);
+            if (depth < victimDepth) {
+                victim = at;
+                victimDepth = depth;
+            }
+        }
+        _buffer.putLong(victim + 8, data);
+        _buffer.putLong(victim, key ^ data);
+    }
+
+    /** Return the data of an entry for a search DEPTH plies deep that
+     *  found MOVE with value SCORE. */
+    private static long pack(int depth, int score, Move move) {
+        return ((long) score << 32) | (move.toIndex() << 16)
+            | (move.fromIndex() << 8) | depth;
+    }
+
+    /** Return the depth recorded in entry data DATA. */
+    private static int depth(long data) {
+        return (int) data & 0xff;
+    }
+
+    /** Return the Entry whose data is DATA. */
+    private static Entry unpack(long data) {
+        char[] from = Board.toChar((int) (data >>> 8) & 0xff),
+            to = Board.toChar((int) (data >>> 16) & 0xff);
+        return new Entry(depth(data), (int) (data >> 32),
+                         Move.move(from[0], from[1], to[0], to[1]));
+    }
+
+    /** Identifies cache files ("ATAXXPC" and a NUL, little-endian). */
+    private static final long MAGIC = 0x0043505858415441L;
+    /** Version of the file format. */
+    private static final int VERSION = 1;
+    /** Size of the header and of an entry in bytes. */
+    private static final int HEADER = 16, ENTRY = 16;
+    /** Number of entries probed for each key. */
+    private static final int PROBES = 4;
+
+    /** Caches not yet closed. */
+    private static final Set<PositionCache> OPEN = new HashSet<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(
+            new Thread(PositionCache::closeAll, "cache closer"));
+    }
+
+    /** The mapped file. */
+    private final MappedByteBuffer _buffer;
+    /** Number of entries, a power of two. */
+    private final int _entries;
+    /** Makes stores and flushes. */
+    private final ExecutorService _writer;
+    /** True once I have been closed. */
+    private boolean _closed;
+}
@@ -0,0 +1,94 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/** Tests of the on-disk cache of search results.
+ *  @author Tianyi Fang
+ */
+public class PositionCacheTest {
+
+    /** Return the name of a new, empty temporary file that is deleted
+     *  when the tests finish. */
+    private String tempFile() throws IOException {
+        File file = File.createTempFile("ataxx", ".cache");
+        file.deleteOnExit();
+        file.delete();
+        return file.getPath();
+    }
+
+    @Test public void testPersistence() throws IOException {
+        String name = tempFile();
+        Move mv = Move.move('a', '7', 'c', '5');
+        PositionCache cache = PositionCache.open(name, 100);
+        assertEquals(128, cache.entries());
+        assertNull(cache.get(42));
+        cache.put(42, 5, -17, mv);
+        cache.put(42 + 128, 3, 9, Move.move('g', '1', 'f', '2'));
+        cache.close();
+        cache = PositionCache.open(name, 1000);
+        assertEquals(128, cache.entries());
+        PositionCache.Entry entry = cache.get(42);
+        assertEquals(5, entry.depth());
+        assertEquals(-17, entry.score());
+        assertEquals(mv, entry.move());
+        assertEquals(3, cache.get(42 + 128).depth());
+        cache.close();
+    }
+
+    @Test public void testReplacement() throws IOException {
+        PositionCache cache = PositionCache.open(tempFile(), 16);
+        Move mv = Move.move('a', '7', 'b', '6');
+        cache.put(7, 4, 1, mv);
+        cache.put(7, 2, 2, mv);
+        cache.flush();
+        assertEquals(1, cache.get(7).score());
+        cache.put(7, 4, 3, mv);
+        cache.flush();
+        assertEquals(3, cache.get(7).score());
+        for (int k = 1; k <= 4; k += 1) {
+            cache.put(7 + 16 * k, 1 + k, 0, mv);
+        }
+        cache.flush();
+        assertNull(cache.get(7 + 16));
+        assertNotNull(cache.get(7));
+        assertNotNull(cache.get(7 + 16 * 4));
+        cache.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotACache() throws IOException {
+        String name = tempFile();
+        try (FileWriter out = new FileWriter(name)) {
+            out.write("this is not a cache file");
+        }
+        PositionCache.open(name, 16);
+    }
+
+    @Test public void testSearch() throws IOException {
+        PositionCache cache = PositionCache.open(tempFile(), 1024);
+        Settings settings = new Settings();
+        settings.set("depth", "3");
+        Board board = new Board();
+        AI ai = new AI();
+        ai.setSeed(1L);
+        ai.setCache(cache);
+        Move first = ai.findMove(board, settings);
+        assertTrue(ai.nodes() > 0);
+        cache.flush();
+        Move second = ai.findMove(board, settings);
+        assertEquals(first, second);
+        assertEquals(0, ai.nodes());
+        assertEquals(3, ai.lastDepth());
+        settings.set("depth", "4");
+        ai.findMove(board, settings);
+        assertTrue(ai.nodes() > 0);
+        cache.flush();
+        assertEquals(4, cache.get(new Position(board).hash()).depth());
+        cache.close();
+    }
+}
@@ -0,0 +1,92 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of the search position against Board.
+ *  @author Tianyi Fang
+ */
+public class PositionTest {
+
+    /** Assert that POSITION and BOARD hold the same position. */
+    private void checkSame(Position position, Board board) {
+        for (int sq = 0; sq < Position.SQUARES; sq += 1) {
+            assertEquals("square " + sq, board.get(sq), position.get(sq));
+        }
+        assertEquals(board.whoseMove(), position.whoseMove());
+        assertEquals(board.numJumps(), position.numJumps());
+        for (PieceColor c : new PieceColor[] { RED, BLUE, EMPTY }) {
+            assertEquals(board.numPieces(c), position.numPieces(c));
+        }
+        assertEquals(board.gameOver(), position.gameOver());
+        for (PieceColor c : new PieceColor[] { RED, BLUE }) {
+            assertEquals(board.allLegalMoves(c), position.allLegalMoves(c));
+            assertEquals(board.canMove(c), position.canMove(c));
+        }
+        assertEquals(new Position(board).hash(), position.hash());
+    }
+
+    @Test public void testRandomGames() {
+        Random random = new Random(5);
+        for (int g = 0; g < 20; g += 1) {
+            Board board = new Board();
+            if (g % 2 == 1) {
+                board.setBlock('b', '2');
+                board.setBlock('d', '3');
+            }
+            Position position = new Position(board);
+            int made = 0;
+            while (!board.gameOver()) {
+                List<Move> moves = board.allLegalMoves(board.whoseMove());
+                Move mv = moves.isEmpty() ? Move.pass()
+                    : moves.get(random.nextInt(moves.size()));
+                board.makeMove(mv);
+                position.makeMove(mv);
+                made += 1;
+                checkSame(position, board);
+            }
+            assertEquals(made, position.numMoves());
+            while (made > 0) {
+                board.undo();
+                position.undo();
+                made -= 1;
+                checkSame(position, board);
+            }
+        }
+    }
+
+    @Test public void testHash() {
+        Position p0 = new Position(), p1 = new Position();
+        p0.makeMove(Move.move('a', '7', 'b', '6'));
+        p0.makeMove(Move.move('g', '7', 'f', '6'));
+        p0.makeMove(Move.move('g', '1', 'f', '2'));
+        p1.makeMove(Move.move('g', '1', 'f', '2'));
+        p1.makeMove(Move.move('g', '7', 'f', '6'));
+        p1.makeMove(Move.move('a', '7', 'b', '6'));
+        assertEquals(p0.hash(), p1.hash());
+        long before = p0.hash();
+        p0.makeMove(Move.pass());
+        assertNotEquals(before, p0.hash());
+        p0.undo();
+        assertEquals(before, p0.hash());
+        assertNotEquals(new Position().hash(), p0.hash());
+    }
+
+    @Test public void testPass() {
+        Board board = new Board();
+        board.setPosition("xoo4/ooo4/ooo4/7/7/7/7 x 0");
+        Position position = new Position(board);
+        checkSame(position, board);
+        assertFalse(position.canMove(RED));
+        assertFalse(position.gameOver());
+        position.makeMove(Move.pass());
+        assertEquals(BLUE, position.whoseMove());
+        position.undo();
+        checkSame(position, board);
+    }
+}
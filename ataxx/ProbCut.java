@@ -0,0 +1,179 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** Parameters for ProbCut forward pruning.  For a search DEEP plies
+ *  deep, in a given game phase, each Check gives a shallower depth and
+ *  the linear model deep = A * shallow + B + e, where the error e has
+ *  standard deviation SIGMA, fitted from search statistics by
+ *  ProbCutCalibrator.  Several checks for the same deep search
+ *  (Multi-ProbCut) are tried from the shallowest up.
+ *
+ *  The table is read from lines of the form
+ *      DEEP SHALLOW PHASE A B SIGMA [SAMPLES]
+ *  with '#' starting a comment.  SAMPLES, the number of positions the
+ *  model was fitted from, is informational.
+ *  @author Tianyi Fang
+ */
+class ProbCut {
+
+    /** Number of game phases, determined by the number of empty
+     *  squares. */
+    static final int PHASES = 5;
+    /** Largest deep search depth in any table. */
+    static final int MAX_DEPTH = 64;
+    /** Name of the resource holding the standard table. */
+    static final String RESOURCE = "ataxx/probcut.txt";
+
+    /** One prediction of a deep search from a shallow one. */
+    static class Check {
+
+        /** A check predicting from a search SHALLOW plies deep, using
+         *  the model A * shallow + B with error deviation SIGMA. */
+        Check(int shallow, double a, double b, double sigma) {
+            this.shallow = shallow;
+            this.a = a;
+            this.b = b;
+            this.sigma = sigma;
+        }
+
+        /** Return the smallest shallow score that predicts that the deep
+         *  score is at least BETA, with confidence given by T standard
+         *  deviations. */
+        int upper(int beta, double t) {
+            return (int) Math.ceil((beta + t * sigma - b) / a);
+        }
+
+        /** Return the largest shallow score that predicts that the deep
+         *  score is at most ALPHA, with confidence given by T standard
+         *  deviations. */
+        int lower(int alpha, double t) {
+            return (int) Math.floor((alpha - t * sigma - b) / a);
+        }
+
+        /** Depth of the shallow search. */
+        final int shallow;
+        /** Slope, intercept, and error deviation of the model. */
+        final double a, b, sigma;
+    }
+
+    /** An empty table, which never prunes. */
+    ProbCut() {
+        _checks = new ArrayList<>(MAX_DEPTH * PHASES);
+        for (int k = 0; k < MAX_DEPTH * PHASES; k += 1) {
+            _checks.add(null);
+        }
+    }
+
+    /** Return the standard table, read from RESOURCE (empty if there is
+     *  no such resource). */
+    static synchronized ProbCut standard() {
+        if (_standard == null) {
+            _standard = new ProbCut();
+            InputStream in =
+                ProbCut.class.getClassLoader().getResourceAsStream(RESOURCE);
+            if (in != null) {
+                try (Reader r = new InputStreamReader(in)) {
+                    _standard = read(r);
+                } catch (IOException excp) {
+                    System.err.println("Bad ProbCut table; ProbCut disabled.");
+                }
+            }
+        }
+        return _standard;
+    }
+
+    /** Return a table read from INPUT.  Throws IOException if a line
+     *  is malformed. */
+    static ProbCut read(Reader input) throws IOException {
+        ProbCut result = new ProbCut();
+        BufferedReader r = new BufferedReader(input);
+        for (String line = r.readLine(); line != null; line = r.readLine()) {
+            if (line.indexOf('#') >= 0) {
+                line = line.substring(0, line.indexOf('#'));
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] f = line.split("\\s+");
+            if (f.length < 6 || f.length > 7) {
+                throw new IOException("Bad ProbCut table line: " + line);
+            }
+            int deep, shallow, phase;
+            double a, b, sigma;
+            try {
+                deep = Integer.parseInt(f[0]);
+                shallow = Integer.parseInt(f[1]);
+                phase = Integer.parseInt(f[2]);
+                a = Double.parseDouble(f[3]);
+                b = Double.parseDouble(f[4]);
+                sigma = Double.parseDouble(f[5]);
+            } catch (NumberFormatException excp) {
+                throw new IOException("Bad ProbCut table line: " + line);
+            }
+            if (shallow < 0 || phase < 0 || phase >= PHASES) {
+                throw new IOException("Bad ProbCut table line: " + line);
+            }
+            result.add(deep, shallow, phase, a, b, sigma);
+        }
+        return result;
+    }
+
+    /** Add a check for searches DEEP plies deep in PHASE, predicting from
+     *  a search SHALLOW plies deep with the model A * shallow + B and
+     *  error deviation SIGMA.  Ignores models that could not be used
+     *  safely (non-positive slope). */
+    void add(int deep, int shallow, int phase, double a, double b,
+             double sigma) {
+        if (a <= 0 || deep >= MAX_DEPTH || shallow >= deep) {
+            return;
+        }
+        int slot = deep * PHASES + phase;
+        if (_checks.get(slot) == null) {
+            _checks.set(slot, new ArrayList<>());
+        }
+        List<Check> checks = _checks.get(slot);
+        int k;
+        for (k = 0; k < checks.size() && checks.get(k).shallow < shallow;
+             k += 1) {
+            continue;
+        }
+        checks.add(k, new Check(shallow, a, b, sigma));
+    }
+
+    /** Return the checks for searches DEEP plies deep in PHASE, from the
+     *  shallowest up. */
+    List<Check> checks(int deep, int phase) {
+        if (deep >= MAX_DEPTH || _checks.get(deep * PHASES + phase) == null) {
+            return NONE;
+        }
+        return _checks.get(deep * PHASES + phase);
+    }
+
+    /** Return the game phase of POSITION, from 0 (nearly full) to
+     *  PHASES - 1 (nearly empty). */
+    static int phase(Position position) {
+        int empty = position.numPieces(EMPTY);
+        return Math.min(PHASES - 1,
+                        empty * PHASES / (Board.SIDE * Board.SIDE));
+    }
+
+    /** An empty list of checks. */
+    private static final List<Check> NONE = new ArrayList<>();
+
+    /** The standard table, once read. */
+    private static ProbCut _standard;
+
+    /** Checks for each deep depth and phase, at index
+     *  deep * PHASES + phase (null if none). */
+    private final List<List<Check>> _checks;
+}
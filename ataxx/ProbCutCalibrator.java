@@ -0,0 +1,167 @@
+package ataxx;
+
+import java.util.List;
+import java.util.Random;
+
+/** Fits the ProbCut models from self-play.  Plays games in which each
+ *  side usually makes the move that gains the most material (and
+ *  otherwise a random one), searches sampled positions to every depth
+ *  up to a maximum, and fits deep = a * shallow + b by least squares
+ *  for each (deep, shallow) depth pair and game phase.  The resulting
+ *  table is printed on the standard output, in the form read by
+ *  ProbCut.  Usage:
+ *      java ataxx.ProbCutCalibrator [GAMES [MAXDEPTH [SEED]]]
+ *  To install the result, redirect it to ataxx/probcut.txt.
+ *  @author Tianyi Fang
+ */
+class ProbCutCalibrator {
+
+    /** Probability of a random rather than greedy move in self-play. */
+    private static final double RANDOM_MOVE = 0.25;
+    /** Number of random moves at the start of each game. */
+    private static final int OPENING_MOVES = 4;
+    /** Sample every SAMPLE_EVERY-th position of each game. */
+    private static final int SAMPLE_EVERY = 3;
+    /** Smallest deep search depth calibrated. */
+    private static final int MIN_DEEP = 3;
+    /** Depth differences between deep and shallow searches. */
+    private static final int[] REDUCTIONS = { 2, 4 };
+    /** Fewest samples from which a model is reported. */
+    private static final int MIN_SAMPLES = 30;
+    /** Scores beyond this magnitude indicate a decided game and are not
+     *  sampled. */
+    private static final int DECIDED = 10000;
+
+    /** Play ARGS[0] games (default 20), searching to depth ARGS[1]
+     *  (default 5), with random seed ARGS[2] (default 1). */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        Random random = new Random(seed);
+        double[][][][] sums =
+            new double[maxDepth + 1][maxDepth + 1][ProbCut.PHASES][6];
+
+        Settings settings = new Settings();
+        settings.set("probcut", "0");
+        AI ai = new AI();
+        ai.setSeed(seed);
+        ProbCut none = new ProbCut();
+        int samples = 0;
+
+        for (int g = 0; g < games; g += 1) {
+            Position board = new Position();
+            for (int ply = 0; !board.gameOver(); ply += 1) {
+                if (ply >= OPENING_MOVES && ply % SAMPLE_EVERY == 0) {
+                    int[] v = new int[maxDepth + 1];
+                    for (int d = 0; d <= maxDepth; d += 1) {
+                        v[d] = ai.searchScore(board, d, settings, none);
+                    }
+                    if (Math.abs(v[maxDepth]) < DECIDED) {
+                        record(sums, v, ProbCut.phase(board));
+                        samples += 1;
+                    }
+                }
+                List<Move> moves = board.allLegalMoves(board.whoseMove());
+                if (moves.isEmpty()) {
+                    board.makeMove(Move.pass());
+                } else if (ply < OPENING_MOVES
+                           || random.nextDouble() < RANDOM_MOVE) {
+                    board.makeMove(moves.get(random.nextInt(moves.size())));
+                } else {
+                    board.makeMove(greedy(board, moves, random));
+                }
+            }
+            System.err.printf("Game %d done, %d samples.%n", g + 1, samples);
+        }
+
+        System.out.printf("# Fitted by ProbCutCalibrator from %d games "
+                          + "(%d positions), depth %d.%n",
+                          games, samples, maxDepth);
+        System.out.println("# deep shallow phase a b sigma samples");
+        for (int deep = MIN_DEEP; deep <= maxDepth; deep += 1) {
+            for (int r : REDUCTIONS) {
+                int shallow = deep - r;
+                if (shallow < 1) {
+                    continue;
+                }
+                for (int p = 0; p < ProbCut.PHASES; p += 1) {
+                    report(deep, shallow, p, sums[deep][shallow][p]);
+                }
+            }
+        }
+    }
+
+    /** Add the (shallow, deep) pairs of search values V, indexed by
+     *  depth, for a position in PHASE to SUMS, which is indexed by deep
+     *  depth, shallow depth, and phase, and holds the number of samples
+     *  and the sums of x, y, x*x, x*y, and y*y, where x is the shallow
+     *  value and y the deep one. */
+    private static void record(double[][][][] sums, int[] v, int phase) {
+        for (int deep = MIN_DEEP; deep < v.length; deep += 1) {
+            for (int r : REDUCTIONS) {
+                int shallow = deep - r;
+                if (shallow < 1) {
+                    continue;
+                }
+                double[] s = sums[deep][shallow][phase];
+                double x = v[shallow], y = v[deep];
+                s[0] += 1;
+                s[1] += x;
+                s[2] += y;
+                s[3] += x * x;
+                s[4] += x * y;
+                s[5] += y * y;
+            }
+        }
+    }
+
+    /** Print the least-squares model for DEEP, SHALLOW, and PHASE from
+     *  sums S (as for record), if there are enough samples. */
+    private static void report(int deep, int shallow, int phase,
+                               double[] s) {
+        double n = s[0];
+        if (n < MIN_SAMPLES) {
+            return;
+        }
+        double sxx = s[3] - s[1] * s[1] / n, sxy = s[4] - s[1] * s[2] / n;
+        if (sxx <= 0) {
+            return;
+        }
+        double a = sxy / sxx, b = (s[2] - a * s[1]) / n;
+        System.out.printf("%d %d %d %.4f %.4f %.4f %d%n", deep, shallow,
+                          phase, a, b, residualDeviation(s, a, b),
+                          (int) n);
+    }
+
+    /** Return the standard deviation of the residuals of the model
+     *  y = A * x + B, given sums S (as for record). */
+    private static double residualDeviation(double[] s, double a, double b) {
+        double n = s[0];
+        double rss = s[5] - 2 * a * s[4] - 2 * b * s[2] + a * a * s[3]
+            + 2 * a * b * s[1] + n * b * b;
+        return Math.sqrt(Math.max(0, rss / n));
+    }
+
+    /** Return a move from MOVES on BOARD that gains the most material,
+     *  choosing randomly among equals using RANDOM. */
+    private static Move greedy(Position board, List<Move> moves,
+                               Random random) {
+        Move best = null;
+        int bestGain = -1, ties = 0;
+        for (Move mv : moves) {
+            int gain = AI.gain(board, mv);
+            if (gain > bestGain) {
+                best = mv;
+                bestGain = gain;
+                ties = 1;
+            } else if (gain == bestGain) {
+                ties += 1;
+                if (random.nextInt(ties) == 0) {
+                    best = mv;
+                }
+            }
+        }
+        return best;
+    }
+}
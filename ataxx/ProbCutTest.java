@@ -0,0 +1,47 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+/** Tests of the ProbCut tables.
+ *  @author Tianyi Fang
+ */
+public class ProbCutTest {
+
+    @Test public void testRead() throws IOException {
+        ProbCut table = ProbCut.read(new StringReader(
+            "# comment\n5 3 2 1.0 0.5 2.0 100\n5 1 2 0.9 0 3\n"
+            + "4 2 0 -1 0 1 40\n"));
+        List<ProbCut.Check> checks = table.checks(5, 2);
+        assertEquals("wrong number of checks", 2, checks.size());
+        assertEquals("shallowest first", 1, checks.get(0).shallow);
+        assertEquals("deeper second", 3, checks.get(1).shallow);
+        assertTrue("negative slope accepted", table.checks(4, 0).isEmpty());
+        assertTrue("missing phase", table.checks(5, 1).isEmpty());
+    }
+
+    @Test public void testBadTables() {
+        for (String table : new String[] { "5 3 2 1.0 0.5\n",
+                                           "5 3 x 1.0 0.5 2.0\n",
+                                           "5 3 9 1.0 0.5 2.0\n",
+                                           "5 3 2 1.0 0.5 2.0 1 2\n" }) {
+            try {
+                ProbCut.read(new StringReader(table));
+                fail("bad table accepted: " + table);
+            } catch (IOException excp) {
+                assertTrue(excp.getMessage().startsWith("Bad ProbCut table"));
+            }
+        }
+    }
+
+    @Test public void testBounds() {
+        ProbCut.Check c = new ProbCut.Check(3, 1.0, 0.5, 2.0);
+        assertEquals("upper", 7, c.upper(4, 1.5));
+        assertEquals("lower", 0, c.lower(4, 1.5));
+    }
+
+}
@@ -0,0 +1,267 @@
+package ataxx;
+
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static ataxx.PieceColor.*;
+
+/** Proves the outcomes of positions by depth-first proof-number search
+ *  (df-pn).  A position is proven to be worth at least some value for
+ *  the side to move by the usual AND/OR search: at the positions where
+ *  that side moves, one child must be proven, and at the others, every
+ *  child.  Each position in the search has a proof number (the least
+ *  number of unexpanded positions that might prove it) and a disproof
+ *  number (likewise for disproving it), kept in a hash table; the search
+ *  repeatedly expands the most proving position, descending depth-first
+ *  for as long as the numbers along the path stay under thresholds
+ *  derived from its siblings.  The exact value is found by proving a win
+ *  and, failing that, a draw.  A position whose outcome is decided by
+ *  its independent regions (see Regions) counts as a finished game.
+ *
+ *  Where every child must be proven (or disproven), the number is not
+ *  the sum of the children's, which grows without bound when positions
+ *  can be reached in many ways (as by jumps), but the largest of them
+ *  plus one for each other unresolved child (weak proof numbers).
+ *
+ *  The table has a fixed number of entries, each replacing whatever was
+ *  in its slot, so that it bounds the memory used however long the
+ *  search runs; positions lost from it are simply searched again.  It
+ *  keeps its contents from one search to the next, since proofs (and
+ *  the numbers of unfinished ones) remain valid.
+ *  @author Tianyi Fang
+ */
+class ProofSearch {
+
+    /** Default number of table entries. */
+    static final int DEFAULT_ENTRIES = 1 << 18;
+
+    /** The proven outcome of a position. */
+    static class Result {
+        /** An outcome of VALUE (1 for a win, 0 for a draw, and -1 for a
+         *  loss, for the side to move), reached by playing MOVE. */
+        Result(int value, Move move) {
+            _value = value;
+            _move = move;
+        }
+
+        /** Return the value of the position for the side to move: 1, 0,
+         *  or -1 for a win, a draw, or a loss. */
+        int value() {
+            return _value;
+        }
+
+        /** Return a move achieving value(), or any move if value() is
+         *  -1. */
+        Move move() {
+            return _move;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s", _value > 0 ? "win"
+                                 : _value < 0 ? "loss" : "draw", _move);
+        }
+
+        /** The value. */
+        private final int _value;
+        /** The move. */
+        private final Move _move;
+    }
+
+    /** A search with a table of ENTRIES entries (rounded up to a power
+     *  of two). */
+    ProofSearch(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries - 1)) << 1;
+        _keys = new long[size];
+        _proof = new int[size];
+        _disproof = new int[size];
+    }
+
+    /** Return the outcome of POSITION, which must not be over and must
+     *  have a legal move for the side to move, or null if it is not
+     *  proven after visiting about NODES positions.  POSITION is left
+     *  unchanged. */
+    Result prove(Position position, long nodes) {
+        return prove(position, nodes, () -> false);
+    }
+
+    /** Return the outcome of POSITION as for prove(POSITION, NODES),
+     *  except that the search also gives up (returning null) once
+     *  STOPPED, which is called once per position visited, returns
+     *  true. */
+    Result prove(Position position, long nodes, BooleanSupplier stopped) {
+        Position root = new Position(position);
+        _nodes = 0;
+        _budget = nodes;
+        _stopped = stopped;
+        _attacker = root.whoseMove();
+        List<Move> moves = Analyzer.rootMoves(root);
+        if (prove(root, 1)) {
+            return new Result(1, _rootMove);
+        } else if (exhausted()) {
+            return null;
+        } else if (prove(root, 0)) {
+            return new Result(0, _rootMove);
+        } else if (exhausted()) {
+            return null;
+        }
+        return new Result(-1, moves.get(0));
+    }
+
+    /** Return the number of positions visited by the last call to
+     *  prove. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return true iff the current search must give up. */
+    private boolean exhausted() {
+        return _nodes >= _budget || _stopped.getAsBoolean();
+    }
+
+    /** Return true iff ROOT is proven to be worth at least TARGET to
+     *  its side to move (recording the proving move in _rootMove), and
+     *  false if that is disproven or the search gives up first. */
+    private boolean prove(Position root, int target) {
+        _target = target;
+        _rootMove = null;
+        search(root, INFINITY, INFINITY, 0);
+        long key = key(root);
+        int i = slot(key);
+        return _keys[i] == key && _proof[i] == 0;
+    }
+
+    /** Expand the subtree of POSITION, PLY plies from the root, until
+     *  its proof number reaches PROOF or its disproof number reaches
+     *  DISPROOF (or the search gives up), and store its numbers in
+     *  the table. */
+    private void search(Position position, int proof, int disproof,
+                        int ply) {
+        _nodes += 1;
+        long key = key(position);
+        boolean over = position.gameOver();
+        Regions regions = over || ply == 0 ? null : new Regions(position);
+        if (over || (regions != null && regions.decided())) {
+            int diff = over ? position.redPieces() - position.bluePieces()
+                : regions.finalDifference();
+            int value = Integer.signum(_attacker == RED ? diff : -diff);
+            if (value >= _target) {
+                store(key, 0, INFINITY);
+            } else {
+                store(key, INFINITY, 0);
+            }
+            return;
+        }
+        boolean or = position.whoseMove() == _attacker;
+        List<Move> moves = Analyzer.rootMoves(position);
+        if (moves.isEmpty()) {
+            moves.add(Move.pass());
+        }
+        int n = moves.size();
+        long[] keys = new long[n];
+        for (int k = 0; k < n; k += 1) {
+            position.makeMove(moves.get(k));
+            keys[k] = key(position);
+            position.undo();
+        }
+        int pn, dn;
+        while (true) {
+            int best = -1, first = INFINITY, second = INFINITY;
+            int most = 0, open = 0, bestOther = 0;
+            for (int k = 0; k < n; k += 1) {
+                int i = slot(keys[k]);
+                int cp = 1, cd = 1;
+                if (_keys[i] == keys[k]) {
+                    cp = _proof[i];
+                    cd = _disproof[i];
+                }
+                int select = or ? cp : cd, other = or ? cd : cp;
+                if (other > 0) {
+                    most = Math.max(most, other);
+                    open += 1;
+                }
+                if (select < first) {
+                    second = first;
+                    first = select;
+                    best = k;
+                    bestOther = other;
+                } else if (select < second) {
+                    second = select;
+                }
+            }
+            int all = first == 0 || most >= INFINITY ? INFINITY
+                : open == 0 ? 0 : Math.min(INFINITY - 1, most + open - 1);
+            pn = or ? first : all;
+            dn = or ? all : first;
+            if (ply == 0 && pn == 0) {
+                _rootMove = moves.get(best);
+            }
+            if (pn >= proof || dn >= disproof || exhausted()) {
+                break;
+            }
+            int limit = or ? proof : disproof,
+                otherLimit = or ? disproof : proof;
+            /* Let the child's number exceed its sibling's by a quarter
+             * before switching, to avoid alternating between them. */
+            int childSelect =
+                (int) Math.min(limit, second + 1L + second / 4);
+            int childOther = (int) Math.min(INFINITY,
+                                            (long) otherLimit - all
+                                            + bestOther);
+            position.makeMove(moves.get(best));
+            if (or) {
+                search(position, childSelect, childOther, ply + 1);
+            } else {
+                search(position, childOther, childSelect, ply + 1);
+            }
+            position.undo();
+        }
+        store(key, pn, dn);
+    }
+
+    /** Return the table key of POSITION for the current target and
+     *  attacker. */
+    private long key(Position position) {
+        return position.hash() ^ TARGET_KEYS[_target]
+            ^ (_attacker == RED ? 0 : ATTACKER_KEY);
+    }
+
+    /** Return the slot of the table for KEY. */
+    private int slot(long key) {
+        return (int) key & (_keys.length - 1);
+    }
+
+    /** Record proof number PN and disproof number DN for KEY. */
+    private void store(long key, int pn, int dn) {
+        int i = slot(key);
+        _keys[i] = key;
+        _proof[i] = pn;
+        _disproof[i] = dn;
+    }
+
+    /** A proof or disproof number meaning that the position is
+     *  disproven or proven. */
+    private static final int INFINITY = 1 << 30;
+    /** Distinguish the keys of positions searched for the two targets
+     *  (draw or better, and win), and for blue rather than red. */
+    private static final long[] TARGET_KEYS = {
+        0x5DEECE66DL, 0x9E3779B97F4A7C15L
+    };
+    private static final long ATTACKER_KEY = 0xC2B2AE3D27D4EB4FL;
+
+    /** Table keys, and the proof and disproof numbers stored with
+     *  them. */
+    private final long[] _keys;
+    private final int[] _proof, _disproof;
+    /** The side to move at the root of the current search. */
+    private PieceColor _attacker;
+    /** The value the current search tries to prove for _attacker. */
+    private int _target;
+    /** The move proving the root, once found. */
+    private Move _rootMove;
+    /** Number of positions visited by the current search, and its
+     *  limit. */
+    private long _nodes, _budget;
+    /** True when the current search must give up. */
+    private BooleanSupplier _stopped;
+}
@@ -0,0 +1,123 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of proof-number search.
+ *  @author Tianyi Fang
+ */
+public class ProofSearchTest {
+
+    /** Blocks leaving only the outer two columns on each side, so that
+     *  positions can be solved exactly. */
+    private static final String BLOCKS = "c1,c2,c3,c4,d1,d2,d3,d4";
+
+    /** Return a board with BLOCKS (unless null) reached from the
+     *  initial position by random extends (or jumps, when there are
+     *  none), chosen using RANDOM, with EMPTY empty squares left, or
+     *  null if the game ends first or the side to move must pass. */
+    private Board randomBoard(Random random, String blocks, int empty) {
+        Board board = new Board();
+        if (blocks != null) {
+            for (String sq : blocks.split(",")) {
+                board.setBlock(sq.charAt(0), sq.charAt(1));
+            }
+        }
+        while (!board.gameOver() && board.numPieces(EMPTY) > empty) {
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            List<Move> extensions = new ArrayList<>();
+            for (Move mv : moves) {
+                if (mv.isExtend()) {
+                    extensions.add(mv);
+                }
+            }
+            if (!extensions.isEmpty()) {
+                moves = extensions;
+            }
+            board.makeMove(moves.isEmpty() ? Move.pass()
+                           : moves.get(random.nextInt(moves.size())));
+        }
+        return board.gameOver() || !board.canMove(board.whoseMove())
+            ? null : board;
+    }
+
+    /** Return the pieces of COLOR in POSITION as Solver bits. */
+    private long bits(Position position, PieceColor color) {
+        long result = 0;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                if (position.get(Board.index(c, r)) == color) {
+                    result |= Solver.bit(Board.SIDE, c, r);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the exact value of POSITION for the side to move, as
+     *  found by SOLVER. */
+    private int solve(Solver solver, Position position) {
+        PieceColor me = position.whoseMove();
+        return solver.solve(bits(position, me), bits(position,
+                                                     me.opposite()),
+                            position.numJumps());
+    }
+
+    @Test public void testAgainstSolver() {
+        Random random = new Random(5);
+        ProofSearch search = new ProofSearch(1 << 16);
+        Solver solver = new Solver(Board.SIDE,
+                                   Solver.parseBlocks(Board.SIDE, BLOCKS),
+                                   1 << 20);
+        int proven = 0;
+        for (int trial = 0; trial < 20; trial += 1) {
+            Board board = randomBoard(random, BLOCKS, 4 + trial % 4);
+            if (board == null) {
+                continue;
+            }
+            Position position = new Position(board);
+            ProofSearch.Result result = search.prove(position, 50000);
+            if (result == null) {
+                continue;
+            }
+            proven += 1;
+            assertEquals(solve(solver, position), result.value());
+            assertTrue(board.legalMove(result.move()));
+            if (result.value() >= 0) {
+                position.makeMove(result.move());
+                assertEquals(-result.value(), solve(solver, position));
+            }
+        }
+        assertTrue(proven >= 8);
+    }
+
+    @Test public void testBudget() {
+        ProofSearch search = new ProofSearch(1 << 10);
+        assertNull(search.prove(new Position(), 1000));
+        assertTrue(search.nodes() <= 1000);
+    }
+
+    @Test public void testProvenMove() {
+        Random random = new Random(5);
+        Board board;
+        do {
+            board = randomBoard(random, null, 2);
+        } while (board == null);
+        Settings settings = new Settings();
+        AI ai = new AI();
+        Move move = ai.findMove(board, settings);
+        assertTrue(board.legalMove(move));
+        assertEquals(AI.MAX_PLY - 1, ai.lastDepth());
+        int score = Math.abs(ai.lastScore());
+        assertTrue(score == AI.PROVEN_VALUE || score == 0);
+        settings.set("proof-empty", "0");
+        ai.findMove(board, settings);
+        assertEquals(settings.get("depth"), ai.lastDepth());
+    }
+}
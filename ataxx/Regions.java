@@ -0,0 +1,160 @@
+package ataxx;
+
+import java.util.Arrays;
+
+import static ataxx.PieceColor.*;
+
+/** The independent regions of a position.  A region is a set of
+ *  unblocked squares connected by steps of at most two squares (the
+ *  reach of a move); since every move, and every capture, stays within
+ *  one region, play in one region never affects another, and the game
+ *  is a sum of the games in its regions.  Block-heavy layouts split the
+ *  board into several.
+ *
+ *  A region is settled if nothing can happen in it any more: it has no
+ *  empty squares, or no pieces to move into them.  It is owned by a side
+ *  if only that side has pieces in it and every empty square in it is
+ *  joined to one of them by a chain of adjacent empty squares, so that
+ *  the side can extend into it on every turn until it is full.  The
+ *  other regions are contested.  When no region is contested, the game
+ *  is decided: each side can, and best should, fill its own regions by
+ *  extending on each of its turns (which also keeps the jump limit from
+ *  ending the game), and neither can disturb the other's, so the final
+ *  score is the present one plus the empty squares of each side's
+ *  regions, however the moves are interleaved.
+ *  @author Tianyi Fang
+ */
+class Regions {
+
+    /** The regions of POSITION. */
+    Regions(Position position) {
+        int[] region = new int[Position.SQUARES];
+        Arrays.fill(region, -1);
+        int[] stack = new int[Board.SIDE * Board.SIDE];
+        int diff = position.redPieces() - position.bluePieces();
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                int start = Board.index(c, r);
+                if (position.get(start) == BLOCKED || region[start] >= 0) {
+                    continue;
+                }
+                int red = 0, blue = 0, empty = 0, size = 0;
+                region[start] = _size;
+                stack[size] = start;
+                size += 1;
+                for (int k = 0; k < size; k += 1) {
+                    int sq = stack[k];
+                    switch (position.get(sq)) {
+                    case RED:
+                        red += 1;
+                        break;
+                    case BLUE:
+                        blue += 1;
+                        break;
+                    default:
+                        empty += 1;
+                        break;
+                    }
+                    size = visit(position, region, stack, size, sq,
+                                 Evaluator.NEAR);
+                    size = visit(position, region, stack, size, sq,
+                                 Evaluator.FAR);
+                }
+                if (empty == 0 || red + blue == 0) {
+                    _settled += 1;
+                } else if ((red == 0 || blue == 0)
+                           && fillable(position, stack, size, empty)) {
+                    diff += red == 0 ? -empty : empty;
+                } else {
+                    _contested += 1;
+                }
+                _size += 1;
+            }
+        }
+        _finalDifference = diff;
+    }
+
+    /** Return the number of regions. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the number of settled regions. */
+    int settled() {
+        return _settled;
+    }
+
+    /** Return the number of contested regions. */
+    int contested() {
+        return _contested;
+    }
+
+    /** Return true iff no region is contested, so that the outcome of
+     *  the game is known. */
+    boolean decided() {
+        return _contested == 0;
+    }
+
+    /** Return the number of red pieces minus the number of blue pieces
+     *  at the end of the game, assuming decided(). */
+    int finalDifference() {
+        return _finalDifference;
+    }
+
+    /** Add to STACK[0 .. SIZE-1] the unblocked squares at offsets
+     *  OFFSETS from SQ on POSITION that are in no region yet, putting
+     *  them in the region of SQ (as recorded in REGION), and return the
+     *  new size of the stack. */
+    private int visit(Position position, int[] region, int[] stack,
+                      int size, int sq, int[] offsets) {
+        for (int off : offsets) {
+            int next = sq + off;
+            if (region[next] < 0 && position.get(next) != BLOCKED) {
+                region[next] = region[sq];
+                stack[size] = next;
+                size += 1;
+            }
+        }
+        return size;
+    }
+
+    /** Return true iff each of the EMPTY empty squares of the region
+     *  whose squares are SQUARES[0 .. SIZE-1] on POSITION, where only one
+     *  side has pieces, is joined to a piece by a chain of adjacent empty
+     *  squares.  Reorders SQUARES. */
+    private boolean fillable(Position position, int[] squares, int size,
+                             int empty) {
+        int reached = 0;
+        for (int k = 0; k < size; k += 1) {
+            if (position.get(squares[k]) != EMPTY) {
+                int t = squares[reached];
+                squares[reached] = squares[k];
+                squares[k] = t;
+                reached += 1;
+            }
+        }
+        int pieces = reached;
+        for (int k = 0; k < reached; k += 1) {
+            for (int off : Evaluator.NEAR) {
+                int next = squares[k] + off;
+                if (position.get(next) != EMPTY) {
+                    continue;
+                }
+                for (int j = reached; j < size; j += 1) {
+                    if (squares[j] == next) {
+                        squares[j] = squares[reached];
+                        squares[reached] = next;
+                        reached += 1;
+                        break;
+                    }
+                }
+            }
+        }
+        return reached - pieces == empty;
+    }
+
+    /** Number of regions, and of settled and contested ones. */
+    private int _size, _settled, _contested;
+    /** The final score, if decided. */
+    private final int _finalDifference;
+}
@@ -0,0 +1,71 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the decomposition of positions into independent regions.
+ *  @author Tianyi Fang
+ */
+public class RegionsTest {
+
+    /** Return the position given by FEN, as for Board.setPosition. */
+    private Position position(String fen) {
+        Board board = new Board();
+        board.setPosition(fen);
+        return new Position(board);
+    }
+
+    @Test public void testOpenBoard() {
+        Regions regions = new Regions(new Position());
+        assertEquals(1, regions.size());
+        assertEquals(1, regions.contested());
+        assertFalse(regions.decided());
+        regions = new Regions(position("x6/7/7/7/7/7/6x o 0"));
+        assertTrue(regions.decided());
+        assertEquals(49, regions.finalDifference());
+    }
+
+    @Test public void testCorners() {
+        Position corners =
+            position("xx---1o/x1---2/-------/-------/-------/2---2/o1---1x x");
+        Regions regions = new Regions(corners);
+        assertEquals(4, regions.size());
+        assertEquals(0, regions.settled());
+        assertTrue(regions.decided());
+        assertEquals(0, regions.finalDifference());
+        Position lopsided =
+            position("xx---oo/x----2/-------/-------/-------/2---2/o1---1x o");
+        assertEquals(-1, new Regions(lopsided).finalDifference());
+        ProofSearch search = new ProofSearch(1024);
+        ProofSearch.Result result = search.prove(lopsided, 1000);
+        assertEquals(1, result.value());
+        assertTrue(search.nodes() < 100);
+    }
+
+    @Test public void testSettledAndContested() {
+        Regions regions =
+            new Regions(position("x-1----/-------/-------/---1---/"
+                                 + "-------/-------/------o x"));
+        assertEquals(3, regions.size());
+        assertEquals(2, regions.settled());
+        assertEquals(1, regions.contested());
+        assertFalse(regions.decided());
+        regions = new Regions(position("xx---oo/xx---oo/2---2/-------/"
+                                       + "2---2/oo---xx/oo---xx x"));
+        assertEquals(2, regions.size());
+        assertEquals(2, regions.contested());
+    }
+
+    @Test public void testDecidedSearch() {
+        Board board = new Board();
+        board.setPosition("xx---1o/x1---2/-------/-------/-------/"
+                          + "2---2/o1---1x x");
+        Settings settings = new Settings();
+        settings.set("proof-empty", "0");
+        AI ai = new AI();
+        Move move = ai.findMove(board, settings);
+        assertTrue(board.legalMove(move));
+        assertEquals(0, ai.lastScore());
+        assertTrue(ai.nodes() < 1000);
+    }
+}
@@ -0,0 +1,167 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** The training examples of the last few generations of self-play (see
+ *  Zero), kept on disk in a directory with one gzip-compressed file per
+ *  generation, so that training can resume after the program stops.
+ *  Each example holds the squares of the side to move, of its opponent,
+ *  and the blocks as 49-bit masks, the jump count, the policy indices of
+ *  the legal moves with their target probabilities, and the final
+ *  result.
+ *  @author Tianyi Fang
+ */
+class ReplayBuffer {
+
+    /** Suffix of the names of generation files. */
+    static final String SUFFIX = ".rb.gz";
+
+    /** A buffer in directory DIR keeping the examples of the last WINDOW
+     *  generations. */
+    ReplayBuffer(File dir, int window) {
+        _dir = dir;
+        _window = window;
+    }
+
+    /** Return the number of the next generation: one more than the last
+     *  one stored, or 0 if there are none. */
+    int nextGeneration() {
+        List<File> files = files();
+        if (files.isEmpty()) {
+            return 0;
+        }
+        String name = files.get(files.size() - 1).getName();
+        return Integer.parseInt(name.substring(PREFIX.length(),
+                                               name.length()
+                                               - SUFFIX.length())) + 1;
+    }
+
+    /** Store SAMPLES as generation GENERATION, deleting generations that
+     *  fall out of the window. */
+    void add(int generation, List<Network.Sample> samples)
+        throws IOException {
+        File file = new File(_dir, String.format("%s%05d%s", PREFIX,
+                                                 generation, SUFFIX));
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new GZIPOutputStream(
+                     new FileOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            for (Network.Sample s : samples) {
+                write(out, s);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("cannot create " + file);
+        }
+        List<File> files = files();
+        for (int k = 0; k < files.size() - _window; k += 1) {
+            files.get(k).delete();
+        }
+    }
+
+    /** Return the examples of all the generations kept. */
+    List<Network.Sample> samples() throws IOException {
+        List<Network.Sample> result = new ArrayList<>();
+        for (File file : files()) {
+            try (DataInputStream in = new DataInputStream(
+                     new BufferedInputStream(new GZIPInputStream(
+                         new FileInputStream(file))))) {
+                if (in.readInt() != MAGIC) {
+                    throw new IOException("not a replay file: " + file);
+                }
+                while (true) {
+                    try {
+                        result.add(read(in));
+                    } catch (EOFException excp) {
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the generation files, in order. */
+    private List<File> files() {
+        File[] files = _dir.listFiles((d, name) -> name.startsWith(PREFIX)
+                                      && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /** Write SAMPLE to OUT. */
+    private static void write(DataOutputStream out, Network.Sample sample)
+        throws IOException {
+        float[] input = sample.input();
+        for (int plane = 0; plane < 3; plane += 1) {
+            long mask = 0;
+            for (int s = 0; s < Network.SQUARES; s += 1) {
+                if (input[plane * Network.SQUARES + s] != 0) {
+                    mask |= 1L << s;
+                }
+            }
+            out.writeLong(mask);
+        }
+        out.writeByte(Math.round(input[3 * Network.SQUARES]
+                                 * Board.JUMP_LIMIT));
+        int[] moves = sample.moves();
+        float[] target = sample.target();
+        out.writeShort(moves.length);
+        for (int j = 0; j < moves.length; j += 1) {
+            out.writeShort(moves[j]);
+            out.writeFloat(target[j]);
+        }
+        out.writeFloat(sample.value());
+    }
+
+    /** Return the next example read from IN. */
+    private static Network.Sample read(DataInputStream in)
+        throws IOException {
+        float[] input = new float[Network.INPUTS];
+        for (int plane = 0; plane < 3; plane += 1) {
+            long mask = in.readLong();
+            for (int s = 0; s < Network.SQUARES; s += 1) {
+                if ((mask & (1L << s)) != 0) {
+                    input[plane * Network.SQUARES + s] = 1;
+                }
+            }
+        }
+        input[3 * Network.SQUARES] =
+            (float) in.readByte() / Board.JUMP_LIMIT;
+        int n = in.readShort();
+        int[] moves = new int[n];
+        float[] target = new float[n];
+        for (int j = 0; j < n; j += 1) {
+            moves[j] = in.readShort();
+            target[j] = in.readFloat();
+        }
+        return new Network.Sample(input, moves, target, in.readFloat());
+    }
+
+    /** Prefix of the names of generation files. */
+    private static final String PREFIX = "replay-";
+    /** Identifies replay files ("ATXR"). */
+    private static final int MAGIC = 0x41545852;
+
+    /** Directory of the files. */
+    private final File _dir;
+    /** Number of generations kept. */
+    private final int _window;
+}
@@ -0,0 +1,44 @@
+package ataxx;
+
+/** An Evaluator that computes features one square at a time.  Used
+ *  when the Vector API is not available.
+ *  @author Tianyi Fang
+ */
+class ScalarEvaluator extends Evaluator {
+
+    @Override
+    void features(Position position, int[] result) {
+        encode(position, _diff, _empty);
+        int material, weighted, mobility, frontier;
+        material = weighted = mobility = frontier = 0;
+        for (int sq = FIRST; sq < FIRST + SPAN; sq += 1) {
+            int d = _diff[sq];
+            if (d == 0) {
+                continue;
+            }
+            int near, far;
+            near = far = 0;
+            for (int off : NEAR) {
+                near += _empty[sq + off];
+            }
+            for (int off : FAR) {
+                far += _empty[sq + off];
+            }
+            material += d;
+            weighted += d * SQUARE_WEIGHTS[sq];
+            mobility += d * (near + far);
+            if (near > 0) {
+                frontier += d;
+            }
+        }
+        result[MATERIAL] = material;
+        result[WEIGHTED] = weighted;
+        result[MOBILITY] = mobility;
+        result[FRONTIER] = frontier;
+    }
+
+    /** Scratch piece encoding. */
+    private final int[] _diff = new int[SQUARES];
+    /** Scratch empty-square encoding. */
+    private final int[] _empty = new int[SQUARES];
+}
@@ -0,0 +1,773 @@
+package ataxx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Runs integration test scripts (testing/*.inp) as testing/test-ataxx.py
+ *  does, with the same checks and messages, but with each program a Game
+ *  on its own Board and output within this JVM rather than a new
+ *  process, and with several scripts at once.  A script is one or two
+ *  sections separated by a line of dashes, each starting with the
+ *  command that runs a program ("java ataxx.Main", possibly with JVM
+ *  options, which are ignored) followed by lines to send to it and
+ *  checks of its output:
+ *      @time T          wait up to T seconds for each line of output.
+ *      @total-time T    allow T seconds for the whole script.
+ *      @< TEXT          the next line of output is TEXT.
+ *      @? PATTERN       the next line of output matches PATTERN.
+ *      @red... [PAT]    the program plays itself from red (or @blue...)
+ *                       to an outcome matching PAT.
+ *      @send red... [PAT], @recv red... [PAT]
+ *                       exchange moves with the other section's program
+ *                       to an outcome matching PAT, sending first or
+ *                       receiving first.
+ *  Only output lines that report moves, passes, or outcomes, board
+ *  dumps, and uncaught exceptions are seen by the checks.  Usage:
+ *      java ataxx.ScriptRunner [-v] [-j THREADS] SCRIPT ...
+ *  where -v prints the transcript of each program and THREADS (default:
+ *  the number of processors) scripts run at once.
+ *  @author Tianyi Fang
+ */
+class ScriptRunner {
+
+    /** Default seconds to wait for each line of output. */
+    static final double OP_LIMIT = 10;
+    /** Default seconds allowed for a whole script. */
+    static final int TOTAL_TIME = 120;
+    /** Seconds allowed for the second program to finish after the
+     *  first. */
+    static final int CLEANUP_TIME = 2;
+
+    /** Run the scripts named by ARGS, as described above, reporting on
+     *  the standard error, and exit with status 0 iff all pass. */
+    public static void main(String[] args) throws Exception {
+        boolean verbose = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int k;
+        for (k = 0; k < args.length && args[k].startsWith("-"); k += 1) {
+            if (args[k].equals("-v") || args[k].equals("--verbose")) {
+                verbose = true;
+            } else if (args[k].equals("-j") && k + 1 < args.length) {
+                k += 1;
+                threads = Integer.parseInt(args[k]);
+            } else {
+                System.err.println("Usage: java ataxx.ScriptRunner [-v]"
+                                   + " [-j THREADS] SCRIPT ...");
+                System.exit(1);
+            }
+        }
+        List<File> scripts = new ArrayList<>();
+        for (; k < args.length; k += 1) {
+            scripts.add(new File(args[k]));
+        }
+        int failed = new ScriptRunner(verbose).run(scripts, threads,
+                                                   System.err);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /** The outcome of a script. */
+    static class Result {
+        /** An outcome of type TYPE ("OK", "FAIL", or "ERROR") with
+         *  message MESSAGE (null if none), and the transcripts of its
+         *  programs, LOG. */
+        Result(String type, String message, String log) {
+            _type = type;
+            _message = message;
+            _log = log;
+        }
+
+        /** Return "OK", "FAIL" (a problem with the script), or "ERROR" (a
+         *  check failed). */
+        String type() {
+            return _type;
+        }
+
+        /** Return the explanation of a failure, or null if none. */
+        String message() {
+            return _message;
+        }
+
+        /** Return the transcripts, or "" if not verbose. */
+        String log() {
+            return _log;
+        }
+
+        @Override
+        public String toString() {
+            return _message == null ? _type
+                : String.format("%s (%s)", _type, _message);
+        }
+
+        /** Outcome type. */
+        private final String _type;
+        /** Explanation (null if none). */
+        private final String _message;
+        /** Transcripts. */
+        private final String _log;
+    }
+
+    /** A runner that keeps the transcripts of programs iff VERBOSE. */
+    ScriptRunner(boolean verbose) {
+        _verbose = verbose;
+    }
+
+    /** Run SCRIPTS, THREADS at a time, reporting each outcome in order and
+     *  a summary on REPORT, and return the number that did not pass. */
+    int run(List<File> scripts, int threads, PrintStream report)
+        throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(
+            Math.max(1, threads), r -> {
+                Thread t = new Thread(r, "script");
+                t.setDaemon(true);
+                return t;
+            });
+        List<Future<Result>> results = new ArrayList<>();
+        for (File script : scripts) {
+            results.add(pool.submit(() -> {
+                try {
+                    return run(new String(Files.readAllBytes(script.toPath()),
+                                          StandardCharsets.UTF_8));
+                } catch (IOException excp) {
+                    return new Result("FAIL", excp.toString(), "");
+                }
+            }));
+        }
+        int errors, problems;
+        errors = problems = 0;
+        for (int k = 0; k < scripts.size(); k += 1) {
+            Result result;
+            try {
+                result = results.get(k).get();
+            } catch (ExecutionException excp) {
+                result = new Result("FAIL", excp.getCause().toString(), "");
+            }
+            report.print(result.log());
+            report.printf("%s: %s%n", scripts.get(k).getName(), result);
+            if (result.type().equals("ERROR")) {
+                errors += 1;
+            } else if (!result.type().equals("OK")) {
+                problems += 1;
+            }
+        }
+        pool.shutdown();
+        report.printf("%nSummary:%n   %3d tests%n   %3d passed%n"
+                      + "   %3d errors%n   %3d problematic tests%n",
+                      scripts.size(), scripts.size() - errors - problems,
+                      errors, problems);
+        return errors + problems;
+    }
+
+    /** Run the script whose contents are TEXT, and return its outcome. */
+    Result run(String text) throws InterruptedException {
+        int totalLimit = TOTAL_TIME;
+        Matcher total = TOTAL_TIME_CMND.matcher(text);
+        if (total.find()) {
+            totalLimit = Integer.parseInt(total.group(1));
+        }
+        BlockingQueue<String[]> finished = new LinkedBlockingQueue<>();
+        List<Program> programs = new ArrayList<>();
+        Matcher sections = SEPARATOR.matcher(text);
+        if (sections.matches()) {
+            List<String> sect1 = lines(sections.group(1)),
+                sect2 = lines(sections.group(2));
+            programs.add(new Program("Prog1", sect1, 0, finished));
+            programs.add(new Program("Prog2", sect2, sect1.size() + 1,
+                                     finished));
+            programs.get(0).connect(programs.get(1));
+        } else {
+            programs.add(new Program("Prog1", lines(text), 0, finished));
+        }
+        for (Program prog : programs) {
+            prog.start();
+        }
+
+        List<String[]> msgs = new ArrayList<>();
+        String[] msg = finished.poll(totalLimit, TimeUnit.SECONDS);
+        if (msg == null) {
+            stopAll(programs);
+            return new Result("ERROR", String.format(
+                "test time exceeded %d seconds", totalLimit), logs(programs));
+        }
+        msgs.add(msg);
+        if (programs.size() > 1) {
+            msg = finished.poll(CLEANUP_TIME, TimeUnit.SECONDS);
+            if (msg == null) {
+                stopAll(programs);
+                return new Result("ERROR", "other program fails to finish",
+                                  logs(programs));
+            }
+            msgs.add(msg);
+        }
+        msgs.sort((a, b) -> a[0].compareTo(b[0]));
+
+        String type = "OK";
+        for (String[] m : msgs) {
+            if (m[1].equals("FAIL")) {
+                type = "FAIL";
+            } else if (m[1].equals("ERROR") && type.equals("OK")) {
+                type = "ERROR";
+            }
+        }
+        if (type.equals("OK")) {
+            return new Result(type, null, logs(programs));
+        }
+        List<String> texts = new ArrayList<>();
+        for (String[] m : msgs) {
+            texts.add(m[1].equals("OK") ? ""
+                      : String.format("%s near line %s", m[2], m[3]));
+        }
+        return new Result(type, String.join("/", texts), logs(programs));
+    }
+
+    /** Stop all of PROGRAMS. */
+    private void stopAll(List<Program> programs) {
+        for (Program prog : programs) {
+            prog.stop();
+        }
+    }
+
+    /** Return the transcripts of PROGRAMS, or "" if not verbose. */
+    private String logs(List<Program> programs) {
+        if (!_verbose) {
+            return "";
+        }
+        StringBuilder result = new StringBuilder();
+        for (Program prog : programs) {
+            result.append(String.format("%n-----%nLog for %s%n-----%n%s"
+                                        + "-----%n", prog._title,
+                                        prog._log));
+        }
+        return result.toString();
+    }
+
+    /** Return the lines of TEXT, without trailing whitespace. */
+    private static List<String> lines(String text) {
+        text = text.stripTrailing();
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(text.split("\n")));
+    }
+
+    /** Return command line TEXT with comments removed and its white
+     *  space normalized. */
+    static String clean(String text) {
+        text = text.replace('\t', ' ').strip();
+        if (text.startsWith("#")) {
+            return "";
+        }
+        return text.replaceAll("  +", " ");
+    }
+
+    /** Return output line LINE with its white space normalized. */
+    private static String normalize(String line) {
+        return line.stripTrailing().replace('\t', ' ')
+            .replaceAll("  +", " ");
+    }
+
+    /** Thrown when a check of a program fails. */
+    private static class TestError extends RuntimeException {
+        /** A failed check described by MSG. */
+        TestError(String msg) {
+            super(msg);
+        }
+    }
+
+    /** Thrown when a script is malformed. */
+    private static class TestFail extends RuntimeException {
+        /** A malformed script, as described by MSG. */
+        TestFail(String msg) {
+            super(msg);
+        }
+    }
+
+    /** One section of a script and the Game it drives. */
+    private class Program {
+
+        /** A program named TITLE, running the script lines SCRIPT, which
+         *  start after line START of the script, and reporting its end
+         *  as {TITLE, TYPE, MESSAGE, LINE} on FINISHED. */
+        Program(String title, List<String> script, int start,
+                BlockingQueue<String[]> finished) {
+            _title = title;
+            _script = script;
+            _start = start;
+            _finished = finished;
+            _runner = new Thread(this::runScript, title + "-runner");
+            _runner.setDaemon(true);
+            String command = nextCommand();
+            if (command == null) {
+                _startError = "No command found";
+            } else if (!PROGRAM.matcher(command).matches()) {
+                _startError = "cannot run in this JVM: " + command;
+            }
+        }
+
+        /** Connect me to OTHER, so that we can exchange moves. */
+        void connect(Program other) {
+            _otherInput = new ArrayBlockingQueue<>(4);
+            other._otherInput = new ArrayBlockingQueue<>(4);
+            _otherOutput = other._otherInput;
+            other._otherOutput = _otherInput;
+        }
+
+        /** Start the game and the thread running my script. */
+        void start() {
+            if (_startError != null) {
+                _finished.add(new String[] { _title, "FAIL", _startError,
+                                             Integer.toString(_start
+                                                              + _k) });
+                return;
+            }
+            _game = new Thread(this::play, _title);
+            _game.setDaemon(true);
+            _game.start();
+            _runner.start();
+        }
+
+        /** Play a game, reading from _input and writing to _output. */
+        private void play() {
+            PrintStream out = new PrintStream(new LineFilter(), true);
+            CommandSource source = prompt -> {
+                try {
+                    String line = _input.take();
+                    return line == EOF ? null : line;
+                } catch (InterruptedException excp) {
+                    return null;
+                }
+            };
+            try {
+                new Game(new Board(), source, new TextReporter(out), out)
+                    .process(false);
+                _exitStatus = 0;
+            } catch (Throwable excp) {
+                out.printf("Exception in thread \"%s\" %s%n", _title, excp);
+                _exitStatus = 1;
+            } finally {
+                out.flush();
+                _output.add(EOF);
+            }
+        }
+
+        /** Run my script, reporting the outcome on _finished. */
+        private void runScript() {
+            String[] end;
+            try {
+                for (String cmnd = nextCommand(); cmnd != null;
+                     cmnd = nextCommand()) {
+                    command(cmnd);
+                }
+                finish();
+                end = new String[] { _title, "OK", null, null };
+            } catch (TestError excp) {
+                stop();
+                end = new String[] { _title, "ERROR", excp.getMessage(),
+                                     Integer.toString(_k + _start) };
+            } catch (TestFail excp) {
+                stop();
+                end = new String[] { _title, "FAIL", excp.getMessage(),
+                                     Integer.toString(_k + _start) };
+            } catch (InterruptedException | RuntimeException excp) {
+                stop();
+                end = new String[] { _title, "FAIL", excp.toString(),
+                                     Integer.toString(_k + _start) };
+            }
+            log("T %s", Arrays.toString(end));
+            _finished.add(end);
+        }
+
+        /** Perform script line CMND. */
+        private void command(String cmnd) throws InterruptedException {
+            Matcher m;
+            if ((m = match("@time ([\\d.]+)", cmnd)) != null) {
+                try {
+                    _opLimit = Double.parseDouble(m.group(1));
+                } catch (NumberFormatException excp) {
+                    throw new TestFail("bad number");
+                }
+            } else if (match("@total-time (\\d+)", cmnd) != null) {
+                return;
+            } else if ((m = match("@([<?])(.*)", cmnd)) != null) {
+                checkOutput(m.group(1), m.group(2));
+            } else if ((m = match("@(red|blue)\\.\\.\\.\\s*(.*)", cmnd))
+                       != null) {
+                playSelf(m.group(1), m.group(2));
+            } else if ((m = match("@send (red|blue)\\.\\.\\.\\s*(.*)",
+                                  cmnd)) != null) {
+                sendReceiveMoves(true, m.group(1), m.group(2));
+            } else if ((m = match("@recv (red|blue)\\.\\.\\.\\s*(.*)",
+                                  cmnd)) != null) {
+                sendReceiveMoves(false, m.group(1), m.group(2));
+            } else if (cmnd.startsWith("@")) {
+                throw new TestFail("bad command in script");
+            } else {
+                send(cmnd);
+            }
+        }
+
+        /** Return the next non-blank line of my script, cleaned, or null
+         *  at the end. */
+        private String nextCommand() {
+            while (_k < _script.size()) {
+                String cmnd = clean(_script.get(_k));
+                log("* %s", cmnd);
+                _k += 1;
+                if (!cmnd.isEmpty()) {
+                    return cmnd;
+                }
+            }
+            log("* <EOF>");
+            return null;
+        }
+
+        /** Send line MSG (or EOF) to my game. */
+        private void send(String msg) {
+            log("> %s", msg == EOF ? "<EOF>" : msg);
+            _input.add(msg);
+        }
+
+        /** Send MSG (or EOF) to the other program, failing if it is not
+         *  accepting messages, unless IGNORE. */
+        private void sendOther(String msg, boolean ignore) {
+            if (_otherOutput != null) {
+                log("R> %s", msg == EOF ? "<EOF>" : msg);
+                if (_otherOutput.offer(msg)) {
+                    return;
+                }
+            }
+            if (!ignore) {
+                throw new TestError("other program blocked");
+            }
+        }
+
+        /** Return the next line of output from my game, EOF at its end,
+         *  or null if none comes within the time limit. */
+        private String get() throws InterruptedException {
+            if (_eof) {
+                return EOF;
+            }
+            String line = _output.poll((long) (_opLimit * 1000),
+                                       TimeUnit.MILLISECONDS);
+            if (line == EOF) {
+                _eof = true;
+            }
+            if (line != null) {
+                log("< %s", line == EOF ? "<EOF>" : line);
+            }
+            return line;
+        }
+
+        /** Return the next message from the other program, or EOF. */
+        private String getOther() throws InterruptedException {
+            if (_otherInput == null) {
+                throw new TestError("no other program");
+            }
+            String move = _otherInput.take();
+            if (move == EOF) {
+                _otherInput = null;
+                log("R< <EOF>");
+                return EOF;
+            }
+            log("R< %s", move);
+            return move;
+        }
+
+        /** Check that MOVE reports a move, pass, or outcome by WHO, and
+         *  return the move ("-" for a pass), or null for an outcome. */
+        private String checkMove(String who, String move) {
+            Matcher m =
+                (who.equals("red") ? RED_MOVE : BLUE_MOVE).matcher(move);
+            if (!m.lookingAt()) {
+                throw new TestError(String.format("invalid move for %s (%s)",
+                                                  who, move));
+            }
+            return m.group(1) != null ? null
+                : m.group(2) != null ? "-" : m.group(3);
+        }
+
+        /** Return PATTERN compiled, or null if it is blank. */
+        private Pattern checkPattern(String pattern) {
+            if (pattern.isBlank()) {
+                return null;
+            }
+            try {
+                return Pattern.compile(pattern);
+            } catch (IllegalArgumentException excp) {
+                throw new TestFail("bad test pattern: " + pattern);
+            }
+        }
+
+        /** Return my game's next report of a move or outcome by WHO. */
+        private String getMove(String who) throws InterruptedException {
+            String move = get();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            } else if (move == null) {
+                throw new TestError(String.format(
+                    "timed out waiting for my %s move", who));
+            }
+            checkMove(who, move);
+            return move;
+        }
+
+        /** Return the other program's report of a move or outcome by
+         *  WHO. */
+        private String getOtherMove(String who)
+            throws InterruptedException {
+            String move = getOther();
+            if (move == EOF) {
+                throw new TestError("game output truncated");
+            }
+            checkMove(who, move);
+            return move;
+        }
+
+        /** End my game's input, and check that it ends its output and
+         *  succeeds. */
+        private void finish() throws InterruptedException {
+            send(EOF);
+            sendOther(EOF, true);
+            String line = get();
+            if (line == null) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (line != EOF) {
+                stop();
+                throw new TestError("program produced extra output");
+            }
+            _game.join((long) (_opLimit * 1000));
+            if (_game.isAlive()) {
+                stop();
+                throw new TestError("program did not terminate properly");
+            } else if (_exitStatus != 0) {
+                throw new TestError("program terminated with error exit");
+            }
+        }
+
+        /** Stop my game as soon as it next reads input.  (A game cannot
+         *  be killed as a process can, but its thread is a daemon.) */
+        void stop() {
+            _input.add(EOF);
+        }
+
+        /** Perform '@WHO... END': check that my game plays itself from
+         *  WHO to an outcome matching END. */
+        private void playSelf(String who, String end)
+            throws InterruptedException {
+            Pattern endPattern = checkPattern(end);
+            String move;
+            while (true) {
+                move = getMove(who);
+                if (checkMove(who, move) == null) {
+                    break;
+                }
+                who = who.equals("red") ? "blue" : "red";
+            }
+            if (endPattern != null && !endPattern.matcher(move).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /** Exchange moves with the other program, sending my game's moves
+         *  and playing the other's, starting with FIRSTMOVER's move, which
+         *  is mine iff SENDFIRST, until an outcome matching END. */
+        private void sendReceiveMoves(boolean sendFirst, String firstMover,
+                                      String end)
+            throws InterruptedException {
+            Pattern endPattern = checkPattern(end);
+            String secondMover = firstMover.equals("red") ? "blue" : "red";
+            String sendMover = sendFirst ? firstMover : secondMover,
+                recvMover = sendFirst ? secondMover : firstMover;
+            boolean send = sendFirst;
+            String msg = null;
+            while (true) {
+                if (send) {
+                    msg = getMove(sendMover);
+                    sendOther(msg, false);
+                    if (checkMove(sendMover, msg) == null) {
+                        String otherMsg = getOtherMove(recvMover);
+                        if (!msg.equals(otherMsg)) {
+                            throw new TestError("game outcomes don't agree");
+                        }
+                        break;
+                    }
+                }
+                send = true;
+                String otherMsg = getOtherMove(recvMover);
+                String otherMove = checkMove(recvMover, otherMsg);
+                if (otherMove == null) {
+                    msg = getMove(sendMover);
+                    sendOther(msg, false);
+                    if (!msg.equals(otherMsg)) {
+                        throw new TestError("game outcomes don't agree");
+                    }
+                    break;
+                }
+                send(otherMove);
+            }
+            if (endPattern != null && !endPattern.matcher(msg).lookingAt()) {
+                throw new TestError("outcome does not match end pattern");
+            }
+        }
+
+        /** Perform '@< TEXT' (if TYPE is "<") or '@? TEXT' (if it is
+         *  "?"): check that the next line of output is, or matches,
+         *  TEXT. */
+        private void checkOutput(String type, String text)
+            throws InterruptedException {
+            Pattern pattern = type.equals("?") ? checkPattern(text) : null;
+            String line = get();
+            if (line == EOF) {
+                throw new TestError("premature end of output");
+            } else if (line == null) {
+                throw new TestError("timed out waiting for output");
+            } else if (line.contains("Exception")) {
+                throw new TestError("uncaught exception occurred: "
+                                    + line.stripTrailing());
+            }
+            line = normalize(line);
+            if (type.equals("<") ? !line.equals(text)
+                : pattern != null && !pattern.matcher(line).lookingAt()) {
+                throw new TestError(String.format(
+                    "output mismatch (%s / %s)", line, text));
+            }
+        }
+
+        /** Add FORMAT, formatted with ARGS, to my transcript if
+         *  verbose. */
+        private void log(String format, Object... args) {
+            if (_verbose) {
+                synchronized (_log) {
+                    _log.append(String.format(format, args).stripTrailing())
+                        .append(System.lineSeparator());
+                }
+            }
+        }
+
+        /** Passes on the lines of my game's output that checks see, as
+         *  test-ataxx.py does: reports of moves, passes, and outcomes
+         *  (without any "PREFIX:"), uncaught exceptions, and board
+         *  dumps. */
+        private class LineFilter extends OutputStream {
+            @Override
+            public void write(int b) {
+                if (b != '\n') {
+                    _line.write(b);
+                    return;
+                }
+                String line = new String(_line.toByteArray(),
+                                         StandardCharsets.UTF_8);
+                _line.reset();
+                if (line.endsWith("\r")) {
+                    line = line.substring(0, line.length() - 1);
+                }
+                if (_inDump) {
+                    _output.add(line);
+                    _inDump = !DUMP_EDGE.matcher(line).lookingAt();
+                    return;
+                }
+                line = normalize(line.replaceFirst("^.*:\\s*", ""));
+                if (DUMP_EDGE.matcher(line).lookingAt()) {
+                    _output.add(line);
+                    _inDump = true;
+                } else if (REPORTED.matcher(line).find()) {
+                    _output.add(line);
+                }
+            }
+
+            /** The line being written. */
+            private final ByteArrayOutputStream _line =
+                new ByteArrayOutputStream();
+            /** True iff within a board dump. */
+            private boolean _inDump;
+        }
+
+        /** Name of the program. */
+        private final String _title;
+        /** Lines of my section of the script. */
+        private final List<String> _script;
+        /** Number of lines of the script before my section. */
+        private final int _start;
+        /** Where to report my end. */
+        private final BlockingQueue<String[]> _finished;
+        /** Runs my script. */
+        private final Thread _runner;
+        /** Reason the program cannot start (null if none). */
+        private String _startError;
+        /** Runs my game (null until started). */
+        private Thread _game;
+        /** Number of script lines read. */
+        private int _k;
+        /** Seconds to wait for each line of output. */
+        private double _opLimit = OP_LIMIT;
+        /** True once my game's output has ended. */
+        private boolean _eof;
+        /** Exit status of my game. */
+        private volatile int _exitStatus = -1;
+        /** Lines sent to my game. */
+        private final BlockingQueue<String> _input =
+            new LinkedBlockingQueue<>();
+        /** Lines of output from my game seen by the checks. */
+        private final BlockingQueue<String> _output =
+            new LinkedBlockingQueue<>();
+        /** Messages from, and to, the other program (null if none). */
+        private BlockingQueue<String> _otherInput, _otherOutput;
+        /** Transcript, if verbose. */
+        private final StringBuilder _log = new StringBuilder();
+    }
+
+    /** Marks the end of a stream of lines. */
+    private static final String EOF = new String("<EOF>");
+
+    /** The form of a move. */
+    private static final String MOVE_FORMAT = "[a-g][1-7]-[a-g][1-7]";
+    /** A report of an outcome, or of a move or pass by red. */
+    private static final Pattern RED_MOVE =
+        Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Red (passes)"
+                        + "|Red moves (" + MOVE_FORMAT + "))\\.$");
+    /** A report of an outcome, or of a move or pass by blue. */
+    private static final Pattern BLUE_MOVE =
+        Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Blue (passes)"
+                        + "|Blue moves (" + MOVE_FORMAT + "))\\.$");
+    /** Output lines seen by checks, other than board dumps. */
+    private static final Pattern REPORTED =
+        Pattern.compile("(?i)wins|passes|moves|draw|Exception in thread");
+    /** The first and last lines of a board dump. */
+    private static final Pattern DUMP_EDGE = Pattern.compile("\\s*===");
+    /** The command running a program. */
+    private static final Pattern PROGRAM =
+        Pattern.compile("java( -\\S+)* ataxx\\.Main");
+    /** Separates the sections of a two-program script. */
+    private static final Pattern SEPARATOR =
+        Pattern.compile("(?sm)(.*?)^ *----------+ *\n(.*)");
+    /** Sets the time allowed for a script. */
+    private static final Pattern TOTAL_TIME_CMND =
+        Pattern.compile("(?m)^\\s*@total-time\\s+(\\d+)");
+
+    /** Return a match of PATTERN at the start of TEXT, or null. */
+    private static Matcher match(String pattern, String text) {
+        Matcher m = Pattern.compile(pattern).matcher(text);
+        return m.lookingAt() ? m : null;
+    }
+
+    /** True iff transcripts are kept. */
+    private final boolean _verbose;
+}
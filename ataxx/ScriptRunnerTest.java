@@ -0,0 +1,56 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the in-JVM runner of integration test scripts.
+ *  @author Tianyi Fang
+ */
+public class ScriptRunnerTest {
+
+    /** The start of a script checking the initial board. */
+    private static final String DUMP =
+        "# Check the board.\n"
+        + "java -ea ataxx.Main\n"
+        + "dump\n"
+        + "@<===\n"
+        + "@<  r - - - - - b\n"
+        + "@<  - - - - - - -\n"
+        + "@<  - - - - - - -\n"
+        + "@<  - - - - - - -\n"
+        + "@<  - - - - - - -\n"
+        + "@<  - - - - - - -\n";
+
+    @Test public void testPass() throws InterruptedException {
+        ScriptRunner.Result result = new ScriptRunner(false).run(
+            DUMP + "@<  b - - - - - r\n@<===\nquit\n");
+        assertEquals("OK", result.type());
+        assertNull(result.message());
+    }
+
+    @Test public void testMismatch() throws InterruptedException {
+        ScriptRunner.Result result = new ScriptRunner(true).run(
+            DUMP + "@<  b - - - - - b\n@<===\nquit\n");
+        assertEquals("ERROR", result.type());
+        assertEquals("output mismatch ( b - - - - - r /  b - - - - - b)"
+                     + " near line 11", result.message());
+        assertTrue(result.log().contains("Log for Prog1"));
+    }
+
+    @Test public void testBadScript() throws InterruptedException {
+        ScriptRunner runner = new ScriptRunner(false);
+        assertEquals("FAIL", runner.run("java ataxx.Main\n@frob\n").type());
+        assertEquals("FAIL (No command found near line 1)",
+                     runner.run("# Nothing\n").toString());
+    }
+
+    @Test public void testTwoPrograms() throws InterruptedException {
+        ScriptRunner.Result result = new ScriptRunner(false).run(
+            "java ataxx.Main\nset depth 2\nseed 1\nauto red\nmanual blue\n"
+            + "start\n@send red... Red wins|Blue wins|Draw\nquit\n"
+            + "--------------------\n"
+            + "java ataxx.Main\nset depth 2\nseed 2\nmanual red\nauto blue\n"
+            + "start\n@recv red...\nquit\n");
+        assertEquals("OK", result.type());
+    }
+}
@@ -0,0 +1,141 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+
+/** Searches root moves for a Coordinator in another process, perhaps on
+ *  another machine.  Each connection gets its own searcher and settings,
+ *  and speaks a line protocol:
+ *      set NAME VALUE             change a setting (see Settings).
+ *      search DEPTH ALPHA MOVE FEN
+ *                                 reply with the value of MOVE in the
+ *                                 position FEN (see Board.setPosition),
+ *                                 as for AI.moveValue.
+ *      quit                       close the connection.
+ *  The reply to 'search' is 'value V NODES PV...', where the principal
+ *  variation PV is written with Move.toString; a command that fails gets
+ *  'error MESSAGE'.  'set' gets no reply.
+ *  @author Tianyi Fang
+ */
+class SearchWorker {
+
+    /** A worker listening on port PORT (0 for any free port) of the
+     *  local interface ADDRESS. */
+    SearchWorker(InetAddress address, int port) throws IOException {
+        _listener = new ServerSocket(port, BACKLOG, address);
+        _connections = Server.sessionExecutor();
+    }
+
+    /** A worker listening on the loopback interface's port PORT. */
+    SearchWorker(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /** Return the port I listen on. */
+    int port() {
+        return _listener.getLocalPort();
+    }
+
+    /** Serve connections until close is called. */
+    void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = _listener.accept();
+            } catch (IOException excp) {
+                if (_listener.isClosed()) {
+                    return;
+                }
+                throw excp;
+            }
+            _connections.execute(() -> connection(socket));
+        }
+    }
+
+    /** Stop accepting connections. */
+    void close() throws IOException {
+        _listener.close();
+    }
+
+    /** Serve the commands arriving on SOCKET. */
+    private void connection(Socket socket) {
+        try (Socket s = socket) {
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(s.getInputStream()));
+            PrintStream out = new PrintStream(s.getOutputStream(), true);
+            Settings settings = new Settings();
+            AI ai = new AI();
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                String[] words = line.trim().split("\\s+", 5);
+                try {
+                    if (words[0].equals("quit")) {
+                        break;
+                    } else if (words[0].equals("set") && words.length == 3) {
+                        settings.set(words[1], words[2]);
+                    } else if (words[0].equals("search")
+                               && words.length == 5) {
+                        out.println(search(ai, settings, words));
+                    } else {
+                        throw GameException.error("Bad command: %s", line);
+                    }
+                } catch (GameException | IllegalArgumentException excp) {
+                    out.println("error " + excp.getMessage());
+                }
+            }
+        } catch (IOException excp) {
+            /* Coordinator went away. */
+        }
+    }
+
+    /** Return the reply to the 'search' command WORDS, searching with
+     *  AI and SETTINGS. */
+    private static String search(AI ai, Settings settings, String[] words) {
+        int depth = Integer.parseInt(words[1]);
+        int alpha = Integer.parseInt(words[2]);
+        if (depth < 1 || depth >= AI.MAX_PLY) {
+            throw GameException.error("Bad depth: %d", depth);
+        }
+        Board board = new Board();
+        board.setPosition(words[4]);
+        Move move = parseMove(words[3]);
+        if (move == null || !board.legalMove(move)) {
+            throw GameException.error("Illegal move: %s", words[3]);
+        }
+        int value = ai.moveValue(new Position(board), move, depth, alpha,
+                                 settings);
+        StringBuilder reply = new StringBuilder();
+        reply.append("value ").append(value).append(' ').append(ai.nodes());
+        for (Move mv : ai.principalVariation()) {
+            reply.append(' ').append(mv);
+        }
+        return reply.toString();
+    }
+
+    /** Return the move written as TEXT by Move.toString, or null if TEXT
+     *  denotes no move. */
+    static Move parseMove(String text) {
+        if (text.equals("-")) {
+            return Move.pass();
+        } else if (text.matches("[a-g][1-7]-[a-g][1-7]")) {
+            return Move.move(text.charAt(0), text.charAt(1),
+                             text.charAt(3), text.charAt(4));
+        } else {
+            return null;
+        }
+    }
+
+    /** Number of pending connections the listening socket queues. */
+    private static final int BACKLOG = 64;
+
+    /** Socket accepting connections. */
+    private final ServerSocket _listener;
+    /** Runs connections. */
+    private final ExecutorService _connections;
+}
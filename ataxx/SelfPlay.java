@@ -0,0 +1,239 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static ataxx.PieceColor.*;
+
+/** Generates training data (see TrainingData) by self-play.  Worker
+ *  threads, each with its own AI, play games from random block layouts
+ *  and random opening moves, searching every position after the opening
+ *  to a fixed depth.  Each position is recorded with its search score
+ *  and, once the game ends, its final result; positions already recorded
+ *  by any worker are skipped.  Each worker writes its own shards, named
+ *  after the seed and the worker's number, so that several runs with
+ *  different seeds can fill the same directory.  The numbers of games
+ *  and positions and the throughput are reported on the standard error.
+ *  Usage:
+ *      java ataxx.SelfPlay DIR [GAMES [THREADS [DEPTH [SEED]]]]
+ *  @author Tianyi Fang
+ */
+class SelfPlay {
+
+    /** Most blocks placed (each reflected four ways) before a game. */
+    private static final int MAX_BLOCKS = 3;
+    /** Fewest and most random moves at the start of each game. */
+    private static final int MIN_OPENING = 2, MAX_OPENING = 8;
+    /** Records in each shard. */
+    static final int SHARD_RECORDS = 1 << 16;
+    /** Number of slots in the table of recorded positions. */
+    private static final int SEEN_SLOTS = 1 << 20;
+
+    /** Write the records of ARGS[1] games (default 100) played by
+     *  ARGS[2] threads (default the number of processors), searching to
+     *  depth ARGS[3] (default 3), with random seed ARGS[4] (default 1),
+     *  to shards in directory ARGS[0]. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java ataxx.SelfPlay DIR [GAMES "
+                               + "[THREADS [DEPTH [SEED]]]]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int threads = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        SelfPlay selfPlay = new SelfPlay(dir, depth, seed);
+        selfPlay.run(games, threads);
+        System.err.println(selfPlay.report());
+    }
+
+    /** A generator writing shards to DIR, searching to DEPTH, with
+     *  random seed SEED. */
+    SelfPlay(File dir, int depth, long seed) {
+        _dir = dir;
+        _depth = depth;
+        _seed = seed;
+    }
+
+    /** Play GAMES games on THREADS worker threads, writing their
+     *  records. */
+    void run(int games, int threads) throws Exception {
+        if (!_dir.isDirectory() && !_dir.mkdirs()) {
+            throw new IOException("cannot create " + _dir);
+        }
+        long start = System.nanoTime();
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t += 1) {
+                int worker = t;
+                workers.add(pool.submit(() -> {
+                    work(worker, next, games);
+                    return null;
+                }));
+            }
+            for (Future<Void> w : workers) {
+                w.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        _threads = threads;
+        _nanos = System.nanoTime() - start;
+    }
+
+    /** Return the number of games played. */
+    int games() {
+        return _games.get();
+    }
+
+    /** Return the number of positions recorded. */
+    long positions() {
+        return _positions.get();
+    }
+
+    /** Return the number of positions skipped as already recorded. */
+    long duplicates() {
+        return _duplicates.get();
+    }
+
+    /** Return a summary of the last run. */
+    String report() {
+        double seconds = _nanos / 1e9;
+        return String.format("%d games, %d positions (%d duplicates "
+                             + "skipped) in %.1f s: %.1f positions/s, "
+                             + "%.1f per thread",
+                             games(), positions(), duplicates(), seconds,
+                             positions() / seconds,
+                             positions() / seconds / Math.max(1, _threads));
+    }
+
+    /** Play games numbered from NEXT (claimed one at a time) up to GAMES
+     *  as worker number WORKER, writing their records to the worker's
+     *  own shards. */
+    private void work(int worker, AtomicInteger next, int games)
+        throws IOException {
+        AI ai = new AI();
+        Settings settings = new Settings();
+        settings.set("depth", Integer.toString(_depth));
+        String prefix = String.format("sp-%d-%d", _seed, worker);
+        try (TrainingData.Writer out =
+             new TrainingData.Writer(_dir, prefix, SHARD_RECORDS)) {
+            for (int g = next.getAndIncrement(); g < games;
+                 g = next.getAndIncrement()) {
+                Random random = new Random(_seed * 0x9E3779B97F4A7C15L + g);
+                ai.setSeed(random.nextLong());
+                for (TrainingData.Record record
+                         : play(ai, settings, random)) {
+                    out.add(record);
+                }
+                _games.incrementAndGet();
+            }
+        }
+    }
+
+    /** Return the records of a game played by AI with SETTINGS, choosing
+     *  blocks and opening moves using RANDOM. */
+    private List<TrainingData.Record> play(AI ai, Settings settings,
+                                           Random random) {
+        Board board = new Board();
+        int blocks = random.nextInt(MAX_BLOCKS + 1);
+        for (int k = 0; k < blocks; k += 1) {
+            char c = (char) ('a' + random.nextInt(Board.SIDE)),
+                r = (char) ('1' + random.nextInt(Board.SIDE));
+            if (board.legalBlock(c, r)) {
+                board.setBlock(c, r);
+            }
+        }
+        int opening = MIN_OPENING
+            + random.nextInt(MAX_OPENING - MIN_OPENING + 1);
+        List<Position> positions = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        List<Integer> plies = new ArrayList<>();
+        for (int ply = 0; !board.gameOver(); ply += 1) {
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            if (moves.isEmpty()) {
+                board.makeMove(Move.pass());
+            } else if (ply < opening) {
+                board.makeMove(moves.get(random.nextInt(moves.size())));
+            } else {
+                Position position = new Position(board);
+                Move move = ai.findMove(board, settings);
+                if (markSeen(position.hash())) {
+                    positions.add(position);
+                    scores.add(ai.lastScore());
+                    plies.add(ply);
+                } else {
+                    _duplicates.incrementAndGet();
+                }
+                board.makeMove(move);
+            }
+        }
+        int result = Integer.signum(board.numPieces(RED)
+                                    - board.numPieces(BLUE));
+        List<TrainingData.Record> records = new ArrayList<>();
+        for (int k = 0; k < positions.size(); k += 1) {
+            records.add(new TrainingData.Record(positions.get(k),
+                                                scores.get(k), result,
+                                                plies.get(k)));
+        }
+        _positions.addAndGet(records.size());
+        return records;
+    }
+
+    /** Record that the position with hash HASH has been seen, returning
+     *  true iff it had not been before.  Once the table is nearly full,
+     *  every position counts as new. */
+    private boolean markSeen(long hash) {
+        long key = hash == 0 ? 1 : hash;
+        if (_seenCount.get() >= SEEN_SLOTS / 4 * 3) {
+            return true;
+        }
+        int mask = SEEN_SLOTS - 1;
+        for (int i = (int) (key ^ (key >>> 32)) & mask; ;
+             i = (i + 1) & mask) {
+            long k = _seen.get(i);
+            if (k == key) {
+                return false;
+            } else if (k == 0) {
+                if (_seen.compareAndSet(i, 0, key)) {
+                    _seenCount.incrementAndGet();
+                    return true;
+                } else if (_seen.get(i) == key) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Directory of the shards. */
+    private final File _dir;
+    /** Search depth. */
+    private final int _depth;
+    /** Random seed. */
+    private final long _seed;
+    /** Hashes of the positions recorded (0 for an empty slot), in an
+     *  open-addressed table shared by the workers, and their number. */
+    private final AtomicLongArray _seen = new AtomicLongArray(SEEN_SLOTS);
+    private final AtomicInteger _seenCount = new AtomicInteger();
+    /** Games played, positions recorded, and positions skipped. */
+    private final AtomicInteger _games = new AtomicInteger();
+    private final AtomicLong _positions = new AtomicLong(),
+        _duplicates = new AtomicLong();
+    /** Worker threads and elapsed time of the last run. */
+    private int _threads;
+    private long _nanos;
+}
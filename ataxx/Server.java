@@ -0,0 +1,118 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Serves many independent Ataxx sessions from one JVM.  Each
+ *  connection to a local port gets its own Game and Board and speaks
+ *  the ordinary text command protocol (without prompts), so one warm
+ *  JVM replaces a process per game.  Sessions run on virtual threads
+ *  when the JVM provides them, and on ordinary threads otherwise;
+ *  automated players' searches share an Engine with one search context
+ *  per processor, so a burst of sessions cannot oversubscribe the CPUs.
+ *  @author Tianyi Fang
+ */
+class Server {
+
+    /** Number of pending connections the listening socket queues. */
+    private static final int BACKLOG = 1024;
+
+    /** A server listening on local port PORT (0 for any free port). */
+    Server(int port) throws IOException {
+        _listener = new ServerSocket(port, BACKLOG,
+                                     InetAddress.getLoopbackAddress());
+        _sessions = sessionExecutor();
+        _engine = new Engine(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Have the automated players of all later sessions share CACHE
+     *  (none if null). */
+    void setCache(PositionCache cache) {
+        _cache = cache;
+    }
+
+    /** Return the port I listen on. */
+    int port() {
+        return _listener.getLocalPort();
+    }
+
+    /** Return the number of sessions currently open. */
+    int sessions() {
+        return _open.get();
+    }
+
+    /** Accept connections and start a session for each, until close is
+     *  called. */
+    void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = _listener.accept();
+            } catch (IOException excp) {
+                if (_listener.isClosed()) {
+                    return;
+                }
+                throw excp;
+            }
+            _sessions.execute(() -> session(socket));
+        }
+    }
+
+    /** Stop accepting connections.  Sessions in progress continue. */
+    void close() throws IOException {
+        _listener.close();
+    }
+
+    /** Play games over SOCKET until its client quits or disconnects. */
+    private void session(Socket socket) {
+        _open.incrementAndGet();
+        try (Socket s = socket) {
+            BufferedReader in =
+                new BufferedReader(new InputStreamReader(s.getInputStream()));
+            PrintStream out = new PrintStream(s.getOutputStream(), true);
+            Game game = new Game(new Board(), new ReaderSource(in, false),
+                                 new TextReporter(out), out);
+            game.setEngine(_engine);
+            game.setCache(_cache);
+            game.process(false);
+        } catch (IOException excp) {
+            /* Client went away; nothing to clean up beyond the socket. */
+        } finally {
+            _open.decrementAndGet();
+        }
+    }
+
+    /** Return an executor that runs each task on a new virtual thread, if
+     *  this JVM supports them, or else on pooled daemon threads. */
+    static ExecutorService sessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "session");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    /** Socket accepting connections. */
+    private final ServerSocket _listener;
+    /** Runs sessions. */
+    private final ExecutorService _sessions;
+    /** Runs automated players' searches. */
+    private final Engine _engine;
+    /** Cache of search results shared by all sessions (null if none). */
+    private volatile PositionCache _cache;
+    /** Number of open sessions. */
+    private final AtomicInteger _open = new AtomicInteger();
+}
@@ -0,0 +1,161 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static ataxx.PieceColor.*;
+
+/** A load generator for Server.  Opens many concurrent sessions, each
+ *  playing one game as a random red player against the server's blue
+ *  AI, and reports the latency of the server's replies and the overall
+ *  throughput.  Usage:
+ *      java ataxx.ServerLoad [SESSIONS [DEPTH [PORT]]]
+ *  runs SESSIONS sessions (default 100) with the AI searching to DEPTH
+ *  (default 2) against a server on local port PORT, or against one
+ *  started in this JVM if PORT is absent.
+ *  @author Tianyi Fang
+ */
+class ServerLoad {
+
+    /** Matches the server's announcement of blue's move or the end of
+     *  the game. */
+    private static final Pattern REPLY =
+        Pattern.compile("Blue moves ([a-g][1-7])-([a-g][1-7])\\.|"
+                        + "(Blue passes\\.)|.*(wins|Draw)\\.");
+
+    /** Run the load test described by ARGS. */
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int port;
+        Server server = null;
+        if (args.length > 2) {
+            port = Integer.parseInt(args[2]);
+        } else {
+            server = new Server(0);
+            Server s = server;
+            Thread acceptor = new Thread(() -> {
+                try {
+                    s.serve();
+                } catch (IOException excp) {
+                    System.err.println(excp.getMessage());
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            port = server.port();
+        }
+
+        ExecutorService clients = Server.sessionExecutor();
+        List<Future<long[]>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int k = 0; k < sessions; k += 1) {
+            int id = k;
+            results.add(clients.submit(() -> play(port, id, depth)));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> f : results) {
+            long[] lat = f.get();
+            int n = all.length;
+            all = Arrays.copyOf(all, n + lat.length);
+            System.arraycopy(lat, 0, all, n, lat.length);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (server != null) {
+            server.close();
+        }
+
+        Arrays.sort(all);
+        System.out.printf("%d sessions, %d server moves in %.2f s: "
+                          + "%.0f moves/s, %.1f games/s%n",
+                          sessions, all.length, seconds, all.length / seconds,
+                          sessions / seconds);
+        if (all.length > 0) {
+            System.out.printf("reply latency ms: p50 %.2f  p90 %.2f  "
+                              + "p99 %.2f  max %.2f%n",
+                              percentile(all, 50), percentile(all, 90),
+                              percentile(all, 99), all[all.length - 1] / 1e6);
+        }
+    }
+
+    /** Play one game on local PORT as session ID, with the AI searching
+     *  to DEPTH.  Return the latencies of the server's replies (ns). */
+    private static long[] play(int port, int id, int depth)
+        throws IOException {
+        long[] latencies = new long[Board.SIDE * Board.SIDE * 4];
+        int n = 0;
+        Random random = new Random(id);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                        port)) {
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream()));
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            out.printf("set depth %d%nseed %d%nstart%n", depth, id);
+            Board board = new Board();
+            while (!board.gameOver()) {
+                List<Move> moves = board.allLegalMoves(RED);
+                if (moves.isEmpty()) {
+                    break;
+                }
+                Move mv = moves.get(random.nextInt(moves.size()));
+                board.makeMove(mv);
+                long sent = System.nanoTime();
+                out.println(mv);
+                if (board.gameOver()) {
+                    break;
+                }
+                while (board.whoseMove() == BLUE) {
+                    Matcher reply = awaitReply(in);
+                    if (reply == null || reply.group(4) != null) {
+                        return Arrays.copyOf(latencies, n);
+                    }
+                    latencies[n] = System.nanoTime() - sent;
+                    n += 1;
+                    if (reply.group(3) != null) {
+                        board.pass();
+                    } else {
+                        String from = reply.group(1), to = reply.group(2);
+                        board.makeMove(from.charAt(0), from.charAt(1),
+                                       to.charAt(0), to.charAt(1));
+                    }
+                    if (board.gameOver()) {
+                        break;
+                    }
+                    sent = System.nanoTime();
+                }
+            }
+            out.println("quit");
+        }
+        return Arrays.copyOf(latencies, n);
+    }
+
+    /** Return a match of REPLY against the next such line of IN, or null
+     *  at end of input. */
+    private static Matcher awaitReply(BufferedReader in) throws IOException {
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            Matcher m = REPLY.matcher(line.trim());
+            if (m.matches()) {
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /** Return the P-th percentile of SORTED (ns), in ms. */
+    private static double percentile(long[] sorted, int p) {
+        int k = Math.min(sorted.length - 1, sorted.length * p / 100);
+        return sorted[k] / 1e6;
+    }
+}
@@ -0,0 +1,68 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/** Tests of the multi-game server on this host.
+ *  @author Tianyi Fang
+ */
+public class ServerTest {
+
+    /** Read lines from IN through the first that announces a game's
+     *  result, and return that line, or null if IN ends first. */
+    private String result(BufferedReader in) throws IOException {
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            if (line.matches("Red wins\\.|Blue wins\\.|Draw\\.")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    @Test public void testSessions() throws Exception {
+        Server server = new Server(0);
+        Thread serving = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException excp) {
+                /* Ignore */
+            }
+        });
+        serving.setDaemon(true);
+        serving.start();
+        for (int k = 0; k < 2; k += 1) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                            server.port())) {
+                socket.setSoTimeout(30000);
+                BufferedReader in = new BufferedReader(
+                    new InputStreamReader(socket.getInputStream()));
+                PrintStream out =
+                    new PrintStream(socket.getOutputStream(), true);
+                out.println("seed " + k);
+                out.println("set depth 1");
+                out.println("auto red");
+                out.println("start");
+                assertNotNull("no result", result(in));
+                out.println("quit");
+                assertNull("output after quit", in.readLine());
+            }
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (server.sessions() > 0
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, server.sessions());
+        server.close();
+        serving.join(5000);
+        assertFalse("server did not stop", serving.isAlive());
+    }
+}
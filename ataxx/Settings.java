@@ -0,0 +1,98 @@
+package ataxx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static ataxx.GameException.error;
+
+/** Named integer parameters that tune the automated players, changed
+ *  with the 'set NAME VALUE' command.  Each parameter has a default,
+ *  and only the parameters listed in DEFAULTS exist.
+ *  @author Tianyi Fang
+ */
+class Settings {
+
+    /** Default values of all settings, in the order they are listed. */
+    private static final LinkedHashMap<String, Integer> DEFAULTS =
+        new LinkedHashMap<>();
+
+    static {
+        /* Nominal search depth of the AI. */
+        DEFAULTS.put("depth", 5);
+        /* Late move reductions: on (1) or off (0), the minimum remaining
+         * depth at which they apply, the number of moves searched at
+         * full depth first, the reduction in plies, and the largest
+         * material gain of a move that may be reduced. */
+        DEFAULTS.put("lmr", 1);
+        DEFAULTS.put("lmr-depth", 3);
+        DEFAULTS.put("lmr-moves", 4);
+        DEFAULTS.put("lmr-reduction", 1);
+        DEFAULTS.put("lmr-gain", 1);
+        /* Futility pruning: the largest remaining depth at which it
+         * applies (0 disables it), and a safety margin added to the
+         * largest possible material gain. */
+        DEFAULTS.put("futility-depth", 2);
+        DEFAULTS.put("futility-margin", 0);
+        /* Razoring: the largest remaining depth at which it applies
+         * (0 disables it), and how far below alpha the static score
+         * must be. */
+        DEFAULTS.put("razor-depth", 0);
+        DEFAULTS.put("razor-margin", 12);
+        /* ProbCut: on (1) or off (0), and the confidence threshold in
+         * hundredths of a standard deviation. */
+        DEFAULTS.put("probcut", 1);
+        DEFAULTS.put("probcut-t", 150);
+        /* Deterministic parallel search (see AI): the number of threads
+         * (0 for the ordinary sequential search), and the number of
+         * positions after which to stop deepening (0 for no limit). */
+        DEFAULTS.put("threads", 0);
+        DEFAULTS.put("nodes", 0);
+        /* Proof-number search (see ProofSearch): the largest number of
+         * empty squares at which the AI tries to prove the outcome
+         * before searching (0 disables it), and the number of positions
+         * it may visit. */
+        DEFAULTS.put("proof-empty", 6);
+        DEFAULTS.put("proof-nodes", 50000);
+    }
+
+    /** A new set of settings with their default values. */
+    Settings() {
+        _values = new LinkedHashMap<>(DEFAULTS);
+    }
+
+    /** A copy of OTHER. */
+    Settings(Settings other) {
+        _values = new LinkedHashMap<>(other._values);
+    }
+
+    /** Return the value of setting NAME, which must exist. */
+    int get(String name) {
+        Integer value = _values.get(name);
+        assert value != null : "unknown setting " + name;
+        return value;
+    }
+
+    /** Set NAME to the integer denoted by VALUE. */
+    void set(String name, String value) {
+        if (!_values.containsKey(name)) {
+            throw error("Unknown setting: %s", name);
+        }
+        try {
+            _values.put(name, Integer.parseInt(value));
+        } catch (NumberFormatException excp) {
+            throw error("Bad value for %s: %s", name, value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (Map.Entry<String, Integer> e : _values.entrySet()) {
+            result.append(String.format("%s %d%n", e.getKey(), e.getValue()));
+        }
+        return result.toString();
+    }
+
+    /** Current values. */
+    private final LinkedHashMap<String, Integer> _values;
+}
@@ -0,0 +1,766 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.file.StandardOpenOption.*;
+import static ataxx.PieceColor.*;
+
+/** Solves Ataxx exactly (as a win, loss, or draw with best play) on
+ *  square boards of SIDE x SIDE squares, for SIDE from MIN_SIDE to
+ *  Board.SIDE, with any layout of blocks.  The rules are those of Board,
+ *  scaled down: red starts in the top-left and bottom-right corners and
+ *  blue in the other two, red moves first, and the game ends when
+ *  neither side can move or after Board.JUMP_LIMIT consecutive jumps.
+ *  In practice only boards up to about 5x5 can be solved; the larger
+ *  sizes serve for testing.
+ *
+ *  Positions are pairs of bitboards (the pieces of the side to move and
+ *  of its opponent) and a jump count.  The solver is an alpha-beta
+ *  search on the values -1, 0, and 1, which records proven bounds in a
+ *  hash table shared by several threads, each of which takes root moves
+ *  from a common queue.  The table is either in memory or in a
+ *  memory-mapped file, which may be larger than memory (the operating
+ *  system keeping only the parts in use in memory) and which survives
+ *  the run, so that a later run with the same file resumes where the
+ *  earlier one left off.  Each entry holds its data and the key XORed
+ *  with that data, so that an entry torn by a crash fails to match.
+ *      java ataxx.Solver SIDE [BLOCKS [THREADS [TABLE [SECONDS [ENTRIES]]]]]
+ *  solves the board with blocks at the squares listed in BLOCKS (such
+ *  as "b2,c3", reflected as by Board.setBlock, or "-" for none), using
+ *  THREADS threads (default 1), keeping the table in the file TABLE
+ *  (created with ENTRIES entries, default DEFAULT_ENTRIES), which is
+ *  written to disk every SECONDS seconds (default 60) and when done.
+ *
+ *  The solver does not share Board's, Move's, or AI's code, which
+ *  remain fixed at Board.SIDE squares a side; it has its own move
+ *  generation, checked against Board's on the full-size board.  So that
+ *  proven values can still be used to test the AI, a full-size solver
+ *  also solves Boards, whose blocks can leave few enough squares to be
+ *  solved.
+ *      java ataxx.Solver check BLOCKS [POSITIONS [EMPTY [DEPTH]]]
+ *  has the AI (searching DEPTH plies, default that of the "set"
+ *  command) choose moves in POSITIONS (default 100) random full-size
+ *  positions with blocks BLOCKS and EMPTY empty squares (default 10),
+ *  and reports those whose proven values are worse than the best.
+ *  @author Tianyi Fang
+ */
+class Solver {
+
+    /** Smallest side length. */
+    static final int MIN_SIDE = 3;
+    /** Default number of table entries (64 MiB). */
+    static final long DEFAULT_ENTRIES = 1 << 22;
+
+    /** A solver for boards of SIDE x SIDE squares with blocks at the
+     *  squares whose bits (see bit) are set in BLOCKS, with a table of
+     *  ENTRIES entries (rounded up to a power of two) in memory. */
+    Solver(int side, long blocks, long entries) {
+        this(side, blocks, size(entries), allocate(size(entries)));
+    }
+
+    /** Return a solver as for Solver(SIDE, BLOCKS, ENTRIES), but whose
+     *  table is kept in FILE, created with ENTRIES entries if FILE is
+     *  new or empty.  An existing table keeps its own size, and must
+     *  have been made for the same board. */
+    static Solver open(int side, long blocks, long entries, File file)
+        throws IOException {
+        checkSide(side);
+        blocks &= (1L << (side * side)) - 1;
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ,
+                                                    WRITE, CREATE)) {
+            long size = channel.size();
+            if (size != 0 && size < HEADER) {
+                throw new IOException("not a solver table");
+            }
+            ByteBuffer header =
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (size == 0) {
+                entries = size(entries);
+                header.putLong(0, MAGIC);
+                header.putInt(8, side);
+                header.putLong(12, blocks);
+                header.putLong(20, entries);
+            } else {
+                entries = header.getLong(20);
+                if (header.getLong(0) != MAGIC
+                    || Long.bitCount(entries) != 1
+                    || size != HEADER + entries * ENTRY) {
+                    throw new IOException("not a solver table");
+                }
+                if (header.getInt(8) != side
+                    || header.getLong(12) != blocks) {
+                    throw new IOException("table is for another board");
+                }
+            }
+            ByteBuffer[] table = new ByteBuffer[segments(entries)];
+            for (int k = 0; k < table.length; k += 1) {
+                long first = (long) k * SEGMENT;
+                table[k] = channel.map(FileChannel.MapMode.READ_WRITE,
+                                       HEADER + first * ENTRY,
+                                       Math.min(SEGMENT, entries - first)
+                                       * ENTRY);
+            }
+            return new Solver(side, blocks, entries, table);
+        }
+    }
+
+    /** A solver for boards of SIDE x SIDE squares with blocks BLOCKS,
+     *  whose table of ENTRIES entries is in the segments TABLE. */
+    private Solver(int side, long blocks, long entries, ByteBuffer[] table) {
+        checkSide(side);
+        _side = side;
+        _squares = side * side;
+        _full = (1L << _squares) - 1;
+        _blocks = blocks & _full;
+        _near = new long[_squares];
+        _far = new long[_squares];
+        for (int sq = 0; sq < _squares; sq += 1) {
+            int c0 = sq % side, r0 = sq / side;
+            for (int dc = -2; dc <= 2; dc += 1) {
+                for (int dr = -2; dr <= 2; dr += 1) {
+                    int c = c0 + dc, r = r0 + dr;
+                    if ((dc == 0 && dr == 0) || c < 0 || r < 0
+                        || c >= side || r >= side) {
+                        continue;
+                    }
+                    long b = 1L << (r * side + c);
+                    if (Math.abs(dc) <= 1 && Math.abs(dr) <= 1) {
+                        _near[sq] |= b;
+                    } else {
+                        _far[sq] |= b;
+                    }
+                }
+            }
+        }
+        _entries = entries;
+        _table = table;
+        for (ByteBuffer segment : table) {
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /** Throw an exception if SIDE is not a side length I allow. */
+    private static void checkSide(int side) {
+        if (side < MIN_SIDE || side > Board.SIDE) {
+            throw new IllegalArgumentException("bad side: " + side);
+        }
+    }
+
+    /** Return the size of a table asked to have ENTRIES entries. */
+    private static long size(long entries) {
+        return Long.highestOneBit(Math.min(MAX_ENTRIES,
+                                           Math.max(STRIPES,
+                                                    2 * entries - 1)));
+    }
+
+    /** Return the number of segments of a table of ENTRIES entries. */
+    private static int segments(long entries) {
+        return (int) ((entries + SEGMENT - 1) / SEGMENT);
+    }
+
+    /** Return the segments of a table of ENTRIES entries in memory. */
+    private static ByteBuffer[] allocate(long entries) {
+        ByteBuffer[] result = new ByteBuffer[segments(entries)];
+        for (int k = 0; k < result.length; k += 1) {
+            result[k] = ByteBuffer.allocate(
+                (int) Math.min(SEGMENT, entries - (long) k * SEGMENT)
+                * ENTRY);
+        }
+        return result;
+    }
+
+    /** Return the bit of square C R on a board with SIDE squares on a
+     *  side, where C is 'a'.. and R is '1'... */
+    static long bit(int side, char c, char r) {
+        return 1L << ((r - '1') * side + (c - 'a'));
+    }
+
+    /** Return the blocks listed in SPEC ("-" for none, or squares
+     *  separated by commas), each reflected through the board's center
+     *  lines as by Board.setBlock, on a board with SIDE squares on a
+     *  side. */
+    static long parseBlocks(int side, String spec) {
+        long result = 0;
+        if (spec.equals("-")) {
+            return result;
+        }
+        char last = (char) ('a' + side - 1), top = (char) ('1' + side - 1);
+        for (String sq : spec.split(",")) {
+            if (sq.length() != 2 || sq.charAt(0) < 'a' || sq.charAt(0) > last
+                || sq.charAt(1) < '1' || sq.charAt(1) > top) {
+                throw new IllegalArgumentException("bad block: " + sq);
+            }
+            char c = sq.charAt(0), r = sq.charAt(1);
+            char c1 = (char) ('a' + last - c), r1 = (char) ('1' + top - r);
+            result |= bit(side, c, r) | bit(side, c1, r) | bit(side, c, r1)
+                | bit(side, c1, r1);
+        }
+        return result;
+    }
+
+    /** Return the pieces of red (if RED) or blue in the initial
+     *  position. */
+    long initial(boolean red) {
+        int last = _side - 1, top = (_side - 1) * _side;
+        long pieces = red ? (1L << top) | (1L << last)
+            : 1L | (1L << (top + last));
+        return pieces & ~_blocks;
+    }
+
+    /** Return the value of the initial position for red: 1 if red wins
+     *  with best play, -1 if blue does, and 0 if it is a draw.  Uses
+     *  THREADS threads.  Also records the value of each of red's first
+     *  moves for rootValues(). */
+    int solve(int threads) {
+        long me = initial(true), opp = initial(false);
+        List<Integer> moves = new ArrayList<>();
+        int[] buffer = new int[MAX_MOVES];
+        int n = moves(me, opp, buffer);
+        for (int k = 0; k < n; k += 1) {
+            moves.add(buffer[k]);
+        }
+        _rootMoves = moves;
+        _rootValues = new int[n];
+        AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[Math.max(1, threads)];
+        for (int t = 0; t < workers.length; t += 1) {
+            workers[t] = new Thread(null, () -> {
+                Searcher searcher = new Searcher();
+                for (int k = next.getAndIncrement(); k < n;
+                     k = next.getAndIncrement()) {
+                    int mv = moves.get(k);
+                    long[] child = play(me, opp, mv);
+                    _rootValues[k] = -searcher.solve(child[1], child[0],
+                                                     jumps(0, mv), -1, 1, 1);
+                }
+                _nodes.addAndGet(searcher.nodes());
+            }, "solver", STACK_SIZE);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException excp) {
+                throw new IllegalStateException(excp);
+            }
+        }
+        if (n == 0) {
+            return solve(me, opp, 0);
+        }
+        int value = -1;
+        for (int v : _rootValues) {
+            value = Math.max(value, v);
+        }
+        return value;
+    }
+
+    /** Return the value for the side to move of the position in which
+     *  it has pieces ME and its opponent OPP, after JUMPS consecutive
+     *  jumps, searching in this thread. */
+    int solve(long me, long opp, int jumps) {
+        Searcher searcher = new Searcher();
+        int value = searcher.solve(me, opp, jumps, -1, 1, 0);
+        _nodes.addAndGet(searcher.nodes());
+        return value;
+    }
+
+    /** Return the value for the side to move of BOARD, which must have
+     *  my blocks, and therefore be of my size. */
+    int solve(Board board) {
+        if (_side != Board.SIDE) {
+            throw new IllegalArgumentException("board is not "
+                                               + _side + "x" + _side);
+        }
+        PieceColor me = board.whoseMove();
+        return solve(bits(board, me), bits(board, me.opposite()),
+                     board.numJumps());
+    }
+
+    /** Return the value of legal move MOVE from BOARD (as for
+     *  solve(BOARD)) for the side making it. */
+    int solve(Board board, Move move) {
+        Board after = new Board(board);
+        after.makeMove(move);
+        return -solve(after);
+    }
+
+    /** Return the pieces of COLOR on BOARD as bits. */
+    private static long bits(Board board, PieceColor color) {
+        long result = 0;
+        for (char c = 'a'; c < 'a' + Board.SIDE; c += 1) {
+            for (char r = '1'; r < '1' + Board.SIDE; r += 1) {
+                if (board.get(c, r) == color) {
+                    result |= bit(Board.SIDE, c, r);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return red's first moves in the last solve, as the squares they
+     *  are made from and to (equal for extends, which are identified by
+     *  their destinations). */
+    List<String> rootMoves() {
+        List<String> result = new ArrayList<>();
+        for (int mv : _rootMoves) {
+            result.add(square(from(mv)) + "-" + square(to(mv)));
+        }
+        return result;
+    }
+
+    /** Return the values of red's first moves in the last solve, in the
+     *  order of rootMoves(). */
+    int[] rootValues() {
+        return _rootValues.clone();
+    }
+
+    /** Return the number of positions visited. */
+    long nodes() {
+        return _nodes.get();
+    }
+
+    /** Return the number of moves available to the side with pieces ME
+     *  when its opponent has OPP, storing them in MOVES.  Moves are
+     *  encoded by move(), with all extends to one square counted as one,
+     *  and are ordered by decreasing material gain. */
+    int moves(long me, long opp, int[] moves) {
+        long empty = _full & ~(me | opp | _blocks);
+        int n = 0;
+        for (long e = empty; e != 0; e &= e - 1) {
+            int to = Long.numberOfTrailingZeros(e);
+            int captures = Long.bitCount(_near[to] & opp);
+            if ((_near[to] & me) != 0) {
+                n = insert(moves, n, move(to, to, 2 * captures + 1));
+            }
+            for (long f = _far[to] & me; f != 0; f &= f - 1) {
+                n = insert(moves, n, move(Long.numberOfTrailingZeros(f), to,
+                                          2 * captures));
+            }
+        }
+        return n;
+    }
+
+    /** Return true iff the side with pieces ME can move when its
+     *  opponent has OPP. */
+    boolean canMove(long me, long opp) {
+        long empty = _full & ~(me | opp | _blocks);
+        for (long e = empty; e != 0; e &= e - 1) {
+            int to = Long.numberOfTrailingZeros(e);
+            if (((_near[to] | _far[to]) & me) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the pieces {mover, opponent} after the side with pieces ME
+     *  makes move MV against OPP. */
+    long[] play(long me, long opp, int mv) {
+        int from = from(mv), to = to(mv);
+        long flips = _near[to] & opp;
+        me |= (1L << to) | flips;
+        if (from != to) {
+            me &= ~(1L << from);
+        }
+        return new long[] { me, opp & ~flips };
+    }
+
+    /** Return the jump count after move MV, made after JUMPS consecutive
+     *  jumps. */
+    static int jumps(int jumps, int mv) {
+        return from(mv) == to(mv) ? 0 : jumps + 1;
+    }
+
+    /** Return the final value, for the side with pieces ME, of a game
+     *  that ends with its opponent having OPP. */
+    static int value(long me, long opp) {
+        return Integer.signum(Long.bitCount(me) - Long.bitCount(opp));
+    }
+
+    /** Write my table to disk, if it is kept in a file. */
+    void flush() {
+        for (ByteBuffer segment : _table) {
+            if (segment instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) segment).force();
+            }
+        }
+    }
+
+    /** Return the number of table entries in use. */
+    long stored() {
+        long result = 0;
+        for (ByteBuffer segment : _table) {
+            for (int at = 0; at < segment.capacity(); at += ENTRY) {
+                if (segment.getLong(at + 8) != 0) {
+                    result += 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** A search in one thread. */
+    private class Searcher {
+
+        /** Return the value for the side to move of the position in
+         *  which it has pieces ME and its opponent OPP, after JUMPS
+         *  consecutive jumps, PLY plies from the root, if it lies
+         *  strictly between ALPHA and BETA, and otherwise a bound on it
+         *  (as in fail-soft alpha-beta). */
+        int solve(long me, long opp, int jumps, int alpha, int beta,
+                  int ply) {
+            _count += 1;
+            if (opp == 0) {
+                return 1;
+            } else if (me == 0) {
+                return -1;
+            }
+            boolean meMoves = canMove(me, opp);
+            if (jumps >= Board.JUMP_LIMIT
+                || (!meMoves && !canMove(opp, me))) {
+                return value(me, opp);
+            }
+            long key = me | ((long) jumps << KEY_JUMPS);
+            int lo = -1, hi = 1;
+            long stored = probe(key, opp);
+            if (stored != 0) {
+                lo = (int) (stored & 3) - 1;
+                hi = (int) ((stored >> 2) & 3) - 1;
+                if (lo == hi || lo >= beta || hi <= alpha) {
+                    return lo >= beta ? lo : hi <= alpha ? hi : lo;
+                }
+                alpha = Math.max(alpha, lo);
+                beta = Math.min(beta, hi);
+            }
+            int a0 = alpha, b0 = beta;
+            int best;
+            if (!meMoves) {
+                best = -solve(opp, me, jumps, -beta, -alpha, ply + 1);
+            } else {
+                int[] moves = moveBuffer(ply);
+                int n = moves(me, opp, moves);
+                best = -2;
+                for (int k = 0; k < n && best < beta; k += 1) {
+                    long[] child = play(me, opp, moves[k]);
+                    int v = -solve(child[1], child[0], jumps(jumps, moves[k]),
+                                   -beta, -Math.max(alpha, best), ply + 1);
+                    best = Math.max(best, v);
+                }
+            }
+            if (best <= a0) {
+                hi = Math.min(hi, best);
+            } else if (best >= b0) {
+                lo = Math.max(lo, best);
+            } else {
+                lo = hi = best;
+            }
+            store(key, opp, lo, hi);
+            return best;
+        }
+
+        /** Return the number of positions I have visited. */
+        long nodes() {
+            return _count;
+        }
+
+        /** Return the buffer for the moves at PLY. */
+        private int[] moveBuffer(int ply) {
+            while (_moveStack.size() <= ply) {
+                _moveStack.add(new int[MAX_MOVES]);
+            }
+            return _moveStack.get(ply);
+        }
+
+        /** Move buffers for each ply. */
+        private final List<int[]> _moveStack = new ArrayList<>();
+        /** Number of positions visited. */
+        private long _count;
+    }
+
+    /** Return the data stored for the position with key KEY and
+     *  opponent's pieces OPP, or 0 if none. */
+    private long probe(long key, long opp) {
+        long i = index(key, opp);
+        ByteBuffer segment = _table[(int) (i / SEGMENT)];
+        int at = (int) (i % SEGMENT) * ENTRY;
+        synchronized (_locks[(int) i & (STRIPES - 1)]) {
+            long check = segment.getLong(at), data = segment.getLong(at + 8);
+            if (data != 0 && (check ^ data) == key
+                && data >>> DATA_OPP == opp) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /** Record that the value of the position with key KEY and opponent's
+     *  pieces OPP lies between LO and HI, replacing whatever entry was in
+     *  its slot. */
+    private void store(long key, long opp, int lo, int hi) {
+        long i = index(key, opp);
+        ByteBuffer segment = _table[(int) (i / SEGMENT)];
+        int at = (int) (i % SEGMENT) * ENTRY;
+        long data = (opp << DATA_OPP) | ((hi + 1) << 2) | (lo + 1) | VALID;
+        synchronized (_locks[(int) i & (STRIPES - 1)]) {
+            segment.putLong(at + 8, data);
+            segment.putLong(at, key ^ data);
+        }
+    }
+
+    /** Return the slot of the position with key KEY and opponent's pieces
+     *  OPP. */
+    private long index(long key, long opp) {
+        long h = key * 0x9E3779B97F4A7C15L ^ opp * 0xC2B2AE3D27D4EB4FL;
+        return h >>> (Long.numberOfLeadingZeros(_entries) + 1);
+    }
+
+    /** Insert move MV into MOVES[0 .. N-1], kept in decreasing order of
+     *  gain, and return N + 1. */
+    private static int insert(int[] moves, int n, int mv) {
+        int i = n;
+        while (i > 0 && gain(moves[i - 1]) < gain(mv)) {
+            moves[i] = moves[i - 1];
+            i -= 1;
+        }
+        moves[i] = mv;
+        return n + 1;
+    }
+
+    /** Return the encoding of a move from square FROM to square TO (equal
+     *  for an extend) with material gain GAIN. */
+    private static int move(int from, int to, int gain) {
+        return (gain << 16) | (from << 8) | to;
+    }
+
+    /** Return the square from which MV is made. */
+    private static int from(int mv) {
+        return (mv >> 8) & 0xff;
+    }
+
+    /** Return the square to which MV is made. */
+    private static int to(int mv) {
+        return mv & 0xff;
+    }
+
+    /** Return the material gain of MV. */
+    private static int gain(int mv) {
+        return mv >> 16;
+    }
+
+    /** Return the name of square SQ. */
+    private String square(int sq) {
+        return "" + (char) ('a' + sq % _side) + (char) ('1' + sq / _side);
+    }
+
+    /** Return a full-size board with the blocks listed in BLOCKS (as
+     *  for parseBlocks) reached from the initial position by random
+     *  extends (or jumps, when there are none), chosen using RANDOM,
+     *  with EMPTY empty squares left, or null if the game ends first or
+     *  the side to move must then pass. */
+    static Board randomBoard(String blocks, int empty, Random random) {
+        Board board = new Board();
+        if (!blocks.equals("-")) {
+            for (String sq : blocks.split(",")) {
+                board.setBlock(sq);
+            }
+        }
+        while (!board.gameOver() && board.numPieces(EMPTY) > empty) {
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            List<Move> extensions = new ArrayList<>();
+            for (Move mv : moves) {
+                if (mv.isExtend()) {
+                    extensions.add(mv);
+                }
+            }
+            if (!extensions.isEmpty()) {
+                moves = extensions;
+            }
+            board.makeMove(moves.isEmpty() ? Move.pass()
+                           : moves.get(random.nextInt(moves.size())));
+        }
+        return board.gameOver() || !board.canMove(board.whoseMove())
+            ? null : board;
+    }
+
+    /** Have AI, searching with SETTINGS, choose moves in POSITIONS random
+     *  positions with the blocks listed in BLOCKS and EMPTY empty
+     *  squares, printing those whose proven values are worse than the
+     *  best on OUT, and return the number of such moves. */
+    static int check(AI ai, Settings settings, String blocks,
+                     int positions, int empty, PrintStream out) {
+        Solver solver = new Solver(Board.SIDE,
+                                   parseBlocks(Board.SIDE, blocks),
+                                   DEFAULT_ENTRIES);
+        Random random = new Random(positions);
+        int tried, wrong;
+        tried = wrong = 0;
+        for (int k = 0; k < positions; k += 1) {
+            Board board = randomBoard(blocks, empty, random);
+            if (board == null) {
+                continue;
+            }
+            tried += 1;
+            Move move = ai.findMove(board, settings);
+            int best = solver.solve(board), value = solver.solve(board, move);
+            if (value < best) {
+                wrong += 1;
+                out.printf("%s plays %s, a %s, in%n%s%n", board.whoseMove(),
+                           move, OUTCOMES[value + 1], board);
+            }
+        }
+        out.printf("%d positions, %d moves worse than the best%n", tried,
+                   wrong);
+        return wrong;
+    }
+
+    /** Solve the board described by ARGS, or check the AI as ARGS
+     *  describe, as in the class comment. */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2 && args.length <= 5 && args[0].equals("check")) {
+            Settings settings = new Settings();
+            if (args.length > 4) {
+                settings.set("depth", args[4]);
+            }
+            check(new AI(), settings, args[1],
+                  args.length > 2 ? Integer.parseInt(args[2]) : 100,
+                  args.length > 3 ? Integer.parseInt(args[3]) : 10,
+                  System.out);
+            return;
+        }
+        if (args.length < 1 || args.length > 6) {
+            System.err.println("Usage: java ataxx.Solver SIDE [BLOCKS "
+                               + "[THREADS [TABLE [SECONDS [ENTRIES]]]]]");
+            System.err.println("       java ataxx.Solver check BLOCKS "
+                               + "[POSITIONS [EMPTY [DEPTH]]]");
+            System.exit(1);
+        }
+        int side = Integer.parseInt(args[0]);
+        long blocks = parseBlocks(side, args.length > 1 ? args[1] : "-");
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        File file = args.length > 3 ? new File(args[3]) : null;
+        long seconds = args.length > 4 ? Long.parseLong(args[4]) : 60;
+        long entries = args.length > 5 ? Long.parseLong(args[5])
+            : DEFAULT_ENTRIES;
+        Solver solver;
+        Thread flusher = null;
+        if (file == null) {
+            solver = new Solver(side, blocks, entries);
+        } else {
+            try {
+                solver = open(side, blocks, entries, file);
+            } catch (IOException excp) {
+                System.err.printf("Cannot use table %s: %s%n", file,
+                                  excp.getMessage());
+                System.exit(1);
+                return;
+            }
+            long stored = solver.stored();
+            if (stored > 0) {
+                System.out.printf("Resuming from %s (%d entries).%n",
+                                  file, stored);
+            }
+            flusher = new Thread(() -> {
+                try {
+                    while (true) {
+                        Thread.sleep(seconds * 1000);
+                        solver.flush();
+                    }
+                } catch (InterruptedException excp) {
+                    /* Stop flushing. */
+                }
+            });
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+        long start = System.nanoTime();
+        int value = solver.solve(threads);
+        if (flusher != null) {
+            flusher.interrupt();
+            solver.flush();
+        }
+        List<String> moves = solver.rootMoves();
+        int[] values = solver.rootValues();
+        for (int k = 0; k < moves.size(); k += 1) {
+            System.out.printf("%s %s%n", moves.get(k), RESULTS[values[k] + 1]);
+        }
+        System.out.printf("%dx%d: %s (%d nodes, %.1f s)%n", side, side,
+                          RESULTS[value + 1], solver.nodes(),
+                          (System.nanoTime() - start) / 1e9);
+    }
+
+    /** Descriptions of the values -1, 0, and 1 for red. */
+    private static final String[] RESULTS = {
+        "blue wins", "draw", "red wins"
+    };
+    /** Descriptions of the values -1, 0, and 1 of a move. */
+    private static final String[] OUTCOMES = {
+        "loss", "draw", "win"
+    };
+
+    /** Identifies table files ("ATAXXSLV", little-endian). */
+    private static final long MAGIC = 0x564C535858415441L;
+    /** Size of a table file's header and of an entry, in bytes. */
+    private static final int HEADER = 28, ENTRY = 16;
+    /** Number of entries in a full segment of a table. */
+    private static final int SEGMENT = 1 << 26;
+    /** Largest number of table entries. */
+    private static final long MAX_ENTRIES = 1L << 40;
+    /** Most moves from a position. */
+    private static final int MAX_MOVES = Board.SIDE * Board.SIDE * 17;
+    /** Number of locks guarding the table. */
+    private static final int STRIPES = 1024;
+    /** Stack size of solver threads, which recurse deeply. */
+    private static final long STACK_SIZE = 1L << 28;
+    /** Position of the jump count in a key. */
+    private static final int KEY_JUMPS = Board.SIDE * Board.SIDE;
+    /** Position of the opponent's pieces in table data. */
+    private static final int DATA_OPP = 5;
+    /** Bit set in all table data in use. */
+    private static final long VALID = 1 << 4;
+
+    /** Side length. */
+    private final int _side;
+    /** Number of squares. */
+    private final int _squares;
+    /** Bits of all squares. */
+    private final long _full;
+    /** Bits of blocked squares. */
+    private final long _blocks;
+    /** The squares adjacent to each square. */
+    private final long[] _near;
+    /** The squares two away from each square. */
+    private final long[] _far;
+    /** Number of table entries, a power of two. */
+    private final long _entries;
+    /** The table, in segments of SEGMENT entries.  Each entry holds a
+     *  check (the key, made of the mover's pieces and the jump count,
+     *  XORed with the data) and data: the opponent's pieces, VALID, and
+     *  the bounds on the value plus one, in bits 2-3 (upper) and 0-1
+     *  (lower). */
+    private final ByteBuffer[] _table;
+    /** Locks guarding _table, by entry index modulo STRIPES. */
+    private final Object[] _locks = new Object[STRIPES];
+    {
+        for (int s = 0; s < STRIPES; s += 1) {
+            _locks[s] = new Object();
+        }
+    }
+    /** Positions visited. */
+    private final AtomicLong _nodes = new AtomicLong();
+    /** Red's first moves in the last solve. */
+    private List<Integer> _rootMoves = new ArrayList<>();
+    /** Their values. */
+    private int[] _rootValues = new int[0];
+}
@@ -0,0 +1,194 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of the small-board solver.
+ *  @author Tianyi Fang
+ */
+public class SolverTest {
+
+    /** Return the pieces of COLOR in POSITION as solver bits, for a
+     *  full-sized board. */
+    private long bits(Position position, PieceColor color) {
+        long result = 0;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                if (position.get(Board.index(c, r)) == color) {
+                    result |= Solver.bit(Board.SIDE, c, r);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return the moves of the solver for the side with pieces ME against
+     *  OPP, as strings, extends being written as the destination only. */
+    private TreeSet<String> solverMoves(Solver solver, long me, long opp) {
+        int[] moves = new int[1000];
+        int n = solver.moves(me, opp, moves);
+        TreeSet<String> result = new TreeSet<>();
+        for (int k = 0; k < n; k += 1) {
+            int from = (moves[k] >> 8) & 0xff, to = moves[k] & 0xff;
+            String dest = "" + (char) ('a' + to % 7) + (char) ('1' + to / 7);
+            result.add(from == to ? dest
+                       : "" + (char) ('a' + from % 7) + (char) ('1' + from / 7)
+                       + "-" + dest);
+        }
+        return result;
+    }
+
+    /** Return MOVES as by solverMoves. */
+    private TreeSet<String> boardMoves(List<Move> moves) {
+        TreeSet<String> result = new TreeSet<>();
+        for (Move mv : moves) {
+            String dest = "" + mv.col1() + mv.row1();
+            result.add(mv.isExtend() ? dest : mv.toString());
+        }
+        return result;
+    }
+
+    @Test public void testRulesMatchFullBoard() {
+        Random random = new Random(4);
+        Board board = new Board();
+        board.setBlock('c', '3');
+        Solver solver = new Solver(Board.SIDE,
+                                   Solver.parseBlocks(Board.SIDE, "c3"),
+                                   1024);
+        Position position = new Position(board);
+        assertEquals(bits(position, RED), solver.initial(true));
+        assertEquals(bits(position, BLUE), solver.initial(false));
+        while (!position.gameOver()) {
+            PieceColor me = position.whoseMove();
+            long mine = bits(position, me), theirs = bits(position,
+                                                          me.opposite());
+            List<Move> moves = position.allLegalMoves(me);
+            assertEquals(boardMoves(moves),
+                         solverMoves(solver, mine, theirs));
+            assertEquals(!moves.isEmpty(), solver.canMove(mine, theirs));
+            Move mv = moves.isEmpty() ? Move.pass()
+                : moves.get(random.nextInt(moves.size()));
+            position.makeMove(mv);
+            if (!mv.isPass()) {
+                int from = Long.numberOfTrailingZeros(
+                    Solver.bit(7, mv.col0(), mv.row0()));
+                int to = Long.numberOfTrailingZeros(
+                    Solver.bit(7, mv.col1(), mv.row1()));
+                int encoded = mv.isExtend() ? (to << 8) | to
+                    : (from << 8) | to;
+                long[] after = solver.play(mine, theirs, encoded);
+                assertEquals(bits(position, me), after[0]);
+                assertEquals(bits(position, me.opposite()), after[1]);
+            }
+        }
+    }
+
+    /** Return the value of the position with pieces ME to move against
+     *  OPP after JUMPS jumps, on SOLVER's board, by plain minimax,
+     *  remembering the values of positions in MEMO. */
+    private int minimax(Solver solver, long me, long opp, int jumps,
+                        HashMap<Long, Integer> memo) {
+        long key = me | opp << 16 | (long) jumps << 32;
+        Integer known = memo.get(key);
+        if (known != null) {
+            return known;
+        }
+        int best;
+        if (me == 0 || opp == 0 || jumps >= Board.JUMP_LIMIT) {
+            best = Solver.value(me, opp);
+        } else if (!solver.canMove(me, opp)) {
+            best = solver.canMove(opp, me)
+                ? -minimax(solver, opp, me, jumps, memo)
+                : Solver.value(me, opp);
+        } else {
+            int[] moves = new int[200];
+            int n = solver.moves(me, opp, moves);
+            best = -1;
+            for (int k = 0; k < n; k += 1) {
+                long[] child = solver.play(me, opp, moves[k]);
+                best = Math.max(best,
+                                -minimax(solver, child[1], child[0],
+                                         Solver.jumps(jumps, moves[k]),
+                                         memo));
+            }
+        }
+        memo.put(key, best);
+        return best;
+    }
+
+    @Test public void testAgainstMinimax() {
+        Random random = new Random(9);
+        Solver solver = new Solver(3, 0, 1 << 16);
+        HashMap<Long, Integer> memo = new HashMap<>();
+        for (int trial = 0; trial < 40; trial += 1) {
+            long me = 0, opp = 0;
+            for (int sq = 0; sq < 9; sq += 1) {
+                int x = random.nextInt(10);
+                if (x < 3) {
+                    me |= 1L << sq;
+                } else if (x < 6) {
+                    opp |= 1L << sq;
+                }
+            }
+            assertEquals(minimax(solver, me, opp, 0, memo),
+                         solver.solve(me, opp, 0));
+        }
+    }
+
+    @Test public void testSmallBoards() {
+        Solver solver = new Solver(3, 0, 1024);
+        assertEquals(1, solver.solve(1));
+        assertTrue(solver.rootMoves().contains("b2-b2"));
+        assertEquals(1, solver.rootValues()[solver.rootMoves()
+                                            .indexOf("b2-b2")]);
+        assertEquals(Solver.bit(5, 'b', '2') | Solver.bit(5, 'd', '2')
+                     | Solver.bit(5, 'b', '4') | Solver.bit(5, 'd', '4'),
+                     Solver.parseBlocks(5, "b2"));
+    }
+
+    @Test public void testTableFile() throws IOException {
+        File file = File.createTempFile("ataxx", ".solver");
+        file.deleteOnExit();
+        long blocks = Solver.parseBlocks(4, "b2");
+        Solver solver = Solver.open(4, blocks, 1 << 16, file);
+        assertEquals(0, solver.stored());
+        long me = Solver.bit(4, 'a', '4') | Solver.bit(4, 'a', '3'),
+            opp = Solver.bit(4, 'a', '1') | Solver.bit(4, 'd', '4');
+        int value = solver.solve(me, opp, 0);
+        long nodes = solver.nodes();
+        solver.flush();
+        Solver resumed = Solver.open(4, blocks, 1 << 10, file);
+        assertEquals(solver.stored(), resumed.stored());
+        assertEquals(value, resumed.solve(me, opp, 0));
+        assertTrue(resumed.nodes() < nodes);
+        try {
+            Solver.open(4, 0, 1 << 16, file);
+            fail("opened a table for another board");
+        } catch (IOException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** Check that the AI, with its default settings, never chooses a
+     *  move that the solver proves worse than the best in endgames it
+     *  can prove. */
+    @Test public void testAIMoves() {
+        String blocks = "c1,c2,c3,c4,d1,d2,d3,d4";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(out.toString(), 0,
+                     Solver.check(new AI(), new Settings(), blocks, 10, 5,
+                                  new PrintStream(out, true)));
+        assertTrue(out.toString().matches("(?s)[1-9]\\d* positions, 0 .*"));
+    }
+}
@@ -0,0 +1,400 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static ataxx.PieceColor.*;
+
+/** Labeled positions for training evaluations, as written by SelfPlay.
+ *  Records have a fixed width of RECORD_BYTES bytes: the red, blue, and
+ *  blocked squares as 49-bit masks (bit 7 * row + column, as by
+ *  Solver.bit), with the side to move and the jump count packed above
+ *  the red squares; the search score (positive favors red, wins being
+ *  clamped to +-WIN_SCORE); the final result (1, 0, or -1 for a red
+ *  win, a draw, or a blue win); and the number of plies played.  They
+ *  are stored in shards, gzip-compressed files each holding a header
+ *  and up to a fixed number of records, so that generators can write
+ *  them in parallel and readers can mix them.
+ *  @author Tianyi Fang
+ */
+class TrainingData {
+
+    /** Size of a record in bytes. */
+    static final int RECORD_BYTES = 28;
+    /** Magnitude to which the scores of won positions are clamped. */
+    static final int WIN_SCORE = 30000;
+    /** Suffix of the names of shard files. */
+    static final String SUFFIX = ".atd.gz";
+
+    /** A labeled position. */
+    static class Record {
+        /** A record of POSITION, after PLY plies, with search score SCORE
+         *  and final result RESULT (both positive if they favor red). */
+        Record(Position position, int score, int result, int ply) {
+            long red = 0, blue = 0, blocks = 0;
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                for (char r = '1'; r <= '7'; r += 1) {
+                    long bit = Solver.bit(Board.SIDE, c, r);
+                    switch (position.get(Board.index(c, r))) {
+                    case RED:
+                        red |= bit;
+                        break;
+                    case BLUE:
+                        blue |= bit;
+                        break;
+                    case BLOCKED:
+                        blocks |= bit;
+                        break;
+                    default:
+                        break;
+                    }
+                }
+            }
+            _red = red;
+            _blue = blue;
+            _blocks = blocks;
+            _blueToMove = position.whoseMove() == BLUE;
+            _jumps = Math.min(position.numJumps(), Board.JUMP_LIMIT);
+            _score = Math.max(-WIN_SCORE, Math.min(WIN_SCORE, score));
+            _result = Integer.signum(result);
+            _ply = Math.min(ply, MAX_PLY);
+        }
+
+        /** A record read from IN. */
+        Record(DataInputStream in) throws IOException {
+            long first = in.readLong();
+            _red = first & SQUARES_MASK;
+            _blueToMove = (first & BLUE_TO_MOVE) != 0;
+            _jumps = (int) (first >>> JUMPS_SHIFT) & 0x1f;
+            _blue = in.readLong();
+            _blocks = in.readLong();
+            _score = in.readShort();
+            _result = in.readByte();
+            _ply = in.readUnsignedByte();
+        }
+
+        /** Write me to OUT as RECORD_BYTES bytes. */
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(_red | (_blueToMove ? BLUE_TO_MOVE : 0)
+                          | ((long) _jumps << JUMPS_SHIFT));
+            out.writeLong(_blue);
+            out.writeLong(_blocks);
+            out.writeShort(_score);
+            out.writeByte(_result);
+            out.writeByte(_ply);
+        }
+
+        /** Return the position recorded. */
+        Board board() {
+            return board(_red | (_blueToMove ? BLUE_TO_MOVE : 0)
+                         | ((long) _jumps << JUMPS_SHIFT), _blue, _blocks);
+        }
+
+        /** Return the position whose record starts with the words FIRST,
+         *  BLUE, and BLOCKS, or null if they describe none (squares in
+         *  two masks or off the board, or too many jumps). */
+        static Board board(long first, long blue, long blocks) {
+            long red = first & SQUARES_MASK;
+            int jumps = (int) (first >>> JUMPS_SHIFT) & 0x1f;
+            if ((red & blue) != 0 || ((red | blue) & blocks) != 0
+                || ((blue | blocks) & ~SQUARES_MASK) != 0
+                || jumps > Board.JUMP_LIMIT) {
+                return null;
+            }
+            StringBuilder fen = new StringBuilder();
+            for (char r = '7'; r >= '1'; r -= 1) {
+                for (char c = 'a'; c <= 'g'; c += 1) {
+                    long bit = Solver.bit(Board.SIDE, c, r);
+                    fen.append((red & bit) != 0 ? 'x'
+                               : (blue & bit) != 0 ? 'o'
+                               : (blocks & bit) != 0 ? '-' : '1');
+                }
+                fen.append(r > '1' ? "/" : "");
+            }
+            fen.append((first & BLUE_TO_MOVE) != 0 ? " o " : " x ")
+                .append(jumps);
+            Board board = new Board();
+            board.setPosition(fen.toString());
+            return board;
+        }
+
+        /** Return the red, blue, and blocked squares as masks. */
+        long red() {
+            return _red;
+        }
+
+        long blue() {
+            return _blue;
+        }
+
+        long blocks() {
+            return _blocks;
+        }
+
+        /** Return the side to move. */
+        PieceColor whoseMove() {
+            return _blueToMove ? BLUE : RED;
+        }
+
+        /** Return the search score (positive favors red). */
+        int score() {
+            return _score;
+        }
+
+        /** Return the final result: 1, 0, or -1 for a red win, a draw, or
+         *  a blue win. */
+        int result() {
+            return _result;
+        }
+
+        /** Return the number of plies played before the position, up to
+         *  MAX_PLY. */
+        int ply() {
+            return _ply;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Record)) {
+                return false;
+            }
+            Record other = (Record) obj;
+            return _red == other._red && _blue == other._blue
+                && _blocks == other._blocks
+                && _blueToMove == other._blueToMove
+                && _jumps == other._jumps && _score == other._score
+                && _result == other._result && _ply == other._ply;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(_red * 31 + _blue) ^ _score;
+        }
+
+        /** Largest number of plies recorded. */
+        private static final int MAX_PLY = 255;
+        /** Mask of the squares in a mask. */
+        private static final long SQUARES_MASK =
+            (1L << (Board.SIDE * Board.SIDE)) - 1;
+        /** Bit of the first word of a record indicating blue to move. */
+        private static final long BLUE_TO_MOVE =
+            1L << (Board.SIDE * Board.SIDE);
+        /** Position of the jump count in the first word. */
+        private static final int JUMPS_SHIFT = Board.SIDE * Board.SIDE + 1;
+
+        /** Squares of each color. */
+        private final long _red, _blue, _blocks;
+        /** True iff blue is to move. */
+        private final boolean _blueToMove;
+        /** Jump count, score, result, and plies played. */
+        private final int _jumps, _score, _result, _ply;
+    }
+
+    /** Writes records to a series of shards named PREFIX-00000, PREFIX-00001,
+     *  and so on (plus SUFFIX), in a directory.  Not safe for use by
+     *  several threads; give each its own prefix. */
+    static class Writer implements Closeable {
+        /** A writer of shards of up to SHARD_RECORDS records each, in
+         *  directory DIR, named after PREFIX. */
+        Writer(File dir, String prefix, int shardRecords) {
+            _dir = dir;
+            _prefix = prefix;
+            _shardRecords = shardRecords;
+        }
+
+        /** Add RECORD to the current shard, starting a new one if
+         *  needed. */
+        void add(Record record) throws IOException {
+            if (_out == null || _count == _shardRecords) {
+                close();
+                File file = new File(_dir, String.format("%s-%05d%s",
+                                                         _prefix, _shards,
+                                                         SUFFIX));
+                _out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(new FileOutputStream(file))));
+                _out.writeInt(MAGIC);
+                _out.writeShort(VERSION);
+                _out.writeShort(RECORD_BYTES);
+                _shards += 1;
+                _count = 0;
+            }
+            record.write(_out);
+            _count += 1;
+        }
+
+        /** Return the number of shards started. */
+        int shards() {
+            return _shards;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (_out != null) {
+                _out.close();
+                _out = null;
+            }
+        }
+
+        /** Directory and name prefix of the shards. */
+        private final File _dir;
+        private final String _prefix;
+        /** Records per shard. */
+        private final int _shardRecords;
+        /** Current shard (null if none). */
+        private DataOutputStream _out;
+        /** Shards started, and records in the current one. */
+        private int _shards, _count;
+    }
+
+    /** Return the shards in DIR, in order of name. */
+    static List<File> shards(File dir) {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /** Return the records of SHARD, in order. */
+    static List<Record> read(File shard) throws IOException {
+        List<Record> result = new ArrayList<>();
+        try (DataInputStream in = open(shard)) {
+            while (true) {
+                try {
+                    result.add(new Record(in));
+                } catch (EOFException excp) {
+                    return result;
+                }
+            }
+        }
+    }
+
+    /** Return a stream of the records of SHARD, positioned after its
+     *  header. */
+    private static DataInputStream open(File shard) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(new FileInputStream(shard))));
+        if (in.readInt() != MAGIC || in.readShort() != VERSION
+            || in.readShort() != RECORD_BYTES) {
+            in.close();
+            throw new IOException("not a training data shard: " + shard);
+        }
+        return in;
+    }
+
+    /** Streams the records of a set of shards in shuffled order.  The
+     *  shards are taken in random order, up to OPEN_SHARDS at a time, and
+     *  each record comes from a random one of them into a buffer, from
+     *  which records are drawn at random.  Each record is returned once.
+     *  I/O errors are thrown as UncheckedIOExceptions. */
+    static class ShuffledReader implements Iterator<Record>, Closeable {
+        /** A reader of the shards in DIR, with a buffer of BUFFER records,
+         *  using RANDOM to shuffle. */
+        ShuffledReader(File dir, int buffer, Random random) {
+            _random = random;
+            _pending = shards(dir);
+            Collections.shuffle(_pending, random);
+            _buffer = new Record[Math.max(1, buffer)];
+            while (_size < _buffer.length) {
+                Record record = readNext();
+                if (record == null) {
+                    break;
+                }
+                _buffer[_size] = record;
+                _size += 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _size > 0;
+        }
+
+        @Override
+        public Record next() {
+            if (_size == 0) {
+                throw new NoSuchElementException();
+            }
+            int k = _random.nextInt(_size);
+            Record result = _buffer[k];
+            Record refill = readNext();
+            if (refill != null) {
+                _buffer[k] = refill;
+            } else {
+                _size -= 1;
+                _buffer[k] = _buffer[_size];
+                _buffer[_size] = null;
+            }
+            return result;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (DataInputStream in : _open) {
+                in.close();
+            }
+            _open.clear();
+            _pending.clear();
+        }
+
+        /** Return the next record from a random open shard, opening more
+         *  as needed, or null if there are no more. */
+        private Record readNext() {
+            try {
+                while (true) {
+                    while (_open.size() < OPEN_SHARDS && !_pending.isEmpty()) {
+                        _open.add(open(_pending.remove(_pending.size() - 1)));
+                    }
+                    if (_open.isEmpty()) {
+                        return null;
+                    }
+                    int k = _random.nextInt(_open.size());
+                    try {
+                        return new Record(_open.get(k));
+                    } catch (EOFException excp) {
+                        _open.remove(k).close();
+                    }
+                }
+            } catch (IOException excp) {
+                throw new UncheckedIOException(excp);
+            }
+        }
+
+        /** Number of shards read at once. */
+        private static final int OPEN_SHARDS = 8;
+
+        /** Source of randomness. */
+        private final Random _random;
+        /** Shards not yet opened. */
+        private final List<File> _pending;
+        /** Shards being read. */
+        private final List<DataInputStream> _open = new ArrayList<>();
+        /** Records read and not yet returned: _buffer[0 .. _size-1]. */
+        private final Record[] _buffer;
+        private int _size;
+    }
+
+    /** Identifies shards ("ATXD"). */
+    private static final int MAGIC = 0x41545844;
+    /** Version of the record format. */
+    private static final short VERSION = 1;
+}
@@ -0,0 +1,128 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+
+/** Tests of training data and its generation.
+ *  @author Tianyi Fang
+ */
+public class TrainingDataTest {
+
+    /** Return a new empty temporary directory, deleted on exit. */
+    private File tempDir() throws IOException {
+        File dir = Files.createTempDirectory("ataxx").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    /** Delete DIR and its files. */
+    private void delete(File dir) {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    /** Return N records of distinct positions from random games. */
+    private List<TrainingData.Record> records(int n) {
+        Random random = new Random(3);
+        List<TrainingData.Record> result = new ArrayList<>();
+        Board board = new Board();
+        board.setBlock('c', '3');
+        while (result.size() < n) {
+            if (board.gameOver()) {
+                board = new Board();
+            }
+            List<Move> moves = board.allLegalMoves(board.whoseMove());
+            board.makeMove(moves.isEmpty() ? Move.pass()
+                           : moves.get(random.nextInt(moves.size())));
+            result.add(new TrainingData.Record(new Position(board),
+                                               result.size() - n / 2,
+                                               result.size() % 3 - 1,
+                                               result.size()));
+        }
+        return result;
+    }
+
+    @Test public void testRoundTrip() throws IOException {
+        Board board = new Board();
+        board.setBlock('b', '2');
+        board.makeMove(Move.move('a', '7', 'c', '5'));
+        TrainingData.Record record =
+            new TrainingData.Record(new Position(board), 5000000, -1, 300);
+        assertEquals(TrainingData.WIN_SCORE, record.score());
+        assertEquals(-1, record.result());
+        assertEquals(255, record.ply());
+        assertEquals(BLUE, record.whoseMove());
+        assertEquals(board.toString(), record.board().toString());
+        assertEquals(board.numJumps(), record.board().numJumps());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        record.write(new DataOutputStream(bytes));
+        assertEquals(TrainingData.RECORD_BYTES, bytes.size());
+        TrainingData.Record copy = new TrainingData.Record(
+            new DataInputStream(new ByteArrayInputStream(
+                bytes.toByteArray())));
+        assertEquals(record, copy);
+        assertEquals(record.blocks(), copy.blocks());
+    }
+
+    @Test public void testShuffledReader() throws IOException {
+        File dir = tempDir();
+        List<TrainingData.Record> records = records(100);
+        try (TrainingData.Writer out =
+             new TrainingData.Writer(dir, "t", 30)) {
+            for (TrainingData.Record record : records) {
+                out.add(record);
+            }
+            assertEquals(4, out.shards());
+        }
+        assertEquals(4, TrainingData.shards(dir).size());
+        assertEquals(records.subList(0, 30),
+                     TrainingData.read(TrainingData.shards(dir).get(0)));
+        List<TrainingData.Record> shuffled = new ArrayList<>();
+        try (TrainingData.ShuffledReader in =
+             new TrainingData.ShuffledReader(dir, 16, new Random(1))) {
+            while (in.hasNext()) {
+                shuffled.add(in.next());
+            }
+        }
+        assertEquals(records.size(), shuffled.size());
+        assertEquals(new HashSet<>(records), new HashSet<>(shuffled));
+        assertNotEquals(records, shuffled);
+        delete(dir);
+    }
+
+    @Test public void testSelfPlay() throws Exception {
+        File dir = tempDir();
+        SelfPlay selfPlay = new SelfPlay(dir, 1, 7);
+        selfPlay.run(2, 2);
+        assertEquals(2, selfPlay.games());
+        assertTrue(selfPlay.positions() > 0);
+        int n = 0;
+        HashSet<Long> seen = new HashSet<>();
+        for (File shard : TrainingData.shards(dir)) {
+            for (TrainingData.Record record : TrainingData.read(shard)) {
+                Position position = new Position(record.board());
+                assertTrue(seen.add(position.hash()));
+                assertFalse(position.gameOver());
+                n += 1;
+            }
+        }
+        assertEquals(selfPlay.positions(), n);
+        delete(dir);
+    }
+}
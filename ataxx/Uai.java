@@ -0,0 +1,317 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** A machine protocol for driving the AI from tournament managers,
+ *  modelled on UAI, so that one JVM can play any number of games.
+ *  Commands, one per line:
+ *      uai                    identify, list options, reply 'uaiok'.
+ *      isready                reply 'readyok'.
+ *      setoption name N value V   set the setting N (see Settings), or
+ *                             if N is "cache", use the cache file V
+ *                             (see PositionCache), or none if V is
+ *                             "off".
+ *      uainewgame             forget the current game.
+ *      position (startpos | fen FEN) [moves M ...]
+ *                             set up a position (see Board.setPosition).
+ *      go [wtime T] [btime T] [winc T] [binc T] [movetime T]
+ *         [depth D] [nodes N] [infinite]
+ *                             search the position, printing 'info' lines
+ *                             and finally 'bestmove M'.
+ *      stop                   finish the current search now.
+ *      quit                   exit.
+ *  Times are in milliseconds.  Moves are written as the destination
+ *  square for an extend ("b2"), the two squares for a jump ("a1c3"), and
+ *  "0000" for a pass; "a1-c3" is also accepted.  Scores in 'info' lines
+ *  are for the side to move: "cp N" (in hundredths of a piece), "mate
+ *  N" (a win in N moves, or a loss if N is negative), or "proven win",
+ *  "proven loss", or "proven draw" (an outcome proven without finding
+ *  its distance).
+ *  @author Tianyi Fang
+ */
+class Uai {
+
+    /** A driver reading commands from INPUT and writing replies to
+     *  OUTPUT. */
+    Uai(Reader input, PrintStream output) {
+        _input = new BufferedReader(input);
+        _out = output;
+        _ai.setListener(this::info);
+    }
+
+    /** Have searches use CACHE (none if null), which I do not close
+     *  when I replace it. */
+    void setCache(PositionCache cache) {
+        _cache = cache;
+        _ownCache = false;
+        _ai.setCache(cache);
+    }
+
+    /** Process commands until 'quit', which cuts short any search in
+     *  progress, or the end of the input, which waits for it. */
+    void run() throws IOException {
+        for (String line = _input.readLine(); line != null;
+             line = _input.readLine()) {
+            String[] words = line.trim().split("\\s+");
+            if (words[0].isEmpty()) {
+                continue;
+            }
+            if (words[0].equals("quit")) {
+                _ai.stop();
+                break;
+            }
+            try {
+                command(words);
+            } catch (GameException excp) {
+                _out.printf("info string %s%n", excp.getMessage());
+            }
+        }
+        awaitSearch();
+    }
+
+    /** Perform the command whose words are WORDS. */
+    private void command(String[] words) {
+        switch (words[0]) {
+        case "uai":
+            _out.println("id name Ataxx");
+            _out.println("id author Tianyi Fang");
+            for (String option : _settings.toString().split("\\R")) {
+                String[] f = option.split(" ");
+                _out.printf("option name %s type spin default %s%n",
+                            f[0], f[1]);
+            }
+            _out.println("option name cache type string default off");
+            _out.println("uaiok");
+            break;
+        case "isready":
+            _out.println("readyok");
+            break;
+        case "setoption":
+            if (words.length != 5 || !words[1].equals("name")
+                || !words[3].equals("value")) {
+                throw error("Bad setoption command");
+            }
+            awaitSearch();
+            if (words[2].equals("cache")) {
+                _cache = PositionCache.replace(_ownCache ? _cache : null,
+                                               words[4]);
+                _ownCache = _cache != null;
+                _ai.setCache(_cache);
+            } else {
+                _settings.set(words[2], words[4]);
+            }
+            break;
+        case "uainewgame":
+            awaitSearch();
+            _board = new Board();
+            break;
+        case "position":
+            awaitSearch();
+            position(words);
+            break;
+        case "go":
+            awaitSearch();
+            go(words);
+            break;
+        case "stop":
+            _ai.stop();
+            awaitSearch();
+            break;
+        default:
+            throw error("Unknown command: %s", words[0]);
+        }
+    }
+
+    /** Set up the position described by the 'position' command WORDS. */
+    private void position(String[] words) {
+        Board board = new Board();
+        int k;
+        if (words.length > 1 && words[1].equals("startpos")) {
+            k = 2;
+        } else if (words.length > 1 && words[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (k = 2; k < words.length && !words[k].equals("moves");
+                 k += 1) {
+                fen.append(words[k]).append(' ');
+            }
+            board.setPosition(fen.toString());
+        } else {
+            throw error("Bad position command");
+        }
+        if (k < words.length && words[k].equals("moves")) {
+            for (k += 1; k < words.length; k += 1) {
+                board.makeMove(parseMove(board, words[k]));
+            }
+        } else if (k < words.length) {
+            throw error("Bad position command");
+        }
+        _board = board;
+    }
+
+    /** Start a search as directed by the 'go' command WORDS. */
+    private void go(String[] words) {
+        long nodes = 0, moveTime = 0;
+        long[] time = new long[2], inc = new long[2];
+        int depth = 0;
+        boolean infinite = false;
+        for (int k = 1; k < words.length; k += 1) {
+            if (words[k].equals("infinite")) {
+                infinite = true;
+                continue;
+            }
+            if (k + 1 == words.length) {
+                throw error("Bad go command");
+            }
+            long value;
+            try {
+                value = Long.parseLong(words[k + 1]);
+            } catch (NumberFormatException excp) {
+                throw error("Bad go command");
+            }
+            switch (words[k]) {
+            case "wtime": time[0] = value; break;
+            case "btime": time[1] = value; break;
+            case "winc": inc[0] = value; break;
+            case "binc": inc[1] = value; break;
+            case "movetime": moveTime = value; break;
+            case "nodes": nodes = value; break;
+            case "depth": depth = (int) value; break;
+            default: throw error("Bad go command");
+            }
+            k += 1;
+        }
+
+        Board board = new Board(_board);
+        if (board.gameOver()) {
+            _out.println("bestmove 0000");
+            return;
+        }
+        int me = board.whoseMove() == RED ? 0 : 1;
+        long soft = moveTime / 2, hard = moveTime;
+        if (moveTime == 0 && time[me] > 0) {
+            int empty = board.numPieces(EMPTY);
+            soft = GameClock.softMillis(time[me], inc[me], empty);
+            hard = GameClock.hardMillis(time[me], inc[me], empty);
+        }
+        Settings settings = new Settings(_settings);
+        if (depth > 0) {
+            settings.set("depth", Integer.toString(depth));
+        } else if (infinite || hard > 0 || nodes > 0) {
+            settings.set("depth", Integer.toString(AI.MAX_PLY - 1));
+        }
+        if (infinite) {
+            soft = hard = 0;
+        }
+        _ai.setLimits(nodes, soft, hard);
+        _ai.resume();
+        _search = new Thread(() -> {
+            Move best = board.canMove(board.whoseMove())
+                ? _ai.findMove(board, settings) : Move.pass();
+            _out.printf("bestmove %s%n", moveText(best));
+        }, "search");
+        _search.setDaemon(true);
+        _search.start();
+    }
+
+    /** Wait for the current search, if any, to finish. */
+    private void awaitSearch() {
+        if (_search == null) {
+            return;
+        }
+        try {
+            _search.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+        _search = null;
+    }
+
+    /** Print an 'info' line for the last completed iteration of AI. */
+    private void info(AI ai) {
+        int score = ai.lastScore();
+        if (_board.whoseMove() == BLUE) {
+            score = -score;
+        }
+        String value;
+        if (ai.lastProven()) {
+            value = "proven " + (score > 0 ? "win" : score < 0 ? "loss"
+                                 : "draw");
+        } else if (Math.abs(score) > AI.PROVEN_VALUE) {
+            int plies = AI.WINNING_VALUE - Math.abs(score);
+            value = "mate " + Integer.signum(score) * ((plies + 1) / 2);
+        } else {
+            value = "cp " + score * 100;
+        }
+        long millis = ai.elapsedMillis();
+        StringBuilder line = new StringBuilder();
+        line.append(String.format("info depth %d score %s nodes %d time %d "
+                                  + "nps %d pv", ai.lastDepth(), value,
+                                  ai.nodes(), millis,
+                                  ai.nodes() * 1000 / Math.max(1, millis)));
+        for (Move mv : ai.principalVariation()) {
+            line.append(' ').append(moveText(mv));
+        }
+        _out.println(line);
+    }
+
+    /** Return MOVE in protocol notation. */
+    static String moveText(Move move) {
+        if (move.isPass()) {
+            return "0000";
+        } else if (move.isExtend()) {
+            return "" + move.col1() + move.row1();
+        } else {
+            return "" + move.col0() + move.row0() + move.col1() + move.row1();
+        }
+    }
+
+    /** Return the legal move on BOARD denoted by TEXT in protocol
+     *  notation. */
+    static Move parseMove(Board board, String text) {
+        Move move = null;
+        String t = text.replace("-", "");
+        if (t.equals("0000")) {
+            move = Move.pass();
+        } else if (t.matches("[a-g][1-7]")) {
+            for (int dc = -1; dc <= 1 && move == null; dc += 1) {
+                for (int dr = -1; dr <= 1 && move == null; dr += 1) {
+                    char c = (char) (t.charAt(0) + dc),
+                        r = (char) (t.charAt(1) + dr);
+                    if (board.get(c, r) == board.whoseMove()) {
+                        move = Move.move(c, r, t.charAt(0), t.charAt(1));
+                    }
+                }
+            }
+        } else if (t.matches("[a-g][1-7][a-g][1-7]")) {
+            move = Move.move(t.charAt(0), t.charAt(1),
+                             t.charAt(2), t.charAt(3));
+        }
+        if (move == null || !board.legalMove(move)) {
+            throw error("Illegal move: %s", text);
+        }
+        return move;
+    }
+
+    /** Source of commands. */
+    private final BufferedReader _input;
+    /** Destination of replies. */
+    private final PrintStream _out;
+    /** Settings used by searches. */
+    private final Settings _settings = new Settings();
+    /** The searcher, kept between games so that it stays warm. */
+    private final AI _ai = new AI();
+    /** Cache of search results (null if none). */
+    private PositionCache _cache;
+    /** True iff I opened _cache, and so should close it. */
+    private boolean _ownCache;
+    /** The current position. */
+    private Board _board = new Board();
+    /** Thread running the current search (null if none). */
+    private Thread _search;
+}
@@ -0,0 +1,80 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/** Tests of the machine protocol.
+ *  @author Tianyi Fang
+ */
+public class UaiTest {
+
+    /** Return the output of a Uai session given INPUT. */
+    private String session(String input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        new Uai(new StringReader(input), out).run();
+        return bytes.toString();
+    }
+
+    @Test public void testFen() {
+        Board b = new Board();
+        assertEquals("x5o/7/7/7/7/7/o5x x 0", b.fen());
+        b.makeMove('g', '1', 'f', '2');
+        b.makeMove('a', '1', 'c', '3');
+        Board c = new Board();
+        c.setPosition(b.fen());
+        assertEquals("wrong position", b, c);
+        assertEquals(b.fen(), c.fen());
+        assertEquals(1, c.numJumps());
+        c.setPosition("x5o/1-3-1/7/7/7/1-3-1/o5x o");
+        assertEquals(PieceColor.BLOCKED, c.get('b', '6'));
+        assertEquals(PieceColor.BLUE, c.whoseMove());
+    }
+
+    @Test(expected = GameException.class)
+    public void testBadFen() {
+        new Board().setPosition("x5o/7/7/7/7/7 x 0");
+    }
+
+    @Test public void testMoveText() {
+        Board b = new Board();
+        Move ext = Uai.parseMove(b, "f2");
+        assertTrue(ext.isExtend());
+        assertEquals("f2", Uai.moveText(ext));
+        assertEquals("g1e3", Uai.moveText(Uai.parseMove(b, "g1-e3")));
+        assertEquals("0000", Uai.moveText(Move.pass()));
+    }
+
+    @Test public void testSession() throws IOException {
+        String out = session("uai\nisready\nsetoption name depth value 2\n"
+                             + "position startpos moves f2 b1\n"
+                             + "go depth 3\n");
+        assertTrue(out.contains("uaiok"));
+        assertTrue(out.contains("readyok"));
+        assertTrue(out.contains("info depth 3 "));
+        assertTrue(out.matches("(?s).*\\nbestmove [a-g][1-7]\\S*\\s*"));
+    }
+
+    @Test public void testProvenScore() throws IOException {
+        String out = session("position fen xxooooo/xoooooo/ooxxxxx/"
+                             + "ooxxxxx/1o1xxxx/ooooxxx/ooooxxx o 0\n"
+                             + "go depth 3\n");
+        assertTrue(out, out.contains(" score proven win "));
+        assertFalse(out, out.contains("mate"));
+    }
+
+    @Test public void testLimits() throws IOException {
+        String out = session("position startpos\ngo nodes 500\nstop\n"
+                             + "go wtime 200 btime 200\nquit\n");
+        assertEquals(2, out.split("bestmove").length - 1);
+        out = session("position startpos\ngo infinite\nquit\n");
+        assertEquals(1, out.split("bestmove").length - 1);
+        out = session("position startpos moves g1b1\nquit\n");
+        assertTrue(out.contains("Illegal move: g1b1"));
+    }
+}
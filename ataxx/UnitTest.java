@@ -11,7 +11,18 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, EvaluatorTest.class,
+                          MctsAITest.class, ProbCutTest.class,
+                          UaiTest.class, PositionTest.class,
+                          BoardSnapshotTest.class, BoardRendererTest.class,
+                          GameClockTest.class, PositionCacheTest.class,
+                          AnalyzerTest.class, CoordinatorTest.class,
+                          ParallelSearchTest.class, SolverTest.class,
+                          ProofSearchTest.class, RegionsTest.class,
+                          TrainingDataTest.class, NetworkTest.class,
+                          EngineTest.class, PipeTest.class,
+                          ScriptRunnerTest.class, ServerTest.class,
+                          GameTest.class);
     }
 
 }
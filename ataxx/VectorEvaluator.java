@@ -0,0 +1,147 @@
+package ataxx;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static ataxx.PieceColor.*;
+
+/** An Evaluator that uses the (incubating) Vector API.  A single
+ *  position is evaluated with one lane per square; a batch of positions
+ *  is evaluated with one lane per position, so that each vector
+ *  operation handles the same square of several positions.  This class
+ *  must only be loaded through Evaluator.create, which falls back to a
+ *  ScalarEvaluator when the jdk.incubator.vector module is absent.
+ *  @author Tianyi Fang
+ */
+final class VectorEvaluator extends Evaluator {
+
+    /** Vector shape used for all operations. */
+    private static final VectorSpecies<Integer> SPECIES =
+        IntVector.SPECIES_PREFERRED;
+    /** Number of lanes per vector. */
+    private static final int LANES = SPECIES.length();
+    /** Size of the padded single-position scratch arrays: large enough
+     *  that whole-vector loads starting anywhere in the span, at any
+     *  offset, stay in bounds.  Lanes past the span read zeros. */
+    private static final int PADDED = SQUARES + 2 * LANES;
+    /** SQUARE_WEIGHTS, padded to PADDED entries. */
+    private static final int[] WEIGHTS =
+        java.util.Arrays.copyOf(SQUARE_WEIGHTS, PADDED);
+
+    @Override
+    boolean isVector() {
+        return true;
+    }
+
+    @Override
+    void features(Position position, int[] result) {
+        encode(position, _diff, _empty);
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector material, weighted, mobility, frontier;
+        material = weighted = mobility = frontier = zero;
+        for (int i = 0; i < SPAN; i += LANES) {
+            int base = FIRST + i;
+            IntVector d = IntVector.fromArray(SPECIES, _diff, base);
+            IntVector near, far;
+            near = far = zero;
+            for (int off : NEAR) {
+                near = near.add(IntVector.fromArray(SPECIES, _empty,
+                                                    base + off));
+            }
+            for (int off : FAR) {
+                far = far.add(IntVector.fromArray(SPECIES, _empty,
+                                                  base + off));
+            }
+            material = material.add(d);
+            weighted = weighted.add(d.mul(IntVector.fromArray(SPECIES,
+                                                              WEIGHTS,
+                                                              base)));
+            mobility = mobility.add(d.mul(near.add(far)));
+            frontier = frontier.add(d.blend(zero,
+                                            near.compare(VectorOperators.EQ,
+                                                         0)));
+        }
+        result[MATERIAL] = material.reduceLanes(VectorOperators.ADD);
+        result[WEIGHTED] = weighted.reduceLanes(VectorOperators.ADD);
+        result[MOBILITY] = mobility.reduceLanes(VectorOperators.ADD);
+        result[FRONTIER] = frontier.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    void features(Board[] boards, int[][] result) {
+        int n = boards.length;
+        int stride = (n + LANES - 1) / LANES * LANES;
+        if (_batchDiff.length < SQUARES * stride) {
+            _batchDiff = new int[SQUARES * stride];
+            _batchEmpty = new int[SQUARES * stride];
+            _sums = new int[NUM_FEATURES][stride];
+        } else {
+            java.util.Arrays.fill(_batchDiff, 0, SQUARES * stride, 0);
+            java.util.Arrays.fill(_batchEmpty, 0, SQUARES * stride, 0);
+        }
+        for (int sq = FIRST; sq < FIRST + SPAN; sq += 1) {
+            if (SQUARE_WEIGHTS[sq] == 0) {
+                continue;
+            }
+            int row = sq * stride;
+            for (int p = 0; p < n; p += 1) {
+                PieceColor c = boards[p].get(sq);
+                _batchDiff[row + p] = c == RED ? 1 : c == BLUE ? -1 : 0;
+                _batchEmpty[row + p] = c == EMPTY ? 1 : 0;
+            }
+        }
+        IntVector zero = IntVector.zero(SPECIES);
+        for (int p = 0; p < stride; p += LANES) {
+            IntVector material, weighted, mobility, frontier;
+            material = weighted = mobility = frontier = zero;
+            for (int sq = FIRST; sq < FIRST + SPAN; sq += 1) {
+                if (SQUARE_WEIGHTS[sq] == 0) {
+                    continue;
+                }
+                IntVector d =
+                    IntVector.fromArray(SPECIES, _batchDiff, sq * stride + p);
+                IntVector near, far;
+                near = far = zero;
+                for (int off : NEAR) {
+                    near = near.add(IntVector.fromArray(SPECIES, _batchEmpty,
+                                              (sq + off) * stride + p));
+                }
+                for (int off : FAR) {
+                    far = far.add(IntVector.fromArray(SPECIES, _batchEmpty,
+                                              (sq + off) * stride + p));
+                }
+                material = material.add(d);
+                weighted = weighted.add(d.mul(SQUARE_WEIGHTS[sq]));
+                mobility = mobility.add(d.mul(near.add(far)));
+                frontier = frontier.add(d.blend(zero,
+                                    near.compare(VectorOperators.EQ, 0)));
+            }
+            material.intoArray(_sums[MATERIAL], p);
+            weighted.intoArray(_sums[WEIGHTED], p);
+            mobility.intoArray(_sums[MOBILITY], p);
+            frontier.intoArray(_sums[FRONTIER], p);
+        }
+        for (int p = 0; p < n; p += 1) {
+            for (int f = 0; f < NUM_FEATURES; f += 1) {
+                result[p][f] = _sums[f][p];
+            }
+        }
+    }
+
+    /** Scratch piece encoding, padded with zeros. */
+    private final int[] _diff = new int[PADDED];
+    /** Scratch empty-square encoding, padded with zeros. */
+    private final int[] _empty = new int[PADDED];
+    /** Piece encodings of a batch, indexed by square * stride + position,
+     *  where the stride is the batch size rounded up to a whole number
+     *  of vectors.  Only squares on the real board are written, so the
+     *  part used by a batch is cleared first: border entries must read
+     *  as zeros, and a batch with a smaller stride than an earlier one
+     *  would otherwise see that batch's entries there. */
+    private int[] _batchDiff = new int[0];
+    /** Empty-square encodings of a batch, laid out as _batchDiff. */
+    private int[] _batchEmpty = new int[0];
+    /** Per-position feature sums of a batch, indexed by feature. */
+    private int[][] _sums;
+}
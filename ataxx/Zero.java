@@ -0,0 +1,409 @@
+package ataxx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static ataxx.PieceColor.*;
+
+/** Trains a Network by reinforcement learning from self-play, in the
+ *  manner of AlphaZero but on the CPU.  Each generation
+ *  <ul>
+ *  <li> plays games of the best network so far against itself, each
+ *       move chosen by a NetSearch of a fixed number of visits, and
+ *       stores the positions, with the searches' visit distributions and
+ *       the games' results, in a ReplayBuffer on disk;
+ *  <li> trains a copy of the network on the examples of the last few
+ *       generations, the gradient of each minibatch being computed by
+ *       all the threads; and
+ *  <li> gates it: plays it against the AI, and makes it the best network
+ *       if it scores at least as well as the best one did.
+ *  </ul>
+ *  Each thread plays its share of the self-play games together, a step
+ *  at a time, evaluating the leaves of all their searches in one batch.
+ *  The best network is kept in the directory as best.net, from which the
+ *  "network" command can load it for use by the "net" engine, and from
+ *  which a later run continues.  The progress and the throughput are
+ *  reported on the standard error.
+ *  Usage:
+ *      java ataxx.Zero DIR [GENERATIONS [GAMES [VISITS [THREADS [SEED]]]]]
+ *  @author Tianyi Fang
+ */
+class Zero {
+
+    /** Name of the file holding the best network. */
+    static final String BEST = "best.net";
+    /** Number of generations of examples trained on. */
+    static final int WINDOW = 4;
+    /** Number of opening plies in which moves are chosen at random in
+     *  proportion to their visits, rather than the most visited. */
+    static final int SAMPLE_PLIES = 12;
+    /** Most blocks placed (each reflected four ways) before a game. */
+    static final int MAX_BLOCKS = 3;
+    /** Examples per minibatch, passes over the examples per generation,
+     *  and the learning rate, weight decay, and momentum. */
+    static final int MINIBATCH = 256, EPOCHS = 2;
+    static final double RATE = 0.02, DECAY = 1e-4, MOMENTUM = 0.9;
+    /** Number of gating games, and the search depth of the AI in
+     *  them. */
+    static final int GATE_GAMES = 8, GATE_DEPTH = 1;
+
+    /** Run ARGS[1] generations (default 10) of ARGS[2] games each (default
+     *  64), searching ARGS[3] visits per move (default 100), using
+     *  ARGS[4] threads (default the number of processors), with random
+     *  seed ARGS[5] (default 1), keeping the data in directory
+     *  ARGS[0]. */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java ataxx.Zero DIR [GENERATIONS "
+                               + "[GAMES [VISITS [THREADS [SEED]]]]]");
+            System.exit(1);
+        }
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int visits = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int threads = args.length > 4 ? Integer.parseInt(args[4])
+            : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 1;
+        Zero zero = new Zero(new File(args[0]), games, visits, threads,
+                             seed);
+        zero.run(generations);
+    }
+
+    /** A trainer keeping its data in DIR, playing GAMES self-play games
+     *  per generation with VISITS visits per move, using THREADS threads,
+     *  with random seed SEED. */
+    Zero(File dir, int games, int visits, int threads, long seed) {
+        _dir = dir;
+        _games = games;
+        _visits = visits;
+        _threads = threads;
+        _seed = seed;
+        _buffer = new ReplayBuffer(dir, WINDOW);
+    }
+
+    /** Run GENERATIONS generations, continuing from any earlier run in
+     *  the same directory. */
+    void run(int generations) throws IOException {
+        if (!_dir.isDirectory() && !_dir.mkdirs()) {
+            throw new IOException("cannot create " + _dir);
+        }
+        File bestFile = new File(_dir, BEST);
+        Network best;
+        if (bestFile.exists()) {
+            best = Network.load(bestFile);
+        } else {
+            best = new Network(Network.DEFAULT_HIDDEN, new Random(_seed));
+            best.save(bestFile);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(_threads);
+        try {
+            double bestScore = gate(best, pool);
+            int first = _buffer.nextGeneration();
+            for (int gen = first; gen < first + generations; gen += 1) {
+                long start = System.nanoTime();
+                List<Network.Sample> samples = selfPlay(best, gen, pool);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                _buffer.add(gen, samples);
+                System.err.printf("Generation %d: %d positions in %.1f s, "
+                                  + "%.1f/s per thread, %.1f leaves per "
+                                  + "batch%n", gen, samples.size(),
+                                  seconds,
+                                  samples.size() / seconds / _threads,
+                                  _leaves / (double) Math.max(1, _batches));
+                Network candidate = new Network(best);
+                double loss = train(candidate, _buffer.samples(), gen, pool);
+                double score = gate(candidate, pool);
+                boolean promoted = score >= bestScore;
+                if (promoted) {
+                    best = candidate;
+                    bestScore = score;
+                    best.save(bestFile);
+                }
+                System.err.printf("Generation %d: loss %.3f, score against "
+                                  + "AI %.2f (best %.2f)%s%n", gen, loss,
+                                  score, bestScore,
+                                  promoted ? ", promoted" : "");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Return the examples from the self-play games of generation GEN,
+     *  played by NETWORK, each thread of POOL playing its share of the
+     *  games together. */
+    List<Network.Sample> selfPlay(Network network, int gen,
+                                  ExecutorService pool) {
+        _leaves = _batches = 0;
+        List<Callable<List<Network.Sample>>> tasks = new ArrayList<>();
+        for (int t = 0; t < _threads; t += 1) {
+            List<Integer> mine = new ArrayList<>();
+            for (int g = t; g < _games; g += _threads) {
+                mine.add(g);
+            }
+            tasks.add(() -> playGames(network, gen, mine));
+        }
+        List<Network.Sample> result = new ArrayList<>();
+        for (List<Network.Sample> part : runAll(pool, tasks)) {
+            result.addAll(part);
+        }
+        return result;
+    }
+
+    /** Train NETWORK on SAMPLES for EPOCHS passes in random order (as
+     *  determined by generation GEN), using POOL.  Return the mean loss
+     *  of the last pass. */
+    double train(Network network, List<Network.Sample> samples, int gen,
+                 ExecutorService pool) {
+        Random random = new Random(_seed * 31 + gen);
+        double loss = 0;
+        for (int epoch = 0; epoch < EPOCHS; epoch += 1) {
+            Collections.shuffle(samples, random);
+            loss = 0;
+            for (int k = 0; k < samples.size(); k += MINIBATCH) {
+                List<Network.Sample> batch =
+                    samples.subList(k, Math.min(samples.size(),
+                                                k + MINIBATCH));
+                loss += network.train(batch, RATE, DECAY, MOMENTUM,
+                                      _threads, pool) * batch.size();
+            }
+            loss /= Math.max(1, samples.size());
+        }
+        return loss;
+    }
+
+    /** Return the score of NETWORK (1 for a win, 1/2 for a draw) per game
+     *  in GATE_GAMES games against the AI, alternating colors, played on
+     *  POOL. */
+    double gate(Network network, ExecutorService pool) {
+        List<Callable<Double>> tasks = new ArrayList<>();
+        for (int g = 0; g < GATE_GAMES; g += 1) {
+            int game = g;
+            tasks.add(() -> gateGame(network, game));
+        }
+        double total = 0;
+        for (double score : runAll(pool, tasks)) {
+            total += score;
+        }
+        return total / GATE_GAMES;
+    }
+
+    /** A self-play game in progress. */
+    private class Slot {
+        /** Game number GAME of generation GEN. */
+        Slot(int gen, int game) {
+            _random = new Random((_seed * 1000003 + gen) * 1000003 + game);
+            _state.load(randomBoard(_random));
+            _search.reset(_state);
+        }
+
+        /** Continue until a leaf of the current search needs evaluating,
+         *  returning true, or until the game is over, returning false. */
+        boolean advance() {
+            while (!_over) {
+                if (_search.visits() >= _visits) {
+                    move();
+                } else if (_search.select()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Record the current position and make the move chosen by the
+         *  search, then any passes, ending the game if it is over. */
+        private void move() {
+            int n = _search.rootPolicy(_moves, _fractions);
+            _inputs.add(Network.features(_state));
+            _policies.add(Arrays.copyOf(_moves, n));
+            _targets.add(Arrays.copyOf(_fractions, n));
+            _sides.add(_state.side());
+            _state.play(_search.chooseMove(_plies < SAMPLE_PLIES, _random));
+            _plies += 1;
+            while (true) {
+                if (_state.jumps() >= Board.JUMP_LIMIT) {
+                    _over = true;
+                } else if (_state.moves(_moves) == 0) {
+                    if (_state.opponentCanMove()) {
+                        _state.play(MctsAI.State.PASS);
+                        continue;
+                    }
+                    _over = true;
+                }
+                break;
+            }
+            _search.reset(_state);
+        }
+
+        /** Return the examples of the finished game. */
+        List<Network.Sample> samples() {
+            int winner = _state.leader();
+            List<Network.Sample> result = new ArrayList<>();
+            for (int k = 0; k < _inputs.size(); k += 1) {
+                float value = winner == 0 ? 0
+                    : winner == _sides.get(k) ? 1 : -1;
+                result.add(new Network.Sample(_inputs.get(k),
+                                              _policies.get(k),
+                                              _targets.get(k), value));
+            }
+            return result;
+        }
+
+        /** The search for the current move. */
+        private final NetSearch _search = new NetSearch(searchNodes());
+        /** The current position. */
+        private final MctsAI.State _state = new MctsAI.State();
+        /** Source of randomness. */
+        private final Random _random;
+        /** Number of moves made by searching. */
+        private int _plies;
+        /** True iff the game is over. */
+        private boolean _over;
+        /** Inputs, legal moves and their target probabilities, and side
+         *  to move, of the positions searched. */
+        private final List<float[]> _inputs = new ArrayList<>(),
+            _targets = new ArrayList<>();
+        private final List<int[]> _policies = new ArrayList<>();
+        private final List<Integer> _sides = new ArrayList<>();
+        /** Scratch space for the root policy. */
+        private final int[] _moves = new int[MctsAI.State.MAX_MOVES];
+        private final float[] _fractions = new float[MctsAI.State.MAX_MOVES];
+    }
+
+    /** Return the examples of games GAMES of generation GEN, played
+     *  together by NETWORK. */
+    private List<Network.Sample> playGames(Network network, int gen,
+                                           List<Integer> games) {
+        List<Slot> slots = new ArrayList<>();
+        for (int g : games) {
+            slots.add(new Slot(gen, g));
+        }
+        Network.Batch batch = new Network.Batch(network, slots.size());
+        Slot[] waiting = new Slot[slots.size()];
+        long leaves = 0, batches = 0;
+        while (true) {
+            int n = 0;
+            for (Slot slot : slots) {
+                if (slot.advance()) {
+                    batch.set(n, slot._search.leaf());
+                    waiting[n] = slot;
+                    n += 1;
+                }
+            }
+            if (n == 0) {
+                break;
+            }
+            network.evaluate(batch, n);
+            for (int k = 0; k < n; k += 1) {
+                waiting[k]._search.expand(batch, k);
+            }
+            leaves += n;
+            batches += 1;
+        }
+        synchronized (this) {
+            _leaves += leaves;
+            _batches += batches;
+        }
+        List<Network.Sample> result = new ArrayList<>();
+        for (Slot slot : slots) {
+            result.addAll(slot.samples());
+        }
+        return result;
+    }
+
+    /** Return the score of NETWORK in gating game number GAME against the
+     *  AI: 1 for a win, 1/2 for a draw, and 0 for a loss.  NETWORK plays
+     *  red in even-numbered games. */
+    private double gateGame(Network network, int game) {
+        Random random = new Random(_seed * 7919 + game);
+        Board board = randomBoard(random);
+        PieceColor netColor = game % 2 == 0 ? RED : BLUE;
+        AI ai = new AI();
+        ai.setSeed(_seed + game);
+        Settings settings = new Settings();
+        settings.set("depth", Integer.toString(GATE_DEPTH));
+        NetSearch search = new NetSearch(searchNodes());
+        Network.Batch batch = new Network.Batch(network, 1);
+        MctsAI.State state = new MctsAI.State();
+        while (!board.gameOver()) {
+            if (!board.canMove(board.whoseMove())) {
+                board.makeMove(Move.pass());
+            } else if (board.whoseMove() == netColor) {
+                state.load(board);
+                search.reset(state);
+                while (search.visits() < _visits) {
+                    if (search.select()) {
+                        batch.set(0, search.leaf());
+                        network.evaluate(batch, 1);
+                        search.expand(batch, 0);
+                    }
+                }
+                board.makeMove(MctsAI.toMove(search.chooseMove(false,
+                                                               random)));
+            } else {
+                board.makeMove(ai.findMove(board, settings));
+            }
+        }
+        int diff = board.numPieces(netColor)
+            - board.numPieces(netColor.opposite());
+        return diff > 0 ? 1 : diff == 0 ? 0.5 : 0;
+    }
+
+    /** Return a new board with up to MAX_BLOCKS random blocks chosen
+     *  using RANDOM. */
+    private static Board randomBoard(Random random) {
+        Board board = new Board();
+        int blocks = random.nextInt(MAX_BLOCKS + 1);
+        for (int k = 0; k < blocks; k += 1) {
+            char c = (char) ('a' + random.nextInt(Board.SIDE)),
+                r = (char) ('1' + random.nextInt(Board.SIDE));
+            if (board.legalBlock(c, r)) {
+                board.setBlock(c, r);
+            }
+        }
+        return board;
+    }
+
+    /** Return the number of tree nodes needed by a search of _visits
+     *  visits. */
+    private int searchNodes() {
+        return (_visits + 1) * MctsAI.State.MAX_MOVES / 8;
+    }
+
+    /** Run TASKS on POOL, returning their results in order. */
+    private static <T> List<T> runAll(ExecutorService pool,
+                                      List<Callable<T>> tasks) {
+        List<T> result = new ArrayList<>();
+        try {
+            for (Future<T> f : pool.invokeAll(tasks)) {
+                result.add(f.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        }
+        return result;
+    }
+
+    /** Directory of the best network and the replay buffer. */
+    private final File _dir;
+    /** Self-play games per generation, and visits per move. */
+    private final int _games, _visits;
+    /** Number of threads. */
+    private final int _threads;
+    /** Random seed. */
+    private final long _seed;
+    /** Examples of recent generations. */
+    private final ReplayBuffer _buffer;
+    /** Leaves evaluated and batches used in the last self-play. */
+    private long _leaves, _batches;
+}